@@ -0,0 +1,210 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.Ipv6;
+import com.github.jgonian.ipmath.Ipv6Range;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic synthetic datasets shaped like a full BGP table. The prefix length distributions roughly
+ * follow the ones observed in the IPv4 and IPv6 default-free zone (dominated by /24 and /48 respectively),
+ * so that range sets built from them have a realistic mix of nesting, overlaps and adjacency.
+ */
+public final class BgpTableDataset {
+
+    public static final int IPV4_TABLE_SIZE = 1000000;
+    public static final int IPV6_TABLE_SIZE = 200000;
+
+    private static final long DEFAULT_SEED = 0x5eed;
+
+    // {prefix length, weight per 10000 prefixes}
+    private static final int[][] IPV4_PREFIX_LENGTHS = {
+            {8, 1}, {12, 2}, {13, 3}, {14, 6}, {15, 10}, {16, 140}, {17, 80}, {18, 140}, {19, 250},
+            {20, 420}, {21, 480}, {22, 1100}, {23, 900}, {24, 6468}
+    };
+
+    private static final int[][] IPV6_PREFIX_LENGTHS = {
+            {19, 2}, {20, 10}, {22, 8}, {24, 30}, {28, 40}, {29, 300}, {30, 30}, {32, 1400}, {33, 100},
+            {34, 100}, {35, 50}, {36, 350}, {40, 900}, {42, 150}, {44, 1300}, {45, 100}, {46, 300}, {47, 200},
+            {48, 4630}
+    };
+
+    private static final long IPV6_GLOBAL_UNICAST = 0x2000000000000000L;
+    private static final long IPV6_GLOBAL_UNICAST_MASK = 0x1fffffffffffffffL;
+
+    private BgpTableDataset() {
+    }
+
+    public static List<Ipv4Range> ipv4Prefixes(int count) {
+        return ipv4Prefixes(count, DEFAULT_SEED);
+    }
+
+    public static List<Ipv4Range> ipv4Prefixes(int count, long seed) {
+        Random random = new Random(seed);
+        List<Ipv4Range> prefixes = new ArrayList<Ipv4Range>(count);
+        for (int i = 0; i < count; i++) {
+            int prefixLength = pick(random, IPV4_PREFIX_LENGTHS);
+            long start = randomIpv4Value(random) & ipv4Mask(prefixLength);
+            prefixes.add(Ipv4Range.from(start).andPrefixLength(prefixLength));
+        }
+        return prefixes;
+    }
+
+    public static List<Ipv6Range> ipv6Prefixes(int count) {
+        return ipv6Prefixes(count, DEFAULT_SEED);
+    }
+
+    public static List<Ipv6Range> ipv6Prefixes(int count, long seed) {
+        Random random = new Random(seed);
+        List<Ipv6Range> prefixes = new ArrayList<Ipv6Range>(count);
+        for (int i = 0; i < count; i++) {
+            int prefixLength = pick(random, IPV6_PREFIX_LENGTHS);
+            // all the prefix lengths of the table are shorter than 64 bits
+            long high = randomIpv6High(random) & (-1L << (64 - prefixLength));
+            prefixes.add(Ipv6Range.from(toBigInteger(high, 0)).andPrefixLength(prefixLength));
+        }
+        return prefixes;
+    }
+
+    /**
+     * @return non-aligned ranges, each one decomposing into several prefixes
+     */
+    public static List<Ipv4Range> ipv4Ranges(int count) {
+        Random random = new Random(DEFAULT_SEED);
+        List<Ipv4Range> ranges = new ArrayList<Ipv4Range>(count);
+        for (int i = 0; i < count; i++) {
+            long start = randomIpv4Value(random);
+            long end = Math.min(Ipv4.MAXIMUM_VALUE, start + (random.nextInt() & 0xffffff));
+            ranges.add(Ipv4Range.from(start).to(end));
+        }
+        return ranges;
+    }
+
+    /**
+     * @return non-aligned ranges, each one decomposing into several prefixes
+     */
+    public static List<Ipv6Range> ipv6Ranges(int count) {
+        Random random = new Random(DEFAULT_SEED);
+        List<Ipv6Range> ranges = new ArrayList<Ipv6Range>(count);
+        for (int i = 0; i < count; i++) {
+            long high = randomIpv6High(random);
+            long low = random.nextLong();
+            BigInteger start = toBigInteger(high, low);
+            BigInteger end = toBigInteger(high + (random.nextInt() & 0xffff), random.nextLong()).max(start);
+            ranges.add(Ipv6Range.from(start).to(end));
+        }
+        return ranges;
+    }
+
+    public static String[] ipv4Addresses(int count) {
+        Random random = new Random(DEFAULT_SEED);
+        String[] addresses = new String[count];
+        for (int i = 0; i < count; i++) {
+            addresses[i] = Ipv4.of(randomIpv4Value(random)).toString();
+        }
+        return addresses;
+    }
+
+    /**
+     * @return a mix of the textual representations of IPv6 addresses, i.e. compressed as recommended by RFC 5952,
+     * fully expanded and with an embedded IPv4 address
+     */
+    public static String[] ipv6Addresses(int count) {
+        Random random = new Random(DEFAULT_SEED);
+        String[] addresses = new String[count];
+        for (int i = 0; i < count; i++) {
+            long high = randomIpv6High(random);
+            // sparse low bits make '::' compression as common as in real traffic
+            long low = random.nextBoolean() ? random.nextInt(0x10000) : random.nextLong();
+            Ipv6 ipv6 = Ipv6.of(toBigInteger(high, low));
+            switch (random.nextInt(8)) {
+                case 0:
+                    addresses[i] = expanded(high, low);
+                    break;
+                case 1:
+                    addresses[i] = "::ffff:" + Ipv4.of(low & Ipv4.MAXIMUM_VALUE);
+                    break;
+                default:
+                    addresses[i] = ipv6.toString();
+            }
+        }
+        return addresses;
+    }
+
+    private static String expanded(long high, long low) {
+        StringBuilder sb = new StringBuilder(39);
+        for (int i = 0; i < 8; i++) {
+            long word = i < 4 ? high : low;
+            int shift = (3 - (i % 4)) * 16;
+            if (i > 0) {
+                sb.append(':');
+            }
+            sb.append(String.format("%04x", (word >>> shift) & 0xffff));
+        }
+        return sb.toString();
+    }
+
+    private static int pick(Random random, int[][] distribution) {
+        int total = 0;
+        for (int[] entry : distribution) {
+            total += entry[1];
+        }
+        int value = random.nextInt(total);
+        for (int[] entry : distribution) {
+            value -= entry[1];
+            if (value < 0) {
+                return entry[0];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    private static long randomIpv4Value(Random random) {
+        return random.nextInt() & Ipv4.MAXIMUM_VALUE;
+    }
+
+    private static long ipv4Mask(int prefixLength) {
+        return (Ipv4.MAXIMUM_VALUE << (Ipv4.NUMBER_OF_BITS - prefixLength)) & Ipv4.MAXIMUM_VALUE;
+    }
+
+    private static long randomIpv6High(Random random) {
+        return IPV6_GLOBAL_UNICAST | (random.nextLong() & IPV6_GLOBAL_UNICAST_MASK);
+    }
+
+    private static BigInteger toBigInteger(long high, long low) {
+        byte[] bytes = new byte[16];
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (high >>> (56 - 8 * i));
+            bytes[i + 8] = (byte) (low >>> (56 - 8 * i));
+        }
+        return new BigInteger(1, bytes);
+    }
+}
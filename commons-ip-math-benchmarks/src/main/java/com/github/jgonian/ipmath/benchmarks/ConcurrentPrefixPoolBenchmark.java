@@ -0,0 +1,111 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.BuddyPrefixFinder;
+import com.github.jgonian.ipmath.ConcurrentPrefixPool;
+import com.github.jgonian.ipmath.ConservativePrefixFinder;
+import com.github.jgonian.ipmath.Ipv6;
+import com.github.jgonian.ipmath.Ipv6Range;
+import com.github.jgonian.ipmath.SortedRangeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks allocating a /64 from a shared IPv6 pool and releasing it again. The pool is either a
+ * {@link ConcurrentPrefixPool}, a single {@link BuddyPrefixFinder} guarded by one lock, or a {@link SortedRangeSet}
+ * searched with the {@link ConservativePrefixFinder} under one lock, which is the baseline.
+ * <p>
+ * The benchmarks run on all available cores by default. Running them with <tt>-t 1</tt>, <tt>-t 2</tt>, ...
+ * <tt>-t &lt;cores&gt;</tt> shows how the total throughput scales with the number of threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(Threads.MAX)
+public class ConcurrentPrefixPoolBenchmark {
+
+    private static final int FREE_BLOCKS = 1000;
+    private static final int PREFIX_LENGTH = 64;
+
+    @State(Scope.Benchmark)
+    public static class Pools {
+
+        ConcurrentPrefixPool<Ipv6, Ipv6Range> concurrentPool;
+        BuddyPrefixFinder<Ipv6, Ipv6Range> lockedFinder;
+        SortedRangeSet<Ipv6, Ipv6Range> lockedPool;
+        ConservativePrefixFinder<Ipv6, Ipv6Range> conservativeFinder;
+
+        @Setup
+        public void setUp() {
+            lockedPool = new SortedRangeSet<Ipv6, Ipv6Range>();
+            lockedPool.addAll(BgpTableDataset.ipv6Ranges(FREE_BLOCKS));
+            concurrentPool = new ConcurrentPrefixPool<Ipv6, Ipv6Range>(lockedPool);
+            lockedFinder = BuddyPrefixFinder.newInstance(lockedPool.unmodifiableSet());
+            conservativeFinder = ConservativePrefixFinder.newInstance();
+        }
+    }
+
+    @Benchmark
+    public Ipv6Range concurrentAllocateAndRelease(Pools pools) {
+        Ipv6Range prefix = pools.concurrentPool.allocate(PREFIX_LENGTH);
+        pools.concurrentPool.release(prefix);
+        return prefix;
+    }
+
+    @Benchmark
+    public Ipv6Range lockedBuddyAllocateAndRelease(Pools pools) {
+        synchronized (pools.lockedFinder) {
+            Ipv6Range prefix = pools.lockedFinder.allocatePrefixOrNull(PREFIX_LENGTH);
+            pools.lockedFinder.release(prefix);
+            return prefix;
+        }
+    }
+
+    @Benchmark
+    public Ipv6Range lockedConservativeAllocateAndRelease(Pools pools) {
+        synchronized (pools.lockedPool) {
+            Collection<Ipv6Range> freeBlocks = new ArrayList<Ipv6Range>(pools.lockedPool.unmodifiableSet());
+            Ipv6Range prefix = pools.conservativeFinder.findPrefixOrNull(PREFIX_LENGTH, freeBlocks);
+            pools.lockedPool.remove(prefix);
+            pools.lockedPool.add(prefix);
+            return prefix;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.ConcurrentSortedRangeSet;
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.SortedRangeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks lookups of a full IPv4 table shared between threads. The lookups go either through a
+ * {@link ConcurrentSortedRangeSet} or through a {@link SortedRangeSet} guarded by a single lock, which is
+ * the baseline.
+ * <p>
+ * The lookup benchmarks run on all available cores by default. Running them with <tt>-t 1</tt>, <tt>-t 2</tt>,
+ * ... <tt>-t &lt;cores&gt;</tt> shows how the total read throughput scales with the number of readers. The
+ * <tt>readWhileWriting</tt> group adds a writer, which keeps publishing new versions of the table while the
+ * readers run.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class ConcurrentSortedRangeSetBenchmark {
+
+    private static final int SAMPLES = 1 << 12;
+    private static final int MASK = SAMPLES - 1;
+
+    @State(Scope.Benchmark)
+    public static class Tables {
+
+        ConcurrentSortedRangeSet<Ipv4, Ipv4Range> concurrentTable;
+        SortedRangeSet<Ipv4, Ipv4Range> lockedTable;
+        Ipv4[] samples;
+        Ipv4Range[] updates;
+
+        @Setup
+        public void setUp() {
+            lockedTable = new SortedRangeSet<Ipv4, Ipv4Range>();
+            lockedTable.addAll(BgpTableDataset.ipv4Prefixes(BgpTableDataset.IPV4_TABLE_SIZE));
+            concurrentTable = new ConcurrentSortedRangeSet<Ipv4, Ipv4Range>(lockedTable);
+            samples = new Ipv4[SAMPLES];
+            String[] addresses = BgpTableDataset.ipv4Addresses(SAMPLES);
+            for (int i = 0; i < SAMPLES; i++) {
+                samples[i] = Ipv4.parse(addresses[i]);
+            }
+            updates = BgpTableDataset.ipv4Prefixes(SAMPLES, 7).toArray(new Ipv4Range[SAMPLES]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        int next() {
+            return index++ & MASK;
+        }
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean concurrentContains(Tables tables, Cursor cursor) {
+        return tables.concurrentTable.contains(tables.samples[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean lockedContains(Tables tables, Cursor cursor) {
+        Ipv4 address = tables.samples[cursor.next()];
+        synchronized (tables.lockedTable) {
+            return tables.lockedTable.contains(address.asRange());
+        }
+    }
+
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(3)
+    public boolean read(Tables tables, Cursor cursor) {
+        return tables.concurrentTable.contains(tables.samples[cursor.next()]);
+    }
+
+    /**
+     * Adds a prefix and removes it again in a single update, which copies and republishes the whole table.
+     */
+    @Benchmark
+    @Group("readWhileWriting")
+    @GroupThreads(1)
+    public void write(Tables tables, Cursor cursor) {
+        final Ipv4Range range = tables.updates[cursor.next()];
+        tables.concurrentTable.update(new ConcurrentSortedRangeSet.Update<Ipv4, Ipv4Range>() {
+            @Override
+            public void apply(SortedRangeSet<Ipv4, Ipv4Range> ranges) {
+                ranges.add(range);
+                ranges.remove(range);
+            }
+        });
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.Ipv6;
+import com.github.jgonian.ipmath.Ipv6Range;
+import com.github.jgonian.ipmath.PrefixUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares <tt>toString</tt> with the <tt>formatTo</tt> methods writing into a reused <tt>StringBuilder</tt> or
+ * byte array, as an exporter of many addresses or prefixes would. Also measures the prefix length computation,
+ * which formatting a prefix relies on.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FormatBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+    private static final int MASK = SAMPLES - 1;
+
+    private Ipv4[] ipv4Addresses;
+    private Ipv6[] ipv6Addresses;
+    private Ipv4Range[] ipv4Prefixes;
+    private Ipv6Range[] ipv6Prefixes;
+    private final StringBuilder sb = new StringBuilder(128);
+    private final byte[] buffer = new byte[128];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        ipv4Addresses = new Ipv4[SAMPLES];
+        ipv6Addresses = new Ipv6[SAMPLES];
+        String[] ipv4Text = BgpTableDataset.ipv4Addresses(SAMPLES);
+        String[] ipv6Text = BgpTableDataset.ipv6Addresses(SAMPLES);
+        for (int i = 0; i < SAMPLES; i++) {
+            ipv4Addresses[i] = Ipv4.parse(ipv4Text[i]);
+            ipv6Addresses[i] = Ipv6.parse(ipv6Text[i]);
+        }
+        List<Ipv4Range> ipv4 = BgpTableDataset.ipv4Prefixes(SAMPLES);
+        List<Ipv6Range> ipv6 = BgpTableDataset.ipv6Prefixes(SAMPLES);
+        ipv4Prefixes = ipv4.toArray(new Ipv4Range[ipv4.size()]);
+        ipv6Prefixes = ipv6.toArray(new Ipv6Range[ipv6.size()]);
+    }
+
+    @Benchmark
+    public String ipv4ToString() {
+        return ipv4Addresses[index++ & MASK].toString();
+    }
+
+    @Benchmark
+    public int ipv4FormatToStringBuilder() throws IOException {
+        sb.setLength(0);
+        ipv4Addresses[index++ & MASK].formatTo(sb);
+        return sb.length();
+    }
+
+    @Benchmark
+    public int ipv4FormatToBytes() {
+        return ipv4Addresses[index++ & MASK].formatTo(buffer, 0);
+    }
+
+    @Benchmark
+    public String ipv6ToString() {
+        return ipv6Addresses[index++ & MASK].toString();
+    }
+
+    @Benchmark
+    public int ipv6FormatToStringBuilder() throws IOException {
+        sb.setLength(0);
+        ipv6Addresses[index++ & MASK].formatTo(sb);
+        return sb.length();
+    }
+
+    @Benchmark
+    public int ipv6FormatToBytes() {
+        return ipv6Addresses[index++ & MASK].formatTo(buffer, 0);
+    }
+
+    @Benchmark
+    public String ipv4PrefixToStringInCidrNotation() {
+        return ipv4Prefixes[index++ & MASK].toStringInCidrNotation();
+    }
+
+    @Benchmark
+    public int ipv4PrefixFormatInCidrNotationToBytes() {
+        return ipv4Prefixes[index++ & MASK].formatInCidrNotationTo(buffer, 0);
+    }
+
+    @Benchmark
+    public String ipv6PrefixToStringInCidrNotation() {
+        return ipv6Prefixes[index++ & MASK].toStringInCidrNotation();
+    }
+
+    @Benchmark
+    public int ipv6PrefixFormatInCidrNotationToBytes() {
+        return ipv6Prefixes[index++ & MASK].formatInCidrNotationTo(buffer, 0);
+    }
+
+    @Benchmark
+    public int ipv4PrefixLength() {
+        return PrefixUtils.getPrefixLength(ipv4Prefixes[index++ & MASK]);
+    }
+
+    @Benchmark
+    public int ipv6PrefixLength() {
+        return PrefixUtils.getPrefixLength(ipv6Prefixes[index++ & MASK]);
+    }
+}
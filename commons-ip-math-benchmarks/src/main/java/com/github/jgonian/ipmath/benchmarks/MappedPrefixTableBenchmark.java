@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.Ipv6Range;
+import com.github.jgonian.ipmath.MappedPrefixTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks longest-prefix-match lookups of random addresses in full-table sized {@link MappedPrefixTable} files,
+ * and opening such files. Compare with the lookups and loading of {@link PrefixMapBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class MappedPrefixTableBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+    private static final int MASK = SAMPLES - 1;
+    private static final int NO_MATCH = -1;
+
+    @State(Scope.Benchmark)
+    public static class Tables {
+
+        File ipv4File;
+        File ipv6File;
+        MappedPrefixTable ipv4Table;
+        MappedPrefixTable ipv6Table;
+        int[] ipv4Addresses;
+        long[] highs;
+        long[] lows;
+
+        @Setup
+        public void setUp() throws IOException {
+            List<Ipv4Range> ipv4Prefixes = BgpTableDataset.ipv4Prefixes(BgpTableDataset.IPV4_TABLE_SIZE);
+            Map<Ipv4Range, Integer> ipv4Values = new HashMap<Ipv4Range, Integer>();
+            for (int i = 0; i < ipv4Prefixes.size(); i++) {
+                ipv4Values.put(ipv4Prefixes.get(i), i);
+            }
+            List<Ipv6Range> ipv6Prefixes = BgpTableDataset.ipv6Prefixes(BgpTableDataset.IPV6_TABLE_SIZE);
+            Map<Ipv6Range, Integer> ipv6Values = new HashMap<Ipv6Range, Integer>();
+            for (int i = 0; i < ipv6Prefixes.size(); i++) {
+                ipv6Values.put(ipv6Prefixes.get(i), i);
+            }
+
+            ipv4File = File.createTempFile("ipv4", ".lpm");
+            OutputStream out = new FileOutputStream(ipv4File);
+            try {
+                MappedPrefixTable.writeIpv4(ipv4Values, out);
+            } finally {
+                out.close();
+            }
+            ipv6File = File.createTempFile("ipv6", ".lpm");
+            out = new FileOutputStream(ipv6File);
+            try {
+                MappedPrefixTable.writeIpv6(ipv6Values, out);
+            } finally {
+                out.close();
+            }
+            ipv4Table = MappedPrefixTable.open(ipv4File);
+            ipv6Table = MappedPrefixTable.open(ipv6File);
+
+            Random random = new Random(7);
+            ipv4Addresses = new int[SAMPLES];
+            highs = new long[SAMPLES];
+            lows = new long[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                ipv4Addresses[i] = random.nextInt();
+                if (random.nextBoolean()) {
+                    // an address in a prefix of the table
+                    BigInteger start = ipv6Prefixes.get(random.nextInt(ipv6Prefixes.size())).start().asBigInteger();
+                    highs[i] = start.shiftRight(Long.SIZE).longValue() | (random.nextLong() & 0xffff);
+                } else {
+                    highs[i] = 0x2000000000000000L | (random.nextLong() & 0x1fffffffffffffffL);
+                }
+                lows[i] = random.nextLong();
+            }
+        }
+
+        @TearDown
+        public void tearDown() {
+            ipv4File.delete();
+            ipv6File.delete();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+    }
+
+    @Benchmark
+    public int ipv4LongestMatch(Tables tables, Cursor cursor) {
+        return tables.ipv4Table.longestMatch(tables.ipv4Addresses[cursor.index++ & MASK], NO_MATCH);
+    }
+
+    @Benchmark
+    public int ipv6LongestMatch(Tables tables, Cursor cursor) {
+        int i = cursor.index++ & MASK;
+        return tables.ipv6Table.longestMatch(tables.highs[i], tables.lows[i], NO_MATCH);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public MappedPrefixTable ipv4Open(Tables tables) throws IOException {
+        return MappedPrefixTable.open(tables.ipv4File);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public MappedPrefixTable ipv6Open(Tables tables) throws IOException {
+        return MappedPrefixTable.open(tables.ipv6File);
+    }
+}
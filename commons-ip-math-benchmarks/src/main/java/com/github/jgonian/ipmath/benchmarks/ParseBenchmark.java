@@ -0,0 +1,145 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv6;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ParseBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+    private static final int MASK = SAMPLES - 1;
+
+    private String[] ipv4Addresses;
+    private byte[][] ipv4AsciiAddresses;
+    private String[] invalidIpv4Addresses;
+    private String[] ipv6Addresses;
+    private byte[][] ipv6AsciiAddresses;
+    private String[] invalidIpv6Addresses;
+    private final long[] ipv6Value = new long[2];
+    private int index;
+
+    @Setup
+    public void setUp() {
+        ipv4Addresses = BgpTableDataset.ipv4Addresses(SAMPLES);
+        ipv4AsciiAddresses = new byte[SAMPLES][];
+        invalidIpv4Addresses = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            ipv4AsciiAddresses[i] = ipv4Addresses[i].getBytes(Charset.forName("US-ASCII"));
+            // one octet too many, detected only at the very end of the text
+            invalidIpv4Addresses[i] = ipv4Addresses[i] + ".1";
+        }
+        ipv6Addresses = BgpTableDataset.ipv6Addresses(SAMPLES);
+        ipv6AsciiAddresses = new byte[SAMPLES][];
+        invalidIpv6Addresses = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            ipv6AsciiAddresses[i] = ipv6Addresses[i].getBytes(Charset.forName("US-ASCII"));
+            // a trailing single colon, detected only at the very end of the text
+            invalidIpv6Addresses[i] = ipv6Addresses[i] + ":";
+        }
+    }
+
+    @Benchmark
+    public Ipv4 ipv4Parse() {
+        return Ipv4.parse(ipv4Addresses[index++ & MASK]);
+    }
+
+    @Benchmark
+    public long ipv4ParseValue() {
+        String text = ipv4Addresses[index++ & MASK];
+        return Ipv4.parseValue(text, 0, text.length());
+    }
+
+    @Benchmark
+    public long ipv4ParseValueOfAsciiBytes() {
+        byte[] bytes = ipv4AsciiAddresses[index++ & MASK];
+        return Ipv4.parseValue(bytes, 0, bytes.length);
+    }
+
+    @Benchmark
+    public Ipv4 ipv4ParseInvalid() {
+        try {
+            return Ipv4.parse(invalidIpv4Addresses[index++ & MASK]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public long ipv4ParseValueInvalid() {
+        String text = invalidIpv4Addresses[index++ & MASK];
+        return Ipv4.parseValue(text, 0, text.length());
+    }
+
+    @Benchmark
+    public Ipv6 ipv6Parse() {
+        return Ipv6.parse(ipv6Addresses[index++ & MASK]);
+    }
+
+    @Benchmark
+    public boolean ipv6ParseValue() {
+        String text = ipv6Addresses[index++ & MASK];
+        return Ipv6.parseValue(text, 0, text.length(), ipv6Value);
+    }
+
+    @Benchmark
+    public boolean ipv6ParseValueOfAsciiBytes() {
+        byte[] bytes = ipv6AsciiAddresses[index++ & MASK];
+        return Ipv6.parseValue(bytes, 0, bytes.length, ipv6Value);
+    }
+
+    @Benchmark
+    public Ipv6 ipv6ParseInvalid() {
+        try {
+            return Ipv6.parse(invalidIpv6Addresses[index++ & MASK]);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public boolean ipv6ParseValueInvalid() {
+        String text = invalidIpv6Addresses[index++ & MASK];
+        return Ipv6.parseValue(text, 0, text.length(), ipv6Value);
+    }
+}
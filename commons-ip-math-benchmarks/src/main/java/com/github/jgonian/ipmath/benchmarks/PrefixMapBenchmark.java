@@ -0,0 +1,174 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv4PrefixMap;
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.Ipv6;
+import com.github.jgonian.ipmath.Ipv6PrefixMap;
+import com.github.jgonian.ipmath.Ipv6Range;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks longest-prefix-match lookups of random addresses in full-table sized {@link Ipv4PrefixMap} and
+ * {@link Ipv6PrefixMap}, and loading such tables. The IPv6 table is benchmarked with different strides.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PrefixMapBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+    private static final int MASK = SAMPLES - 1;
+
+    @State(Scope.Benchmark)
+    public static class Ipv4Table {
+
+        List<Ipv4Range> prefixes;
+        Ipv4PrefixMap<Ipv4Range> table;
+        int[] addresses;
+
+        @Setup
+        public void setUp() {
+            prefixes = BgpTableDataset.ipv4Prefixes(BgpTableDataset.IPV4_TABLE_SIZE);
+            table = load(prefixes);
+            addresses = new int[SAMPLES];
+            Random random = new Random(7);
+            for (int i = 0; i < SAMPLES; i++) {
+                addresses[i] = random.nextInt();
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Ipv6Table {
+
+        @Param({"2", "4", "8"})
+        int stride;
+
+        List<Ipv6Range> prefixes;
+        Ipv6PrefixMap<Ipv6Range> table;
+        long[] highs;
+        long[] lows;
+
+        @Setup
+        public void setUp() {
+            prefixes = BgpTableDataset.ipv6Prefixes(BgpTableDataset.IPV6_TABLE_SIZE);
+            table = load(prefixes, stride);
+            highs = new long[SAMPLES];
+            lows = new long[SAMPLES];
+            Random random = new Random(7);
+            for (int i = 0; i < SAMPLES; i++) {
+                if (random.nextBoolean()) {
+                    // an address in a prefix of the table
+                    BigInteger start = prefixes.get(random.nextInt(prefixes.size())).start().asBigInteger();
+                    highs[i] = start.shiftRight(Long.SIZE).longValue() | (random.nextLong() & 0xffff);
+                    lows[i] = random.nextLong();
+                } else {
+                    highs[i] = 0x2000000000000000L | (random.nextLong() & 0x1fffffffffffffffL);
+                    lows[i] = random.nextLong();
+                }
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+    }
+
+    private static Ipv4PrefixMap<Ipv4Range> load(List<Ipv4Range> prefixes) {
+        Ipv4PrefixMap<Ipv4Range> map = new Ipv4PrefixMap<Ipv4Range>(prefixes.size());
+        for (Ipv4Range prefix : prefixes) {
+            map.put(prefix, prefix);
+        }
+        return map;
+    }
+
+    private static Ipv6PrefixMap<Ipv6Range> load(List<Ipv6Range> prefixes, int stride) {
+        Ipv6PrefixMap<Ipv6Range> map = new Ipv6PrefixMap<Ipv6Range>(stride);
+        for (Ipv6Range prefix : prefixes) {
+            map.put(prefix, prefix);
+        }
+        return map;
+    }
+
+    @Benchmark
+    public Ipv4Range ipv4LongestMatch(Ipv4Table table, Cursor cursor) {
+        return table.table.longestMatch(table.addresses[cursor.index++ & MASK]);
+    }
+
+    @Benchmark
+    public Ipv4Range ipv4LongestMatchOfIpv4(Ipv4Table table, Cursor cursor) {
+        return table.table.longestMatch(Ipv4.of(table.addresses[cursor.index++ & MASK]));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public Ipv4PrefixMap<Ipv4Range> ipv4Load(Ipv4Table table) {
+        return load(table.prefixes);
+    }
+
+    @Benchmark
+    public Ipv6Range ipv6LongestMatch(Ipv6Table table, Cursor cursor) {
+        int i = cursor.index++ & MASK;
+        return table.table.longestMatch(table.highs[i], table.lows[i]);
+    }
+
+    @Benchmark
+    public Ipv6Range ipv6LongestMatchOfIpv6(Ipv6Table table, Cursor cursor) {
+        int i = cursor.index++ & MASK;
+        return table.table.longestMatch(Ipv6.of(table.highs[i], table.lows[i]));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public Ipv6PrefixMap<Ipv6Range> ipv6Load(Ipv6Table table) {
+        return load(table.prefixes, table.stride);
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.BuddyPrefixFinder;
+import com.github.jgonian.ipmath.ConservativePrefixFinder;
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.Ipv6;
+import com.github.jgonian.ipmath.Ipv6Range;
+import com.github.jgonian.ipmath.PrefixUtils;
+import com.github.jgonian.ipmath.SortedRangeSet;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks finding the smallest and the largest prefix of a non-aligned range which can hold a prefix of a given
+ * length, and finding a prefix for an allocation among the free blocks of an IPv6 pool.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PrefixSearchBenchmark {
+
+    private static final int SAMPLES = 1 << 12;
+    private static final int MASK = SAMPLES - 1;
+    private static final int FREE_BLOCKS = 1000;
+
+    private Ipv4Range[] ipv4Ranges;
+    private Ipv6Range[] ipv6Ranges;
+    private List<Ipv6Range> freeBlocks;
+    private List<Ipv4Range> ipv4FreeBlocks;
+    private final ConservativePrefixFinder<Ipv6, Ipv6Range> finder = ConservativePrefixFinder.newInstance();
+    private final ConservativePrefixFinder<Ipv4, Ipv4Range> genericIpv4Finder = ConservativePrefixFinder.newInstance();
+    private final ConservativePrefixFinder<Ipv4, Ipv4Range> ipv4Finder = ConservativePrefixFinder.newIpv4Instance();
+    private BuddyPrefixFinder<Ipv6, Ipv6Range> buddyFinder;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        ipv4Ranges = BgpTableDataset.ipv4Ranges(SAMPLES).toArray(new Ipv4Range[SAMPLES]);
+        ipv6Ranges = BgpTableDataset.ipv6Ranges(SAMPLES).toArray(new Ipv6Range[SAMPLES]);
+        SortedRangeSet<Ipv6, Ipv6Range> pool = new SortedRangeSet<Ipv6, Ipv6Range>();
+        pool.addAll(BgpTableDataset.ipv6Ranges(FREE_BLOCKS));
+        freeBlocks = new ArrayList<Ipv6Range>(pool.unmodifiableSet());
+        buddyFinder = BuddyPrefixFinder.newInstance(freeBlocks);
+        SortedRangeSet<Ipv4, Ipv4Range> ipv4Pool = new SortedRangeSet<Ipv4, Ipv4Range>();
+        ipv4Pool.addAll(BgpTableDataset.ipv4Ranges(FREE_BLOCKS));
+        ipv4FreeBlocks = new ArrayList<Ipv4Range>(ipv4Pool.unmodifiableSet());
+    }
+
+    @Benchmark
+    public Optional<Ipv4Range> ipv4FindMinimumPrefix() {
+        return PrefixUtils.findMinimumPrefixForPrefixLength(ipv4Ranges[index++ & MASK], 24);
+    }
+
+    @Benchmark
+    public Optional<Ipv4Range> ipv4FindMaximumPrefix() {
+        return PrefixUtils.findMaximumPrefixForPrefixLength(ipv4Ranges[index++ & MASK], 24);
+    }
+
+    @Benchmark
+    public Optional<Ipv6Range> ipv6FindMinimumPrefix() {
+        return PrefixUtils.findMinimumPrefixForPrefixLength(ipv6Ranges[index++ & MASK], 64);
+    }
+
+    @Benchmark
+    public Optional<Ipv6Range> ipv6FindMaximumPrefix() {
+        return PrefixUtils.findMaximumPrefixForPrefixLength(ipv6Ranges[index++ & MASK], 64);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Ipv6Range conservativeFindPrefix() {
+        return finder.findPrefixOrNull(64, freeBlocks);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Ipv4Range ipv4ConservativeFindPrefix() {
+        return ipv4Finder.findPrefixOrNull(28, ipv4FreeBlocks);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Ipv4Range ipv4GenericConservativeFindPrefix() {
+        return genericIpv4Finder.findPrefixOrNull(28, ipv4FreeBlocks);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Ipv6Range buddyFindPrefix() {
+        return buddyFinder.findPrefixOrNull(64);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Ipv6Range buddyAllocateAndRelease() {
+        Ipv6Range prefix = buddyFinder.allocatePrefixOrNull(64);
+        buddyFinder.release(prefix);
+        return prefix;
+    }
+}
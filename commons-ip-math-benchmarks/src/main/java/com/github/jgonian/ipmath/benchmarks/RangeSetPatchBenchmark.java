@@ -0,0 +1,103 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.RangeSetPatch;
+import com.github.jgonian.ipmath.SortedRangeSet;
+import com.github.jgonian.ipmath.SortedRangeSetCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks sending a change of a full IPv4 table as a {@link RangeSetPatch} compared to sending the whole new
+ * version: computing and encoding the patch, decoding and applying it, and decoding the whole table. The new version
+ * withdraws and announces <tt>changes</tt> prefixes each. Applying the patch is measured together with applying the
+ * reverse patch, so that every invocation starts from the old version. The encoded sizes are printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class RangeSetPatchBenchmark {
+
+    @Param({"100", "10000"})
+    private int changes;
+
+    private SortedRangeSet<Ipv4, Ipv4Range> oldVersion;
+    private SortedRangeSet<Ipv4, Ipv4Range> newVersion;
+    private byte[] encodedPatch;
+    private byte[] encodedReversePatch;
+    private byte[] encodedNewVersion;
+
+    @Setup
+    public void setUp() {
+        List<Ipv4Range> prefixes = BgpTableDataset.ipv4Prefixes(BgpTableDataset.IPV4_TABLE_SIZE);
+        oldVersion = new SortedRangeSet<Ipv4, Ipv4Range>();
+        oldVersion.addAll(prefixes);
+        newVersion = oldVersion.union(new SortedRangeSet<Ipv4, Ipv4Range>());
+        for (int i = 0; i < changes; i++) {
+            newVersion.remove(prefixes.get(i * (prefixes.size() / changes)));
+        }
+        newVersion.addAll(BgpTableDataset.ipv4Prefixes(changes, 42));
+        RangeSetPatch<Ipv4, Ipv4Range> patch = RangeSetPatch.diff(oldVersion, newVersion);
+        encodedPatch = SortedRangeSetCodec.IPV4.encode(patch);
+        encodedReversePatch = SortedRangeSetCodec.IPV4.encode(RangeSetPatch.diff(newVersion, oldVersion));
+        encodedNewVersion = SortedRangeSetCodec.IPV4.encode(newVersion);
+        System.out.printf("%n%d ranges, patch of %d ranges: %d bytes encoded, %d bytes for the whole new version%n",
+                newVersion.size(), patch.size(), encodedPatch.length, encodedNewVersion.length);
+    }
+
+    @Benchmark
+    public byte[] diffAndEncode() {
+        return SortedRangeSetCodec.IPV4.encode(RangeSetPatch.diff(oldVersion, newVersion));
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> decodeAndApplyPatchAndReverse() {
+        SortedRangeSetCodec.IPV4.decodePatch(encodedPatch).apply(oldVersion);
+        SortedRangeSetCodec.IPV4.decodePatch(encodedReversePatch).apply(oldVersion);
+        return oldVersion;
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> decodeNewVersion() {
+        return SortedRangeSetCodec.IPV4.decode(encodedNewVersion);
+    }
+}
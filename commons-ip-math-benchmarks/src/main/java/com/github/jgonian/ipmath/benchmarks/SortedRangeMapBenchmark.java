@@ -0,0 +1,144 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.ImmutableSortedRangeMap;
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.SortedRangeMap;
+import com.github.jgonian.ipmath.StartAndSizeComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks point lookups of random addresses in a {@link SortedRangeMap} and its {@link ImmutableSortedRangeMap}
+ * copy, built from a full IPv4 table whose prefixes are mapped to one of a few hundred values, e.g. countries.
+ * The baseline is a <tt>TreeMap</tt> from the same ranges to their values, looked up with <tt>floorEntry</tt>.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class SortedRangeMapBenchmark {
+
+    private static final int SAMPLES = 1 << 16;
+    private static final int MASK = SAMPLES - 1;
+    private static final int VALUES = 250;
+
+    @State(Scope.Benchmark)
+    public static class Maps {
+
+        List<Ipv4Range> prefixes;
+        String[] values;
+        SortedRangeMap<Ipv4, Ipv4Range, String> map;
+        ImmutableSortedRangeMap<Ipv4, Ipv4Range, String> immutableMap;
+        TreeMap<Ipv4Range, String> treeMap;
+        Ipv4[] addresses;
+
+        @Setup
+        public void setUp() {
+            prefixes = BgpTableDataset.ipv4Prefixes(BgpTableDataset.IPV4_TABLE_SIZE);
+            values = new String[VALUES];
+            for (int i = 0; i < VALUES; i++) {
+                values[i] = "value-" + i;
+            }
+            map = build(prefixes, values);
+            immutableMap = map.toImmutable();
+            treeMap = new TreeMap<Ipv4Range, String>(StartAndSizeComparator.<Ipv4, Ipv4Range>get());
+            for (Map.Entry<Ipv4Range, String> entry : map) {
+                treeMap.put(entry.getKey(), entry.getValue());
+            }
+            Random random = new Random(7);
+            addresses = new Ipv4[SAMPLES];
+            for (int i = 0; i < SAMPLES; i++) {
+                addresses[i] = Ipv4.of(random.nextInt());
+            }
+            System.out.printf("%n%d prefixes, %d entries%n", prefixes.size(), map.size());
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+    }
+
+    static SortedRangeMap<Ipv4, Ipv4Range, String> build(List<Ipv4Range> prefixes, String[] values) {
+        SortedRangeMap<Ipv4, Ipv4Range, String> result = new SortedRangeMap<Ipv4, Ipv4Range, String>();
+        for (int i = 0; i < prefixes.size(); i++) {
+            // nearby prefixes usually have the same value, like the country of neighbouring address blocks
+            result.put(prefixes.get(i), values[(prefixes.get(i).start().asInt() >>> 20) % values.length]);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public String get(Maps maps, Cursor cursor) {
+        return maps.map.get(maps.addresses[cursor.index++ & MASK]);
+    }
+
+    @Benchmark
+    public String immutableGet(Maps maps, Cursor cursor) {
+        return maps.immutableMap.get(maps.addresses[cursor.index++ & MASK]);
+    }
+
+    @Benchmark
+    public String treeMapFloorEntry(Maps maps, Cursor cursor) {
+        Ipv4 address = maps.addresses[cursor.index++ & MASK];
+        Map.Entry<Ipv4Range, String> entry = maps.treeMap.floorEntry(address.asRange());
+        return entry != null && entry.getKey().contains(address) ? entry.getValue() : null;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public SortedRangeMap<Ipv4, Ipv4Range, String> build(Maps maps) {
+        return build(maps.prefixes, maps.values);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public ImmutableSortedRangeMap<Ipv4, Ipv4Range, String> toImmutable(Maps maps) {
+        return maps.map.toImmutable();
+    }
+}
@@ -0,0 +1,391 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.ImmutableSortedRangeSet;
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.Ipv6;
+import com.github.jgonian.ipmath.Ipv6Range;
+import com.github.jgonian.ipmath.ParallelSortedRangeSetBuilder;
+import com.github.jgonian.ipmath.Range;
+import com.github.jgonian.ipmath.Rangeable;
+import com.github.jgonian.ipmath.SortedRangeSet;
+import com.github.jgonian.ipmath.StartAndSizeComparator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks {@link SortedRangeSet} with full-table sized datasets: bulk loading a table, also from sorted input
+ * and in parallel, adding and removing a single prefix to and from a loaded table, combining two loaded tables,
+ * finding the free space of a loaded table, and looking up a loaded table, also in its
+ * {@link ImmutableSortedRangeSet} form.
+ * <p>
+ * The set operations on two tables are measured both as a single sweep over the two tables and, for reference,
+ * as one update or lookup of the first table per range of the second one (the <tt>PerRange</tt> benchmarks).
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class SortedRangeSetBenchmark {
+
+    private static final int SAMPLES = 1 << 12;
+    private static final int MASK = SAMPLES - 1;
+
+    private static final Ipv4Range IPV4_SPACE = Ipv4Range.parse("0.0.0.0/0");
+    private static final Ipv6Range IPV6_SPACE = Ipv6Range.parse("::/0");
+
+    @State(Scope.Benchmark)
+    public static class Ipv4Table {
+
+        List<Ipv4Range> prefixes;
+        List<Ipv4Range> sortedPrefixes;
+        SortedRangeSet<Ipv4, Ipv4Range> table;
+        SortedRangeSet<Ipv4, Ipv4Range> otherTable;
+        ImmutableSortedRangeSet<Ipv4, Ipv4Range> immutableTable;
+        Ipv4Range[] samples;
+
+        @Setup
+        public void setUp() {
+            prefixes = BgpTableDataset.ipv4Prefixes(BgpTableDataset.IPV4_TABLE_SIZE);
+            sortedPrefixes = new ArrayList<Ipv4Range>(prefixes);
+            Collections.sort(sortedPrefixes, StartAndSizeComparator.<Ipv4, Ipv4Range>get());
+            table = new SortedRangeSet<Ipv4, Ipv4Range>();
+            table.addAll(prefixes);
+            immutableTable = table.toImmutable();
+            otherTable = new SortedRangeSet<Ipv4, Ipv4Range>();
+            otherTable.addAll(BgpTableDataset.ipv4Prefixes(BgpTableDataset.IPV4_TABLE_SIZE, 42));
+            samples = BgpTableDataset.ipv4Prefixes(SAMPLES, 7).toArray(new Ipv4Range[SAMPLES]);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Ipv6Table {
+
+        List<Ipv6Range> prefixes;
+        List<Ipv6Range> sortedPrefixes;
+        SortedRangeSet<Ipv6, Ipv6Range> table;
+        SortedRangeSet<Ipv6, Ipv6Range> otherTable;
+        Ipv6Range[] samples;
+
+        @Setup
+        public void setUp() {
+            prefixes = BgpTableDataset.ipv6Prefixes(BgpTableDataset.IPV6_TABLE_SIZE);
+            sortedPrefixes = new ArrayList<Ipv6Range>(prefixes);
+            Collections.sort(sortedPrefixes, StartAndSizeComparator.<Ipv6, Ipv6Range>get());
+            table = new SortedRangeSet<Ipv6, Ipv6Range>();
+            table.addAll(prefixes);
+            otherTable = new SortedRangeSet<Ipv6, Ipv6Range>();
+            otherTable.addAll(BgpTableDataset.ipv6Prefixes(BgpTableDataset.IPV6_TABLE_SIZE, 42));
+            samples = BgpTableDataset.ipv6Prefixes(SAMPLES, 7).toArray(new Ipv6Range[SAMPLES]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int index;
+
+        int next() {
+            return index++ & MASK;
+        }
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4AddAll(Ipv4Table state) {
+        SortedRangeSet<Ipv4, Ipv4Range> set = new SortedRangeSet<Ipv4, Ipv4Range>();
+        set.addAll(state.prefixes);
+        return set;
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4AddAllOfSortedInput(Ipv4Table state) {
+        SortedRangeSet<Ipv4, Ipv4Range> set = new SortedRangeSet<Ipv4, Ipv4Range>();
+        set.addAll(state.sortedPrefixes);
+        return set;
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4AddAllSorted(Ipv4Table state) {
+        SortedRangeSet<Ipv4, Ipv4Range> set = new SortedRangeSet<Ipv4, Ipv4Range>();
+        set.addAllSorted(state.sortedPrefixes);
+        return set;
+    }
+
+    /**
+     * Builds the table on all available cores; compare with {@link #ipv4AddAll(Ipv4Table)}.
+     */
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4ParallelBuild(Ipv4Table state) {
+        return ParallelSortedRangeSetBuilder.build(state.prefixes);
+    }
+
+    /**
+     * Adds a prefix to a full table and removes it again, which keeps the size of the table stable.
+     * The removal may also punch a hole into the table, which is the worst case for the next addition.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean ipv4AddAndRemove(Ipv4Table state, Cursor cursor) {
+        Ipv4Range range = state.samples[cursor.next()];
+        state.table.add(range);
+        return state.table.remove(range);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4Intersection(Ipv4Table state) {
+        return state.table.intersection(state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4IntersectionPerRange(Ipv4Table state) {
+        return intersectionPerRange(state.table, state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4Union(Ipv4Table state) {
+        return state.table.union(state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4UnionPerRange(Ipv4Table state) {
+        SortedRangeSet<Ipv4, Ipv4Range> result = copy(state.table);
+        result.addAll(state.otherTable.unmodifiableSet());
+        return result;
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4Difference(Ipv4Table state) {
+        return state.table.difference(state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4DifferencePerRange(Ipv4Table state) {
+        SortedRangeSet<Ipv4, Ipv4Range> result = copy(state.table);
+        result.removeAll(state.otherTable.unmodifiableSet());
+        return result;
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4SymmetricDifference(Ipv4Table state) {
+        return state.table.symmetricDifference(state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4Complement(Ipv4Table state) {
+        return state.table.complement(IPV4_SPACE);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> ipv4ComplementPerRange(Ipv4Table state) {
+        SortedRangeSet<Ipv4, Ipv4Range> result = new SortedRangeSet<Ipv4, Ipv4Range>();
+        result.add(IPV4_SPACE);
+        result.removeAll(state.table.unmodifiableSet());
+        return result;
+    }
+
+    /**
+     * Counts the free /16 blocks or larger ones.
+     */
+    @Benchmark
+    public int ipv4Gaps(Ipv4Table state) {
+        int count = 0;
+        for (Iterator<Ipv4Range> gaps = state.table.gaps(IPV4_SPACE, 1L << 16); gaps.hasNext(); ) {
+            gaps.next();
+            count++;
+        }
+        return count;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean ipv4Contains(Ipv4Table state, Cursor cursor) {
+        return state.table.contains(state.samples[cursor.next()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean ipv4ImmutableContains(Ipv4Table state, Cursor cursor) {
+        return state.immutableTable.contains(state.samples[cursor.next()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean ipv4ImmutableContainsAddress(Ipv4Table state, Cursor cursor) {
+        return state.immutableTable.contains(state.samples[cursor.next()].start());
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean ipv4ImmutableOverlaps(Ipv4Table state, Cursor cursor) {
+        return state.immutableTable.overlaps(state.samples[cursor.next()]);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6AddAll(Ipv6Table state) {
+        SortedRangeSet<Ipv6, Ipv6Range> set = new SortedRangeSet<Ipv6, Ipv6Range>();
+        set.addAll(state.prefixes);
+        return set;
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6AddAllOfSortedInput(Ipv6Table state) {
+        SortedRangeSet<Ipv6, Ipv6Range> set = new SortedRangeSet<Ipv6, Ipv6Range>();
+        set.addAll(state.sortedPrefixes);
+        return set;
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6AddAllSorted(Ipv6Table state) {
+        SortedRangeSet<Ipv6, Ipv6Range> set = new SortedRangeSet<Ipv6, Ipv6Range>();
+        set.addAllSorted(state.sortedPrefixes);
+        return set;
+    }
+
+    /**
+     * Builds the table on all available cores; compare with {@link #ipv6AddAll(Ipv6Table)}.
+     */
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6ParallelBuild(Ipv6Table state) {
+        return ParallelSortedRangeSetBuilder.build(state.prefixes);
+    }
+
+    /**
+     * @see #ipv4AddAndRemove(Ipv4Table, Cursor)
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public boolean ipv6AddAndRemove(Ipv6Table state, Cursor cursor) {
+        Ipv6Range range = state.samples[cursor.next()];
+        state.table.add(range);
+        return state.table.remove(range);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6Intersection(Ipv6Table state) {
+        return state.table.intersection(state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6IntersectionPerRange(Ipv6Table state) {
+        return intersectionPerRange(state.table, state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6Union(Ipv6Table state) {
+        return state.table.union(state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6UnionPerRange(Ipv6Table state) {
+        SortedRangeSet<Ipv6, Ipv6Range> result = copy(state.table);
+        result.addAll(state.otherTable.unmodifiableSet());
+        return result;
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6Difference(Ipv6Table state) {
+        return state.table.difference(state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6DifferencePerRange(Ipv6Table state) {
+        SortedRangeSet<Ipv6, Ipv6Range> result = copy(state.table);
+        result.removeAll(state.otherTable.unmodifiableSet());
+        return result;
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6SymmetricDifference(Ipv6Table state) {
+        return state.table.symmetricDifference(state.otherTable);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6Complement(Ipv6Table state) {
+        return state.table.complement(IPV6_SPACE);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> ipv6ComplementPerRange(Ipv6Table state) {
+        SortedRangeSet<Ipv6, Ipv6Range> result = new SortedRangeSet<Ipv6, Ipv6Range>();
+        result.add(IPV6_SPACE);
+        result.removeAll(state.table.unmodifiableSet());
+        return result;
+    }
+
+    /**
+     * Counts the free /32 blocks or larger ones.
+     */
+    @Benchmark
+    public int ipv6Gaps(Ipv6Table state) {
+        int count = 0;
+        for (Iterator<Ipv6Range> gaps = state.table.gaps(IPV6_SPACE, BigInteger.ONE.shiftLeft(96)); gaps.hasNext(); ) {
+            gaps.next();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * The per-range intersection of {@link SortedRangeSet} before it was replaced by a sweep, which looks up the
+     * neighbours of each range of the first set in the second one.
+     */
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> SortedRangeSet<C, R> intersectionPerRange(
+            SortedRangeSet<C, R> set, SortedRangeSet<C, R> other) {
+        SortedRangeSet<C, R> result = new SortedRangeSet<C, R>();
+        for (R range : set) {
+            R leftSide = other.floor(range);
+            R rightSide = other.ceiling(range);
+            if (range.overlaps(leftSide)) {
+                result.add(range.intersection(leftSide));
+            }
+            if (range.overlaps(rightSide)) {
+                result.add(range.intersection(rightSide));
+            }
+        }
+        return result;
+    }
+
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> SortedRangeSet<C, R> copy(SortedRangeSet<C, R> set) {
+        SortedRangeSet<C, R> copy = new SortedRangeSet<C, R>();
+        copy.addAll(set);
+        return copy;
+    }
+}
@@ -0,0 +1,128 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.Ipv4;
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.Ipv6;
+import com.github.jgonian.ipmath.Ipv6Range;
+import com.github.jgonian.ipmath.SortedRangeSet;
+import com.github.jgonian.ipmath.SortedRangeSetCodec;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks encoding and decoding a full IPv4 table and an IPv6 table of the same number of prefixes with
+ * {@link SortedRangeSetCodec}, compared to Java serialization of the same ranges in an <tt>ArrayList</tt>, since
+ * {@link SortedRangeSet} is not serializable. The encoded sizes are printed during setup.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+@State(Scope.Thread)
+public class SortedRangeSetCodecBenchmark {
+
+    private SortedRangeSet<Ipv4, Ipv4Range> ipv4Table;
+    private SortedRangeSet<Ipv6, Ipv6Range> ipv6Table;
+    private byte[] encodedIpv4Table;
+    private byte[] encodedIpv6Table;
+    private byte[] serializedIpv4Table;
+
+    @Setup
+    public void setUp() throws IOException {
+        ipv4Table = new SortedRangeSet<Ipv4, Ipv4Range>();
+        ipv4Table.addAll(BgpTableDataset.ipv4Prefixes(BgpTableDataset.IPV4_TABLE_SIZE));
+        ipv6Table = new SortedRangeSet<Ipv6, Ipv6Range>();
+        ipv6Table.addAll(BgpTableDataset.ipv6Prefixes(BgpTableDataset.IPV4_TABLE_SIZE));
+        encodedIpv4Table = SortedRangeSetCodec.IPV4.encode(ipv4Table);
+        encodedIpv6Table = SortedRangeSetCodec.IPV6.encode(ipv6Table);
+        serializedIpv4Table = serialize(ipv4Table);
+        System.out.printf("%nIPv4: %d ranges, %.2f bytes per range encoded, %.2f bytes per range serialized%n",
+                ipv4Table.size(), (double) encodedIpv4Table.length / ipv4Table.size(),
+                (double) serializedIpv4Table.length / ipv4Table.size());
+        System.out.printf("IPv6: %d ranges, %.2f bytes per range encoded%n",
+                ipv6Table.size(), (double) encodedIpv6Table.length / ipv6Table.size());
+    }
+
+    @Benchmark
+    public byte[] encodeIpv4() {
+        return SortedRangeSetCodec.IPV4.encode(ipv4Table);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> decodeIpv4() {
+        return SortedRangeSetCodec.IPV4.decode(encodedIpv4Table);
+    }
+
+    @Benchmark
+    public byte[] encodeIpv6() {
+        return SortedRangeSetCodec.IPV6.encode(ipv6Table);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv6, Ipv6Range> decodeIpv6() {
+        return SortedRangeSetCodec.IPV6.decode(encodedIpv6Table);
+    }
+
+    @Benchmark
+    public byte[] serializeIpv4() throws IOException {
+        return serialize(ipv4Table);
+    }
+
+    @Benchmark
+    public SortedRangeSet<Ipv4, Ipv4Range> deserializeIpv4() throws IOException, ClassNotFoundException {
+        ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serializedIpv4Table));
+        @SuppressWarnings("unchecked")
+        ArrayList<Ipv4Range> ranges = (ArrayList<Ipv4Range>) in.readObject();
+        SortedRangeSet<Ipv4, Ipv4Range> result = new SortedRangeSet<Ipv4, Ipv4Range>();
+        result.addAllSorted(ranges);
+        return result;
+    }
+
+    private static byte[] serialize(SortedRangeSet<Ipv4, Ipv4Range> table) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ObjectOutputStream out = new ObjectOutputStream(bytes);
+        out.writeObject(new ArrayList<Ipv4Range>(table.unmodifiableSet()));
+        out.close();
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath.benchmarks;
+
+import com.github.jgonian.ipmath.Ipv4Range;
+import com.github.jgonian.ipmath.Ipv6Range;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SplitToPrefixesBenchmark {
+
+    private static final int SAMPLES = 1 << 12;
+    private static final int MASK = SAMPLES - 1;
+
+    private Ipv4Range[] ipv4Ranges;
+    private Ipv6Range[] ipv6Ranges;
+    /**
+     * The IPv6 range which splits into the most prefixes, 254.
+     */
+    private static final Ipv6Range IPV6_WORST_CASE = Ipv6Range.parse("::1-ffff:ffff:ffff:ffff:ffff:ffff:ffff:fffe");
+
+    private int index;
+
+    @Setup
+    public void setUp() {
+        ipv4Ranges = BgpTableDataset.ipv4Ranges(SAMPLES).toArray(new Ipv4Range[SAMPLES]);
+        ipv6Ranges = BgpTableDataset.ipv6Ranges(SAMPLES).toArray(new Ipv6Range[SAMPLES]);
+    }
+
+    @Benchmark
+    public List<Ipv4Range> ipv4SplitToPrefixes() {
+        return ipv4Ranges[index++ & MASK].splitToPrefixes();
+    }
+
+    @Benchmark
+    public List<Ipv6Range> ipv6SplitToPrefixes() {
+        return ipv6Ranges[index++ & MASK].splitToPrefixes();
+    }
+
+    @Benchmark
+    public List<Ipv6Range> ipv6SplitToPrefixesWorstCase() {
+        return IPV6_WORST_CASE.splitToPrefixes();
+    }
+
+    @Benchmark
+    public void ipv4PrefixIterator(Blackhole blackhole) {
+        for (Iterator<Ipv4Range> prefixes = ipv4Ranges[index++ & MASK].prefixIterator(); prefixes.hasNext(); ) {
+            blackhole.consume(prefixes.next());
+        }
+    }
+
+    @Benchmark
+    public void ipv6PrefixIterator(Blackhole blackhole) {
+        for (Iterator<Ipv6Range> prefixes = ipv6Ranges[index++ & MASK].prefixIterator(); prefixes.hasNext(); ) {
+            blackhole.consume(prefixes.next());
+        }
+    }
+}
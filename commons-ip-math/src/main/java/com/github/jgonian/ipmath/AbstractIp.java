@@ -23,12 +23,47 @@
  */
 package com.github.jgonian.ipmath;
 
+import java.io.IOException;
+
 public abstract class AbstractIp<T extends AbstractIp<T, R>, R extends AbstractIpRange<T, R>>
         implements SingleInternetResource<T, R> {
 
+    private static final long serialVersionUID = -3776046275675830651L;
+
     public abstract T lowerBoundForPrefix(int prefixLength);
 
     public abstract T upperBoundForPrefix(int prefixLength);
 
     public abstract int getCommonPrefixLength(T other);
+
+    /**
+     * Appends the same text as {@link #toString()} to <tt>out</tt>. {@link Ipv4} and {@link Ipv6} append one
+     * character at a time, without building the string.
+     *
+     * @param out where to append the address, e.g. a <tt>StringBuilder</tt> or a <tt>Writer</tt>
+     * @throws IOException if <tt>out</tt> fails to append
+     */
+    public void formatTo(Appendable out) throws IOException {
+        out.append(toString());
+    }
+
+    /**
+     * Writes the same text as {@link #toString()} as ASCII bytes into <tt>buffer</tt>. {@link Ipv4} and {@link Ipv6}
+     * write one character at a time, without building the string.
+     *
+     * @param buffer where to write the address
+     * @param offset the index in <tt>buffer</tt> of the first character
+     * @return the index in <tt>buffer</tt> after the last character
+     * @throws IndexOutOfBoundsException if the address does not fit in <tt>buffer</tt>
+     */
+    public int formatTo(byte[] buffer, int offset) {
+        String text = toString();
+        if (offset < 0 || offset + text.length() > buffer.length) {
+            throw new IndexOutOfBoundsException("No room for " + text.length() + " characters at " + offset);
+        }
+        for (int i = 0; i < text.length(); i++) {
+            buffer[offset++] = (byte) text.charAt(i);
+        }
+        return offset;
+    }
 }
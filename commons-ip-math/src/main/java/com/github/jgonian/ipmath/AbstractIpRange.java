@@ -23,21 +23,22 @@
  */
 package com.github.jgonian.ipmath;
 
+import java.io.IOException;
 import java.math.BigInteger;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
-
-import static java.math.BigInteger.ONE;
-import static java.math.BigInteger.ZERO;
+import java.util.NoSuchElementException;
 
 public abstract class AbstractIpRange<C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
         extends AbstractRange<C, R>
         implements InternetResourceRange<C, R> {
 
+    private static final long serialVersionUID = 3382870067236838291L;
+
     protected static final String SLASH = "/";
     protected static final String DASH = "-";
     protected static final String DASH_WITH_SPACES = " - ";
-    private static final BigInteger TWO = BigInteger.valueOf(2);
 
     protected AbstractIpRange(C start, C end) {
         super(start, end);
@@ -45,6 +46,39 @@ public abstract class AbstractIpRange<C extends AbstractIp<C, R>, R extends Abst
 
     protected abstract R newInstance(BigInteger start, BigInteger end);
 
+    /**
+     * @return the prefix length if this range is a legal prefix, or -1 otherwise; {@link Ipv4Range} and
+     * {@link Ipv6Range} compute it without allocating
+     */
+    protected int legalPrefixLength() {
+        int prefixLength = start().getCommonPrefixLength(end());
+        boolean legal = start().equals(start().lowerBoundForPrefix(prefixLength))
+                && end().equals(end().upperBoundForPrefix(prefixLength));
+        return legal ? prefixLength : -1;
+    }
+
+    /**
+     * Finds a prefix of {@link #splitToPrefixes()} without building the list.
+     *
+     * @param prefixLength the length of the prefix which the found prefix must be able to hold
+     * @param smallest whether to find the smallest such prefix instead of the largest one
+     * @return the smallest or the largest prefix of the split which is not longer than <tt>prefixLength</tt>, the
+     * first one by start among equally large ones, or <tt>null</tt> if there is none
+     */
+    protected R findSplitPrefix(int prefixLength, boolean smallest) {
+        R found = null;
+        int foundLength = -1;
+        for (Iterator<R> iterator = prefixIterator(); iterator.hasNext(); ) {
+            R prefix = iterator.next();
+            int length = prefix.legalPrefixLength();
+            if (length <= prefixLength && (found == null || (smallest ? length > foundLength : length < foundLength))) {
+                found = prefix;
+                foundLength = length;
+            }
+        }
+        return found;
+    }
+
     @Override
     public String toString() {
         if (PrefixUtils.isLegalPrefix(this)) {
@@ -70,37 +104,128 @@ public abstract class AbstractIpRange<C extends AbstractIp<C, R>, R extends Abst
         return start().asBigInteger() + DASH + end().asBigInteger();
     }
 
+    /**
+     * Appends the same text as {@link #toString()} to <tt>out</tt>, one character at a time.
+     *
+     * @param out where to append the range, e.g. a <tt>StringBuilder</tt> or a <tt>Writer</tt>
+     * @throws IOException if <tt>out</tt> fails to append
+     */
+    public void formatTo(Appendable out) throws IOException {
+        if (PrefixUtils.isLegalPrefix(this)) {
+            formatInCidrNotationTo(out);
+        } else {
+            formatInRangeNotationTo(out);
+        }
+    }
+
+    /**
+     * Writes the same text as {@link #toString()} as ASCII bytes into <tt>buffer</tt>.
+     *
+     * @param buffer where to write the range
+     * @param offset the index in <tt>buffer</tt> of the first character
+     * @return the index in <tt>buffer</tt> after the last character
+     * @throws IndexOutOfBoundsException if the range does not fit in <tt>buffer</tt>
+     */
+    public int formatTo(byte[] buffer, int offset) {
+        if (PrefixUtils.isLegalPrefix(this)) {
+            return formatInCidrNotationTo(buffer, offset);
+        } else {
+            return formatInRangeNotationTo(buffer, offset);
+        }
+    }
+
+    /**
+     * Same as {@link #formatTo(Appendable)} with the text of {@link #toStringInRangeNotation()}.
+     */
+    public void formatInRangeNotationTo(Appendable out) throws IOException {
+        start().formatTo(out);
+        out.append(DASH);
+        end().formatTo(out);
+    }
+
+    /**
+     * Same as {@link #formatTo(byte[], int)} with the text of {@link #toStringInRangeNotation()}.
+     */
+    public int formatInRangeNotationTo(byte[] buffer, int offset) {
+        offset = start().formatTo(buffer, offset);
+        buffer[offset++] = '-';
+        return end().formatTo(buffer, offset);
+    }
+
+    /**
+     * Same as {@link #formatTo(Appendable)} with the text of {@link #toStringInCidrNotation()}.
+     *
+     * @throws IllegalArgumentException if the range is not a legal prefix
+     */
+    public void formatInCidrNotationTo(Appendable out) throws IOException {
+        int prefixLength = PrefixUtils.getPrefixLength(this);
+        start().formatTo(out);
+        out.append(SLASH);
+        Ascii.putDecimal(out, null, 0, prefixLength);
+    }
+
+    /**
+     * Same as {@link #formatTo(byte[], int)} with the text of {@link #toStringInCidrNotation()}.
+     *
+     * @throws IllegalArgumentException if the range is not a legal prefix
+     */
+    public int formatInCidrNotationTo(byte[] buffer, int offset) {
+        int prefixLength = PrefixUtils.getPrefixLength(this);
+        offset = start().formatTo(buffer, offset);
+        buffer[offset++] = '/';
+        return Ascii.putDecimal(buffer, offset, prefixLength);
+    }
+
+    /**
+     * @return the fewest prefixes which together cover exactly this range, in ascending order
+     */
     public List<R> splitToPrefixes() {
-        BigInteger rangeEnd = end().asBigInteger();
-        BigInteger currentRangeStart = start().asBigInteger();
-        int startingPrefixLength = start().bitSize();
-        List<R> prefixes = new LinkedList<R>();
-
-        while (currentRangeStart.compareTo(rangeEnd) <= 0) {
-            int maximumPrefixLength = getMaximumPrefixLengthStartingAtIpAddressValue(currentRangeStart, startingPrefixLength);
-            BigInteger maximumSizeOfPrefix = rangeEnd.subtract(currentRangeStart).add(ONE);
-            BigInteger currentSizeOfPrefix = TWO.pow(maximumPrefixLength);
-
-            while ((currentSizeOfPrefix.compareTo(maximumSizeOfPrefix) > 0) && (maximumPrefixLength > 0)) {
-                maximumPrefixLength--;
-                currentSizeOfPrefix = TWO.pow(maximumPrefixLength);
-            }
-            BigInteger currentRangeEnd = currentRangeStart.add(TWO.pow(maximumPrefixLength).subtract(ONE));
-            prefixes.add(newInstance(currentRangeStart, currentRangeEnd));
-            currentRangeStart = currentRangeEnd.add(ONE);
+        List<R> prefixes = new ArrayList<R>();
+        for (Iterator<R> iterator = prefixIterator(); iterator.hasNext(); ) {
+            prefixes.add(iterator.next());
         }
         return prefixes;
     }
 
-    private int getMaximumPrefixLengthStartingAtIpAddressValue(BigInteger ipAddressValue, int startingPrefixLength) {
-        int prefixLength = startingPrefixLength;
-        while ((prefixLength >= 0) && !canBeDividedByThePowerOfTwo(ipAddressValue, prefixLength)) {
-            prefixLength--;
-        }
-        return prefixLength;
+    /**
+     * @return a lazy iterator over the prefixes of {@link #splitToPrefixes()}, which creates each prefix only
+     * when it is reached; {@link Ipv4Range} and {@link Ipv6Range} advance on primitives instead of
+     * <tt>BigInteger</tt>s
+     */
+    public Iterator<R> prefixIterator() {
+        return new PrefixIterator();
     }
 
-    private boolean canBeDividedByThePowerOfTwo(BigInteger number, int power) {
-        return number.remainder(TWO.pow(power)).equals(ZERO);
+    /**
+     * Each prefix is the largest block which is aligned at its start and which fits in the rest of the range.
+     */
+    private final class PrefixIterator implements Iterator<R> {
+
+        private final BigInteger end = end().asBigInteger();
+        private BigInteger next = start().asBigInteger();
+
+        @Override
+        public boolean hasNext() {
+            return next.compareTo(end) <= 0;
+        }
+
+        @Override
+        public R next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int alignedBits = next.signum() == 0 ? start().bitSize() : next.getLowestSetBit();
+            int fittingBits = end.subtract(next).add(BigInteger.ONE).bitLength() - 1;
+            BigInteger prefixEnd = next.add(BigInteger.ONE.shiftLeft(Math.min(alignedBits, fittingBits)))
+                    .subtract(BigInteger.ONE);
+            R prefix = newInstance(next, prefixEnd);
+            next = prefixEnd.add(BigInteger.ONE);
+            return prefix;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
     }
 }
@@ -36,7 +36,9 @@ public abstract class AbstractRange<C extends Rangeable<C, R>, R extends Range<C
     protected AbstractRange(C start, C end) {
         this.start = Validate.notNull(start, "start of range must not be null");
         this.end = Validate.notNull(end, "end of range must not be null");
-        Validate.isTrue(this.start.compareTo(this.end) <= 0, "Invalid range [" + start + ".." + end + "]");
+        if (this.start.compareTo(this.end) > 0) {
+            throw new IllegalArgumentException("Invalid range [" + start + ".." + end + "]");
+        }
     }
 
     protected abstract R newInstance(C start, C end);
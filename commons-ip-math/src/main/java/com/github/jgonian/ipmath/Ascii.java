@@ -0,0 +1,101 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.io.IOException;
+
+/**
+ * Writes ASCII text either to an <tt>Appendable</tt> or, when it is <tt>null</tt>, to a byte array, so that the
+ * <tt>formatTo</tt> methods share one implementation for both targets without creating intermediate objects.
+ * Every method returns the offset in the byte array after the written characters, which is meaningless when
+ * writing to an <tt>Appendable</tt>.
+ */
+final class Ascii {
+
+    private static final String HEX_DIGITS = "0123456789abcdef";
+
+    private Ascii() {
+    }
+
+    static int put(Appendable out, byte[] buffer, int offset, char c) throws IOException {
+        if (out != null) {
+            out.append(c);
+            return offset;
+        }
+        buffer[offset] = (byte) c;
+        return offset + 1;
+    }
+
+    static int put(Appendable out, byte[] buffer, int offset, CharSequence text) throws IOException {
+        if (out != null) {
+            out.append(text);
+            return offset;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            buffer[offset++] = (byte) text.charAt(i);
+        }
+        return offset;
+    }
+
+    /**
+     * Writes a non-negative value in decimal notation.
+     */
+    static int putDecimal(Appendable out, byte[] buffer, int offset, long value) throws IOException {
+        long divisor = 1;
+        while (divisor <= value / 10) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            offset = put(out, buffer, offset, (char) ('0' + (value / divisor) % 10));
+        }
+        return offset;
+    }
+
+    /**
+     * Writes a non-negative value in lower case hexadecimal notation without leading zeros.
+     */
+    static int putHex(Appendable out, byte[] buffer, int offset, int value) throws IOException {
+        int shift = value == 0 ? 0 : (Integer.SIZE - 1 - Integer.numberOfLeadingZeros(value)) & ~3;
+        for (; shift >= 0; shift -= 4) {
+            offset = put(out, buffer, offset, HEX_DIGITS.charAt((value >>> shift) & 0xF));
+        }
+        return offset;
+    }
+
+    static int putDecimal(byte[] buffer, int offset, long value) {
+        try {
+            return putDecimal(null, buffer, offset, value);
+        } catch (IOException e) {
+            throw unexpected(e);
+        }
+    }
+
+    /**
+     * @return the exception to throw for an <tt>IOException</tt> that cannot happen because the text is written
+     * to a byte array or a <tt>StringBuilder</tt>
+     */
+    static IllegalStateException unexpected(IOException e) {
+        return new IllegalStateException(e);
+    }
+}
@@ -23,6 +23,7 @@
  */
 package com.github.jgonian.ipmath;
 
+import java.io.IOException;
 import java.math.BigInteger;
 
 public final class Asn implements SingleInternetResource<Asn, AsnRange>, Comparable<Asn> {
@@ -30,6 +31,7 @@ public final class Asn implements SingleInternetResource<Asn, AsnRange>, Compara
     private static final long serialVersionUID = -1L;
     private static final int SIXTEEN = 16;
     private static final int THIRTY_TWO = 32;
+    private static final int MAX_TEXT_LENGTH = 12;
 
     public static final long ASN_MIN_VALUE = 0L;
     public static final long ASN_16_BIT_MAX_VALUE = (1L << SIXTEEN) - 1L;
@@ -126,7 +128,45 @@ public final class Asn implements SingleInternetResource<Asn, AsnRange>, Compara
 
     @Override
     public String toString() {
-        return "AS" + value;
+        StringBuilder sb = new StringBuilder(MAX_TEXT_LENGTH);
+        try {
+            format(sb, null, 0);
+        } catch (IOException e) {
+            throw Ascii.unexpected(e);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Appends the same text as {@link #toString()} to <tt>out</tt>, one character at a time.
+     *
+     * @param out where to append the AS number, e.g. a <tt>StringBuilder</tt> or a <tt>Writer</tt>
+     * @throws IOException if <tt>out</tt> fails to append
+     */
+    public void formatTo(Appendable out) throws IOException {
+        format(Validate.notNull(out), null, 0);
+    }
+
+    /**
+     * Writes the same text as {@link #toString()} as ASCII bytes into <tt>buffer</tt>. The text of an AS number
+     * is at most 12 characters long.
+     *
+     * @param buffer where to write the AS number
+     * @param offset the index in <tt>buffer</tt> of the first character
+     * @return the index in <tt>buffer</tt> after the last character
+     * @throws IndexOutOfBoundsException if the AS number does not fit in <tt>buffer</tt>
+     */
+    public int formatTo(byte[] buffer, int offset) {
+        try {
+            return format(null, Validate.notNull(buffer), offset);
+        } catch (IOException e) {
+            throw Ascii.unexpected(e);
+        }
+    }
+
+    private int format(Appendable out, byte[] buffer, int offset) throws IOException {
+        offset = Ascii.put(out, buffer, offset, "AS");
+        return Ascii.putDecimal(out, buffer, offset, value);
     }
 
     @Override
@@ -160,4 +200,8 @@ public final class Asn implements SingleInternetResource<Asn, AsnRange>, Compara
     public int hashCode() {
         return (int) (value ^ (value >>> 32));
     }
+
+    private Object writeReplace() {
+        return new Serialization.Proxy(Serialization.Proxy.ASN, this);
+    }
 }
@@ -23,8 +23,12 @@
  */
 package com.github.jgonian.ipmath;
 
+import java.io.IOException;
+
 public final class AsnRange extends AbstractRange<Asn, AsnRange> implements InternetResourceRange<Asn, AsnRange> {
 
+    private static final long serialVersionUID = -8108540191207725351L;
+
     protected AsnRange(Asn start, Asn end) {
         super(start, end);
     }
@@ -67,11 +71,41 @@ public final class AsnRange extends AbstractRange<Asn, AsnRange> implements Inte
         return start() + "-" + end();
     }
 
+    /**
+     * Appends the same text as {@link #toString()} to <tt>out</tt>, one character at a time.
+     *
+     * @param out where to append the range, e.g. a <tt>StringBuilder</tt> or a <tt>Writer</tt>
+     * @throws IOException if <tt>out</tt> fails to append
+     */
+    public void formatTo(Appendable out) throws IOException {
+        start().formatTo(out);
+        out.append('-');
+        end().formatTo(out);
+    }
+
+    /**
+     * Writes the same text as {@link #toString()} as ASCII bytes into <tt>buffer</tt>.
+     *
+     * @param buffer where to write the range
+     * @param offset the index in <tt>buffer</tt> of the first character
+     * @return the index in <tt>buffer</tt> after the last character
+     * @throws IndexOutOfBoundsException if the range does not fit in <tt>buffer</tt>
+     */
+    public int formatTo(byte[] buffer, int offset) {
+        offset = start().formatTo(buffer, offset);
+        buffer[offset++] = '-';
+        return end().formatTo(buffer, offset);
+    }
+
     @Override
     public Long size() {
         return (end().value() - start().value()) + 1;
     }
 
+    private Object writeReplace() {
+        return new Serialization.Proxy(Serialization.Proxy.ASN_RANGE, this);
+    }
+
     public static class AsnRangeBuilder extends AbstractRangeBuilder<Asn, AsnRange> {
 
         private final Asn from;
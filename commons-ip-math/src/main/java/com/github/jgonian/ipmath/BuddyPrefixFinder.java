@@ -0,0 +1,214 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A {@link PrefixFinder} which keeps an index of the free blocks of a pool, similar to the free lists of a buddy
+ * allocator. Every free block is split into prefixes and each prefix is kept in a list per prefix length, so the
+ * best-fit prefix is found by walking at most {@link SingleInternetResource#bitSize()} lists instead of scanning all
+ * free blocks.
+ * <p>
+ * The free blocks are coalesced when the finder is created and whenever space is released. For the collection
+ * returned by {@link #freeBlocks()} the answers are the same as the answers of {@link ConservativePrefixFinder};
+ * for any other collection this finder falls back to the conservative strategy.
+ * <p>
+ * This class is not thread-safe.
+ */
+public class BuddyPrefixFinder<C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>> extends PrefixFinder<C, R> {
+
+    private final BuddyStrategy<C, R> strategy;
+
+    public static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
+    BuddyPrefixFinder<C, R> newInstance(Collection<R> freeBlocks) {
+        return new BuddyPrefixFinder<C, R>(new BuddyStrategy<C, R>(freeBlocks));
+    }
+
+    private BuddyPrefixFinder(BuddyStrategy<C, R> strategy) {
+        super(strategy);
+        this.strategy = strategy;
+    }
+
+    /**
+     * Finds a prefix among the indexed free blocks, without changing the index.
+     *
+     * @param prefixLength the length of the requested prefix
+     * @return the prefix to allocate, or <tt>null</tt> if no free block is big enough
+     */
+    public R findPrefixOrNull(int prefixLength) {
+        return strategy.findPrefixOrNull(prefixLength);
+    }
+
+    /**
+     * @return a read-only, ascending view of the coalesced free blocks
+     */
+    public Collection<R> freeBlocks() {
+        return strategy.freeBlocksView;
+    }
+
+    /**
+     * Marks a range as used.
+     *
+     * @param range the range to allocate
+     * @throws IllegalArgumentException if the range is not contained in a single free block
+     */
+    public void allocate(R range) {
+        strategy.allocate(Validate.notNull(range));
+    }
+
+    /**
+     * Finds a prefix among the indexed free blocks and allocates it.
+     *
+     * @param prefixLength the length of the requested prefix
+     * @return the allocated prefix, or <tt>null</tt> if no free block is big enough
+     */
+    public R allocatePrefixOrNull(int prefixLength) {
+        R prefix = strategy.findPrefixOrNull(prefixLength);
+        if (prefix != null) {
+            strategy.allocate(prefix);
+        }
+        return prefix;
+    }
+
+    /**
+     * Marks a range as free, merging it with the free blocks next to it.
+     *
+     * @param range the range to release
+     * @throws IllegalArgumentException if the range overlaps with a free block
+     */
+    public void release(R range) {
+        strategy.release(Validate.notNull(range));
+    }
+
+    boolean overlapsFreeBlocks(R range) {
+        return strategy.overlapsFreeBlocks(range);
+    }
+
+    private static class BuddyStrategy<C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
+            implements Strategy<C, R> {
+
+        private final PrefixFinder<C, R> fallback = ConservativePrefixFinder.newInstance();
+
+        private final NavigableMap<C, R> freeBlocks = new TreeMap<C, R>();
+        private final Collection<R> freeBlocksView = Collections.unmodifiableCollection(freeBlocks.values());
+        // free prefixes by start, per prefix length; created with the first free block
+        private NavigableMap<C, R>[] freePrefixes;
+
+        private BuddyStrategy(Collection<R> ranges) {
+            SortedRangeSet<C, R> coalesced = new SortedRangeSet<C, R>();
+            coalesced.addAll(Validate.notNull(ranges));
+            for (R freeBlock : coalesced) {
+                addFreeBlock(freeBlock);
+            }
+        }
+
+        @Override
+        public R findPrefixOrNull(int prefixLength, Collection<R> ranges) {
+            if (ranges != freeBlocksView) {
+                return fallback.findPrefixOrNull(prefixLength, ranges);
+            }
+            return findPrefixOrNull(prefixLength);
+        }
+
+        private R findPrefixOrNull(int prefixLength) {
+            if (freePrefixes == null) {
+                return null;
+            }
+            Validate.checkRange(prefixLength, 0, freePrefixes.length - 1);
+            // the longest free prefix which still holds the requested one is the best fit
+            for (int length = prefixLength; length >= 0; length--) {
+                if (!freePrefixes[length].isEmpty()) {
+                    C start = freePrefixes[length].firstKey();
+                    return freePrefixes[length].firstEntry().getValue()
+                            .newInstance(start, start.upperBoundForPrefix(prefixLength));
+                }
+            }
+            return null;
+        }
+
+        private void allocate(R range) {
+            Map.Entry<C, R> entry = freeBlocks.floorEntry(range.start());
+            if (entry == null || !entry.getValue().contains(range)) {
+                throw new IllegalArgumentException("Range [" + range + "] is not free");
+            }
+            R freeBlock = entry.getValue();
+            removeFreeBlock(freeBlock);
+            for (R remainder : freeBlock.exclude(range)) {
+                addFreeBlock(remainder);
+            }
+        }
+
+        private void release(R range) {
+            if (overlapsFreeBlocks(range)) {
+                throw new IllegalArgumentException("Range [" + range + "] is already free");
+            }
+            R merged = range;
+            Map.Entry<C, R> before = freeBlocks.lowerEntry(range.start());
+            if (before != null && before.getValue().isConsecutive(merged)) {
+                removeFreeBlock(before.getValue());
+                merged = merged.merge(before.getValue());
+            }
+            Map.Entry<C, R> after = freeBlocks.higherEntry(range.end());
+            if (after != null && after.getValue().isConsecutive(merged)) {
+                removeFreeBlock(after.getValue());
+                merged = merged.merge(after.getValue());
+            }
+            addFreeBlock(merged);
+        }
+
+        private boolean overlapsFreeBlocks(R range) {
+            Map.Entry<C, R> entry = freeBlocks.floorEntry(range.end());
+            return entry != null && entry.getValue().overlaps(range);
+        }
+
+        @SuppressWarnings("unchecked")
+        private void addFreeBlock(R freeBlock) {
+            if (freePrefixes == null) {
+                freePrefixes = new NavigableMap[freeBlock.start().bitSize() + 1];
+                for (int i = 0; i < freePrefixes.length; i++) {
+                    freePrefixes[i] = new TreeMap<C, R>();
+                }
+            }
+            freeBlocks.put(freeBlock.start(), freeBlock);
+            for (Iterator<R> it = freeBlock.prefixIterator(); it.hasNext(); ) {
+                R prefix = it.next();
+                freePrefixes[prefix.legalPrefixLength()].put(prefix.start(), prefix);
+            }
+        }
+
+        private void removeFreeBlock(R freeBlock) {
+            freeBlocks.remove(freeBlock.start());
+            for (Iterator<R> it = freeBlock.prefixIterator(); it.hasNext(); ) {
+                R prefix = it.next();
+                freePrefixes[prefix.legalPrefixLength()].remove(prefix.start());
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Merges overlapping and consecutive ranges of an iterator over ranges sorted by their start, such as the ranges
+ * of a sorted dump, in a single pass. The merged ranges are disjoint, non-consecutive and sorted by their start,
+ * just like the ranges of a {@link SortedRangeSet}. They are produced lazily, one input range ahead.
+ * <p>
+ * Ranges with the same start may come in any order. A range which starts before the previous one is rejected
+ * with an {@link IllegalArgumentException} when it is reached.
+ */
+public final class CoalescingIterator<C extends Rangeable<C, R>, R extends Range<C, R>> implements Iterator<R> {
+
+    private final Iterator<? extends R> ranges;
+    private R pending;
+
+    /**
+     * @param ranges ranges sorted by their start, e.g. with the {@link StartAndSizeComparator}
+     */
+    public CoalescingIterator(Iterator<? extends R> ranges) {
+        this.ranges = Validate.notNull(ranges, "An iterator is required");
+        this.pending = ranges.hasNext() ? ranges.next() : null;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return pending != null;
+    }
+
+    @Override
+    public R next() {
+        if (pending == null) {
+            throw new NoSuchElementException();
+        }
+        R current = pending;
+        C lastStart = current.start();
+        pending = null;
+        while (ranges.hasNext()) {
+            R range = ranges.next();
+            if (range.start().compareTo(lastStart) < 0) {
+                throw new IllegalArgumentException("Ranges must be sorted by their start: " + range
+                        + " came after a range starting at " + lastStart);
+            }
+            lastStart = range.start();
+            if (range.start().compareTo(current.end()) <= 0) {
+                if (range.end().compareTo(current.end()) > 0) {
+                    current = current.merge(range);
+                }
+            } else if (current.isConsecutive(range)) {
+                current = current.merge(range);
+            } else {
+                pending = range;
+                break;
+            }
+        }
+        return current;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+}
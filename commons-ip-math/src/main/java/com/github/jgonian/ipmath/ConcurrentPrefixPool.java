@@ -0,0 +1,277 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A pool of addresses and prefixes which is shared between threads.
+ * <p>
+ * The free space is split into stripes, each one owning a contiguous part of the address space with its own lock and
+ * its own {@link BuddyPrefixFinder}. Since the parts do not overlap, neither do the allocations, and threads which
+ * work on different stripes never wait for each other. A thread starts at its own stripe, skips stripes which are
+ * busy and only waits for them when no other stripe can serve the request.
+ * <p>
+ * Each stripe starts at the most aligned address after the previous even share of the free space, so stripes are
+ * roughly even and large prefixes of the initial free space are split between stripes only when there is no other
+ * way to give every stripe some of it. Each allocation is a best fit within its stripe, but not necessarily within
+ * the whole pool. Only ranges of the initial free space can be released to the pool.
+ */
+public final class ConcurrentPrefixPool<C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>> {
+
+    private static final int DEFAULT_STRIPES = 4 * Runtime.getRuntime().availableProcessors();
+
+    private final ImmutableSortedRangeSet<C, R> universe;
+    private final List<Stripe<C, R>> stripes;
+    private final int bitSize;
+
+    public ConcurrentPrefixPool(SortedRangeSet<C, R> freeSpace) {
+        this(freeSpace, DEFAULT_STRIPES);
+    }
+
+    public ConcurrentPrefixPool(SortedRangeSet<C, R> freeSpace, int stripes) {
+        Validate.notNull(freeSpace, "The free space is required");
+        Validate.isTrue(stripes > 0, "The number of stripes must be positive");
+        this.universe = freeSpace.toImmutable();
+        this.bitSize = universe.isEmpty() ? -1 : universe.get(0).start().bitSize();
+        this.stripes = Collections.unmodifiableList(split(stripes));
+    }
+
+    /**
+     * @param prefixLength the length of the requested prefix
+     * @return the allocated prefix, or <tt>null</tt> if no stripe has a free block big enough
+     */
+    public R allocate(int prefixLength) {
+        if (bitSize < 0) {
+            return null;
+        }
+        Validate.checkRange(prefixLength, 0, bitSize);
+        int size = stripes.size();
+        int home = (int) (Thread.currentThread().getId() % size);
+        boolean[] busy = null;
+        for (int i = 0; i < size; i++) {
+            Stripe<C, R> stripe = stripes.get((home + i) % size);
+            if (stripe.lock.tryLock()) {
+                try {
+                    R prefix = stripe.finder.allocatePrefixOrNull(prefixLength);
+                    if (prefix != null) {
+                        return prefix;
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            } else {
+                if (busy == null) {
+                    busy = new boolean[size];
+                }
+                busy[i] = true;
+            }
+        }
+        for (int i = 0; busy != null && i < size; i++) {
+            if (busy[i]) {
+                Stripe<C, R> stripe = stripes.get((home + i) % size);
+                stripe.lock.lock();
+                try {
+                    R prefix = stripe.finder.allocatePrefixOrNull(prefixLength);
+                    if (prefix != null) {
+                        return prefix;
+                    }
+                } finally {
+                    stripe.lock.unlock();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the allocated address, or <tt>null</tt> if the pool is exhausted
+     */
+    public C allocateAddress() {
+        R prefix = allocate(bitSize);
+        return prefix == null ? null : prefix.start();
+    }
+
+    /**
+     * Returns a range to the pool. The range does not have to be one which was allocated, as long as it is part of
+     * the initial free space and none of it is free.
+     *
+     * @param range the range to release
+     * @throws IllegalArgumentException if any part of the range is free or outside the initial free space, in which
+     *                                  case nothing is released, or if the pool was created without any free space
+     */
+    public void release(R range) {
+        Validate.notNull(range, "A range is required");
+        Validate.isTrue(bitSize >= 0, "The pool has no free space to return ranges to");
+        if (!universe.contains(range)) {
+            throw new IllegalArgumentException("Range [" + range + "] is not part of the pool");
+        }
+        int first = indexOf(range.start());
+        int last = indexOf(range.end());
+        for (int i = first; i <= last; i++) {
+            stripes.get(i).lock.lock();
+        }
+        try {
+            List<R> parts = new ArrayList<R>(last - first + 1);
+            for (int i = first; i <= last; i++) {
+                C start = i == first ? range.start() : stripes.get(i).start;
+                C end = i == last ? range.end() : stripes.get(i + 1).start.previous();
+                R part = range.newInstance(start, end);
+                if (stripes.get(i).finder.overlapsFreeBlocks(part)) {
+                    throw new IllegalArgumentException("Range [" + range + "] is already free");
+                }
+                parts.add(part);
+            }
+            for (int i = first; i <= last; i++) {
+                stripes.get(i).finder.release(parts.get(i - first));
+            }
+        } finally {
+            for (int i = last; i >= first; i--) {
+                stripes.get(i).lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return a copy of the free space, taken while all stripes are locked
+     */
+    public SortedRangeSet<C, R> freeSpace() {
+        SortedRangeSet<C, R> result = new SortedRangeSet<C, R>();
+        for (Stripe<C, R> stripe : stripes) {
+            stripe.lock.lock();
+        }
+        try {
+            for (Stripe<C, R> stripe : stripes) {
+                result.addAll(stripe.finder.freeBlocks());
+            }
+        } finally {
+            for (int i = stripes.size() - 1; i >= 0; i--) {
+                stripes.get(i).lock.unlock();
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of stripes, which is never more than the number of addresses in the free space
+     */
+    public int stripes() {
+        return stripes.size();
+    }
+
+    // the stripe owning an address: the last one which starts at or before it, or the first one
+    private int indexOf(C address) {
+        int low = 1;
+        int high = stripes.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (stripes.get(middle).start.compareTo(address) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low - 1;
+    }
+
+    private List<Stripe<C, R>> split(int count) {
+        if (universe.isEmpty()) {
+            return new ArrayList<Stripe<C, R>>();
+        }
+        List<BigInteger> cuts = cuts(count);
+        List<Stripe<C, R>> result = new ArrayList<Stripe<C, R>>(cuts.size() + 1);
+        List<R> current = new ArrayList<R>();
+        C currentStart = universe.get(0).start();
+        int next = 0;
+        for (R freeBlock : universe) {
+            R rest = freeBlock;
+            BigInteger end = freeBlock.end().asBigInteger();
+            while (next < cuts.size() && cuts.get(next).compareTo(end) <= 0) {
+                BigInteger cut = cuts.get(next++);
+                BigInteger start = rest.start().asBigInteger();
+                if (cut.compareTo(start) > 0) {
+                    current.add(rest.newInstance(start, cut.subtract(BigInteger.ONE)));
+                    rest = rest.newInstance(cut, end);
+                }
+                result.add(new Stripe<C, R>(currentStart, current));
+                currentStart = rest.start();
+                current = new ArrayList<R>();
+            }
+            current.add(rest);
+        }
+        result.add(new Stripe<C, R>(currentStart, current));
+        return result;
+    }
+
+    /**
+     * @return the starts of all stripes but the first one; each is the most aligned address which comes after one
+     * even share of the free space and at or before the next one, so every stripe has some free space
+     */
+    private List<BigInteger> cuts(int count) {
+        BigInteger total = BigInteger.ZERO;
+        for (R freeBlock : universe) {
+            total = total.add(size(freeBlock));
+        }
+        BigInteger stripes = total.min(BigInteger.valueOf(count));
+        List<BigInteger> cuts = new ArrayList<BigInteger>();
+        BigInteger previous = universe.get(0).start().asBigInteger();
+        BigInteger before = BigInteger.ZERO;
+        int k = 1;
+        BigInteger share = total.divide(stripes);
+        for (R freeBlock : universe) {
+            BigInteger after = before.add(size(freeBlock));
+            while (k < stripes.intValue() && share.compareTo(after) < 0) {
+                BigInteger address = freeBlock.start().asBigInteger().add(share.subtract(before));
+                // clears the bits below the highest one which differs from the previous address
+                int alignment = previous.xor(address).bitLength() - 1;
+                cuts.add(address.shiftRight(alignment).shiftLeft(alignment));
+                previous = address;
+                k++;
+                share = total.multiply(BigInteger.valueOf(k)).divide(stripes);
+            }
+            before = after;
+        }
+        return cuts;
+    }
+
+    private static BigInteger size(AbstractIpRange<?, ?> range) {
+        return range.end().asBigInteger().subtract(range.start().asBigInteger()).add(BigInteger.ONE);
+    }
+
+    private static final class Stripe<C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>> {
+
+        private final C start;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final BuddyPrefixFinder<C, R> finder;
+
+        private Stripe(C start, List<R> freeBlocks) {
+            this.start = start;
+            this.finder = BuddyPrefixFinder.newInstance(freeBlocks);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+/**
+ * A set of ranges which is shared between threads and read much more often than it is written.
+ * <p>
+ * Readers never lock. They query the current {@link ImmutableSortedRangeSet} snapshot, which is published through a
+ * volatile field. Writers take a lock, apply their changes to a copy of the snapshot and then publish the copy as
+ * the new snapshot. A reader therefore sees either all the changes of a write or none of them.
+ * <p>
+ * Each write copies the whole set, so related changes should go into a single {@link #update(Update)}.
+ * Every call to {@link #contains(Rangeable)} and the other queries reads the latest snapshot. Callers which need
+ * several queries to agree should hold on to {@link #snapshot()}.
+ */
+public final class ConcurrentSortedRangeSet<C extends Rangeable<C, R>, R extends Range<C, R>> implements Iterable<R> {
+
+    private final Object writeLock = new Object();
+
+    private volatile ImmutableSortedRangeSet<C, R> snapshot;
+
+    public ConcurrentSortedRangeSet() {
+        this.snapshot = ImmutableSortedRangeSet.copyOf(Collections.<R>emptyList());
+    }
+
+    public ConcurrentSortedRangeSet(SortedRangeSet<C, R> ranges) {
+        Validate.notNull(ranges, "A set of ranges is required");
+        this.snapshot = ranges.toImmutable();
+    }
+
+    /**
+     * Changes to a set of ranges which are published together.
+     */
+    public interface Update<C extends Rangeable<C, R>, R extends Range<C, R>> {
+
+        /**
+         * @param ranges a private, modifiable copy of the current ranges, which becomes the next snapshot
+         */
+        void apply(SortedRangeSet<C, R> ranges);
+    }
+
+    /**
+     * @return the current ranges, which are not affected by later writes
+     */
+    public ImmutableSortedRangeSet<C, R> snapshot() {
+        return snapshot;
+    }
+
+    public boolean contains(C value) {
+        return snapshot.contains(value);
+    }
+
+    public boolean contains(R range) {
+        return snapshot.contains(range);
+    }
+
+    public boolean overlaps(R range) {
+        return snapshot.overlaps(range);
+    }
+
+    public int size() {
+        return snapshot.size();
+    }
+
+    public boolean isEmpty() {
+        return snapshot.isEmpty();
+    }
+
+    /**
+     * @return an iterator over the snapshot which is current when this method is called
+     */
+    @Override
+    public Iterator<R> iterator() {
+        return snapshot.iterator();
+    }
+
+    /**
+     * Applies the update to a copy of the current ranges and publishes the result as the new snapshot. Writers are
+     * serialized, so the update sees the changes of all earlier writes. If the update throws an exception, nothing
+     * is published.
+     */
+    public void update(Update<C, R> update) {
+        Validate.notNull(update, "An update is required");
+        synchronized (writeLock) {
+            SortedRangeSet<C, R> ranges = snapshot.toSortedRangeSet();
+            update.apply(ranges);
+            snapshot = ranges.toImmutable();
+        }
+    }
+
+    public void add(final R range) {
+        Validate.notNull(range, "A range is required");
+        update(new Update<C, R>() {
+            @Override
+            public void apply(SortedRangeSet<C, R> ranges) {
+                ranges.add(range);
+            }
+        });
+    }
+
+    public void addAll(final Collection<R> ranges) {
+        Validate.notNull(ranges, "A collection of ranges is required");
+        update(new Update<C, R>() {
+            @Override
+            public void apply(SortedRangeSet<C, R> current) {
+                current.addAll(ranges);
+            }
+        });
+    }
+
+    public void remove(final R range) {
+        Validate.notNull(range, "A range is required");
+        update(new Update<C, R>() {
+            @Override
+            public void apply(SortedRangeSet<C, R> ranges) {
+                ranges.remove(range);
+            }
+        });
+    }
+
+    public void removeAll(final Collection<R> ranges) {
+        Validate.notNull(ranges, "A collection of ranges is required");
+        update(new Update<C, R>() {
+            @Override
+            public void apply(SortedRangeSet<C, R> current) {
+                current.removeAll(ranges);
+            }
+        });
+    }
+
+    public void clear() {
+        synchronized (writeLock) {
+            snapshot = ImmutableSortedRangeSet.copyOf(Collections.<R>emptyList());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return snapshot.toString();
+    }
+}
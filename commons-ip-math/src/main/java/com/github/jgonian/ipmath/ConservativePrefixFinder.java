@@ -23,42 +23,99 @@
  */
 package com.github.jgonian.ipmath;
 
-import java.math.BigInteger;
 import java.util.Collection;
-import java.util.Optional;
 
-public class ConservativePrefixFinder extends PrefixFinder {
+/**
+ * Finds a prefix by scanning all free blocks and picking the one with the smallest prefix which can still hold the
+ * requested prefix. When several free blocks fit equally well, the first one wins.
+ */
+public class ConservativePrefixFinder<C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
+        extends PrefixFinder<C, R> {
+
+    /**
+     * @return a finder for any kind of IP ranges; use {@link #newIpv4Instance()} for IPv4 pools
+     */
+    public static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
+    ConservativePrefixFinder<C, R> newInstance() {
+        return new ConservativePrefixFinder<C, R>(new ConservativeStrategy<C, R>());
+    }
 
-    public static ConservativePrefixFinder newInstance() {
-        return new ConservativePrefixFinder();
+    /**
+     * @return a finder for IPv4 pools which works on the primitive values of the free blocks
+     */
+    public static ConservativePrefixFinder<Ipv4, Ipv4Range> newIpv4Instance() {
+        return new ConservativePrefixFinder<Ipv4, Ipv4Range>(new Ipv4ConservativeStrategy());
     }
 
-    private ConservativePrefixFinder() {
-        super(new ConservativeStrategy());
+    private ConservativePrefixFinder(Strategy<C, R> strategy) {
+        super(strategy);
+    }
+
+    private static class ConservativeStrategy<C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
+            implements Strategy<C, R> {
+
+        @Override
+        public R findPrefixOrNull(int prefixLength, Collection<R> ranges) {
+            // the family of an empty collection is unknown, so only the widest one bounds the prefix length
+            final int maximumPrefixLength = ranges.isEmpty()
+                    ? Ipv6.NUMBER_OF_BITS : ranges.iterator().next().start().bitSize();
+            Validate.checkRange(prefixLength, 0, maximumPrefixLength);
+            R foundPrefix = null;
+            int foundPrefixLength = -1;
+
+            for (R freeBlock : ranges) {
+                // null when the free block is too small for the prefix
+                final R candidatePrefix = freeBlock.findSplitPrefix(prefixLength, true);
+                if (candidatePrefix != null) {
+                    final int candidatePrefixLength = candidatePrefix.legalPrefixLength();
+                    if ((foundPrefix == null) || candidatePrefixLength > foundPrefixLength) {
+                        foundPrefix = candidatePrefix;
+                        foundPrefixLength = candidatePrefixLength;
+                    }
+                }
+            }
+            if (foundPrefix == null) {
+                return null;
+            }
+            C start = foundPrefix.start();
+            return foundPrefix.newInstance(start, start.upperBoundForPrefix(prefixLength));
+        }
     }
 
-    private static class ConservativeStrategy implements Strategy {
+    /**
+     * Walks the prefixes of each free block with long arithmetic, so only the returned prefix is allocated.
+     */
+    private static class Ipv4ConservativeStrategy implements Strategy<Ipv4, Ipv4Range> {
 
         @Override
-        public Ipv6Range findPrefixOrNull(int prefixLength, Collection<Ipv6Range> ranges) {
-            final BigInteger desiredPrefixSize = BigInteger.valueOf(2).pow(128 - prefixLength);
-            Ipv6Range foundPrefix = null;
-            BigInteger currentSize = null;
+        public Ipv4Range findPrefixOrNull(int prefixLength, Collection<Ipv4Range> ranges) {
+            Validate.checkRange(prefixLength, 0, Ipv4.NUMBER_OF_BITS);
+            final int minimumBits = Ipv4.NUMBER_OF_BITS - prefixLength;
+            long foundStart = 0;
+            int foundBits = Integer.MAX_VALUE;
 
-            for (Ipv6Range freeBlock : ranges) {
-                if (freeBlock.size().compareTo(desiredPrefixSize) >= 0) {
-                    final Optional<Ipv6Range> smallestPrefix = PrefixUtils.findMinimumPrefixForPrefixLength(freeBlock, prefixLength);
-                    if (smallestPrefix.isPresent()) {
-                        final Ipv6Range candidatePrefix = smallestPrefix.get();
-                        final BigInteger candidateSize = candidatePrefix.size();
-                        if ((foundPrefix == null) || candidateSize.compareTo(currentSize) < 0) {
-                            foundPrefix = candidatePrefix;
-                            currentSize = candidateSize;
+            for (Ipv4Range freeBlock : ranges) {
+                long start = freeBlock.start().value();
+                final long end = freeBlock.end().value();
+                while (start <= end) {
+                    final int bits = Math.min(Long.numberOfTrailingZeros(start),
+                            63 - Long.numberOfLeadingZeros(end - start + 1));
+                    if (bits >= minimumBits && bits < foundBits) {
+                        foundStart = start;
+                        foundBits = bits;
+                        if (bits == minimumBits) {
+                            // no later prefix can fit better
+                            return prefix(foundStart, prefixLength);
                         }
                     }
+                    start += 1L << bits;
                 }
             }
-            return foundPrefix == null ? null : Ipv6Range.from(foundPrefix.start()).andPrefixLength(prefixLength);
+            return foundBits == Integer.MAX_VALUE ? null : prefix(foundStart, prefixLength);
+        }
+
+        private static Ipv4Range prefix(long start, int prefixLength) {
+            return Ipv4Range.from(Ipv4.ofUnsigned(start)).andPrefixLength(prefixLength);
         }
     }
 }
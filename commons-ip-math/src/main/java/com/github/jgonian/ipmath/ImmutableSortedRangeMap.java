@@ -0,0 +1,159 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable map from disjoint ranges to values, as created by {@link SortedRangeMap#toImmutable()}, for maps
+ * which are built once and queried many times.
+ * <p>
+ * The ranges are held in an {@link ImmutableSortedRangeSet} and the values in an array of the same order, so
+ * {@link #get(Rangeable)} is a binary search which does not allocate, over primitive <tt>int</tt>s for IPv4 and ASN
+ * ranges. The ranges and entries returned by the other methods are created on demand.
+ *
+ * @param <V> the type of the values
+ */
+public final class ImmutableSortedRangeMap<C extends Rangeable<C, R>, R extends Range<C, R>, V>
+        implements Iterable<Map.Entry<R, V>> {
+
+    private final ImmutableSortedRangeSet<C, R> ranges;
+    private final Object[] values;
+
+    /**
+     * @param ranges disjoint ranges, sorted by their start
+     * @param values the value of each range, in the same order
+     */
+    ImmutableSortedRangeMap(ImmutableSortedRangeSet<C, R> ranges, Object[] values) {
+        this.ranges = ranges;
+        this.values = values;
+    }
+
+    /**
+     * @return the value of the resource, or <tt>null</tt> if it has none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(C value) {
+        Validate.notNull(value, "A value is required");
+        int index = ranges.indexOf(value);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    /**
+     * @return the range which contains the resource, or <tt>null</tt> if there is none
+     */
+    public R getRange(C value) {
+        Validate.notNull(value, "A value is required");
+        int index = ranges.indexOf(value);
+        return index < 0 ? null : ranges.get(index);
+    }
+
+    public boolean containsKey(C value) {
+        Validate.notNull(value, "A value is required");
+        return ranges.contains(value);
+    }
+
+    /**
+     * @return the number of entries
+     */
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * @return a new, modifiable {@link SortedRangeMap} with the entries of this map
+     */
+    public SortedRangeMap<C, R, V> toSortedRangeMap() {
+        SortedRangeMap<C, R, V> result = new SortedRangeMap<C, R, V>();
+        for (Map.Entry<R, V> entry : this) {
+            result.put(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Map.Entry<R, V>> iterator() {
+        return new Iterator<Map.Entry<R, V>>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < values.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Map.Entry<R, V> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Map.Entry<R, V> entry = new AbstractMap.SimpleImmutableEntry<R, V>(ranges.get(index), (V) values[index]);
+                index++;
+                return entry;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ImmutableSortedRangeMap<?, ?, ?> that = (ImmutableSortedRangeMap<?, ?, ?>) o;
+        return ranges.equals(that.ranges) && Arrays.equals(values, that.values);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * ranges.hashCode() + Arrays.hashCode(values);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (Map.Entry<R, V> entry : this) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(entry);
+        }
+        return sb.append(']').toString();
+    }
+}
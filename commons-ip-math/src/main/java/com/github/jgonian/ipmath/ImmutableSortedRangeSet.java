@@ -0,0 +1,334 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * An immutable set of disjoint, non-consecutive ranges sorted by their start, as created by
+ * {@link SortedRangeSet#toImmutable()}, for sets which are built once and queried many times.
+ * <p>
+ * The ranges are held in sorted arrays of their starts and ends and are looked up with a binary search, so
+ * {@link #contains(Rangeable)}, {@link #contains(Range)} and {@link #overlaps(Range)} take O(log n) time and
+ * do not allocate. IPv4 and ASN ranges are held in arrays of primitive <tt>int</tt>s, which take 8 bytes per
+ * range; the ranges returned by {@link #get(int)} and the iterator are created on demand.
+ */
+public abstract class ImmutableSortedRangeSet<C extends Rangeable<C, R>, R extends Range<C, R>> implements Iterable<R> {
+
+    ImmutableSortedRangeSet() {
+    }
+
+    /**
+     * @param ranges disjoint ranges, sorted by their start
+     */
+    @SuppressWarnings("unchecked")
+    static <C extends Rangeable<C, R>, R extends Range<C, R>> ImmutableSortedRangeSet<C, R> copyOf(Collection<R> ranges) {
+        R first = ranges.isEmpty() ? null : ranges.iterator().next();
+        if (first instanceof Ipv4Range) {
+            return (ImmutableSortedRangeSet<C, R>) (ImmutableSortedRangeSet<?, ?>) new OfIpv4((Collection<Ipv4Range>) ranges);
+        }
+        if (first instanceof AsnRange) {
+            return (ImmutableSortedRangeSet<C, R>) (ImmutableSortedRangeSet<?, ?>) new OfAsn((Collection<AsnRange>) ranges);
+        }
+        return new OfComparables<C, R>(ranges);
+    }
+
+    /**
+     * @return the number of ranges in the set
+     */
+    public abstract int size();
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the range at the given index, in the order of their start
+     * @throws IndexOutOfBoundsException if the index is negative or not less than the size of the set
+     */
+    public abstract R get(int index);
+
+    /**
+     * @return <tt>true</tt> if a range of the set contains the value
+     */
+    public boolean contains(C value) {
+        return indexOf(value) >= 0;
+    }
+
+    /**
+     * @return the index of the range which contains the value, or -1 if there is none
+     */
+    abstract int indexOf(C value);
+
+    /**
+     * @return <tt>true</tt> if a range of the set contains the whole range
+     */
+    public abstract boolean contains(R range);
+
+    /**
+     * @return <tt>true</tt> if a range of the set overlaps with the range
+     */
+    public abstract boolean overlaps(R range);
+
+    /**
+     * @return a new, modifiable {@link SortedRangeSet} with the ranges of this set
+     */
+    public SortedRangeSet<C, R> toSortedRangeSet() {
+        List<R> ranges = new ArrayList<R>(size());
+        for (R range : this) {
+            ranges.add(range);
+        }
+        return new SortedRangeSet<C, R>(ranges);
+    }
+
+    @Override
+    public Iterator<R> iterator() {
+        return new Iterator<R>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < size();
+            }
+
+            @Override
+            public R next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return get(index++);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public final boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImmutableSortedRangeSet)) {
+            return false;
+        }
+        ImmutableSortedRangeSet<?, ?> that = (ImmutableSortedRangeSet<?, ?>) o;
+        if (size() != that.size()) {
+            return false;
+        }
+        for (int i = 0; i < size(); i++) {
+            if (!get(i).equals(that.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public final int hashCode() {
+        int result = 1;
+        for (R range : this) {
+            result = 31 * result + range.hashCode();
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(get(i));
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * Holds the ranges of 32-bit resources. The unsigned values are stored with their sign bit flipped, so that
+     * they can be compared as signed <tt>int</tt>s.
+     */
+    abstract static class OfInts<C extends Rangeable<C, R>, R extends Range<C, R>> extends ImmutableSortedRangeSet<C, R> {
+
+        private final int[] starts;
+        private final int[] ends;
+
+        OfInts(Collection<R> ranges) {
+            starts = new int[ranges.size()];
+            ends = new int[ranges.size()];
+            int i = 0;
+            for (R range : ranges) {
+                starts[i] = toInt(range.start()) ^ Integer.MIN_VALUE;
+                ends[i] = toInt(range.end()) ^ Integer.MIN_VALUE;
+                i++;
+            }
+        }
+
+        abstract int toInt(C value);
+
+        abstract R toRange(int start, int end);
+
+        @Override
+        public int size() {
+            return starts.length;
+        }
+
+        @Override
+        public R get(int index) {
+            return toRange(starts[index] ^ Integer.MIN_VALUE, ends[index] ^ Integer.MIN_VALUE);
+        }
+
+        @Override
+        int indexOf(C value) {
+            int flipped = toInt(value) ^ Integer.MIN_VALUE;
+            int index = floorIndex(flipped);
+            return index >= 0 && flipped <= ends[index] ? index : -1;
+        }
+
+        @Override
+        public boolean contains(R range) {
+            int index = floorIndex(toInt(range.start()) ^ Integer.MIN_VALUE);
+            return index >= 0 && (toInt(range.end()) ^ Integer.MIN_VALUE) <= ends[index];
+        }
+
+        @Override
+        public boolean overlaps(R range) {
+            int index = floorIndex(toInt(range.end()) ^ Integer.MIN_VALUE);
+            return index >= 0 && (toInt(range.start()) ^ Integer.MIN_VALUE) <= ends[index];
+        }
+
+        /**
+         * @return the index of the last range starting at or before the value, or -1 if there is none
+         */
+        private int floorIndex(int flipped) {
+            int low = 0;
+            int high = starts.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (starts[middle] <= flipped) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+    }
+
+    static final class OfIpv4 extends OfInts<Ipv4, Ipv4Range> {
+
+        OfIpv4(Collection<Ipv4Range> ranges) {
+            super(ranges);
+        }
+
+        @Override
+        int toInt(Ipv4 value) {
+            return value.asInt();
+        }
+
+        @Override
+        Ipv4Range toRange(int start, int end) {
+            return new Ipv4Range(Ipv4.of(start), Ipv4.of(end));
+        }
+    }
+
+    static final class OfAsn extends OfInts<Asn, AsnRange> {
+
+        OfAsn(Collection<AsnRange> ranges) {
+            super(ranges);
+        }
+
+        @Override
+        int toInt(Asn value) {
+            return (int) value.value();
+        }
+
+        @Override
+        AsnRange toRange(int start, int end) {
+            return new AsnRange(Asn.of(start & 0xFFFFFFFFL), Asn.of(end & 0xFFFFFFFFL));
+        }
+    }
+
+    /**
+     * Holds the ranges of any other type of resource, comparing their bounds with <tt>compareTo</tt>.
+     */
+    static final class OfComparables<C extends Rangeable<C, R>, R extends Range<C, R>> extends ImmutableSortedRangeSet<C, R> {
+
+        private final Object[] ranges;
+
+        OfComparables(Collection<R> ranges) {
+            this.ranges = ranges.toArray();
+        }
+
+        @Override
+        public int size() {
+            return ranges.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public R get(int index) {
+            return (R) ranges[index];
+        }
+
+        @Override
+        int indexOf(C value) {
+            int index = floorIndex(value);
+            return index >= 0 && get(index).end().compareTo(value) >= 0 ? index : -1;
+        }
+
+        @Override
+        public boolean contains(R range) {
+            int index = floorIndex(range.start());
+            return index >= 0 && get(index).end().compareTo(range.end()) >= 0;
+        }
+
+        @Override
+        public boolean overlaps(R range) {
+            int index = floorIndex(range.end());
+            return index >= 0 && get(index).end().compareTo(range.start()) >= 0;
+        }
+
+        private int floorIndex(C value) {
+            int low = 0;
+            int high = ranges.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (get(middle).start().compareTo(value) <= 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return high;
+        }
+    }
+}
@@ -23,8 +23,10 @@
  */
 package com.github.jgonian.ipmath;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamField;
 import java.math.BigInteger;
-import java.util.regex.Pattern;
 
 public final class Ipv4 extends AbstractIp<Ipv4, Ipv4Range> {
 
@@ -35,27 +37,62 @@ public final class Ipv4 extends AbstractIp<Ipv4, Ipv4Range> {
     public static final long MINIMUM_VALUE = 0;
     public static final long MAXIMUM_VALUE = (1L << NUMBER_OF_BITS) - 1;
 
-    public static final Ipv4 FIRST_IPV4_ADDRESS = Ipv4.of(MINIMUM_VALUE);
-    public static final Ipv4 LAST_IPV4_ADDRESS = Ipv4.of(MAXIMUM_VALUE);
+    /**
+     * Returned by the <tt>parseValue</tt> methods when the text is not a valid IPv4 address.
+     */
+    public static final long INVALID_VALUE = -1L;
+
+    public static final Ipv4 FIRST_IPV4_ADDRESS = Ipv4.ofUnsigned(MINIMUM_VALUE);
+    public static final Ipv4 LAST_IPV4_ADDRESS = Ipv4.ofUnsigned(MAXIMUM_VALUE);
 
     private static final int TOTAL_OCTETS = 4;
     private static final int MAX_OCTET_VALUE = 255;
-    private static final int MIN_OCTET_VALUE = 0;
     private static final int THREE_OCTETS = 24;
     private static final int TWO_OCTETS = 16;
     private static final int ONE_OCTET = 8;
+    private static final int MAX_TEXT_LENGTH = 15;
     private static final String DEFAULT_PARSING_ERROR_MESSAGE = "Invalid IPv4 address: '%s'";
-    private static final Pattern LEADING_ZERO_IN_IPV4 = Pattern.compile("(^|\\.)0[0-9]");
 
-    private final Long value;
+    /**
+     * Instances are written through {@link Serialization.Proxy}; these fields describe the serialized form of older
+     * versions, when the value was held in a boxed <tt>Long</tt>, which can still be read.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("value", Long.class)
+    };
+
+    /**
+     * The 32 bits of the address. Compare as unsigned.
+     */
+    private final int value;
 
     protected Ipv4(Long value) {
-        this.value = Validate.notNull(value, "value is required");
-        Validate.isTrue(value.compareTo(MINIMUM_VALUE) >= 0, "Value of IPv4 has to be greater than or equal to " + MINIMUM_VALUE);
-        Validate.isTrue(value.compareTo(MAXIMUM_VALUE) <= 0, "Value of IPv4 has to be less than or equal to " + MAXIMUM_VALUE);
+        this(checkValue(Validate.notNull(value, "value is required")));
+    }
+
+    private Ipv4(int value) {
+        this.value = value;
+    }
+
+    private static int checkValue(long value) {
+        if (value < MINIMUM_VALUE) {
+            throw new IllegalArgumentException("Value of IPv4 has to be greater than or equal to " + MINIMUM_VALUE);
+        }
+        if (value > MAXIMUM_VALUE) {
+            throw new IllegalArgumentException("Value of IPv4 has to be less than or equal to " + MAXIMUM_VALUE);
+        }
+        return (int) value;
     }
 
     long value() {
+        return value & MAXIMUM_VALUE;
+    }
+
+    /**
+     * @return the 32 bits of this address as an <tt>int</tt>, e.g. <tt>0xC0A80001</tt> for 192.168.0.1
+     * @see #of(int)
+     */
+    public int asInt() {
         return value;
     }
 
@@ -63,68 +100,159 @@ public final class Ipv4 extends AbstractIp<Ipv4, Ipv4Range> {
         if(from == null) {
             throw new IllegalArgumentException("from cannot be null");
         }
-        return new Ipv4(from.longValue());
+        return ofUnsigned(from.longValue());
     }
 
     public static Ipv4 of(Long value) {
+        return ofUnsigned(Validate.notNull(value, "value is required"));
+    }
+
+    /**
+     * @param value the 32 bits of an IPv4 address, e.g. <tt>0xC0A80001</tt> for 192.168.0.1
+     * @return a new {@link Ipv4}
+     * @see #asInt()
+     */
+    public static Ipv4 of(int value) {
         return new Ipv4(value);
     }
 
+    /**
+     * @param value the value of an IPv4 address between {@link #MINIMUM_VALUE} and {@link #MAXIMUM_VALUE}
+     * @return a new {@link Ipv4}
+     * @throws IllegalArgumentException if the value is out of range
+     */
+    public static Ipv4 ofUnsigned(long value) {
+        return new Ipv4(checkValue(value));
+    }
+
     public static Ipv4 of(String value) {
         return parse(value);
     }
 
+    /**
+     * Parses a <tt>String</tt> in dotted decimal notation into an {@link Ipv4} address. Leading and trailing
+     * whitespace is ignored.
+     *
+     * @param ipv4Address a text representation of an IPv4 address, e.g. "192.168.0.1"
+     * @return a new {@link Ipv4}
+     * @throws IllegalArgumentException if the string cannot be parsed
+     * @see #parseValue(CharSequence, int, int)
+     */
     public static Ipv4 parse(String ipv4Address) {
-        try {
-            String ipv4String = Validate.notNull(ipv4Address).trim();
-            Validate.isTrue(!ipv4String.isEmpty()
-                    && Character.isDigit(ipv4String.charAt(0))
-                    && Character.isDigit(ipv4String.charAt(ipv4String.length() - 1)));
-
-            Validate.isTrue(!LEADING_ZERO_IN_IPV4.matcher(ipv4String).find(),
-                    "IPv4 cannot have leading zeros, as this may be mistaken for octal numbers.");
-
-            long value = 0;
-            int octet = 0;
-            int octetCount = 1;
-            for (int i = 0; i < ipv4String.length(); ++i) {
-                char ch = ipv4String.charAt(i);
-                if (Character.isDigit(ch)) {
-                    octet = octet * 10 + (ch - '0');
-                } else if (ch == '.') {
-                    Validate.isTrue(octetCount < TOTAL_OCTETS);
-                    octetCount++;
-                    value = addOctet(value, octet);
-                    octet = 0;
-                } else {
-                    throw new IllegalArgumentException(String.format(DEFAULT_PARSING_ERROR_MESSAGE, ipv4Address));
-                }
+        if (ipv4Address != null) {
+            int start = 0;
+            int end = ipv4Address.length();
+            while (start < end && ipv4Address.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && ipv4Address.charAt(end - 1) <= ' ') {
+                end--;
+            }
+            long value = parseValue(ipv4Address, null, start, end);
+            if (value != INVALID_VALUE) {
+                return new Ipv4((int) value);
             }
-            Validate.isTrue(octetCount == TOTAL_OCTETS);
-            return new Ipv4(addOctet(value, octet));
-        } catch (Exception e) {
-            throw new IllegalArgumentException(String.format(DEFAULT_PARSING_ERROR_MESSAGE, ipv4Address), e);
         }
+        throw new IllegalArgumentException(String.format(DEFAULT_PARSING_ERROR_MESSAGE, ipv4Address));
     }
 
-    private static long addOctet(long value, int octet) {
-        Validate.checkRange(octet, MIN_OCTET_VALUE, MAX_OCTET_VALUE);
-        return ((value) << 8) | octet;
+    /**
+     * Parses the characters from <tt>start</tt> (inclusive) to <tt>end</tt> (exclusive) as an IPv4 address in
+     * dotted decimal notation, without allocating and without throwing on invalid input. Octets with leading
+     * zeros are rejected, as they may be mistaken for octal numbers. Whitespace is not ignored.
+     *
+     * @return the value of the address between {@link #MINIMUM_VALUE} and {@link #MAXIMUM_VALUE}, or
+     * {@link #INVALID_VALUE} if the characters are not a valid IPv4 address
+     * @throws IndexOutOfBoundsException if <tt>start</tt> or <tt>end</tt> are out of the bounds of the text
+     */
+    public static long parseValue(CharSequence text, int start, int end) {
+        return parseValue(Validate.notNull(text), null, start, end);
+    }
+
+    /**
+     * Same as {@link #parseValue(CharSequence, int, int)} for ASCII encoded text, e.g. a line read from a file.
+     */
+    public static long parseValue(byte[] bytes, int start, int end) {
+        return parseValue(null, Validate.notNull(bytes), start, end);
+    }
+
+    /**
+     * Reads either from <tt>chars</tt> or, when it is <tt>null</tt>, from <tt>bytes</tt>.
+     */
+    static long parseValue(CharSequence chars, byte[] bytes, int start, int end) {
+        long value = 0;
+        int octet = 0;
+        int digits = 0;
+        int octetCount = 1;
+        for (int i = start; i < end; i++) {
+            int ch = chars != null ? chars.charAt(i) : bytes[i];
+            if (ch >= '0' && ch <= '9') {
+                if (digits == 1 && octet == 0) {
+                    return INVALID_VALUE;
+                }
+                octet = octet * 10 + (ch - '0');
+                if (octet > MAX_OCTET_VALUE) {
+                    return INVALID_VALUE;
+                }
+                digits++;
+            } else if (ch == '.' && digits > 0 && octetCount < TOTAL_OCTETS) {
+                value = (value << ONE_OCTET) | octet;
+                octet = 0;
+                digits = 0;
+                octetCount++;
+            } else {
+                return INVALID_VALUE;
+            }
+        }
+        if (digits == 0 || octetCount != TOTAL_OCTETS) {
+            return INVALID_VALUE;
+        }
+        return (value << ONE_OCTET) | octet;
     }
 
     @Override
     public int compareTo(Ipv4 other) {
-        return value.compareTo(other.value);
+        int left = value ^ Integer.MIN_VALUE;
+        int right = other.value ^ Integer.MIN_VALUE;
+        return left < right ? -1 : left > right ? 1 : 0;
     }
 
     @Override
     public String toString() {
-        int a = (int) (value >> THREE_OCTETS);
-        int b = (int) (value >> TWO_OCTETS) & BYTE_MASK;
-        int c = (int) (value >> ONE_OCTET) & BYTE_MASK;
-        int d = (int) (value & BYTE_MASK);
+        StringBuilder sb = new StringBuilder(MAX_TEXT_LENGTH);
+        try {
+            format(sb, null, 0);
+        } catch (IOException e) {
+            throw Ascii.unexpected(e);
+        }
+        return sb.toString();
+    }
 
-        return a + "." + b + "." + c + "." + d;
+    @Override
+    public void formatTo(Appendable out) throws IOException {
+        format(Validate.notNull(out), null, 0);
+    }
+
+    /**
+     * {@inheritDoc} The text of an IPv4 address is at most 15 characters long.
+     */
+    @Override
+    public int formatTo(byte[] buffer, int offset) {
+        try {
+            return format(null, Validate.notNull(buffer), offset);
+        } catch (IOException e) {
+            throw Ascii.unexpected(e);
+        }
+    }
+
+    private int format(Appendable out, byte[] buffer, int offset) throws IOException {
+        offset = Ascii.putDecimal(out, buffer, offset, value >>> THREE_OCTETS);
+        offset = Ascii.put(out, buffer, offset, '.');
+        offset = Ascii.putDecimal(out, buffer, offset, (value >>> TWO_OCTETS) & BYTE_MASK);
+        offset = Ascii.put(out, buffer, offset, '.');
+        offset = Ascii.putDecimal(out, buffer, offset, (value >>> ONE_OCTET) & BYTE_MASK);
+        offset = Ascii.put(out, buffer, offset, '.');
+        return Ascii.putDecimal(out, buffer, offset, value & BYTE_MASK);
     }
 
     /*@Override
@@ -136,22 +264,22 @@ public final class Ipv4 extends AbstractIp<Ipv4, Ipv4Range> {
 
     @Override
     public Ipv4 next() {
-        return new Ipv4(value + 1);
+        return ofUnsigned(value() + 1);
     }
 
     @Override
     public Ipv4 previous() {
-        return new Ipv4(value - 1);
+        return ofUnsigned(value() - 1);
     }
 
     @Override
     public boolean hasNext() {
-        return this.compareTo(LAST_IPV4_ADDRESS) < 0;
+        return value != LAST_IPV4_ADDRESS.value;
     }
 
     @Override
     public boolean hasPrevious() {
-        return this.compareTo(FIRST_IPV4_ADDRESS) > 0;
+        return value != FIRST_IPV4_ADDRESS.value;
     }
 
     @Override
@@ -166,27 +294,29 @@ public final class Ipv4 extends AbstractIp<Ipv4, Ipv4Range> {
 
     @Override
     public BigInteger asBigInteger() {
-        return BigInteger.valueOf(value);
+        return BigInteger.valueOf(value());
     }
 
     @Override
     public Ipv4 lowerBoundForPrefix(int prefixLength) {
         Validate.checkRange(prefixLength, 0, NUMBER_OF_BITS);
-        long mask = ~((1L << (NUMBER_OF_BITS - prefixLength)) - 1);
-        return new Ipv4(value & mask);
+        return new Ipv4(value & prefixMask(prefixLength));
     }
 
     @Override
     public Ipv4 upperBoundForPrefix(int prefixLength) {
         Validate.checkRange(prefixLength, 0, NUMBER_OF_BITS);
-        long mask = (1L << (NUMBER_OF_BITS - prefixLength)) - 1;
-        return new Ipv4(value | mask);
+        return new Ipv4(value | ~prefixMask(prefixLength));
+    }
+
+    static int prefixMask(int prefixLength) {
+        // shifting an int by 32 is a no-op, hence the special case
+        return prefixLength == 0 ? 0 : -1 << (NUMBER_OF_BITS - prefixLength);
     }
 
     @Override
     public int getCommonPrefixLength(Ipv4 other) {
-        long temp = value ^ other.value;
-        return Integer.numberOfLeadingZeros((int) temp);
+        return Integer.numberOfLeadingZeros(value ^ other.value);
     }
 
     @Override
@@ -198,11 +328,25 @@ public final class Ipv4 extends AbstractIp<Ipv4, Ipv4Range> {
             return false;
         }
         Ipv4 that = (Ipv4) o;
-        return value.equals(that.value);
+        return value == that.value;
     }
 
     @Override
     public int hashCode() {
-        return value.hashCode();
+        // same as the hash code of the boxed Long that used to hold the value
+        return value;
+    }
+
+    private Object writeReplace() {
+        return new Serialization.Proxy(Serialization.Proxy.IPV4, this);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        Long serializedValue = (Long) in.readFields().get("value", null);
+        try {
+            Serialization.setFinalField(this, "value", checkValue(Validate.notNull(serializedValue, "value is required")));
+        } catch (IllegalArgumentException e) {
+            throw Serialization.invalidObject(e);
+        }
     }
 }
@@ -0,0 +1,355 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.Arrays;
+
+/**
+ * A map from IPv4 prefixes to values, answering which stored prefix most specifically covers an address.
+ * <p>
+ * The prefixes are kept in a path-compressed binary trie (a Patricia trie), in which a node exists only for a
+ * stored prefix or where the paths of two stored prefixes diverge. A lookup therefore visits at most 33 nodes,
+ * one per prefix length. The nodes are packed in an array of primitives instead of one object per node, the
+ * fields read by a lookup side by side, which keeps a full routing table of about one million prefixes within a
+ * few tens of megabytes and makes {@link #longestMatch(int)} free of allocations. The slots of removed nodes are
+ * reused by later insertions.
+ * <p>
+ * Values must not be <tt>null</tt>. This class is not thread-safe.
+ *
+ * @param <V> the type of the values
+ */
+public final class Ipv4PrefixMap<V> {
+
+    private static final int NONE = -1;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // the fields of a node in the nodes array
+    private static final int NODE_SIZE = 4;
+    private static final int KEY = 0;
+    private static final int LENGTH = 1;
+    private static final int LEFT = 2;
+    private static final int RIGHT = 3;
+
+    // set in the LENGTH field of the nodes which hold a value, as opposed to those which only join two children
+    private static final int HAS_VALUE = 0x100;
+    private static final int LENGTH_MASK = 0xff;
+
+    private int[] nodes;
+    private Object[] values;
+
+    private int root = NONE;
+    private int nodeCount;
+    private int freeList = NONE;
+    private int size;
+
+    public Ipv4PrefixMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize the number of prefixes to make room for, e.g. the size of a routing table
+     */
+    public Ipv4PrefixMap(int expectedSize) {
+        Validate.isTrue(expectedSize >= 0, "expected size has to be greater than or equal to 0");
+        // a trie of n prefixes has at most n - 1 nodes which only join two others
+        int capacity = Math.max(DEFAULT_CAPACITY, 2 * expectedSize);
+        nodes = new int[capacity * NODE_SIZE];
+        values = new Object[capacity];
+    }
+
+    /**
+     * Associates a value with a prefix, replacing the value of the prefix if it was already in the map.
+     *
+     * @return the previous value of the prefix, or <tt>null</tt> if there was none
+     * @throws IllegalArgumentException if the range is not a legal prefix or the value is <tt>null</tt>
+     */
+    public V put(Ipv4Range prefix, V value) {
+        Validate.notNull(value, "value is required");
+        int prefixLength = PrefixUtils.getPrefixLength(Validate.notNull(prefix, "prefix is required"));
+        int key = prefix.start().asInt();
+
+        int parent = NONE;
+        int node = root;
+        while (node != NONE) {
+            int nodeLength = length(node);
+            int common = Math.min(commonPrefixLength(key, key(node)), Math.min(prefixLength, nodeLength));
+            if (common < nodeLength) {
+                int inserted = newNode(key, prefixLength, value);
+                if (common == prefixLength) {
+                    // the new prefix covers the node
+                    setChild(inserted, bit(key(node), prefixLength), node);
+                    replaceChild(parent, node, inserted);
+                } else {
+                    int branch = newNode(key & Ipv4.prefixMask(common), common, null);
+                    setChild(branch, bit(key, common), inserted);
+                    setChild(branch, bit(key(node), common), node);
+                    replaceChild(parent, node, branch);
+                }
+                size++;
+                return null;
+            }
+            if (nodeLength == prefixLength) {
+                V previous = valueOf(node);
+                setValue(node, value);
+                if (previous == null) {
+                    size++;
+                }
+                return previous;
+            }
+            parent = node;
+            node = child(node, bit(key, nodeLength));
+        }
+        int inserted = newNode(key, prefixLength, value);
+        if (parent == NONE) {
+            root = inserted;
+        } else {
+            setChild(parent, bit(key, length(parent)), inserted);
+        }
+        size++;
+        return null;
+    }
+
+    /**
+     * @return the value of exactly the given prefix, or <tt>null</tt> if the prefix is not in the map
+     * @throws IllegalArgumentException if the range is not a legal prefix
+     */
+    public V get(Ipv4Range prefix) {
+        int prefixLength = PrefixUtils.getPrefixLength(Validate.notNull(prefix, "prefix is required"));
+        int key = prefix.start().asInt();
+        int node = root;
+        while (node != NONE && length(node) < prefixLength && matches(key, node)) {
+            node = child(node, bit(key, length(node)));
+        }
+        return isExactly(node, key, prefixLength) ? this.<V>valueOf(node) : null;
+    }
+
+    /**
+     * Removes a prefix, but not the prefixes it covers.
+     *
+     * @return the value of the removed prefix, or <tt>null</tt> if the prefix was not in the map
+     * @throws IllegalArgumentException if the range is not a legal prefix
+     */
+    public V remove(Ipv4Range prefix) {
+        int prefixLength = PrefixUtils.getPrefixLength(Validate.notNull(prefix, "prefix is required"));
+        int key = prefix.start().asInt();
+
+        int grandparent = NONE;
+        int parent = NONE;
+        int node = root;
+        while (node != NONE && length(node) < prefixLength && matches(key, node)) {
+            grandparent = parent;
+            parent = node;
+            node = child(node, bit(key, length(node)));
+        }
+        if (!isExactly(node, key, prefixLength)) {
+            return null;
+        }
+        V previous = valueOf(node);
+        setValue(node, null);
+        size--;
+
+        int left = child(node, 0);
+        int right = child(node, 1);
+        if (left != NONE && right != NONE) {
+            // still needed to join its children
+            return previous;
+        }
+        int child = left != NONE ? left : right;
+        replaceChild(parent, node, child);
+        freeNode(node);
+        if (child == NONE && parent != NONE && !hasValue(parent)) {
+            // the parent joined the removed node with its other child, which can take its place now
+            int sibling = child(parent, 0) != NONE ? child(parent, 0) : child(parent, 1);
+            replaceChild(grandparent, parent, sibling);
+            freeNode(parent);
+        }
+        return previous;
+    }
+
+    /**
+     * Finds the value of the longest prefix which contains the address.
+     *
+     * @return the value of the most specific prefix containing the address, or <tt>null</tt> if none does
+     */
+    public V longestMatch(Ipv4 address) {
+        return longestMatch(Validate.notNull(address, "address is required").asInt());
+    }
+
+    /**
+     * Same as {@link #longestMatch(Ipv4)} for the value of an address as returned by {@link Ipv4#asInt()}. This
+     * method does not allocate.
+     */
+    public V longestMatch(int address) {
+        int node = findLongestMatch(address);
+        return node == NONE ? null : this.<V>valueOf(node);
+    }
+
+    /**
+     * @return the most specific prefix containing the address, or <tt>null</tt> if none does
+     */
+    public Ipv4Range longestMatchingPrefix(Ipv4 address) {
+        int node = findLongestMatch(Validate.notNull(address, "address is required").asInt());
+        return node == NONE ? null : Ipv4Range.from(Ipv4.of(key(node))).andPrefixLength(length(node));
+    }
+
+    /**
+     * @return the number of prefixes in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, nodeCount, null);
+        root = NONE;
+        nodeCount = 0;
+        freeList = NONE;
+        size = 0;
+    }
+
+    private int findLongestMatch(int address) {
+        int[] nodes = this.nodes;
+        int match = NONE;
+        int node = root;
+        while (node != NONE) {
+            int offset = node * NODE_SIZE;
+            int length = nodes[offset + LENGTH];
+            if (((address ^ nodes[offset + KEY]) & Ipv4.prefixMask(length & LENGTH_MASK)) != 0) {
+                break;
+            }
+            if ((length & HAS_VALUE) != 0) {
+                match = node;
+            }
+            length &= LENGTH_MASK;
+            if (length == Ipv4.NUMBER_OF_BITS) {
+                break;
+            }
+            node = nodes[offset + LEFT + bit(address, length)];
+        }
+        return match;
+    }
+
+    private boolean isExactly(int node, int key, int prefixLength) {
+        return node != NONE && length(node) == prefixLength && key(node) == key && hasValue(node);
+    }
+
+    private boolean matches(int address, int node) {
+        return ((address ^ key(node)) & Ipv4.prefixMask(length(node))) == 0;
+    }
+
+    private int key(int node) {
+        return nodes[node * NODE_SIZE + KEY];
+    }
+
+    private int length(int node) {
+        return nodes[node * NODE_SIZE + LENGTH] & LENGTH_MASK;
+    }
+
+    private boolean hasValue(int node) {
+        return (nodes[node * NODE_SIZE + LENGTH] & HAS_VALUE) != 0;
+    }
+
+    /**
+     * @param bit 0 for the left child, 1 for the right one
+     */
+    private int child(int node, int bit) {
+        return nodes[node * NODE_SIZE + LEFT + bit];
+    }
+
+    private void setChild(int node, int bit, int child) {
+        nodes[node * NODE_SIZE + LEFT + bit] = child;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T valueOf(int node) {
+        return (T) values[node];
+    }
+
+    private void setValue(int node, Object value) {
+        values[node] = value;
+        if (value != null) {
+            nodes[node * NODE_SIZE + LENGTH] |= HAS_VALUE;
+        } else {
+            nodes[node * NODE_SIZE + LENGTH] &= ~HAS_VALUE;
+        }
+    }
+
+    private static int commonPrefixLength(int a, int b) {
+        return Integer.numberOfLeadingZeros(a ^ b);
+    }
+
+    /**
+     * @return the bit of the key following a prefix of the given length, which is less than 32
+     */
+    private static int bit(int key, int prefixLength) {
+        return (key >>> (Ipv4.NUMBER_OF_BITS - 1 - prefixLength)) & 1;
+    }
+
+    private void replaceChild(int parent, int child, int replacement) {
+        if (parent == NONE) {
+            root = replacement;
+        } else if (child(parent, 0) == child) {
+            setChild(parent, 0, replacement);
+        } else {
+            setChild(parent, 1, replacement);
+        }
+    }
+
+    private int newNode(int key, int prefixLength, Object value) {
+        int node;
+        if (freeList != NONE) {
+            node = freeList;
+            freeList = child(node, 0);
+        } else {
+            if (nodeCount == values.length) {
+                grow();
+            }
+            node = nodeCount++;
+        }
+        int offset = node * NODE_SIZE;
+        nodes[offset + KEY] = key;
+        nodes[offset + LENGTH] = prefixLength;
+        nodes[offset + LEFT] = NONE;
+        nodes[offset + RIGHT] = NONE;
+        setValue(node, value);
+        return node;
+    }
+
+    private void freeNode(int node) {
+        setValue(node, null);
+        // the free nodes are chained through their left child
+        setChild(node, 0, freeList);
+        freeList = node;
+    }
+
+    private void grow() {
+        int capacity = values.length + (values.length >> 1);
+        nodes = Arrays.copyOf(nodes, capacity * NODE_SIZE);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
@@ -24,6 +24,8 @@
 package com.github.jgonian.ipmath;
 
 import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public final class Ipv4Range extends AbstractIpRange<Ipv4, Ipv4Range> {
 
@@ -109,6 +111,96 @@ public final class Ipv4Range extends AbstractIpRange<Ipv4, Ipv4Range> {
         return (end().value() - start().value()) + 1;
     }
 
+    /**
+     * The bits in which the start and the end differ must be the trailing bits, all zero in the start.
+     */
+    @Override
+    protected int legalPrefixLength() {
+        int start = start().asInt();
+        int differentBits = start ^ end().asInt();
+        if ((differentBits & (differentBits + 1)) != 0 || (start & differentBits) != 0) {
+            return -1;
+        }
+        return Integer.numberOfLeadingZeros(differentBits);
+    }
+
+    @Override
+    public Iterator<Ipv4Range> prefixIterator() {
+        return new PrefixIterator(start().value(), end().value());
+    }
+
+    @Override
+    protected Ipv4Range findSplitPrefix(int prefixLength, boolean smallest) {
+        int minimumBits = Ipv4.NUMBER_OF_BITS - prefixLength;
+        PrefixIterator prefixes = new PrefixIterator(start().value(), end().value());
+        long foundStart = 0;
+        int foundBits = -1;
+        while (prefixes.hasNext()) {
+            int bits = prefixes.advance();
+            if (smallest ? bits >= minimumBits && (foundBits < 0 || bits < foundBits) : bits > foundBits) {
+                foundStart = prefixes.prefix;
+                foundBits = bits;
+            }
+        }
+        return foundBits < minimumBits ? null : PrefixIterator.prefix(foundStart, foundBits);
+    }
+
+    private Object writeReplace() {
+        return new Serialization.Proxy(Serialization.Proxy.IPV4_RANGE, this);
+    }
+
+    /**
+     * Each prefix is the largest block which is aligned at its start, i.e. no larger than the lowest set bit of its
+     * start, and which fits in the rest of the range, i.e. no larger than the highest set bit of its size.
+     */
+    private static final class PrefixIterator implements Iterator<Ipv4Range> {
+
+        private final long end;
+        private long next;
+        private long prefix;
+
+        PrefixIterator(long start, long end) {
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next <= end;
+        }
+
+        @Override
+        public Ipv4Range next() {
+            if (next > end) {
+                throw new NoSuchElementException();
+            }
+            int bits = advance();
+            return prefix(prefix, bits);
+        }
+
+        /**
+         * Moves to the next prefix, which starts at <tt>prefix</tt>, without creating it.
+         *
+         * @return the number of host bits of the prefix
+         */
+        int advance() {
+            prefix = next;
+            long alignment = prefix == 0 ? 1L << Ipv4.NUMBER_OF_BITS : Long.lowestOneBit(prefix);
+            long size = Math.min(alignment, Long.highestOneBit(end - prefix + 1));
+            next = prefix + size;
+            return Long.numberOfTrailingZeros(size);
+        }
+
+        static Ipv4Range prefix(long start, int bits) {
+            return new Ipv4Range(Ipv4.of((int) start), Ipv4.of((int) (start + (1L << bits) - 1)));
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     public static class Ipv4RangeBuilder extends AbstractRangeBuilder<Ipv4, Ipv4Range> {
 
         private final Ipv4 from;
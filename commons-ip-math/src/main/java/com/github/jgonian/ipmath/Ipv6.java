@@ -23,8 +23,10 @@
  */
 package com.github.jgonian.ipmath;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectStreamField;
 import java.math.BigInteger;
-import java.util.regex.Pattern;
 
 import static java.math.BigInteger.ONE;
 
@@ -37,63 +39,118 @@ public final class Ipv6 extends AbstractIp<Ipv6, Ipv6Range> {
     public static final BigInteger MINIMUM_VALUE = BigInteger.ZERO;
     public static final BigInteger MAXIMUM_VALUE = new BigInteger(String.valueOf((ONE.shiftLeft(NUMBER_OF_BITS)).subtract(ONE)));
 
-    public static final Ipv6 FIRST_IPV6_ADDRESS = Ipv6.of(MINIMUM_VALUE);
-    public static final Ipv6 LAST_IPV6_ADDRESS = Ipv6.of(MAXIMUM_VALUE);
+    public static final Ipv6 FIRST_IPV6_ADDRESS = new Ipv6(0L, 0L);
+    public static final Ipv6 LAST_IPV6_ADDRESS = new Ipv6(-1L, -1L);
 
-    private static final int MIN_PART_VALUE = 0x0;
     private static final int MAX_PART_VALUE = 0xFFFF;
     private static final int MAX_PART_LENGTH = 4;
+    private static final int MAX_TEXT_LENGTH = 39;
     private static final String DEFAULT_PARSING_ERROR_MESSAGE = "Invalid IPv6 address: '%s'";
-    private static final String COLON = ":";
-    private static final String ZERO = "0";
     private static final int BITS_PER_PART = 16;
     private static final int TOTAL_OCTETS = 8;
-    private static final int COLON_COUNT_IPV6 = 7;
-    private static final BigInteger MINUS_ONE = BigInteger.valueOf(-1);
+    private static final int BITS_PER_LONG = 64;
+    private static final String LOWER_BOUND_ERROR_MESSAGE = "Value of IPv6 has to be greater than or equal to " + MINIMUM_VALUE;
+    private static final String UPPER_BOUND_ERROR_MESSAGE = "Value of IPv6 has to be less than or equal to " + MAXIMUM_VALUE;
 
-    private final BigInteger value;
+    /**
+     * Instances are written through {@link Serialization.Proxy}; these fields describe the serialized form of older
+     * versions, when the value was held in a <tt>BigInteger</tt>, which can still be read.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("value", BigInteger.class)
+    };
+
+    /**
+     * The most significant 64 bits of the address. Compare as unsigned.
+     */
+    private final long high;
+
+    /**
+     * The least significant 64 bits of the address. Compare as unsigned.
+     */
+    private final long low;
 
     protected Ipv6(BigInteger value) {
-        this.value = Validate.notNull(value, "value is required");
-        Validate.isTrue(value.compareTo(MINIMUM_VALUE) >= 0, "Value of IPv6 has to be greater than or equal to " + MINIMUM_VALUE);
-        Validate.isTrue(value.compareTo(MAXIMUM_VALUE) <= 0, "Value of IPv6 has to be less than or equal to " + MAXIMUM_VALUE);
+        checkValue(Validate.notNull(value, "value is required"));
+        this.high = value.shiftRight(BITS_PER_LONG).longValue();
+        this.low = value.longValue();
     }
 
-    BigInteger value() {
-        return value;
+    private Ipv6(long high, long low) {
+        this.high = high;
+        this.low = low;
+    }
+
+    private static void checkValue(BigInteger value) {
+        if (value.signum() < 0) {
+            throw new IllegalArgumentException(LOWER_BOUND_ERROR_MESSAGE);
+        }
+        if (value.bitLength() > NUMBER_OF_BITS) {
+            throw new IllegalArgumentException(UPPER_BOUND_ERROR_MESSAGE);
+        }
+    }
+
+    long high() {
+        return high;
+    }
+
+    long low() {
+        return low;
     }
 
     public static Ipv6 of(BigInteger value) {
         return new Ipv6(value);
     }
 
+    /**
+     * @param high the most significant 64 bits of an IPv6 address, e.g. <tt>0x20010db800000000L</tt> for 2001:db8::1
+     * @param low the least significant 64 bits of an IPv6 address, e.g. <tt>1L</tt> for 2001:db8::1
+     * @return a new {@link Ipv6}
+     */
+    public static Ipv6 of(long high, long low) {
+        return new Ipv6(high, low);
+    }
+
     public static Ipv6 of(String value) {
         return parse(value);
     }
 
     @Override
     public int compareTo(Ipv6 other) {
-        return value.compareTo(other.value);
+        int result = compareUnsigned(high, other.high);
+        return result != 0 ? result : compareUnsigned(low, other.low);
+    }
+
+    static int compareUnsigned(long left, long right) {
+        long x = left ^ Long.MIN_VALUE;
+        long y = right ^ Long.MIN_VALUE;
+        return x < y ? -1 : x > y ? 1 : 0;
     }
 
     @Override
     public Ipv6 next() {
-        return new Ipv6(value.add(ONE));
+        if (!hasNext()) {
+            throw new IllegalArgumentException(UPPER_BOUND_ERROR_MESSAGE);
+        }
+        return new Ipv6(low == -1L ? high + 1 : high, low + 1);
     }
 
     @Override
     public Ipv6 previous() {
-        return new Ipv6(value.subtract(ONE));
+        if (!hasPrevious()) {
+            throw new IllegalArgumentException(LOWER_BOUND_ERROR_MESSAGE);
+        }
+        return new Ipv6(low == 0L ? high - 1 : high, low - 1);
     }
 
     @Override
     public boolean hasNext() {
-        return this.compareTo(LAST_IPV6_ADDRESS) < 0;
+        return (high & low) != -1L;
     }
 
     @Override
     public boolean hasPrevious() {
-        return this.compareTo(FIRST_IPV6_ADDRESS) > 0;
+        return (high | low) != 0L;
     }
 
     @Override
@@ -103,17 +160,45 @@ public final class Ipv6 extends AbstractIp<Ipv6, Ipv6Range> {
 
     @Override
     public String toString() {
-        long[] parts = new long[8];
+        StringBuilder sb = new StringBuilder(MAX_TEXT_LENGTH);
+        try {
+            format(sb, null, 0);
+        } catch (IOException e) {
+            throw Ascii.unexpected(e);
+        }
+        return sb.toString();
+    }
 
+    /**
+     * {@inheritDoc} The text is the canonical representation of rfc5952: lower case hexadecimal groups without
+     * leading zeros, with the first longest run of two or more zero groups compressed to <tt>::</tt>.
+     */
+    @Override
+    public void formatTo(Appendable out) throws IOException {
+        format(Validate.notNull(out), null, 0);
+    }
+
+    /**
+     * {@inheritDoc} The text of an IPv6 address is at most 39 characters long.
+     */
+    @Override
+    public int formatTo(byte[] buffer, int offset) {
+        try {
+            return format(null, Validate.notNull(buffer), offset);
+        } catch (IOException e) {
+            throw Ascii.unexpected(e);
+        }
+    }
+
+    private int format(Appendable out, byte[] buffer, int offset) throws IOException {
         // Find longest sequence of zeroes. Use the first one if there are
         // multiple sequences of zeroes with the same length.
         int currentZeroPartsLength = 0;
         int currentZeroPartsStart = 0;
         int maxZeroPartsLength = 0;
-        int maxZeroPartsStart = 0;
-        for (int i = 0; i < parts.length; ++i) {
-            parts[i] = value().shiftRight((7 - i) * BITS_PER_PART).and(FOUR_OCTECT_MASK).longValue();
-            if (parts[i] == 0) {
+        int maxZeroPartsStart = -1;
+        for (int i = 0; i < TOTAL_OCTETS; ++i) {
+            if (part(i) == 0) {
                 if (currentZeroPartsLength == 0) {
                     currentZeroPartsStart = i;
                 }
@@ -126,26 +211,22 @@ public final class Ipv6 extends AbstractIp<Ipv6, Ipv6Range> {
                 currentZeroPartsLength = 0;
             }
         }
-
-        StringBuilder sb = new StringBuilder(39);
-        if (maxZeroPartsStart == 0 && maxZeroPartsLength > 1) {
-            sb.append(COLON);
+        if (maxZeroPartsLength < 2) {
+            maxZeroPartsStart = -1;
         }
-        String delimiter = "";
-        for (int i = 0; i < parts.length; ++i) {
-            if (i == maxZeroPartsStart && maxZeroPartsLength > 1) {
-                i += maxZeroPartsLength;
-                sb.append(COLON);
-            }
-            sb.append(delimiter);
-            if (i <= 7) {
-                sb.append(Long.toHexString(parts[i]));
+
+        for (int i = 0; i < TOTAL_OCTETS; ++i) {
+            if (i == maxZeroPartsStart) {
+                offset = Ascii.put(out, buffer, offset, "::");
+                i += maxZeroPartsLength - 1;
             } else {
-                break;
+                if (i > 0 && i != maxZeroPartsStart + maxZeroPartsLength) {
+                    offset = Ascii.put(out, buffer, offset, ':');
+                }
+                offset = Ascii.putHex(out, buffer, offset, part(i));
             }
-            delimiter = COLON;
         }
-        return sb.toString();
+        return offset;
     }
 
     /**
@@ -153,86 +234,159 @@ public final class Ipv6 extends AbstractIp<Ipv6, Ipv6Range> {
      *
      * @param ipv6Address a text representation of an IPv6 address as defined in rfc4291
      * @return a new {@link Ipv6}
-     * @throws NullPointerException if the string argument is <tt>null</tt>
      * @throws IllegalArgumentException if the string cannot be parsed
      * @see <a href="http://tools.ietf.org/html/rfc4291">rfc4291 - IP Version 6 Addressing Architecture</a>
+     * @see #parseValue(CharSequence, int, int, long[])
      */
     public static Ipv6 parse(final String ipv6Address) {
-        try {
-            String ipv6String = Validate.notNull(ipv6Address).trim();
-            Validate.isTrue(!ipv6String.isEmpty());
-
-            final boolean isIpv6AddressWithEmbeddedIpv4 = ipv6String.contains(".");
-            if (isIpv6AddressWithEmbeddedIpv4) {
-                ipv6String = getIpv6AddressWithIpv4SectionInIpv6Notation(ipv6String);
+        if (ipv6Address != null) {
+            int start = 0;
+            int end = ipv6Address.length();
+            while (start < end && ipv6Address.charAt(start) <= ' ') {
+                start++;
             }
-
-            final int indexOfDoubleColons = ipv6String.indexOf("::");
-            final boolean isShortened = indexOfDoubleColons != -1;
-            if (isShortened) {
-                Validate.isTrue(indexOfDoubleColons == ipv6String.lastIndexOf("::"));
-                ipv6String = expandMissingColons(ipv6String, indexOfDoubleColons);
+            while (end > start && ipv6Address.charAt(end - 1) <= ' ') {
+                end--;
             }
-
-            final String[] split = ipv6String.split(COLON, TOTAL_OCTETS);
-            Validate.isTrue(split.length == TOTAL_OCTETS);
-            BigInteger ipv6value = BigInteger.ZERO;
-            for (String part : split) {
-                Validate.isTrue(part.length() <= MAX_PART_LENGTH);
-                Validate.checkRange(Integer.parseInt(part, BITS_PER_PART), MIN_PART_VALUE, MAX_PART_VALUE);
-                ipv6value = ipv6value.shiftLeft(BITS_PER_PART).add(new BigInteger(part, BITS_PER_PART));
+            long[] result = new long[2];
+            if (parseValue(ipv6Address, null, start, end, result)) {
+                return new Ipv6(result[0], result[1]);
             }
-            return new Ipv6(ipv6value);
-        } catch (Exception e) {
-            throw new IllegalArgumentException(String.format(DEFAULT_PARSING_ERROR_MESSAGE, ipv6Address), e);
         }
+        throw new IllegalArgumentException(String.format(DEFAULT_PARSING_ERROR_MESSAGE, ipv6Address));
     }
 
-    private static String expandMissingColons(final String ipv6String, final int indexOfDoubleColons) {
-        final int colonCount = countColons(ipv6String);
-        Validate.isTrue(colonCount >= 2 && colonCount <= COLON_COUNT_IPV6 + 1);
-        final int missingZeros = COLON_COUNT_IPV6 - colonCount + 1;
-        String leftPart = ipv6String.substring(0, indexOfDoubleColons);
-        String rightPart = ipv6String.substring(indexOfDoubleColons + 2);
-
-        if (missingZeros == 0) {
-            Validate.isTrue(leftPart.isEmpty() || rightPart.isEmpty());
-        }
+    /**
+     * Parses the characters from <tt>start</tt> (inclusive) to <tt>end</tt> (exclusive) as an IPv6 address in
+     * one of the text representations of rfc4291, without allocating and without throwing on invalid input.
+     * An embedded IPv4 address is only accepted as the last 32 bits. Whitespace is not ignored.
+     *
+     * @param result an array of at least two elements which receives the most and the least significant 64 bits
+     *               of the address, in this order. It is left untouched if the characters are not valid.
+     * @return <tt>true</tt> if the characters are a valid IPv6 address, <tt>false</tt> otherwise
+     * @throws IndexOutOfBoundsException if <tt>start</tt> or <tt>end</tt> are out of the bounds of the text
+     * @see #of(long, long)
+     */
+    public static boolean parseValue(CharSequence text, int start, int end, long[] result) {
+        return parseValue(Validate.notNull(text), null, start, end, checkResult(result));
+    }
 
-        if (leftPart.isEmpty()) {
-            leftPart = ZERO;
-        }
-        if (rightPart.isEmpty()) {
-            rightPart = ZERO;
-        }
-        StringBuilder sb = new StringBuilder();
-        sb.append(leftPart);
-        for (int i = 0; i < missingZeros; i++) {
-            sb.append(COLON).append(ZERO);
-        }
-        sb.append(COLON).append(rightPart);
+    /**
+     * Same as {@link #parseValue(CharSequence, int, int, long[])} for ASCII encoded text, e.g. a line read from a
+     * file.
+     */
+    public static boolean parseValue(byte[] bytes, int start, int end, long[] result) {
+        return parseValue(null, Validate.notNull(bytes), start, end, checkResult(result));
+    }
 
-        return sb.toString();
+    private static long[] checkResult(long[] result) {
+        Validate.isTrue(Validate.notNull(result, "result is required").length >= 2, "result has to hold two longs");
+        return result;
     }
 
-    private static int countColons(String ipv6String) {
+    /**
+     * Reads either from <tt>chars</tt> or, when it is <tt>null</tt>, from <tt>bytes</tt>. The groups are shifted
+     * into a pair of longs as they are read; when a <tt>::</tt> is found the groups read so far are put aside and
+     * moved to the most significant bits at the end, which leaves the zeros of the compression in between.
+     */
+    static boolean parseValue(CharSequence chars, byte[] bytes, int start, int end, long[] result) {
+        long headHigh = 0;
+        long headLow = 0;
+        int headCount = 0;
+        long high = 0;
+        long low = 0;
         int count = 0;
-        for (char c : ipv6String.toCharArray()) {
-            if (c == ':') {
-                count++;
+        boolean compressed = false;
+        int i = start;
+        if (end - start >= 2 && charAt(chars, bytes, start) == ':' && charAt(chars, bytes, start + 1) == ':') {
+            compressed = true;
+            i += 2;
+        }
+        boolean done = compressed && i == end;
+        while (!done) {
+            int groupStart = i;
+            int part = 0;
+            int digit;
+            while (i < end && (digit = hexDigit(charAt(chars, bytes, i))) >= 0) {
+                if (i - groupStart == MAX_PART_LENGTH) {
+                    return false;
+                }
+                part = (part << 4) | digit;
+                i++;
+            }
+            if (i == groupStart) {
+                return false;
+            }
+            if (i < end && charAt(chars, bytes, i) == '.') {
+                long ipv4 = Ipv4.parseValue(chars, bytes, groupStart, end);
+                if (ipv4 == Ipv4.INVALID_VALUE) {
+                    return false;
+                }
+                high = (high << Ipv4.NUMBER_OF_BITS) | (low >>> (BITS_PER_LONG - Ipv4.NUMBER_OF_BITS));
+                low = (low << Ipv4.NUMBER_OF_BITS) | ipv4;
+                count += 2;
+                break;
+            }
+            high = (high << BITS_PER_PART) | (low >>> (BITS_PER_LONG - BITS_PER_PART));
+            low = (low << BITS_PER_PART) | part;
+            count++;
+            if (i == end) {
+                break;
+            }
+            if (charAt(chars, bytes, i) != ':') {
+                return false;
+            }
+            if (++i < end && charAt(chars, bytes, i) == ':') {
+                if (compressed) {
+                    return false;
+                }
+                compressed = true;
+                headHigh = high;
+                headLow = low;
+                headCount = count;
+                high = 0;
+                low = 0;
+                count = 0;
+                done = ++i == end;
+            }
+        }
+        if (!compressed) {
+            if (count != TOTAL_OCTETS) {
+                return false;
+            }
+        } else {
+            // "::" stands for at least one group of zeros
+            if (headCount + count >= TOTAL_OCTETS) {
+                return false;
+            }
+            int shift = (TOTAL_OCTETS - headCount) * BITS_PER_PART;
+            if (shift >= BITS_PER_LONG) {
+                high |= shift == NUMBER_OF_BITS ? 0L : headLow << (shift - BITS_PER_LONG);
+            } else {
+                high |= (headHigh << shift) | (headLow >>> (BITS_PER_LONG - shift));
+                low |= headLow << shift;
             }
         }
-        return count;
+        result[0] = high;
+        result[1] = low;
+        return true;
     }
 
-    private static String getIpv6AddressWithIpv4SectionInIpv6Notation(String ipv6String) {
-        final int indexOfLastColon = ipv6String.lastIndexOf(COLON);
-        final String ipv6Section = ipv6String.substring(0, indexOfLastColon);
-        final String ipv4Section = ipv6String.substring(indexOfLastColon + 1);
-        final Ipv4 ipv4 = Ipv4.parse(ipv4Section);
-        final String ipv4FirstPart = Long.toHexString(ipv4.value() >>> BITS_PER_PART);
-        final String ipv4SecondPart = Long.toHexString(ipv4.value() & MAX_PART_VALUE);
-        return ipv6Section + COLON + ipv4FirstPart + COLON + ipv4SecondPart;
+    private static int charAt(CharSequence chars, byte[] bytes, int index) {
+        return chars != null ? chars.charAt(index) : bytes[index];
+    }
+
+    private static int hexDigit(int ch) {
+        if (ch >= '0' && ch <= '9') {
+            return ch - '0';
+        }
+        if (ch >= 'a' && ch <= 'f') {
+            return ch - 'a' + 10;
+        }
+        if (ch >= 'A' && ch <= 'F') {
+            return ch - 'A' + 10;
+        }
+        return -1;
     }
 
     @Override
@@ -240,32 +394,75 @@ public final class Ipv6 extends AbstractIp<Ipv6, Ipv6Range> {
         return NUMBER_OF_BITS;
     }
 
+    /**
+     * @return a new <tt>BigInteger</tt> with the value of this address
+     */
     @Override
     public BigInteger asBigInteger() {
-        return value;
+        return toBigInteger(high, low);
+    }
+
+    static BigInteger toBigInteger(long high, long low) {
+        if (high == 0 && low >= 0) {
+            return BigInteger.valueOf(low);
+        }
+        byte[] magnitude = new byte[2 * Long.SIZE / Byte.SIZE];
+        for (int i = 0; i < Long.SIZE / Byte.SIZE; i++) {
+            magnitude[i] = (byte) (high >>> (BITS_PER_LONG - Byte.SIZE * (i + 1)));
+            magnitude[i + Long.SIZE / Byte.SIZE] = (byte) (low >>> (BITS_PER_LONG - Byte.SIZE * (i + 1)));
+        }
+        return new BigInteger(1, magnitude);
+    }
+
+    /**
+     * @return the 16-bit part at the given index, where index 0 is the most significant one
+     */
+    private int part(int index) {
+        long word = index < TOTAL_OCTETS / 2 ? high : low;
+        return (int) (word >>> ((TOTAL_OCTETS / 2 - 1 - (index % (TOTAL_OCTETS / 2))) * BITS_PER_PART)) & MAX_PART_VALUE;
     }
 
     @Override
     public Ipv6 lowerBoundForPrefix(int prefixLength) {
         Validate.checkRange(prefixLength, 0, NUMBER_OF_BITS);
-        BigInteger mask = bitMask(0).xor(bitMask(prefixLength));
-        return new Ipv6(value.and(mask));
+        return new Ipv6(high & highBitMask(prefixLength), low & lowBitMask(prefixLength));
     }
 
     @Override
     public Ipv6 upperBoundForPrefix(int prefixLength) {
         Validate.checkRange(prefixLength, 0, NUMBER_OF_BITS);
-        return new Ipv6(value.or(bitMask(prefixLength)));
+        return new Ipv6(high | ~highBitMask(prefixLength), low | ~lowBitMask(prefixLength));
+    }
+
+    /**
+     * @return the most significant 64 bits of the network mask of the given prefix length
+     */
+    static long highBitMask(int prefixLength) {
+        // shifting a long by 64 is a no-op, hence the special cases
+        if (prefixLength == 0) {
+            return 0L;
+        }
+        return prefixLength >= BITS_PER_LONG ? -1L : -1L << (BITS_PER_LONG - prefixLength);
     }
 
-    private BigInteger bitMask(int prefixLength) {
-        return ONE.shiftLeft(NUMBER_OF_BITS - prefixLength).add(MINUS_ONE);
+    /**
+     * @return the least significant 64 bits of the network mask of the given prefix length
+     */
+    static long lowBitMask(int prefixLength) {
+        return prefixLength <= BITS_PER_LONG ? 0L : -1L << (NUMBER_OF_BITS - prefixLength);
     }
 
     @Override
     public int getCommonPrefixLength(Ipv6 other) {
-        BigInteger temp = value.xor(other.value);
-        return NUMBER_OF_BITS - temp.bitLength();
+        long highDifference = high ^ other.high;
+        if (highDifference != 0) {
+            return Long.numberOfLeadingZeros(highDifference);
+        }
+        return BITS_PER_LONG + Long.numberOfLeadingZeros(low ^ other.low);
+    }
+
+    int numberOfTrailingZeros() {
+        return low != 0 ? Long.numberOfTrailingZeros(low) : BITS_PER_LONG + Long.numberOfTrailingZeros(high);
     }
 
     @Override
@@ -277,11 +474,28 @@ public final class Ipv6 extends AbstractIp<Ipv6, Ipv6Range> {
             return false;
         }
         Ipv6 that = (Ipv6) o;
-        return value.equals(that.value);
+        return high == that.high && low == that.low;
     }
 
     @Override
     public int hashCode() {
-        return value.hashCode();
+        int result = (int) (high ^ (high >>> 32));
+        result = 31 * result + (int) (low ^ (low >>> 32));
+        return result;
+    }
+
+    private Object writeReplace() {
+        return new Serialization.Proxy(Serialization.Proxy.IPV6, this);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        BigInteger serializedValue = (BigInteger) in.readFields().get("value", null);
+        try {
+            checkValue(Validate.notNull(serializedValue, "value is required"));
+        } catch (IllegalArgumentException e) {
+            throw Serialization.invalidObject(e);
+        }
+        Serialization.setFinalField(this, "high", serializedValue.shiftRight(BITS_PER_LONG).longValue());
+        Serialization.setFinalField(this, "low", serializedValue.longValue());
     }
 }
@@ -0,0 +1,478 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.Arrays;
+
+/**
+ * A map from IPv6 prefixes to values, answering which stored prefix most specifically covers an address.
+ * <p>
+ * The prefixes are kept in a multibit trie: every node consumes <tt>stride</tt> bits of an address at once,
+ * indexing an array of <tt>2^stride</tt> slots. A prefix whose length is not a multiple of the stride is
+ * expanded into all the slots it covers (controlled prefix expansion), so each slot knows the most specific
+ * prefix ending in its node. Chains of nodes with a single child are skipped (path compression), which keeps
+ * the memory of sparse IPv6 tables proportional to the number of prefixes. A lookup visits at most
+ * <tt>128 / stride</tt> nodes; a longer stride means fewer, but larger, nodes. The default stride of 4 suits
+ * tables of hundreds of thousands of /32 to /64 prefixes; each node then takes about 150 bytes.
+ * <p>
+ * The nodes are held in arrays of primitives, which makes {@link #longestMatch(long, long)} free of
+ * allocations. Values must not be <tt>null</tt>. This class is not thread-safe.
+ *
+ * @param <V> the type of the values
+ */
+public final class Ipv6PrefixMap<V> {
+
+    public static final int DEFAULT_STRIDE = 4;
+    public static final int MAX_STRIDE = 8;
+
+    private static final int NONE = -1;
+    private static final int ROOT = 0;
+    private static final int DEFAULT_CAPACITY = 16;
+
+    // the fields of a slot in the slots array
+    private static final int CHILD = 0;
+    private static final int MATCH = 1;
+
+    private final int stride;
+
+    // nodes: the key masked to the depth of the node, the depth, and the head of the list of the prefixes ending
+    // in the node (or the next free node)
+    private long[] nodeKeys;
+    private int[] nodeDepths;
+    private int[] nodeEntries;
+    private int[] slots;
+    private int nodeCount;
+    private int freeNodes = NONE;
+
+    // entries: the stored prefixes and their values
+    private long[] entryKeys;
+    private int[] entryLengths;
+    private int[] entryNext;
+    private Object[] values;
+    private int entryCount;
+    private int freeEntries = NONE;
+
+    private int size;
+
+    public Ipv6PrefixMap() {
+        this(DEFAULT_STRIDE);
+    }
+
+    /**
+     * @param stride the number of bits consumed by each node, between 1 and {@link #MAX_STRIDE}
+     */
+    public Ipv6PrefixMap(int stride) {
+        Validate.isTrue(stride >= 1 && stride <= MAX_STRIDE, "stride has to be between 1 and " + MAX_STRIDE);
+        this.stride = stride;
+        nodeKeys = new long[2 * DEFAULT_CAPACITY];
+        nodeDepths = new int[DEFAULT_CAPACITY];
+        nodeEntries = new int[DEFAULT_CAPACITY];
+        slots = new int[(DEFAULT_CAPACITY << stride) * 2];
+        entryKeys = new long[2 * DEFAULT_CAPACITY];
+        entryLengths = new int[DEFAULT_CAPACITY];
+        entryNext = new int[DEFAULT_CAPACITY];
+        values = new Object[DEFAULT_CAPACITY];
+        newNode(0L, 0L, 0);
+    }
+
+    public int stride() {
+        return stride;
+    }
+
+    /**
+     * Associates a value with a prefix, replacing the value of the prefix if it was already in the map.
+     *
+     * @return the previous value of the prefix, or <tt>null</tt> if there was none
+     * @throws IllegalArgumentException if the range is not a legal prefix or the value is <tt>null</tt>
+     */
+    public V put(Ipv6Range prefix, V value) {
+        Validate.notNull(value, "value is required");
+        int prefixLength = PrefixUtils.getPrefixLength(Validate.notNull(prefix, "prefix is required"));
+        long high = prefix.start().high();
+        long low = prefix.start().low();
+        int target = depthOf(prefixLength);
+
+        int node = ROOT;
+        while (nodeDepths[node] != target) {
+            int depth = nodeDepths[node];
+            int slot = slotOffset(node, bits(high, low, depth));
+            int child = slots[slot + CHILD];
+            int next;
+            if (child == NONE) {
+                next = newNode(high, low, target);
+            } else {
+                int childDepth = nodeDepths[child];
+                int common = commonPrefixLength(high, low, nodeKeys[2 * child], nodeKeys[2 * child + 1]);
+                if (common >= Math.min(target, childDepth)) {
+                    if (childDepth <= target) {
+                        node = child;
+                        continue;
+                    }
+                    // the prefix ends above the child, on its compressed path
+                    next = newNode(high, low, target);
+                } else {
+                    // the prefix leaves the compressed path of the child
+                    next = newNode(high, low, common - common % stride);
+                }
+                slots[slotOffset(next, bits(nodeKeys[2 * child], nodeKeys[2 * child + 1], nodeDepths[next])) + CHILD] = child;
+            }
+            slots[slot + CHILD] = next;
+            node = next;
+        }
+
+        for (int entry = nodeEntries[node]; entry != NONE; entry = entryNext[entry]) {
+            if (isEntry(entry, high, low, prefixLength)) {
+                V previous = valueOf(entry);
+                values[entry] = value;
+                return previous;
+            }
+        }
+        int entry = newEntry(high, low, prefixLength, value);
+        entryNext[entry] = nodeEntries[node];
+        nodeEntries[node] = entry;
+        int first = firstSlot(entry, target);
+        int last = first + slotCount(prefixLength, target);
+        for (int i = first; i < last; i++) {
+            int slot = slotOffset(node, i);
+            int match = slots[slot + MATCH];
+            if (match == NONE || entryLengths[match] < prefixLength) {
+                slots[slot + MATCH] = entry;
+            }
+        }
+        size++;
+        return null;
+    }
+
+    /**
+     * @return the value of exactly the given prefix, or <tt>null</tt> if the prefix is not in the map
+     * @throws IllegalArgumentException if the range is not a legal prefix
+     */
+    public V get(Ipv6Range prefix) {
+        int prefixLength = PrefixUtils.getPrefixLength(Validate.notNull(prefix, "prefix is required"));
+        long high = prefix.start().high();
+        long low = prefix.start().low();
+        int node = findNode(high, low, depthOf(prefixLength), null);
+        if (node != NONE) {
+            for (int entry = nodeEntries[node]; entry != NONE; entry = entryNext[entry]) {
+                if (isEntry(entry, high, low, prefixLength)) {
+                    return valueOf(entry);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes a prefix, but not the prefixes it covers.
+     *
+     * @return the value of the removed prefix, or <tt>null</tt> if the prefix was not in the map
+     * @throws IllegalArgumentException if the range is not a legal prefix
+     */
+    public V remove(Ipv6Range prefix) {
+        int prefixLength = PrefixUtils.getPrefixLength(Validate.notNull(prefix, "prefix is required"));
+        long high = prefix.start().high();
+        long low = prefix.start().low();
+        int target = depthOf(prefixLength);
+        int[] parents = {NONE, NONE};
+        int node = findNode(high, low, target, parents);
+        if (node == NONE) {
+            return null;
+        }
+        int previousEntry = NONE;
+        int entry = nodeEntries[node];
+        while (entry != NONE && !isEntry(entry, high, low, prefixLength)) {
+            previousEntry = entry;
+            entry = entryNext[entry];
+        }
+        if (entry == NONE) {
+            return null;
+        }
+        V previous = valueOf(entry);
+        if (previousEntry == NONE) {
+            nodeEntries[node] = entryNext[entry];
+        } else {
+            entryNext[previousEntry] = entryNext[entry];
+        }
+        size--;
+
+        // the slots of the removed prefix fall back to the longest of the shorter prefixes of the node covering them
+        int first = firstSlot(entry, target);
+        int last = first + slotCount(prefixLength, target);
+        for (int i = first; i < last; i++) {
+            int slot = slotOffset(node, i);
+            if (slots[slot + MATCH] == entry) {
+                int match = NONE;
+                for (int other = nodeEntries[node]; other != NONE; other = entryNext[other]) {
+                    int otherFirst = firstSlot(other, target);
+                    if (i >= otherFirst && i < otherFirst + slotCount(entryLengths[other], target)
+                            && (match == NONE || entryLengths[other] > entryLengths[match])) {
+                        match = other;
+                    }
+                }
+                slots[slot + MATCH] = match;
+            }
+        }
+        freeEntry(entry);
+
+        if (removeIfUnused(node, parents[1])) {
+            removeIfUnused(parents[1], parents[0]);
+        }
+        return previous;
+    }
+
+    /**
+     * Finds the value of the longest prefix which contains the address.
+     *
+     * @return the value of the most specific prefix containing the address, or <tt>null</tt> if none does
+     */
+    public V longestMatch(Ipv6 address) {
+        Validate.notNull(address, "address is required");
+        return longestMatch(address.high(), address.low());
+    }
+
+    /**
+     * Same as {@link #longestMatch(Ipv6)} for an address given by its most and least significant 64 bits, as in
+     * {@link Ipv6#of(long, long)}. This method does not allocate.
+     */
+    public V longestMatch(long high, long low) {
+        int match = findLongestMatch(high, low);
+        return match == NONE ? null : this.<V>valueOf(match);
+    }
+
+    /**
+     * @return the most specific prefix containing the address, or <tt>null</tt> if none does
+     */
+    public Ipv6Range longestMatchingPrefix(Ipv6 address) {
+        Validate.notNull(address, "address is required");
+        int match = findLongestMatch(address.high(), address.low());
+        if (match == NONE) {
+            return null;
+        }
+        return Ipv6Range.from(Ipv6.of(entryKeys[2 * match], entryKeys[2 * match + 1])).andPrefixLength(entryLengths[match]);
+    }
+
+    /**
+     * @return the number of prefixes in the map
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, 0, entryCount, null);
+        entryCount = 0;
+        freeEntries = NONE;
+        nodeCount = 0;
+        freeNodes = NONE;
+        size = 0;
+        newNode(0L, 0L, 0);
+    }
+
+    private int findLongestMatch(long high, long low) {
+        int[] slots = this.slots;
+        int match = NONE;
+        int node = ROOT;
+        do {
+            int depth = nodeDepths[node];
+            if (((high ^ nodeKeys[2 * node]) & Ipv6.highBitMask(depth)) != 0
+                    || ((low ^ nodeKeys[2 * node + 1]) & Ipv6.lowBitMask(depth)) != 0) {
+                break;
+            }
+            int slot = slotOffset(node, bits(high, low, depth));
+            if (slots[slot + MATCH] != NONE) {
+                match = slots[slot + MATCH];
+            }
+            node = slots[slot + CHILD];
+        } while (node != NONE);
+        return match;
+    }
+
+    /**
+     * @param parents receives the parent and the grandparent of the node, if not <tt>null</tt>
+     * @return the node at the given depth on the path of the key, or {@link #NONE} if there is none
+     */
+    private int findNode(long high, long low, int depth, int[] parents) {
+        int node = ROOT;
+        while (node != NONE && nodeDepths[node] < depth) {
+            if (parents != null) {
+                parents[0] = parents[1];
+                parents[1] = node;
+            }
+            node = slots[slotOffset(node, bits(high, low, nodeDepths[node])) + CHILD];
+        }
+        if (node == NONE || nodeDepths[node] != depth
+                || commonPrefixLength(high, low, nodeKeys[2 * node], nodeKeys[2 * node + 1]) < depth) {
+            return NONE;
+        }
+        return node;
+    }
+
+    /**
+     * Removes a node without prefixes which is not needed to join two or more children.
+     *
+     * @return <tt>true</tt> if the node was removed
+     */
+    private boolean removeIfUnused(int node, int parent) {
+        if (node == ROOT || nodeEntries[node] != NONE) {
+            return false;
+        }
+        int child = NONE;
+        int base = slotOffset(node, 0);
+        for (int i = 0; i < (1 << stride); i++) {
+            int slotChild = slots[base + 2 * i + CHILD];
+            if (slotChild != NONE) {
+                if (child != NONE) {
+                    return false;
+                }
+                child = slotChild;
+            }
+        }
+        // the only child takes the place of the node, its path is compressed further
+        slots[slotOffset(parent, bits(nodeKeys[2 * node], nodeKeys[2 * node + 1], nodeDepths[parent])) + CHILD] = child;
+        freeNode(node);
+        return true;
+    }
+
+    private boolean isEntry(int entry, long high, long low, int prefixLength) {
+        return entryLengths[entry] == prefixLength && entryKeys[2 * entry] == high && entryKeys[2 * entry + 1] == low;
+    }
+
+    /**
+     * @return the depth of the node in which a prefix of the given length ends
+     */
+    private int depthOf(int prefixLength) {
+        return prefixLength == 0 ? 0 : (prefixLength - 1) / stride * stride;
+    }
+
+    private int firstSlot(int entry, int depth) {
+        return bits(entryKeys[2 * entry], entryKeys[2 * entry + 1], depth);
+    }
+
+    /**
+     * @return the number of slots of its node covered by a prefix
+     */
+    private int slotCount(int prefixLength, int depth) {
+        return 1 << (stride - (prefixLength - depth));
+    }
+
+    private int slotOffset(int node, int index) {
+        return ((node << stride) | index) * 2;
+    }
+
+    /**
+     * @return the <tt>stride</tt> bits of the address starting at the given depth, padded with zeros after the
+     * last bit of the address
+     */
+    private int bits(long high, long low, int depth) {
+        long window;
+        if (depth == 0) {
+            window = high;
+        } else if (depth < Long.SIZE) {
+            window = (high << depth) | (low >>> (Long.SIZE - depth));
+        } else {
+            window = low << (depth - Long.SIZE);
+        }
+        return (int) (window >>> (Long.SIZE - stride));
+    }
+
+    private static int commonPrefixLength(long high1, long low1, long high2, long low2) {
+        if (high1 != high2) {
+            return Long.numberOfLeadingZeros(high1 ^ high2);
+        }
+        return Long.SIZE + Long.numberOfLeadingZeros(low1 ^ low2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T valueOf(int entry) {
+        return (T) values[entry];
+    }
+
+    private int newNode(long high, long low, int depth) {
+        int node;
+        if (freeNodes != NONE) {
+            node = freeNodes;
+            freeNodes = nodeEntries[node];
+        } else {
+            if (nodeCount == nodeDepths.length) {
+                growNodes();
+            }
+            node = nodeCount++;
+        }
+        nodeKeys[2 * node] = high & Ipv6.highBitMask(depth);
+        nodeKeys[2 * node + 1] = low & Ipv6.lowBitMask(depth);
+        nodeDepths[node] = depth;
+        nodeEntries[node] = NONE;
+        Arrays.fill(slots, slotOffset(node, 0), slotOffset(node + 1, 0), NONE);
+        return node;
+    }
+
+    private void freeNode(int node) {
+        nodeEntries[node] = freeNodes;
+        freeNodes = node;
+    }
+
+    private int newEntry(long high, long low, int prefixLength, Object value) {
+        int entry;
+        if (freeEntries != NONE) {
+            entry = freeEntries;
+            freeEntries = entryNext[entry];
+        } else {
+            if (entryCount == values.length) {
+                growEntries();
+            }
+            entry = entryCount++;
+        }
+        entryKeys[2 * entry] = high;
+        entryKeys[2 * entry + 1] = low;
+        entryLengths[entry] = prefixLength;
+        values[entry] = value;
+        return entry;
+    }
+
+    private void freeEntry(int entry) {
+        values[entry] = null;
+        entryNext[entry] = freeEntries;
+        freeEntries = entry;
+    }
+
+    private void growNodes() {
+        int capacity = nodeDepths.length + (nodeDepths.length >> 1);
+        nodeKeys = Arrays.copyOf(nodeKeys, 2 * capacity);
+        nodeDepths = Arrays.copyOf(nodeDepths, capacity);
+        nodeEntries = Arrays.copyOf(nodeEntries, capacity);
+        slots = Arrays.copyOf(slots, (capacity << stride) * 2);
+    }
+
+    private void growEntries() {
+        int capacity = values.length + (values.length >> 1);
+        entryKeys = Arrays.copyOf(entryKeys, 2 * capacity);
+        entryLengths = Arrays.copyOf(entryLengths, capacity);
+        entryNext = Arrays.copyOf(entryNext, capacity);
+        values = Arrays.copyOf(values, capacity);
+    }
+}
@@ -25,11 +25,15 @@ package com.github.jgonian.ipmath;
 
 import static java.math.BigInteger.*;
 import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 public final class Ipv6Range extends AbstractIpRange<Ipv6, Ipv6Range> {
 
     private static final long serialVersionUID = 1L;
 
+    private static final int BITS_PER_LONG = 64;
+
     protected Ipv6Range(Ipv6 start, Ipv6 end) {
         super(start, end);
     }
@@ -104,7 +108,153 @@ public final class Ipv6Range extends AbstractIpRange<Ipv6, Ipv6Range> {
 
     @Override
     public BigInteger size() {
-        return (end().value().subtract(start().value())).add(ONE);
+        long high = end().high() - start().high();
+        long low = end().low() - start().low();
+        if (Ipv6.compareUnsigned(end().low(), start().low()) < 0) {
+            high--;
+        }
+        return Ipv6.toBigInteger(high, low).add(ONE);
+    }
+
+    /**
+     * Same as for {@link Ipv4Range}, on 128-bit values held in two longs.
+     */
+    @Override
+    protected int legalPrefixLength() {
+        long startHigh = start().high();
+        long startLow = start().low();
+        long differentHigh = startHigh ^ end().high();
+        long differentLow = startLow ^ end().low();
+        if ((startHigh & differentHigh) != 0 || (startLow & differentLow) != 0) {
+            return -1;
+        }
+        if (differentHigh != 0) {
+            return differentLow == -1L && (differentHigh & (differentHigh + 1)) == 0 ? Long.numberOfLeadingZeros(differentHigh) : -1;
+        }
+        return (differentLow & (differentLow + 1)) == 0 ? BITS_PER_LONG + Long.numberOfLeadingZeros(differentLow) : -1;
+    }
+
+    @Override
+    public Iterator<Ipv6Range> prefixIterator() {
+        return new PrefixIterator(start(), end());
+    }
+
+    @Override
+    protected Ipv6Range findSplitPrefix(int prefixLength, boolean smallest) {
+        int minimumBits = Ipv6.NUMBER_OF_BITS - prefixLength;
+        PrefixIterator prefixes = new PrefixIterator(start(), end());
+        long foundHigh = 0;
+        long foundLow = 0;
+        int foundBits = -1;
+        while (prefixes.hasNext()) {
+            int bits = prefixes.advance();
+            if (smallest ? bits >= minimumBits && (foundBits < 0 || bits < foundBits) : bits > foundBits) {
+                foundHigh = prefixes.prefixHigh;
+                foundLow = prefixes.prefixLow;
+                foundBits = bits;
+            }
+        }
+        return foundBits < minimumBits ? null : PrefixIterator.prefix(foundHigh, foundLow, foundBits);
+    }
+
+    private Object writeReplace() {
+        return new Serialization.Proxy(Serialization.Proxy.IPV6_RANGE, this);
+    }
+
+    /**
+     * Same as the prefix iterator of {@link Ipv4Range}, on 128-bit values held in two longs: each prefix is
+     * the largest block which is aligned at its start and fits in the rest of the range.
+     */
+    private static final class PrefixIterator implements Iterator<Ipv6Range> {
+
+        private final long endHigh;
+        private final long endLow;
+        private long nextHigh;
+        private long nextLow;
+        private boolean hasNext = true;
+        private long prefixHigh;
+        private long prefixLow;
+
+        PrefixIterator(Ipv6 start, Ipv6 end) {
+            this.nextHigh = start.high();
+            this.nextLow = start.low();
+            this.endHigh = end.high();
+            this.endLow = end.low();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @Override
+        public Ipv6Range next() {
+            if (!hasNext) {
+                throw new NoSuchElementException();
+            }
+            int bits = advance();
+            return prefix(prefixHigh, prefixLow, bits);
+        }
+
+        /**
+         * Moves to the next prefix, which starts at <tt>prefixHigh</tt> and <tt>prefixLow</tt>, without creating it.
+         *
+         * @return the number of host bits of the prefix
+         */
+        int advance() {
+            prefixHigh = nextHigh;
+            prefixLow = nextLow;
+            int bits = Math.min(alignmentBits(prefixHigh, prefixLow), sizeBits(prefixHigh, prefixLow));
+            long prefixEndHigh = prefixHigh | hostMaskHigh(bits);
+            long prefixEndLow = prefixLow | hostMaskLow(bits);
+            if (prefixEndHigh == endHigh && prefixEndLow == endLow) {
+                hasNext = false;
+            } else {
+                nextLow = prefixEndLow + 1;
+                nextHigh = nextLow == 0 ? prefixEndHigh + 1 : prefixEndHigh;
+            }
+            return bits;
+        }
+
+        static Ipv6Range prefix(long startHigh, long startLow, int bits) {
+            return new Ipv6Range(Ipv6.of(startHigh, startLow), Ipv6.of(startHigh | hostMaskHigh(bits), startLow | hostMaskLow(bits)));
+        }
+
+        private static long hostMaskHigh(int bits) {
+            return bits <= BITS_PER_LONG ? 0L : -1L >>> (Ipv6.NUMBER_OF_BITS - bits);
+        }
+
+        private static long hostMaskLow(int bits) {
+            return bits >= BITS_PER_LONG ? -1L : (1L << bits) - 1;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         * @return the number of trailing zero bits of the start, 128 for the zero address
+         */
+        private static int alignmentBits(long startHigh, long startLow) {
+            return startLow != 0 ? Long.numberOfTrailingZeros(startLow) : BITS_PER_LONG + Long.numberOfTrailingZeros(startHigh);
+        }
+
+        /**
+         * @return the position of the highest set bit of <tt>end - start + 1</tt>, 128 for the whole address space
+         */
+        private int sizeBits(long startHigh, long startLow) {
+            long sizeLow = endLow - startLow;
+            long sizeHigh = endHigh - startHigh - (Ipv6.compareUnsigned(endLow, startLow) < 0 ? 1 : 0);
+            sizeLow++;
+            if (sizeLow == 0) {
+                sizeHigh++;
+            }
+            if (sizeHigh != 0) {
+                return 2 * BITS_PER_LONG - 1 - Long.numberOfLeadingZeros(sizeHigh);
+            }
+            return sizeLow != 0 ? BITS_PER_LONG - 1 - Long.numberOfLeadingZeros(sizeLow) : Ipv6.NUMBER_OF_BITS;
+        }
     }
 
     public static class Ipv6RangeBuilder extends AbstractRangeBuilder<Ipv6, Ipv6Range> {
@@ -0,0 +1,327 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A read-only longest-prefix-match table of IPv4 or IPv6 prefixes with <tt>int</tt> values, compiled into a file
+ * which is memory-mapped and queried in place.
+ * <p>
+ * The prefixes are flattened into disjoint intervals which cover the whole address space, each one holding the value
+ * of the most specific prefix which covers it, if any. A lookup is a binary search over the starts of the intervals
+ * and reads the buffer with absolute gets, so it neither allocates nor changes the buffer. Opening a table only
+ * checks its header, which takes the same time for any number of prefixes, and processes which map the same file
+ * share its pages.
+ * <p>
+ * The file holds big-endian values: a header of six ints (magic, version, family, number of prefixes, number of
+ * intervals and a reserved zero), the starts of the intervals in ascending order (an int per IPv4 start, two longs
+ * per IPv6 start), an int value per interval and a bit per interval which is set when the interval has a value.
+ * <p>
+ * Instances are immutable and safe to share between threads.
+ */
+public final class MappedPrefixTable {
+
+    public static final int VERSION = 1;
+
+    private static final int MAGIC = 0x4C504D54;
+    private static final int HEADER_SIZE = 6 * 4;
+    private static final int IPV4 = 4;
+    private static final int IPV6 = 6;
+
+    private final ByteBuffer buffer;
+    private final int family;
+    private final int size;
+    private final int intervals;
+    private final int valuesOffset;
+    private final int presenceOffset;
+
+    private MappedPrefixTable(ByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a prefix table");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported version: " + buffer.getInt(4));
+        }
+        this.family = buffer.getInt(8);
+        this.size = buffer.getInt(12);
+        this.intervals = buffer.getInt(16);
+        if ((family != IPV4 && family != IPV6) || size < 0 || intervals < 1) {
+            throw new IllegalArgumentException("Malformed header");
+        }
+        this.valuesOffset = HEADER_SIZE + intervals * startSize(family);
+        this.presenceOffset = valuesOffset + intervals * 4;
+        if (buffer.capacity() != presenceOffset + (intervals + 7) / 8) {
+            throw new IllegalArgumentException("Expected " + (presenceOffset + (intervals + 7) / 8)
+                    + " bytes but got " + buffer.capacity());
+        }
+    }
+
+    /**
+     * Maps a table file read-only. The mapping stays valid after the method returns, until the table is garbage
+     * collected.
+     */
+    public static MappedPrefixTable open(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            return new MappedPrefixTable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    /**
+     * @param buffer the bytes of a table, from the position to the limit of the buffer
+     */
+    public static MappedPrefixTable wrap(ByteBuffer buffer) {
+        return new MappedPrefixTable(buffer.slice());
+    }
+
+    /**
+     * Compiles the prefixes into a table and writes it to the stream, which is flushed but not closed.
+     *
+     * @throws IllegalArgumentException if a key is not a legal prefix or a value is <tt>null</tt>
+     */
+    public static void writeIpv4(Map<Ipv4Range, Integer> prefixes, OutputStream out) throws IOException {
+        Flattened<Ipv4> flattened = flatten(prefixes, Ipv4.FIRST_IPV4_ADDRESS);
+        DataOutputStream data = writeHeader(IPV4, prefixes.size(), flattened, out);
+        for (Ipv4 start : flattened.starts) {
+            data.writeInt(start.asInt());
+        }
+        writeValues(flattened, data);
+    }
+
+    /**
+     * Compiles the prefixes into a table and writes it to the stream, which is flushed but not closed.
+     *
+     * @throws IllegalArgumentException if a key is not a legal prefix or a value is <tt>null</tt>
+     */
+    public static void writeIpv6(Map<Ipv6Range, Integer> prefixes, OutputStream out) throws IOException {
+        Flattened<Ipv6> flattened = flatten(prefixes, Ipv6.FIRST_IPV6_ADDRESS);
+        DataOutputStream data = writeHeader(IPV6, prefixes.size(), flattened, out);
+        for (Ipv6 start : flattened.starts) {
+            data.writeLong(start.high());
+            data.writeLong(start.low());
+        }
+        writeValues(flattened, data);
+    }
+
+    /**
+     * @return the number of prefixes in the table
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isIpv4() {
+        return family == IPV4;
+    }
+
+    public int longestMatch(Ipv4 address, int noMatch) {
+        return longestMatch(address.asInt(), noMatch);
+    }
+
+    /**
+     * @param address the address, as returned by {@link Ipv4#asInt()}
+     * @param noMatch the value to return when no prefix covers the address
+     * @return the value of the most specific prefix which covers the address
+     */
+    public int longestMatch(int address, int noMatch) {
+        if (family != IPV4) {
+            throw new IllegalArgumentException("Not an IPv4 table");
+        }
+        // flip the sign bit, so that signed comparisons order the addresses as unsigned
+        int key = address ^ Integer.MIN_VALUE;
+        int low = 1;
+        int high = intervals - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if ((buffer.getInt(HEADER_SIZE + middle * 4) ^ Integer.MIN_VALUE) <= key) {
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return valueOf(low - 1, noMatch);
+    }
+
+    public int longestMatch(Ipv6 address, int noMatch) {
+        return longestMatch(address.high(), address.low(), noMatch);
+    }
+
+    /**
+     * @param high    the upper 64 bits of the address
+     * @param low     the lower 64 bits of the address
+     * @param noMatch the value to return when no prefix covers the address
+     * @return the value of the most specific prefix which covers the address
+     */
+    public int longestMatch(long high, long low, int noMatch) {
+        if (family != IPV6) {
+            throw new IllegalArgumentException("Not an IPv6 table");
+        }
+        int first = 1;
+        int last = intervals - 1;
+        while (first <= last) {
+            int middle = (first + last) >>> 1;
+            int offset = HEADER_SIZE + middle * 16;
+            int compare = Ipv6.compareUnsigned(buffer.getLong(offset), high);
+            if (compare < 0 || (compare == 0 && Ipv6.compareUnsigned(buffer.getLong(offset + 8), low) <= 0)) {
+                first = middle + 1;
+            } else {
+                last = middle - 1;
+            }
+        }
+        return valueOf(first - 1, noMatch);
+    }
+
+    private int valueOf(int interval, int noMatch) {
+        boolean present = (buffer.get(presenceOffset + (interval >>> 3)) & (1 << (interval & 7))) != 0;
+        return present ? buffer.getInt(valuesOffset + interval * 4) : noMatch;
+    }
+
+    private static int startSize(int family) {
+        return family == IPV4 ? 4 : 16;
+    }
+
+    private static DataOutputStream writeHeader(int family, int size, Flattened<?> flattened, OutputStream out)
+            throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(family);
+        data.writeInt(size);
+        data.writeInt(flattened.starts.size());
+        data.writeInt(0);
+        return data;
+    }
+
+    private static void writeValues(Flattened<?> flattened, DataOutputStream data) throws IOException {
+        for (Integer value : flattened.values) {
+            data.writeInt(value == null ? 0 : value);
+        }
+        int presence = 0;
+        for (int i = 0; i < flattened.values.size(); i++) {
+            if (flattened.values.get(i) != null) {
+                presence |= 1 << (i & 7);
+            }
+            if ((i & 7) == 7) {
+                data.writeByte(presence);
+                presence = 0;
+            }
+        }
+        if ((flattened.values.size() & 7) != 0) {
+            data.writeByte(presence);
+        }
+        data.flush();
+    }
+
+    /**
+     * Sweeps the prefixes in order of their start, the larger ones first, keeping the prefixes which cover the sweep
+     * position on a stack. An interval starts at each prefix and right after the end of each prefix, where the value
+     * of the enclosing prefix applies again.
+     */
+    private static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
+    Flattened<C> flatten(Map<R, Integer> prefixes, C firstAddress) {
+        List<Map.Entry<R, Integer>> entries = new ArrayList<Map.Entry<R, Integer>>(prefixes.entrySet());
+        for (Map.Entry<R, Integer> entry : entries) {
+            if (!PrefixUtils.isLegalPrefix(Validate.notNull(entry.getKey(), "prefix is required"))) {
+                throw new IllegalArgumentException(entry.getKey() + " is not a legal prefix");
+            }
+            Validate.notNull(entry.getValue(), "value is required");
+        }
+        Collections.sort(entries, new Comparator<Map.Entry<R, Integer>>() {
+            @Override
+            public int compare(Map.Entry<R, Integer> left, Map.Entry<R, Integer> right) {
+                int compare = left.getKey().start().compareTo(right.getKey().start());
+                return compare != 0 ? compare : right.getKey().end().compareTo(left.getKey().end());
+            }
+        });
+
+        Flattened<C> result = new Flattened<C>();
+        result.add(firstAddress, null);
+        List<Map.Entry<R, Integer>> covering = new ArrayList<Map.Entry<R, Integer>>();
+        for (Map.Entry<R, Integer> entry : entries) {
+            R prefix = entry.getKey();
+            while (!covering.isEmpty() && last(covering).getKey().end().compareTo(prefix.start()) < 0) {
+                close(covering, result);
+            }
+            result.add(prefix.start(), entry.getValue());
+            covering.add(entry);
+        }
+        while (!covering.isEmpty()) {
+            close(covering, result);
+        }
+        return result;
+    }
+
+    private static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
+    void close(List<Map.Entry<R, Integer>> covering, Flattened<C> result) {
+        C end = covering.remove(covering.size() - 1).getKey().end();
+        if (end.hasNext()) {
+            result.add(end.next(), covering.isEmpty() ? null : last(covering).getValue());
+        }
+    }
+
+    private static <T> T last(List<T> list) {
+        return list.get(list.size() - 1);
+    }
+
+    /**
+     * The starts of the intervals and their values, <tt>null</tt> where no prefix covers an interval.
+     */
+    private static final class Flattened<C> {
+
+        private final List<C> starts = new ArrayList<C>();
+        private final List<Integer> values = new ArrayList<Integer>();
+
+        private void add(C start, Integer value) {
+            int last = starts.size() - 1;
+            if (last >= 0 && starts.get(last).equals(start)) {
+                // a more specific prefix starts at the same address
+                starts.remove(last);
+                values.remove(last);
+                last--;
+            }
+            if (last >= 0 && (value == null ? values.get(last) == null : value.equals(values.get(last)))) {
+                return;
+            }
+            starts.add(start);
+            values.add(value);
+        }
+    }
+}
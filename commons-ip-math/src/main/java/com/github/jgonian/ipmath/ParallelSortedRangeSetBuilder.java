@@ -0,0 +1,112 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Builds a {@link SortedRangeSet} from a large collection of ranges in any order, using all the threads of a
+ * {@link ForkJoinPool}. The result is the same as adding all the ranges to an empty set with
+ * {@link SortedRangeSet#addAll(Collection)}.
+ * <p>
+ * The input is split into chunks. Each chunk is sorted and coalesced on its own, and the partial results are
+ * merged pairwise in linear time. This class needs Java 7 or later, unlike the rest of the library.
+ */
+public final class ParallelSortedRangeSetBuilder {
+
+    /**
+     * Chunks of up to this many ranges are sorted and coalesced by a single task.
+     */
+    static final int CHUNK_SIZE = 1 << 14;
+
+    private ParallelSortedRangeSetBuilder() {
+    }
+
+    /**
+     * Builds the set on a pool shared by all the callers of this method, with one thread per available processor.
+     */
+    public static <C extends Rangeable<C, R>, R extends Range<C, R>> SortedRangeSet<C, R> build(Collection<R> ranges) {
+        return build(ranges, SharedPool.INSTANCE);
+    }
+
+    public static <C extends Rangeable<C, R>, R extends Range<C, R>> SortedRangeSet<C, R> build(Collection<R> ranges, ForkJoinPool pool) {
+        Validate.notNull(ranges, "Ranges are required");
+        Validate.notNull(pool, "A pool is required");
+        Object[] array = ranges.toArray();
+        for (Object range : array) {
+            Validate.notNull(range, "Ranges must not be null");
+        }
+        return new SortedRangeSet<C, R>(pool.invoke(new BuildTask<C, R>(array, 0, array.length)));
+    }
+
+    private static final class SharedPool {
+        static final ForkJoinPool INSTANCE = new ForkJoinPool();
+    }
+
+    private static final class BuildTask<C extends Rangeable<C, R>, R extends Range<C, R>> extends RecursiveTask<List<R>> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] ranges;
+        private final int from;
+        private final int to;
+
+        BuildTask(Object[] ranges, int from, int to) {
+            this.ranges = ranges;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<R> compute() {
+            if (to - from <= CHUNK_SIZE) {
+                return sortAndCoalesce();
+            }
+            int middle = (from + to) >>> 1;
+            BuildTask<C, R> left = new BuildTask<C, R>(ranges, from, middle);
+            left.fork();
+            List<R> right = new BuildTask<C, R>(ranges, middle, to).compute();
+            return SortedRangeSet.union(left.join().iterator(), right.iterator());
+        }
+
+        @SuppressWarnings("unchecked")
+        private List<R> sortAndCoalesce() {
+            // the chunks do not overlap, so each task sorts its own part of the shared array in place
+            Arrays.sort(ranges, from, to, (Comparator<Object>) (Comparator<?>) StartAndSizeComparator.<C, R>get());
+            List<R> chunk = (List<R>) (List<?>) Arrays.asList(ranges).subList(from, to);
+            List<R> result = new ArrayList<R>();
+            for (Iterator<R> iterator = new CoalescingIterator<C, R>(chunk.iterator()); iterator.hasNext(); ) {
+                result.add(iterator.next());
+            }
+            return result;
+        }
+    }
+}
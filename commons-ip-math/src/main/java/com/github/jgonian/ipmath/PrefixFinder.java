@@ -25,19 +25,19 @@ package com.github.jgonian.ipmath;
 
 import java.util.Collection;
 
-public abstract class PrefixFinder {
+public abstract class PrefixFinder<C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>> {
 
-    public interface Strategy {
-        public Ipv6Range findPrefixOrNull(int prefixLength, Collection<Ipv6Range> ranges);
+    public interface Strategy<C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>> {
+        public R findPrefixOrNull(int prefixLength, Collection<R> ranges);
     }
 
-    private final Strategy strategy;
+    private final Strategy<C, R> strategy;
 
-    public PrefixFinder(Strategy strategy) {
+    public PrefixFinder(Strategy<C, R> strategy) {
         this.strategy = strategy;
     }
 
-    public Ipv6Range findPrefixOrNull(int prefixLength, Collection<Ipv6Range> ranges) {
+    public R findPrefixOrNull(int prefixLength, Collection<R> ranges) {
         return strategy.findPrefixOrNull(prefixLength, ranges);
     }
 }
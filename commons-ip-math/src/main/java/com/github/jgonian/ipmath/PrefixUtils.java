@@ -23,17 +23,12 @@
  */
 package com.github.jgonian.ipmath;
 
-import java.math.BigInteger;
-import java.util.Collections;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
-import static java.math.BigInteger.ZERO;
-
 public final class PrefixUtils {
 
     private PrefixUtils() {
@@ -41,56 +36,34 @@ public final class PrefixUtils {
 
     public static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
     boolean isLegalPrefix(AbstractIpRange<C, R> range) {
-        int prefixLength = range.start().getCommonPrefixLength(range.end());
-        C lowerBoundForPrefix = range.start().lowerBoundForPrefix(prefixLength);
-        C upperBoundForPrefix = range.end().upperBoundForPrefix(prefixLength);
-        return range.start().equals(lowerBoundForPrefix) && range.end().equals(upperBoundForPrefix);
+        return range.legalPrefixLength() >= 0;
     }
 
     public static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
     int getPrefixLength(AbstractIpRange<C, R> range) {
-        Validate.isTrue(isLegalPrefix(range), range.toStringInRangeNotation() + " is not a legal prefix, cannot get prefix length!");
-        return range.start().getCommonPrefixLength(range.end());
+        int prefixLength = range.legalPrefixLength();
+        if (prefixLength < 0) {
+            // the message is only built when needed, as it is expensive compared to the check
+            throw new IllegalArgumentException(range.toStringInRangeNotation() + " is not a legal prefix, cannot get prefix length!");
+        }
+        return prefixLength;
     }
 
     public static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
     Optional<R> findMinimumPrefixForPrefixLength(R range, int prefixLength) {
         Validate.checkRange(prefixLength, 0, range.start().bitSize());
-        return findPrefixForPrefixLength(range, prefixLength, SizeComparator.<R>get());
+        return Optional.ofNullable(range.findSplitPrefix(prefixLength, true));
     }
 
     public static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
     Optional<R> findMaximumPrefixForPrefixLength(R range, int prefixLength) {
         Validate.checkRange(prefixLength, 0, range.start().bitSize());
-        return findPrefixForPrefixLength(range, prefixLength, SizeComparator.<R>reverse());
-    }
-
-    private static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
-    Optional<R> findPrefixForPrefixLength(R range, int prefixLength, Comparator<? super R> comparator) {
-        List<R> prefixes = range.splitToPrefixes();
-        Collections.sort(prefixes, comparator);
-        for (R prefix : prefixes) {
-            if (prefixLength >= PrefixUtils.getPrefixLength(prefix)) {
-                return Optional.of(prefix);
-            }
-        }
-        return Optional.empty();
+        return Optional.ofNullable(range.findSplitPrefix(prefixLength, false));
     }
 
     // TODO(yg): generify and move to AbstractIp
     public static int findMaxPrefixLengthForAddress(Ipv6 address) {
-        return getMaxValidPrefix(address.value());
-    }
-
-    private static int getMaxValidPrefix(BigInteger number) {
-        int powerOfTwo = 0;
-        int maxPowerOfTwo = powerOfTwo;
-
-        while (powerOfTwo <= Ipv6.NUMBER_OF_BITS && number.divideAndRemainder(BigInteger.ONE.shiftLeft(powerOfTwo))[1].compareTo(ZERO) == 0) {
-            maxPowerOfTwo = powerOfTwo;
-            powerOfTwo++;
-        }
-        return Ipv6.NUMBER_OF_BITS - maxPowerOfTwo;
+        return Ipv6.NUMBER_OF_BITS - address.numberOfTrailingZeros();
     }
 
     public static int sumIpv4Prefixes(List<Integer> ipv4Prefixes) {
@@ -0,0 +1,187 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * The changes which turn one version of a {@link SortedRangeSet} into another: the ranges which are removed from the
+ * old version and the ranges which are added to it, e.g. to send only the changes of a set to its other copies.
+ * <p>
+ * {@link #diff(SortedRangeSet, SortedRangeSet)} computes the smallest such patch in a single pass over both
+ * versions: the removed ranges are the parts of the old version which are not in the new one, the added ranges
+ * the parts of the new version which are not in the old one. {@link #apply(SortedRangeSet)} updates a set in
+ * O(k log n) time for a patch of k ranges and a set of n ranges, so both the size of a patch and the time to apply it
+ * depend on the size of the change rather than on the size of the set. Patches which are large compared to the set
+ * are applied in one pass over the set, like {@link SortedRangeSet#addAll(SortedRangeSet)}.
+ * {@link SortedRangeSetCodec} encodes patches.
+ * <p>
+ * A patch is also an {@link ConcurrentSortedRangeSet.Update}, so it can be applied to a concurrent set.
+ */
+public final class RangeSetPatch<C extends Rangeable<C, R>, R extends Range<C, R>>
+        implements ConcurrentSortedRangeSet.Update<C, R> {
+
+    private final List<R> removed;
+    private final List<R> added;
+
+    /**
+     * @param removed disjoint, non-consecutive ranges, sorted by their start
+     * @param added disjoint, non-consecutive ranges, sorted by their start
+     */
+    RangeSetPatch(List<R> removed, List<R> added) {
+        this.removed = Collections.unmodifiableList(removed);
+        this.added = Collections.unmodifiableList(added);
+    }
+
+    /**
+     * @return the patch which turns the old version of a set into the new one
+     */
+    public static <C extends Rangeable<C, R>, R extends Range<C, R>> RangeSetPatch<C, R> diff(
+            SortedRangeSet<C, R> oldVersion, SortedRangeSet<C, R> newVersion) {
+        Validate.notNull(oldVersion, "The old version is required");
+        Validate.notNull(newVersion, "The new version is required");
+        List<R> removed = new ArrayList<R>();
+        List<R> added = new ArrayList<R>();
+        Iterator<R> oldRanges = oldVersion.iterator();
+        Iterator<R> newRanges = newVersion.iterator();
+        R oldRange = nextOrNull(oldRanges);
+        R newRange = nextOrNull(newRanges);
+        while (oldRange != null || newRange != null) {
+            if (newRange == null || (oldRange != null && oldRange.end().compareTo(newRange.start()) < 0)) {
+                removed.add(oldRange);
+                oldRange = nextOrNull(oldRanges);
+            } else if (oldRange == null || newRange.end().compareTo(oldRange.start()) < 0) {
+                added.add(newRange);
+                newRange = nextOrNull(newRanges);
+            } else {
+                int compareStarts = oldRange.start().compareTo(newRange.start());
+                if (compareStarts < 0) {
+                    removed.add(before(oldRange, newRange));
+                } else if (compareStarts > 0) {
+                    added.add(before(newRange, oldRange));
+                }
+                // the range which ends first cannot overlap with any later range of the other version
+                int compareEnds = oldRange.end().compareTo(newRange.end());
+                if (compareEnds < 0) {
+                    newRange = after(newRange, oldRange);
+                    oldRange = nextOrNull(oldRanges);
+                } else if (compareEnds > 0) {
+                    oldRange = after(oldRange, newRange);
+                    newRange = nextOrNull(newRanges);
+                } else {
+                    oldRange = nextOrNull(oldRanges);
+                    newRange = nextOrNull(newRanges);
+                }
+            }
+        }
+        return new RangeSetPatch<C, R>(removed, added);
+    }
+
+    /**
+     * @return the ranges which are removed from the old version, sorted by their start
+     */
+    public List<R> removed() {
+        return removed;
+    }
+
+    /**
+     * @return the ranges which are added to the old version, sorted by their start
+     */
+    public List<R> added() {
+        return added;
+    }
+
+    /**
+     * @return the number of removed and added ranges
+     */
+    public int size() {
+        return removed.size() + added.size();
+    }
+
+    public boolean isEmpty() {
+        return removed.isEmpty() && added.isEmpty();
+    }
+
+    /**
+     * Turns the old version of a set into the new one. The patch is checked against the set before the set is
+     * changed, so a patch which was computed from a different version leaves the set as it was.
+     *
+     * @throws IllegalArgumentException if a removed range is not in the set or an added range overlaps with it
+     */
+    @Override
+    public void apply(SortedRangeSet<C, R> ranges) {
+        Validate.notNull(ranges, "A set of ranges is required");
+        for (R range : removed) {
+            if (!ranges.contains(range)) {
+                throw new IllegalArgumentException("Patch does not apply: removed range " + range + " is not in the set");
+            }
+        }
+        for (R range : added) {
+            if (range.overlaps(ranges.floor(range)) || range.overlaps(ranges.ceiling(range))) {
+                throw new IllegalArgumentException("Patch does not apply: added range " + range + " overlaps with the set");
+            }
+        }
+        // large patches are swept into the set instead
+        ranges.removeAll(new SortedRangeSet<C, R>(removed));
+        ranges.addAll(new SortedRangeSet<C, R>(added));
+    }
+
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> R before(R range, R other) {
+        return range.exclude(other).get(0);
+    }
+
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> R after(R range, R other) {
+        List<R> parts = range.exclude(other);
+        return parts.get(parts.size() - 1);
+    }
+
+    private static <R> R nextOrNull(Iterator<R> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        RangeSetPatch<?, ?> that = (RangeSetPatch<?, ?>) o;
+        return removed.equals(that.removed) && added.equals(that.added);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * removed.hashCode() + added.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "-" + removed + " +" + added;
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.lang.reflect.Field;
+
+/**
+ * Helpers for classes which keep reading their serialized form of an older representation of their state, and the
+ * compact form which they write instead.
+ */
+final class Serialization {
+
+    private Serialization() {
+    }
+
+    /**
+     * Assigns a final field of an instance that is being deserialized in its <tt>readObject</tt> method.
+     */
+    static void setFinalField(Object target, String fieldName, Object value) throws InvalidObjectException {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (NoSuchFieldException e) {
+            throw invalidObject(e);
+        } catch (IllegalAccessException e) {
+            throw invalidObject(e);
+        }
+    }
+
+    static InvalidObjectException invalidObject(Exception cause) {
+        InvalidObjectException exception = new InvalidObjectException(cause.getMessage());
+        exception.initCause(cause);
+        return exception;
+    }
+
+    /**
+     * The serialized form of addresses, AS numbers and their ranges, written in place of the instances by their
+     * <tt>writeReplace</tt> methods: a type byte followed by the fixed-width binary value, 4 bytes for IPv4 and AS
+     * numbers and 16 bytes for IPv6, twice that for ranges. The class descriptor of the proxy is written once per
+     * stream, however many values follow.
+     */
+    static final class Proxy implements Externalizable {
+
+        private static final long serialVersionUID = 1L;
+
+        static final byte IPV4 = 1;
+        static final byte IPV6 = 2;
+        static final byte ASN = 3;
+        static final byte IPV4_RANGE = 4;
+        static final byte IPV6_RANGE = 5;
+        static final byte ASN_RANGE = 6;
+
+        private byte type;
+        private Object object;
+
+        /**
+         * For deserialization only.
+         */
+        public Proxy() {
+        }
+
+        Proxy(byte type, Object object) {
+            this.type = type;
+            this.object = object;
+        }
+
+        @Override
+        public void writeExternal(ObjectOutput out) throws IOException {
+            out.writeByte(type);
+            switch (type) {
+                case IPV4:
+                    out.writeInt(((Ipv4) object).asInt());
+                    break;
+                case IPV6:
+                    writeIpv6(out, (Ipv6) object);
+                    break;
+                case ASN:
+                    out.writeInt((int) ((Asn) object).value());
+                    break;
+                case IPV4_RANGE:
+                    out.writeInt(((Ipv4Range) object).start().asInt());
+                    out.writeInt(((Ipv4Range) object).end().asInt());
+                    break;
+                case IPV6_RANGE:
+                    writeIpv6(out, ((Ipv6Range) object).start());
+                    writeIpv6(out, ((Ipv6Range) object).end());
+                    break;
+                case ASN_RANGE:
+                    out.writeInt((int) ((AsnRange) object).start().value());
+                    out.writeInt((int) ((AsnRange) object).end().value());
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown type: " + type);
+            }
+        }
+
+        @Override
+        public void readExternal(ObjectInput in) throws IOException {
+            type = in.readByte();
+            try {
+                switch (type) {
+                    case IPV4:
+                        object = Ipv4.of(in.readInt());
+                        break;
+                    case IPV6:
+                        object = readIpv6(in);
+                        break;
+                    case ASN:
+                        object = readAsn(in);
+                        break;
+                    case IPV4_RANGE:
+                        object = new Ipv4Range(Ipv4.of(in.readInt()), Ipv4.of(in.readInt()));
+                        break;
+                    case IPV6_RANGE:
+                        object = new Ipv6Range(readIpv6(in), readIpv6(in));
+                        break;
+                    case ASN_RANGE:
+                        object = new AsnRange(readAsn(in), readAsn(in));
+                        break;
+                    default:
+                        throw new InvalidObjectException("Unknown type: " + type);
+                }
+            } catch (IllegalArgumentException e) {
+                throw invalidObject(e);
+            }
+        }
+
+        private Object readResolve() {
+            return object;
+        }
+
+        private static void writeIpv6(ObjectOutput out, Ipv6 ipv6) throws IOException {
+            out.writeLong(ipv6.high());
+            out.writeLong(ipv6.low());
+        }
+
+        private static Ipv6 readIpv6(ObjectInput in) throws IOException {
+            return Ipv6.of(in.readLong(), in.readLong());
+        }
+
+        private static Asn readAsn(ObjectInput in) throws IOException {
+            return Asn.of(in.readInt() & 0xFFFFFFFFL);
+        }
+    }
+}
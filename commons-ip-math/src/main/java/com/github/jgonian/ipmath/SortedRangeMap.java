@@ -0,0 +1,195 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * A map from disjoint ranges to values, e.g. from address blocks to the country or the organisation they are
+ * registered to.
+ * <p>
+ * Putting a range replaces the values of all the resources in it: entries which overlap with the range are cut down
+ * to their parts outside of it. Entries which are consecutive and have equal values are merged into one, so the map
+ * always holds the fewest entries for its contents. The entries are kept in a single <tt>TreeMap</tt> by their
+ * start, so {@link #get(Rangeable)} takes O(log n) time and does not allocate, and {@link #put(Range, Object)} and
+ * {@link #remove(Range)} take O(k log n) time for k overlapping entries. {@link #toImmutable()} returns an
+ * array-backed copy for maps which are built once and queried many times.
+ * <p>
+ * Values must not be <tt>null</tt> and are compared with <tt>equals</tt>. This class is not thread-safe.
+ *
+ * @param <V> the type of the values
+ */
+public final class SortedRangeMap<C extends Rangeable<C, R>, R extends Range<C, R>, V> implements Iterable<Map.Entry<R, V>> {
+
+    private final NavigableMap<C, Map.Entry<R, V>> entries = new TreeMap<C, Map.Entry<R, V>>();
+
+    /**
+     * Maps all the resources of the range to the value.
+     */
+    public void put(R range, V value) {
+        Validate.notNull(range, "A range is required");
+        Validate.notNull(value, "A value is required");
+        removeOverlapping(range);
+        R merged = range;
+        Map.Entry<C, Map.Entry<R, V>> left = entries.lowerEntry(range.start());
+        if (left != null && isMergeable(left.getValue(), range, value)) {
+            entries.remove(left.getKey());
+            merged = merged.merge(left.getValue().getKey());
+        }
+        Map.Entry<C, Map.Entry<R, V>> right = entries.higherEntry(range.start());
+        if (right != null && isMergeable(right.getValue(), range, value)) {
+            entries.remove(right.getKey());
+            merged = merged.merge(right.getValue().getKey());
+        }
+        entries.put(merged.start(), new AbstractMap.SimpleImmutableEntry<R, V>(merged, value));
+    }
+
+    /**
+     * Removes the values of all the resources of the range.
+     *
+     * @return <tt>true</tt> if a resource of the range had a value
+     */
+    public boolean remove(R range) {
+        Validate.notNull(range, "A range is required");
+        return removeOverlapping(range);
+    }
+
+    /**
+     * @return the value of the resource, or <tt>null</tt> if it has none
+     */
+    public V get(C value) {
+        Map.Entry<R, V> entry = getEntry(value);
+        return entry == null ? null : entry.getValue();
+    }
+
+    /**
+     * @return the entry whose range contains the resource, or <tt>null</tt> if there is none
+     */
+    public Map.Entry<R, V> getEntry(C value) {
+        Validate.notNull(value, "A value is required");
+        // floorKey and get, unlike floorEntry, do not copy the entry of the tree
+        C start = entries.floorKey(value);
+        if (start == null) {
+            return null;
+        }
+        Map.Entry<R, V> entry = entries.get(start);
+        return entry.getKey().end().compareTo(value) >= 0 ? entry : null;
+    }
+
+    public boolean containsKey(C value) {
+        return getEntry(value) != null;
+    }
+
+    /**
+     * @return the number of entries, after merging consecutive ranges with equal values
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    public boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * @return an immutable copy of this map, which holds its ranges in sorted arrays
+     */
+    public ImmutableSortedRangeMap<C, R, V> toImmutable() {
+        List<R> ranges = new ArrayList<R>(entries.size());
+        Object[] values = new Object[entries.size()];
+        for (Map.Entry<R, V> entry : entries.values()) {
+            values[ranges.size()] = entry.getValue();
+            ranges.add(entry.getKey());
+        }
+        return new ImmutableSortedRangeMap<C, R, V>(ImmutableSortedRangeSet.<C, R>copyOf(ranges), values);
+    }
+
+    /**
+     * @return an iterator over the entries in the order of their start, which cannot remove entries
+     */
+    @Override
+    public Iterator<Map.Entry<R, V>> iterator() {
+        return Collections.unmodifiableCollection(entries.values()).iterator();
+    }
+
+    /**
+     * Removes the entries which overlap with the range and puts back their parts outside of it.
+     */
+    private boolean removeOverlapping(R range) {
+        Map.Entry<C, Map.Entry<R, V>> floor = entries.floorEntry(range.start());
+        C from = range.start();
+        if (floor != null && floor.getValue().getKey().end().compareTo(from) >= 0) {
+            from = floor.getKey();
+        }
+        NavigableMap<C, Map.Entry<R, V>> overlapping = entries.subMap(from, true, range.end(), true);
+        if (overlapping.isEmpty()) {
+            return false;
+        }
+        List<Map.Entry<R, V>> removed = new ArrayList<Map.Entry<R, V>>(overlapping.values());
+        overlapping.clear();
+        for (Map.Entry<R, V> entry : removed) {
+            for (R part : entry.getKey().exclude(range)) {
+                entries.put(part.start(), new AbstractMap.SimpleImmutableEntry<R, V>(part, entry.getValue()));
+            }
+        }
+        return true;
+    }
+
+    private boolean isMergeable(Map.Entry<R, V> entry, R range, V value) {
+        return entry.getKey().isConsecutive(range) && entry.getValue().equals(value);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        SortedRangeMap<?, ?, ?> that = (SortedRangeMap<?, ?, ?>) o;
+        return entries.equals(that.entries);
+    }
+
+    @Override
+    public int hashCode() {
+        return entries.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return entries.values().toString();
+    }
+}
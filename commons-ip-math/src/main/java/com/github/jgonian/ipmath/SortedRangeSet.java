@@ -23,17 +23,29 @@
  */
 package com.github.jgonian.ipmath;
 
+import java.math.BigInteger;
+import java.util.AbstractSet;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NavigableSet;
+import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.SortedSet;
 import java.util.TreeSet;
 
 public class SortedRangeSet<C extends Rangeable<C, R>, R extends Range<C, R>> implements Iterable<R> {
 
+    /**
+     * {@link #addAll(SortedRangeSet)} and {@link #removeAll(SortedRangeSet)} sweep both sets instead of updating
+     * this set one range at a time when the other set has at least <tt>1 / SWEEP_RATIO</tt> of its ranges.
+     */
+    private static final int SWEEP_RATIO = 16;
+
     private final NavigableSet<R> set;
 
     /**
@@ -46,7 +58,19 @@ public class SortedRangeSet<C extends Rangeable<C, R>, R extends Range<C, R>> im
         set = new TreeSet<R>(StartAndSizeComparator.<C, R>get());
     }
 
+    /**
+     * @param sortedRanges disjoint, non-consecutive ranges, sorted by their start
+     */
+    SortedRangeSet(List<R> sortedRanges) {
+        this();
+        set.addAll(new SortedList<R>(sortedRanges, set.comparator()));
+    }
+
     public void addAll(SortedRangeSet<C, R> ranges) {
+        if (shouldSweep(ranges)) {
+            replaceWith(union(set.iterator(), ranges.set.iterator()));
+            return;
+        }
         for (R range : ranges) {
             add(range);
         }
@@ -58,6 +82,23 @@ public class SortedRangeSet<C extends Rangeable<C, R>, R extends Range<C, R>> im
         }
     }
 
+    /**
+     * Adds ranges which are already sorted by their start, e.g. the ranges of a sorted dump, in O(n + m) time
+     * without looking up each range in this set.
+     *
+     * @param sortedRanges ranges sorted by their start, which may overlap or be consecutive
+     * @throws IllegalArgumentException if a range starts before the previous one
+     * @see CoalescingIterator
+     */
+    public void addAllSorted(Iterable<R> sortedRanges) {
+        Validate.notNull(sortedRanges, "Ranges are required");
+        List<R> coalesced = new ArrayList<R>();
+        for (Iterator<R> iterator = new CoalescingIterator<C, R>(sortedRanges.iterator()); iterator.hasNext(); ) {
+            coalesced.add(iterator.next());
+        }
+        replaceWith(set.isEmpty() ? coalesced : union(set.iterator(), coalesced.iterator()));
+    }
+
     public void add(R range) {
         if (contains(range)) {
             return;
@@ -84,6 +125,10 @@ public class SortedRangeSet<C extends Rangeable<C, R>, R extends Range<C, R>> im
     }
 
     public void removeAll(SortedRangeSet<C, R> ranges) {
+        if (shouldSweep(ranges)) {
+            replaceWith(difference(set.iterator(), ranges.set.iterator()));
+            return;
+        }
         for (R range : ranges) {
             remove(range);
         }
@@ -119,21 +164,385 @@ public class SortedRangeSet<C extends Rangeable<C, R>, R extends Range<C, R>> im
         return removed;
     }
 
+    /**
+     * @return a new set with the ranges of this and the other set, computed in one pass over both sets
+     */
+    public SortedRangeSet<C, R> union(SortedRangeSet<C, R> other) {
+        return new SortedRangeSet<C, R>(union(set.iterator(), other.set.iterator()));
+    }
+
+    /**
+     * @return a new set with the parts of the ranges of this set which are also in the other set, computed in one
+     * pass over both sets
+     */
     public SortedRangeSet<C, R> intersection(SortedRangeSet<C, R> other) {
-        SortedRangeSet<C, R> result = new SortedRangeSet<C, R>();
-        for (R thisRange : set) {
-            R leftSide = other.set.floor(thisRange);
-            R rightSide = other.set.ceiling(thisRange);
-            if (thisRange.overlaps(leftSide)) {
-                result.add(thisRange.intersection(leftSide));
+        return new SortedRangeSet<C, R>(intersection(set.iterator(), other.set.iterator()));
+    }
+
+    /**
+     * @return a new set with the parts of the ranges of this set which are not in the other set, computed in one
+     * pass over both sets
+     */
+    public SortedRangeSet<C, R> difference(SortedRangeSet<C, R> other) {
+        return new SortedRangeSet<C, R>(difference(set.iterator(), other.set.iterator()));
+    }
+
+    /**
+     * @return a new set with the parts of the ranges of either set which are not in the other one
+     */
+    public SortedRangeSet<C, R> symmetricDifference(SortedRangeSet<C, R> other) {
+        List<R> left = difference(set.iterator(), other.set.iterator());
+        List<R> right = difference(other.set.iterator(), set.iterator());
+        // a part of one side may be consecutive to a part of the other
+        return new SortedRangeSet<C, R>(union(left.iterator(), right.iterator()));
+    }
+
+    /**
+     * @param universe the range to complement this set within
+     * @return a new set with the parts of the universe which are not in this set
+     */
+    public SortedRangeSet<C, R> complement(R universe) {
+        List<R> gaps = new ArrayList<R>();
+        for (Iterator<R> iterator = gaps(universe); iterator.hasNext(); ) {
+            gaps.add(iterator.next());
+        }
+        return new SortedRangeSet<C, R>(gaps);
+    }
+
+    /**
+     * @param universe the range to look for gaps in
+     * @return a lazy iterator over the parts of the universe which are not in this set, in ascending order
+     */
+    public Iterator<R> gaps(R universe) {
+        Validate.notNull(universe, "A universe is required");
+        return new GapIterator<C, R>(set, universe, null);
+    }
+
+    /**
+     * @param universe the range to look for gaps in, of a type whose {@link Range#size()} is a <tt>Long</tt>, such as
+     *                 IPv4 and ASN ranges
+     * @param minSize the minimum size of the gaps to return, e.g. <tt>256</tt> for at least a /24 of IPv4 space
+     * @return a lazy iterator over the parts of the universe which are not in this set and are at least
+     * <tt>minSize</tt> large, in ascending order
+     */
+    public Iterator<R> gaps(R universe, long minSize) {
+        Validate.notNull(universe, "A universe is required");
+        Validate.isTrue(universe.size() instanceof Long, "The size of the ranges must be a Long");
+        return new GapIterator<C, R>(set, universe, new LongSizeFilter<C, R>(minSize));
+    }
+
+    /**
+     * @param universe the range to look for gaps in, of a type whose {@link Range#size()} is a <tt>BigInteger</tt>,
+     *                 such as IPv6 ranges
+     * @param minSize the minimum size of the gaps to return
+     * @return a lazy iterator over the parts of the universe which are not in this set and are at least
+     * <tt>minSize</tt> large, in ascending order
+     */
+    public Iterator<R> gaps(R universe, BigInteger minSize) {
+        Validate.notNull(universe, "A universe is required");
+        Validate.notNull(minSize, "A minimum size is required");
+        Validate.isTrue(universe.size() instanceof BigInteger, "The size of the ranges must be a BigInteger");
+        return new GapIterator<C, R>(set, universe, new BigIntegerSizeFilter<C, R>(minSize));
+    }
+
+    private boolean shouldSweep(SortedRangeSet<C, R> other) {
+        return (long) other.size() * SWEEP_RATIO >= set.size();
+    }
+
+    private void replaceWith(List<R> sortedRanges) {
+        set.clear();
+        set.addAll(new SortedList<R>(sortedRanges, set.comparator()));
+    }
+
+    // The sweeps below take disjoint, non-consecutive ranges sorted by their start, like the ranges of a
+    // SortedRangeSet, and return ranges of the same kind.
+
+    static <C extends Rangeable<C, R>, R extends Range<C, R>> List<R> union(Iterator<R> left, Iterator<R> right) {
+        List<R> result = new ArrayList<R>();
+        R nextLeft = nextOrNull(left);
+        R nextRight = nextOrNull(right);
+        R current = null;
+        while (nextLeft != null || nextRight != null) {
+            R range;
+            if (nextRight == null || (nextLeft != null && nextLeft.start().compareTo(nextRight.start()) <= 0)) {
+                range = nextLeft;
+                nextLeft = nextOrNull(left);
+            } else {
+                range = nextRight;
+                nextRight = nextOrNull(right);
             }
-            if (thisRange.overlaps(rightSide)) {
-                result.add(thisRange.intersection(rightSide));
+            if (current == null) {
+                current = range;
+            } else if (range.start().compareTo(current.end()) <= 0 || current.isConsecutive(range)) {
+                if (range.end().compareTo(current.end()) > 0) {
+                    current = current.merge(range);
+                }
+            } else {
+                result.add(current);
+                current = range;
             }
         }
+        if (current != null) {
+            result.add(current);
+        }
         return result;
     }
 
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> List<R> intersection(Iterator<R> left, Iterator<R> right) {
+        List<R> result = new ArrayList<R>();
+        R nextLeft = nextOrNull(left);
+        R nextRight = nextOrNull(right);
+        while (nextLeft != null && nextRight != null) {
+            if (nextLeft.start().compareTo(nextRight.end()) <= 0 && nextRight.start().compareTo(nextLeft.end()) <= 0) {
+                result.add(nextLeft.intersection(nextRight));
+            }
+            // the range which ends first cannot overlap with any later range of the other side
+            if (nextLeft.end().compareTo(nextRight.end()) < 0) {
+                nextLeft = nextOrNull(left);
+            } else {
+                nextRight = nextOrNull(right);
+            }
+        }
+        return result;
+    }
+
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> List<R> difference(Iterator<R> left, Iterator<R> right) {
+        List<R> result = new ArrayList<R>();
+        R excluded = nextOrNull(right);
+        while (left.hasNext()) {
+            R current = left.next();
+            while (current != null && excluded != null && excluded.start().compareTo(current.end()) <= 0) {
+                if (excluded.end().compareTo(current.start()) < 0) {
+                    excluded = nextOrNull(right);
+                    continue;
+                }
+                R remainder = null;
+                for (R part : current.exclude(excluded)) {
+                    if (part.start().compareTo(excluded.start()) < 0) {
+                        result.add(part);
+                    } else {
+                        remainder = part;
+                    }
+                }
+                current = remainder;
+                if (current != null) {
+                    // the excluded range ends within the current one, so it cannot overlap with the next one
+                    excluded = nextOrNull(right);
+                }
+            }
+            if (current != null) {
+                result.add(current);
+            }
+        }
+        return result;
+    }
+
+    private static <R> R nextOrNull(Iterator<R> iterator) {
+        return iterator.hasNext() ? iterator.next() : null;
+    }
+
+    /**
+     * Walks the ranges of the set which may overlap with the universe once, keeping the first value of the universe
+     * after the last visited range.
+     */
+    private static final class GapIterator<C extends Rangeable<C, R>, R extends Range<C, R>> implements Iterator<R> {
+
+        private final Iterator<R> ranges;
+        private final R universe;
+        private final GapFilter<C, R> filter;
+        private C cursor;
+        private R nextGap;
+
+        GapIterator(NavigableSet<R> set, R universe, GapFilter<C, R> filter) {
+            R floor = set.floor(universe);
+            this.ranges = (floor == null ? set : set.tailSet(floor, true)).iterator();
+            this.universe = universe;
+            this.filter = filter;
+            this.cursor = universe.start();
+            this.nextGap = findNextGap();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextGap != null;
+        }
+
+        @Override
+        public R next() {
+            if (nextGap == null) {
+                throw new NoSuchElementException();
+            }
+            R gap = nextGap;
+            nextGap = findNextGap();
+            return gap;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private R findNextGap() {
+            while (cursor != null) {
+                R range = ranges.hasNext() ? ranges.next() : null;
+                C gapStart = cursor;
+                C gapEnd = null;
+                if (range == null || range.start().compareTo(universe.end()) > 0) {
+                    gapEnd = universe.end();
+                    cursor = null;
+                } else if (range.end().compareTo(cursor) >= 0) {
+                    if (range.start().compareTo(cursor) > 0) {
+                        gapEnd = range.start().previous();
+                    }
+                    cursor = range.end().compareTo(universe.end()) < 0 ? range.end().next() : null;
+                }
+                // the bounds are checked first, so skipped gaps are never created
+                if (gapEnd != null && (filter == null || filter.accepts(universe, gapStart, gapEnd))) {
+                    return rangeOf(universe, gapStart, gapEnd);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Decides from its bounds whether a gap is large enough to be returned.
+     */
+    private abstract static class GapFilter<C extends Rangeable<C, R>, R extends Range<C, R>> {
+
+        abstract boolean accepts(R universe, C start, C end);
+    }
+
+    private static final class LongSizeFilter<C extends Rangeable<C, R>, R extends Range<C, R>>
+            extends GapFilter<C, R> {
+
+        private final long minSize;
+
+        LongSizeFilter(long minSize) {
+            this.minSize = minSize;
+        }
+
+        @Override
+        boolean accepts(R universe, C start, C end) {
+            long size;
+            if (start instanceof Ipv4) {
+                size = ((Ipv4) end).value() - ((Ipv4) start).value() + 1;
+            } else if (start instanceof Asn) {
+                size = ((Asn) end).value() - ((Asn) start).value() + 1;
+            } else {
+                size = (Long) rangeOf(universe, start, end).size();
+            }
+            return size >= minSize;
+        }
+    }
+
+    private static final class BigIntegerSizeFilter<C extends Rangeable<C, R>, R extends Range<C, R>>
+            extends GapFilter<C, R> {
+
+        private final BigInteger minSize;
+        // an IPv6 gap is large enough when end - start, in two unsigned halves, is at least minSize - 1
+        private final boolean largerThanIpv6;
+        private final long minDifferenceHigh;
+        private final long minDifferenceLow;
+
+        BigIntegerSizeFilter(BigInteger minSize) {
+            this.minSize = minSize;
+            BigInteger minDifference = minSize.subtract(BigInteger.ONE).max(BigInteger.ZERO);
+            this.largerThanIpv6 = minDifference.bitLength() > Ipv6.NUMBER_OF_BITS;
+            this.minDifferenceHigh = minDifference.shiftRight(Long.SIZE).longValue();
+            this.minDifferenceLow = minDifference.longValue();
+        }
+
+        @Override
+        boolean accepts(R universe, C start, C end) {
+            if (!(start instanceof Ipv6)) {
+                return ((BigInteger) rangeOf(universe, start, end).size()).compareTo(minSize) >= 0;
+            }
+            if (largerThanIpv6) {
+                return false;
+            }
+            Ipv6 first = (Ipv6) start;
+            Ipv6 last = (Ipv6) end;
+            long differenceLow = last.low() - first.low();
+            long differenceHigh = last.high() - first.high()
+                    - (Ipv6.compareUnsigned(last.low(), first.low()) < 0 ? 1 : 0);
+            int high = Ipv6.compareUnsigned(differenceHigh, minDifferenceHigh);
+            return high > 0 || (high == 0 && Ipv6.compareUnsigned(differenceLow, minDifferenceLow) >= 0);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> R rangeOf(R universe, C start, C end) {
+        if (universe instanceof AbstractRange) {
+            return ((AbstractRange<C, R>) universe).newInstance(start, end);
+        }
+        // other implementations can only be narrowed down with their own operations
+        R range = universe;
+        if (start.compareTo(range.start()) > 0) {
+            List<R> parts = range.exclude(start.previous().asRange());
+            range = parts.get(parts.size() - 1);
+        }
+        if (end.compareTo(range.end()) < 0) {
+            range = range.exclude(end.next().asRange()).get(0);
+        }
+        return range;
+    }
+
+    /**
+     * A read-only view of an already sorted list, which lets a {@link TreeSet} with the same comparator take all
+     * the ranges in linear time instead of inserting them one at a time.
+     */
+    private static final class SortedList<R> extends AbstractSet<R> implements SortedSet<R> {
+
+        private final List<R> ranges;
+        private final Comparator<? super R> comparator;
+
+        SortedList(List<R> ranges, Comparator<? super R> comparator) {
+            this.ranges = ranges;
+            this.comparator = comparator;
+        }
+
+        @Override
+        public Iterator<R> iterator() {
+            return Collections.unmodifiableList(ranges).iterator();
+        }
+
+        @Override
+        public int size() {
+            return ranges.size();
+        }
+
+        @Override
+        public Comparator<? super R> comparator() {
+            return comparator;
+        }
+
+        @Override
+        public R first() {
+            return ranges.get(0);
+        }
+
+        @Override
+        public R last() {
+            return ranges.get(ranges.size() - 1);
+        }
+
+        @Override
+        public SortedSet<R> subSet(R fromElement, R toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<R> headSet(R toElement) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SortedSet<R> tailSet(R fromElement) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     @Override
     public final boolean equals(Object o) {
         if (this == o) {
@@ -185,6 +594,13 @@ public class SortedRangeSet<C extends Rangeable<C, R>, R extends Range<C, R>> im
         return copy;
     }
 
+    /**
+     * @return an immutable snapshot of this {@link SortedRangeSet}, which answers queries without allocating
+     */
+    public ImmutableSortedRangeSet<C, R> toImmutable() {
+        return ImmutableSortedRangeSet.copyOf(set);
+    }
+
     public R getSingleRange() {
         Validate.isTrue(set.size() == 1, "Expected exactly one range");
         return set.first();
@@ -0,0 +1,649 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact binary format for a {@link SortedRangeSet} of IPv4, IPv6 or ASN ranges.
+ * <p>
+ * The encoded form is a header followed by a body:
+ * <pre>
+ *   version     1 byte, currently {@value #VERSION}
+ *   family      1 byte, 4 for IPv4, 6 for IPv6 and 1 for ASN
+ *   count       varint, the number of ranges
+ *   body length varint, the number of bytes which follow
+ *   body        for each range: varint gap, varint length
+ * </pre>
+ * The ranges are written in ascending order. The gap of the first range is its start; the gap of every other range
+ * is the number of resources between the end of the previous range and its start, minus one, since ranges in a set
+ * are never consecutive. The length is the size of the range minus one. Varints are unsigned, little-endian groups of
+ * seven bits, with the high bit of each byte set when more bytes follow. A typical IPv4 range takes 3 to 5 bytes.
+ * <p>
+ * Because the header holds the length of the body, decoding from a stream reads exactly the encoded bytes, so the
+ * encoded set can be embedded in a larger stream. Encoding to a stream sizes the body in a first pass over the ranges
+ * and then writes it through a small buffer in a second one. Decoding from a stream buffers the body as it arrives,
+ * so a corrupt body length cannot make it allocate more than the bytes which are actually read. Malformed or
+ * truncated input is rejected with an <tt>IllegalArgumentException</tt>; a stream which ends too early with an
+ * <tt>EOFException</tt>.
+ * <p>
+ * A {@link RangeSetPatch} is encoded as its removed ranges followed by its added ranges, each in the form of a set.
+ */
+public abstract class SortedRangeSetCodec<C extends Rangeable<C, R>, R extends Range<C, R>> {
+
+    public static final int VERSION = 1;
+
+    public static final SortedRangeSetCodec<Ipv4, Ipv4Range> IPV4 = new Ipv4Codec();
+    public static final SortedRangeSetCodec<Ipv6, Ipv6Range> IPV6 = new Ipv6Codec();
+    public static final SortedRangeSetCodec<Asn, AsnRange> ASN = new AsnCodec();
+
+    private static final int FAMILY_ASN = 1;
+    private static final int FAMILY_IPV4 = 4;
+    private static final int FAMILY_IPV6 = 6;
+
+    private static final int MAX_VARINT_SIZE = 19;
+    private static final int MAX_HEADER_SIZE = 2 + 2 * MAX_VARINT_SIZE;
+    private static final int MAX_RANGE_SIZE = 2 * MAX_VARINT_SIZE;
+    private static final int MIN_BUFFER_SIZE = 8192;
+
+    private final int family;
+
+    private SortedRangeSetCodec(int family) {
+        this.family = family;
+    }
+
+    abstract RangeEncoder<R> newEncoder();
+
+    abstract RangeDecoder<R> newDecoder(byte[] body, int offset, int limit);
+
+    /**
+     * @return the number of bytes {@link #encode(SortedRangeSet)} returns for the ranges
+     */
+    public int encodedSize(SortedRangeSet<C, R> ranges) {
+        int bodySize = bodySize(ranges);
+        return headerSize(ranges.size(), bodySize) + bodySize;
+    }
+
+    public byte[] encode(SortedRangeSet<C, R> ranges) {
+        Encoded encoded = encodeWithHeader(ranges);
+        return Arrays.copyOfRange(encoded.buffer, encoded.offset, encoded.limit);
+    }
+
+    /**
+     * Encodes the ranges at the position of the buffer and moves its position past them.
+     *
+     * @throws BufferOverflowException if the remaining space of the buffer is less than {@link #encodedSize}
+     */
+    public void encode(SortedRangeSet<C, R> ranges, ByteBuffer buffer) {
+        Encoded encoded = encodeWithHeader(ranges);
+        buffer.put(encoded.buffer, encoded.offset, encoded.limit - encoded.offset);
+    }
+
+    public void encode(SortedRangeSet<C, R> ranges, OutputStream out) throws IOException {
+        encode(ranges, (DataOutput) new DataOutputStream(out));
+    }
+
+    /**
+     * Writes the header and then the body in chunks of a few kilobytes, so only one chunk is held in memory.
+     */
+    public void encode(SortedRangeSet<C, R> ranges, DataOutput out) throws IOException {
+        int bodySize = bodySize(ranges);
+        byte[] buffer = new byte[(int) Math.min(MIN_BUFFER_SIZE, (long) MAX_HEADER_SIZE + MAX_RANGE_SIZE + bodySize)];
+        int position = putHeader(buffer, 0, ranges.size(), bodySize);
+        RangeEncoder<R> encoder = newEncoder();
+        for (R range : ranges) {
+            if (position > buffer.length - MAX_RANGE_SIZE) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            position = encoder.encode(range, buffer, position);
+        }
+        out.write(buffer, 0, position);
+    }
+
+    public byte[] encode(RangeSetPatch<C, R> patch) {
+        Encoded removed = encodeWithHeader(new SortedRangeSet<C, R>(patch.removed()));
+        Encoded added = encodeWithHeader(new SortedRangeSet<C, R>(patch.added()));
+        int removedSize = removed.limit - removed.offset;
+        byte[] result = new byte[removedSize + added.limit - added.offset];
+        System.arraycopy(removed.buffer, removed.offset, result, 0, removedSize);
+        System.arraycopy(added.buffer, added.offset, result, removedSize, added.limit - added.offset);
+        return result;
+    }
+
+    public void encode(RangeSetPatch<C, R> patch, OutputStream out) throws IOException {
+        encode(new SortedRangeSet<C, R>(patch.removed()), out);
+        encode(new SortedRangeSet<C, R>(patch.added()), out);
+    }
+
+    public SortedRangeSet<C, R> decode(byte[] bytes) {
+        return decode(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes a set from the position of the buffer and moves its position past it.
+     */
+    public SortedRangeSet<C, R> decode(ByteBuffer buffer) {
+        return new SortedRangeSet<C, R>(decodeRanges(buffer));
+    }
+
+    /**
+     * Decodes a set from the stream, without reading past its last byte.
+     */
+    public SortedRangeSet<C, R> decode(InputStream in) throws IOException {
+        return decode((DataInput) new DataInputStream(in));
+    }
+
+    public SortedRangeSet<C, R> decode(DataInput in) throws IOException {
+        return new SortedRangeSet<C, R>(readRanges(in));
+    }
+
+    public RangeSetPatch<C, R> decodePatch(byte[] bytes) {
+        return decodePatch(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes a patch from the position of the buffer and moves its position past it.
+     */
+    public RangeSetPatch<C, R> decodePatch(ByteBuffer buffer) {
+        List<R> removed = decodeRanges(buffer);
+        return new RangeSetPatch<C, R>(removed, decodeRanges(buffer));
+    }
+
+    /**
+     * Decodes a patch from the stream, without reading past its last byte.
+     */
+    public RangeSetPatch<C, R> decodePatch(InputStream in) throws IOException {
+        DataInput data = new DataInputStream(in);
+        List<R> removed = readRanges(data);
+        return new RangeSetPatch<C, R>(removed, readRanges(data));
+    }
+
+    private List<R> decodeRanges(ByteBuffer buffer) {
+        checkHeader(getHeaderByte(buffer), getHeaderByte(buffer));
+        int count = getVarInt(buffer);
+        int bodySize = getVarInt(buffer);
+        if (buffer.remaining() < bodySize) {
+            throw new IllegalArgumentException("Truncated body: expected " + bodySize + " bytes but got "
+                    + buffer.remaining());
+        }
+        List<R> result;
+        if (buffer.hasArray()) {
+            result = decodeBody(buffer.array(), buffer.arrayOffset() + buffer.position(), bodySize, count);
+            buffer.position(buffer.position() + bodySize);
+        } else {
+            byte[] body = new byte[bodySize];
+            buffer.get(body);
+            result = decodeBody(body, 0, bodySize, count);
+        }
+        return result;
+    }
+
+    private List<R> readRanges(DataInput in) throws IOException {
+        checkHeader(in.readByte(), in.readByte());
+        int count = readVarInt(in);
+        int bodySize = readVarInt(in);
+        // grows with the bytes which are read rather than trusting the body length of the header
+        byte[] body = new byte[Math.min(bodySize, MIN_BUFFER_SIZE)];
+        int read = 0;
+        while (read < bodySize) {
+            if (read == body.length) {
+                body = Arrays.copyOf(body, (int) Math.min(bodySize, 2L * body.length));
+            }
+            in.readFully(body, read, body.length - read);
+            read = body.length;
+        }
+        return decodeBody(body, 0, bodySize, count);
+    }
+
+    /**
+     * Encodes the body in a single pass over the ranges, after space for the largest header, and then puts the
+     * header right before the body.
+     */
+    private Encoded encodeWithHeader(SortedRangeSet<C, R> ranges) {
+        byte[] buffer = new byte[MAX_HEADER_SIZE + Math.max(MIN_BUFFER_SIZE, ranges.size() * 5)];
+        int position = MAX_HEADER_SIZE;
+        RangeEncoder<R> encoder = newEncoder();
+        for (R range : ranges) {
+            if (position > buffer.length - MAX_RANGE_SIZE) {
+                checkBodySize((long) buffer.length * 3 / 2, ranges);
+                buffer = Arrays.copyOf(buffer, buffer.length * 3 / 2);
+            }
+            position = encoder.encode(range, buffer, position);
+        }
+        int bodySize = position - MAX_HEADER_SIZE;
+        int offset = MAX_HEADER_SIZE - headerSize(ranges.size(), bodySize);
+        putHeader(buffer, offset, ranges.size(), bodySize);
+        return new Encoded(buffer, offset, position);
+    }
+
+    private int bodySize(SortedRangeSet<C, R> ranges) {
+        RangeEncoder<R> encoder = newEncoder();
+        long bodySize = 0;
+        for (R range : ranges) {
+            bodySize += encoder.size(range);
+        }
+        checkBodySize(bodySize, ranges);
+        return (int) bodySize;
+    }
+
+    private int putHeader(byte[] buffer, int position, int count, int bodySize) {
+        buffer[position++] = VERSION;
+        buffer[position++] = (byte) family;
+        position = putVarLong(buffer, position, count);
+        return putVarLong(buffer, position, bodySize);
+    }
+
+    private static void checkBodySize(long bodySize, SortedRangeSet<?, ?> ranges) {
+        if (bodySize > Integer.MAX_VALUE - MAX_HEADER_SIZE) {
+            throw new IllegalArgumentException("Too many ranges to encode: " + ranges.size());
+        }
+    }
+
+    private static int headerSize(int count, int bodySize) {
+        return 2 + varLongSize(count) + varLongSize(bodySize);
+    }
+
+    private void checkHeader(byte version, byte family) {
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported version: " + version);
+        }
+        if (family != this.family) {
+            throw new IllegalArgumentException("Expected family " + this.family + " but got " + family);
+        }
+    }
+
+    private List<R> decodeBody(byte[] body, int offset, int bodySize, int count) {
+        // every range takes at least two bytes
+        if (count > bodySize / 2) {
+            throw new IllegalArgumentException("Malformed body: " + count + " ranges in " + bodySize + " bytes");
+        }
+        int limit = offset + bodySize;
+        RangeDecoder<R> decoder = newDecoder(body, offset, limit);
+        List<R> ranges = new ArrayList<R>(count);
+        for (int i = 0; i < count; i++) {
+            ranges.add(decoder.next());
+        }
+        if (decoder.position != limit) {
+            throw new IllegalArgumentException("Malformed body: " + (limit - decoder.position) + " trailing bytes");
+        }
+        return ranges;
+    }
+
+    private static byte getHeaderByte(ByteBuffer buffer) {
+        if (!buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Truncated header");
+        }
+        return buffer.get();
+    }
+
+    private static int getVarInt(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = getHeaderByte(buffer);
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return checkVarInt(value);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return checkVarInt(value);
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private static int checkVarInt(long value) {
+        if (value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Malformed header: " + value + " is too large");
+        }
+        return (int) value;
+    }
+
+    static int varLongSize(long value) {
+        return value == 0 ? 1 : (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7;
+    }
+
+    static int putVarLong(byte[] buffer, int position, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[position++] = (byte) value;
+        return position;
+    }
+
+    static int varLongSize(long high, long low) {
+        return high == 0 ? varLongSize(low) : (2 * Long.SIZE - Long.numberOfLeadingZeros(high) + 6) / 7;
+    }
+
+    static int putVarLong(byte[] buffer, int position, long high, long low) {
+        while (high != 0 || (low & ~0x7FL) != 0) {
+            buffer[position++] = (byte) ((low & 0x7F) | 0x80);
+            low = (low >>> 7) | (high << 57);
+            high >>>= 7;
+        }
+        buffer[position++] = (byte) low;
+        return position;
+    }
+
+    private static final class Encoded {
+
+        private final byte[] buffer;
+        private final int offset;
+        private final int limit;
+
+        private Encoded(byte[] buffer, int offset, int limit) {
+            this.buffer = buffer;
+            this.offset = offset;
+            this.limit = limit;
+        }
+    }
+
+    abstract static class RangeEncoder<R> {
+
+        abstract int size(R range);
+
+        abstract int encode(R range, byte[] buffer, int position);
+    }
+
+    abstract static class RangeDecoder<R> {
+
+        private final byte[] buffer;
+        private final int limit;
+        int position;
+        // the result of getVarLong128
+        long high;
+        long low;
+
+        RangeDecoder(byte[] buffer, int offset, int limit) {
+            this.buffer = buffer;
+            this.position = offset;
+            this.limit = limit;
+        }
+
+        abstract R next();
+
+        long getVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                byte b = nextByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    if (shift == 63 && (b & 0x7E) != 0) {
+                        break;
+                    }
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at " + position);
+        }
+
+        void getVarLong128() {
+            long high = 0;
+            long low = 0;
+            for (int shift = 0; shift < 2 * Long.SIZE; shift += 7) {
+                byte b = nextByte();
+                long bits = b & 0x7F;
+                if (shift < Long.SIZE) {
+                    low |= bits << shift;
+                    if (shift > Long.SIZE - 7) {
+                        high |= bits >>> (Long.SIZE - shift);
+                    }
+                } else {
+                    high |= bits << (shift - Long.SIZE);
+                }
+                if (b >= 0) {
+                    if (shift == 126 && (b & 0x7C) != 0) {
+                        break;
+                    }
+                    this.high = high;
+                    this.low = low;
+                    return;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint at " + position);
+        }
+
+        private byte nextByte() {
+            if (position >= limit) {
+                throw new IllegalArgumentException("Truncated body");
+            }
+            return buffer[position++];
+        }
+    }
+
+    /**
+     * Ranges whose resources fit in a long.
+     */
+    private abstract static class LongCodec<C extends Rangeable<C, R>, R extends Range<C, R>>
+            extends SortedRangeSetCodec<C, R> {
+
+        private final long maximumValue;
+
+        private LongCodec(int family, long maximumValue) {
+            super(family);
+            this.maximumValue = maximumValue;
+        }
+
+        abstract long value(C resource);
+
+        abstract R newRange(long start, long end);
+
+        @Override
+        RangeEncoder<R> newEncoder() {
+            return new RangeEncoder<R>() {
+                private long previousEnd = -2;
+
+                @Override
+                int size(R range) {
+                    long start = value(range.start());
+                    long end = value(range.end());
+                    int size = varLongSize(start - previousEnd - 2) + varLongSize(end - start);
+                    previousEnd = end;
+                    return size;
+                }
+
+                @Override
+                int encode(R range, byte[] buffer, int position) {
+                    long start = value(range.start());
+                    long end = value(range.end());
+                    position = putVarLong(buffer, position, start - previousEnd - 2);
+                    previousEnd = end;
+                    return putVarLong(buffer, position, end - start);
+                }
+            };
+        }
+
+        @Override
+        RangeDecoder<R> newDecoder(byte[] body, int offset, int limit) {
+            return new RangeDecoder<R>(body, offset, limit) {
+                private long previousEnd = -2;
+
+                @Override
+                R next() {
+                    long gap = getVarLong();
+                    long length = getVarLong();
+                    // compared one by one, so that the sums cannot overflow
+                    if (gap > maximumValue || length > maximumValue
+                            || previousEnd + 2 > maximumValue - gap
+                            || previousEnd + 2 + gap > maximumValue - length) {
+                        throw new IllegalArgumentException("Malformed body: range out of bounds at " + position);
+                    }
+                    long start = previousEnd + 2 + gap;
+                    previousEnd = start + length;
+                    return newRange(start, previousEnd);
+                }
+            };
+        }
+    }
+
+    private static final class Ipv4Codec extends LongCodec<Ipv4, Ipv4Range> {
+
+        private Ipv4Codec() {
+            super(FAMILY_IPV4, Ipv4.MAXIMUM_VALUE);
+        }
+
+        @Override
+        long value(Ipv4 resource) {
+            return resource.value();
+        }
+
+        @Override
+        Ipv4Range newRange(long start, long end) {
+            return new Ipv4Range(Ipv4.ofUnsigned(start), Ipv4.ofUnsigned(end));
+        }
+    }
+
+    private static final class AsnCodec extends LongCodec<Asn, AsnRange> {
+
+        private AsnCodec() {
+            super(FAMILY_ASN, Asn.ASN_32_BIT_MAX_VALUE);
+        }
+
+        @Override
+        long value(Asn resource) {
+            return resource.value();
+        }
+
+        @Override
+        AsnRange newRange(long start, long end) {
+            return new AsnRange(Asn.of(start), Asn.of(end));
+        }
+    }
+
+    private static final class Ipv6Codec extends SortedRangeSetCodec<Ipv6, Ipv6Range> {
+
+        private Ipv6Codec() {
+            super(FAMILY_IPV6);
+        }
+
+        @Override
+        RangeEncoder<Ipv6Range> newEncoder() {
+            return new RangeEncoder<Ipv6Range>() {
+                private boolean first = true;
+                private long previousEndHigh;
+                private long previousEndLow;
+
+                @Override
+                int size(Ipv6Range range) {
+                    return encode(range, null, 0);
+                }
+
+                // only counts the bytes when there is no buffer
+                @Override
+                int encode(Ipv6Range range, byte[] buffer, int position) {
+                    Ipv6 start = range.start();
+                    Ipv6 end = range.end();
+                    long gapHigh = start.high();
+                    long gapLow = start.low();
+                    if (!first) {
+                        // start - (previousEnd + 2), which cannot overflow since ranges are never consecutive
+                        long baseLow = previousEndLow + 2;
+                        long baseHigh = previousEndHigh + (Ipv6.compareUnsigned(baseLow, previousEndLow) < 0 ? 1 : 0);
+                        gapLow = start.low() - baseLow;
+                        gapHigh = start.high() - baseHigh - (Ipv6.compareUnsigned(start.low(), baseLow) < 0 ? 1 : 0);
+                    }
+                    long lengthLow = end.low() - start.low();
+                    long lengthHigh = end.high() - start.high()
+                            - (Ipv6.compareUnsigned(end.low(), start.low()) < 0 ? 1 : 0);
+                    first = false;
+                    previousEndHigh = end.high();
+                    previousEndLow = end.low();
+                    if (buffer == null) {
+                        return varLongSize(gapHigh, gapLow) + varLongSize(lengthHigh, lengthLow);
+                    }
+                    position = putVarLong(buffer, position, gapHigh, gapLow);
+                    return putVarLong(buffer, position, lengthHigh, lengthLow);
+                }
+            };
+        }
+
+        @Override
+        RangeDecoder<Ipv6Range> newDecoder(byte[] body, int offset, int limit) {
+            return new RangeDecoder<Ipv6Range>(body, offset, limit) {
+                private boolean first = true;
+                private long previousEndHigh;
+                private long previousEndLow;
+                // the result of add
+                private long sumHigh;
+                private long sumLow;
+
+                @Override
+                Ipv6Range next() {
+                    long baseHigh = 0;
+                    long baseLow = 0;
+                    if (!first && add(previousEndHigh, previousEndLow, 0, 2)) {
+                        throw new IllegalArgumentException("Malformed body: range after the last address at "
+                                + position);
+                    } else if (!first) {
+                        baseHigh = sumHigh;
+                        baseLow = sumLow;
+                    }
+                    getVarLong128();
+                    if (add(baseHigh, baseLow, high, low)) {
+                        throw new IllegalArgumentException("Malformed body: range out of bounds at " + position);
+                    }
+                    long startHigh = sumHigh;
+                    long startLow = sumLow;
+                    getVarLong128();
+                    if (add(startHigh, startLow, high, low)) {
+                        throw new IllegalArgumentException("Malformed body: range out of bounds at " + position);
+                    }
+                    first = false;
+                    previousEndHigh = sumHigh;
+                    previousEndLow = sumLow;
+                    return new Ipv6Range(Ipv6.of(startHigh, startLow), Ipv6.of(sumHigh, sumLow));
+                }
+
+                // sets the sum and returns whether it overflows 128 bits
+                private boolean add(long leftHigh, long leftLow, long rightHigh, long rightLow) {
+                    sumLow = leftLow + rightLow;
+                    long carry = Ipv6.compareUnsigned(sumLow, leftLow) < 0 ? 1 : 0;
+                    sumHigh = leftHigh + rightHigh + carry;
+                    return Ipv6.compareUnsigned(sumHigh, leftHigh) < 0 || (carry == 1 && sumHigh == leftHigh);
+                }
+            };
+        }
+    }
+}
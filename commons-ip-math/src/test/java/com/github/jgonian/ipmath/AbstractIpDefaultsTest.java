@@ -0,0 +1,220 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks the default implementations of {@link AbstractIp} and {@link AbstractIpRange}, which subclasses outside of
+ * this library inherit, on an address family of 8 bits.
+ */
+public class AbstractIpDefaultsTest {
+
+    @Test
+    public void shouldFormatAddressAsToString() throws Exception {
+        for (int value = 0; value <= OctetIp.MAXIMUM_VALUE; value++) {
+            OctetIp ip = new OctetIp(value);
+            StringBuilder out = new StringBuilder("x");
+            ip.formatTo(out);
+            assertEquals("x" + value, out.toString());
+
+            byte[] buffer = new byte[5];
+            int end = ip.formatTo(buffer, 1);
+            assertEquals(String.valueOf(value), new String(buffer, 1, end - 1, "US-ASCII"));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldNotFormatAddressPastBuffer() {
+        new OctetIp(255).formatTo(new byte[4], 2);
+    }
+
+    @Test
+    public void shouldFindLegalPrefixLengthLikeIpv4Range() {
+        for (int start = 0; start <= OctetIp.MAXIMUM_VALUE; start++) {
+            for (int end = start; end <= OctetIp.MAXIMUM_VALUE; end++) {
+                Ipv4Range expected = ipv4Range(start, end);
+                OctetRange range = range(start, end);
+                int expectedLength = expected.legalPrefixLength() < 0 ? -1 : expected.legalPrefixLength() - 24;
+                assertEquals(expectedLength, range.legalPrefixLength());
+                assertEquals(expectedLength < 0 ? start + "-" + end : start + "/" + expectedLength, range.toString());
+            }
+        }
+    }
+
+    @Test
+    public void shouldSplitToPrefixesLikeIpv4Range() {
+        for (int start = 0; start <= OctetIp.MAXIMUM_VALUE; start++) {
+            for (int end = start; end <= OctetIp.MAXIMUM_VALUE; end++) {
+                List<String> expected = new ArrayList<String>();
+                for (Ipv4Range prefix : ipv4Range(start, end).splitToPrefixes()) {
+                    expected.add(prefix.start().asInt() + "/" + (prefix.legalPrefixLength() - 24));
+                }
+                assertEquals(expected.toString(), range(start, end).splitToPrefixes().toString());
+            }
+        }
+    }
+
+    @Test
+    public void shouldFindSplitPrefixLikeIpv4Range() {
+        for (int start = 0; start <= OctetIp.MAXIMUM_VALUE; start++) {
+            for (int end = start; end <= OctetIp.MAXIMUM_VALUE; end++) {
+                for (int prefixLength = 0; prefixLength <= 8; prefixLength++) {
+                    for (boolean smallest : new boolean[]{true, false}) {
+                        Ipv4Range expected = ipv4Range(start, end).findSplitPrefix(prefixLength + 24, smallest);
+                        OctetRange found = range(start, end).findSplitPrefix(prefixLength, smallest);
+                        assertEquals(expected == null ? null : expected.start().asInt() + "/"
+                                + (expected.legalPrefixLength() - 24), found == null ? null : found.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    private static Ipv4Range ipv4Range(int start, int end) {
+        return new Ipv4Range(Ipv4.of(start), Ipv4.of(end));
+    }
+
+    private static OctetRange range(int start, int end) {
+        return new OctetRange(new OctetIp(start), new OctetIp(end));
+    }
+
+    static final class OctetIp extends AbstractIp<OctetIp, OctetRange> {
+
+        private static final long serialVersionUID = 1L;
+
+        static final int MAXIMUM_VALUE = 255;
+
+        private final int value;
+
+        OctetIp(int value) {
+            Validate.checkRange(value, 0, MAXIMUM_VALUE);
+            this.value = value;
+        }
+
+        @Override
+        public OctetIp lowerBoundForPrefix(int prefixLength) {
+            return new OctetIp(value & ~hostMask(prefixLength));
+        }
+
+        @Override
+        public OctetIp upperBoundForPrefix(int prefixLength) {
+            return new OctetIp(value | hostMask(prefixLength));
+        }
+
+        private static int hostMask(int prefixLength) {
+            return (1 << (8 - prefixLength)) - 1;
+        }
+
+        @Override
+        public int getCommonPrefixLength(OctetIp other) {
+            return Integer.numberOfLeadingZeros(value ^ other.value) - 24;
+        }
+
+        @Override
+        public int bitSize() {
+            return 8;
+        }
+
+        @Override
+        public BigInteger asBigInteger() {
+            return BigInteger.valueOf(value);
+        }
+
+        @Override
+        public OctetIp next() {
+            return new OctetIp(value + 1);
+        }
+
+        @Override
+        public OctetIp previous() {
+            return new OctetIp(value - 1);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return value < MAXIMUM_VALUE;
+        }
+
+        @Override
+        public boolean hasPrevious() {
+            return value > 0;
+        }
+
+        @Override
+        public OctetRange asRange() {
+            return new OctetRange(this, this);
+        }
+
+        @Override
+        public int compareTo(OctetIp other) {
+            return value < other.value ? -1 : (value == other.value ? 0 : 1);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof OctetIp && ((OctetIp) o).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return String.valueOf(value);
+        }
+    }
+
+    static final class OctetRange extends AbstractIpRange<OctetIp, OctetRange> {
+
+        private static final long serialVersionUID = 1L;
+
+        OctetRange(OctetIp start, OctetIp end) {
+            super(start, end);
+        }
+
+        @Override
+        protected OctetRange newInstance(OctetIp start, OctetIp end) {
+            return new OctetRange(start, end);
+        }
+
+        @Override
+        protected OctetRange newInstance(BigInteger start, BigInteger end) {
+            return new OctetRange(new OctetIp(start.intValue()), new OctetIp(end.intValue()));
+        }
+
+        @Override
+        public Integer size() {
+            return end().value - start().value + 1;
+        }
+    }
+}
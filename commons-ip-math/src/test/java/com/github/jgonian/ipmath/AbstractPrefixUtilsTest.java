@@ -24,6 +24,8 @@
 package com.github.jgonian.ipmath;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
 
 public abstract class AbstractPrefixUtilsTest {
@@ -36,4 +38,18 @@ public abstract class AbstractPrefixUtilsTest {
         return ipvXPrefixes;
     }
 
+    /**
+     * The prefix search as it was implemented by splitting the range and sorting its prefixes by size.
+     */
+    static <C extends AbstractIp<C, R>, R extends AbstractIpRange<C, R>>
+    R findPrefixBySorting(R range, int prefixLength, Comparator<? super R> comparator) {
+        List<R> prefixes = range.splitToPrefixes();
+        Collections.sort(prefixes, comparator);
+        for (R prefix : prefixes) {
+            if (prefixLength >= PrefixUtils.getPrefixLength(prefix)) {
+                return prefix;
+            }
+        }
+        return null;
+    }
 }
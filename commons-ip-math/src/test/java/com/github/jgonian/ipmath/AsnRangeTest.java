@@ -176,4 +176,14 @@ public class AsnRangeTest extends AbstractRangeTest<Asn, AsnRange> {
     public void testConstructorWithNullEnd() {
         new AsnRange(as1, null);
     }
+
+    @Test
+    public void shouldFormatAsToString() throws Exception {
+        AsnRange range = AsnRange.parse("AS1-AS4294967295");
+        StringBuilder sb = new StringBuilder();
+        range.formatTo(sb);
+        assertEquals("AS1-AS4294967295", sb.toString());
+        byte[] buffer = new byte[20];
+        assertEquals("AS1-AS4294967295", new String(buffer, 0, range.formatTo(buffer, 0), "US-ASCII"));
+    }
 }
@@ -154,4 +154,15 @@ public class AsnTest {
     public void testAsBigInteger() {
         assertEquals(BigInteger.valueOf(Asn.ASN_32_BIT_MAX_VALUE), Asn.LAST_32_BIT_ASN.asBigInteger());
     }
+
+    @Test
+    public void shouldFormatAsToString() throws Exception {
+        byte[] buffer = new byte[12];
+        for (Asn asn : new Asn[]{Asn.FIRST_ASN, Asn.of(3333L), Asn.LAST_32_BIT_ASN}) {
+            StringBuilder sb = new StringBuilder();
+            asn.formatTo(sb);
+            assertEquals(asn.toString(), sb.toString());
+            assertEquals(asn.toString(), new String(buffer, 0, asn.formatTo(buffer, 0), "US-ASCII"));
+        }
+    }
 }
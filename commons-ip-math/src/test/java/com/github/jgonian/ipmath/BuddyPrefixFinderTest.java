@@ -0,0 +1,149 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static com.github.jgonian.ipmath.Ipv6Range.parse;
+import static org.junit.Assert.*;
+
+public class BuddyPrefixFinderTest {
+
+    private final ConservativePrefixFinder<Ipv6, Ipv6Range> conservative = ConservativePrefixFinder.newInstance();
+
+    @Test
+    public void shouldReturnNullIfRequestedPrefixIsTooBig() {
+        BuddyPrefixFinder<Ipv6, Ipv6Range> subject = BuddyPrefixFinder.newInstance(in("::/10, 1000::/20, 2000::/30"));
+        assertNull(subject.findPrefixOrNull(9));
+        assertNull(subject.findPrefixOrNull(9, subject.freeBlocks()));
+    }
+
+    @Test
+    public void shouldFindExactMatch() {
+        BuddyPrefixFinder<Ipv6, Ipv6Range> subject = BuddyPrefixFinder.newInstance(in("::/10, 1000::/20, 2000::/30"));
+        assertEquals(parse("::/10"), subject.findPrefixOrNull(10));
+        assertEquals(parse("1000::/20"), subject.findPrefixOrNull(20));
+        assertEquals(parse("2000::/30"), subject.findPrefixOrNull(30));
+    }
+
+    @Test
+    public void shouldFindPrefixFromClosestMatch() {
+        BuddyPrefixFinder<Ipv6, Ipv6Range> subject = BuddyPrefixFinder.newInstance(in("::/10, 1000::/20, 2000::/30"));
+        assertEquals(parse("2000::/31"), subject.findPrefixOrNull(31));
+        assertEquals(parse("1000::/29"), subject.findPrefixOrNull(29));
+        assertEquals(parse("1000::/21"), subject.findPrefixOrNull(21));
+        assertEquals(parse("::/19"), subject.findPrefixOrNull(19));
+    }
+
+    @Test
+    public void shouldFallBackToConservativeStrategyForOtherCollections() {
+        BuddyPrefixFinder<Ipv6, Ipv6Range> subject = BuddyPrefixFinder.newInstance(in("::/10"));
+        assertEquals(parse("3::/20"), subject.findPrefixOrNull(20, in("::/10, 3::/20, 2::/20")));
+    }
+
+    @Test
+    public void shouldCoalesceFreeBlocks() {
+        BuddyPrefixFinder<Ipv6, Ipv6Range> subject = BuddyPrefixFinder.newInstance(in("::/128, ::1/128, ::2/127"));
+        assertEquals(Arrays.asList(parse("::/126")), new ArrayList<Ipv6Range>(subject.freeBlocks()));
+        assertEquals(parse("::/126"), subject.findPrefixOrNull(126));
+    }
+
+    @Test
+    public void shouldAllocateAndRelease() {
+        BuddyPrefixFinder<Ipv6, Ipv6Range> subject = BuddyPrefixFinder.newInstance(in("::/126"));
+        assertEquals(parse("::/127"), subject.allocatePrefixOrNull(127));
+        assertEquals(Arrays.asList(parse("::2/127")), new ArrayList<Ipv6Range>(subject.freeBlocks()));
+        assertEquals(parse("::2/128"), subject.allocatePrefixOrNull(128));
+        assertEquals(parse("::3/128"), subject.allocatePrefixOrNull(128));
+        assertNull(subject.allocatePrefixOrNull(128));
+        assertTrue(subject.freeBlocks().isEmpty());
+
+        subject.release(parse("::2/128"));
+        subject.release(parse("::/127"));
+        subject.release(parse("::3/128"));
+        assertEquals(Arrays.asList(parse("::/126")), new ArrayList<Ipv6Range>(subject.freeBlocks()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAllocateRangeWhichIsNotFree() {
+        BuddyPrefixFinder<Ipv6, Ipv6Range> subject = BuddyPrefixFinder.newInstance(in("::/127"));
+        subject.allocate(parse("::/126"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotReleaseRangeWhichIsFree() {
+        BuddyPrefixFinder<Ipv6, Ipv6Range> subject = BuddyPrefixFinder.newInstance(in("::/127"));
+        subject.release(parse("::1/128"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotModifyFreeBlocks() {
+        BuddyPrefixFinder.newInstance(in("::/127")).freeBlocks().clear();
+    }
+
+    @Test
+    public void shouldFindSamePrefixAsConservativeFinder() {
+        Random random = new Random(42);
+        BuddyPrefixFinder<Ipv6, Ipv6Range> subject = BuddyPrefixFinder.newInstance(randomRanges(random, 200));
+        List<Ipv6Range> allocated = new ArrayList<Ipv6Range>();
+        for (int i = 0; i < 2000; i++) {
+            int prefixLength = 100 + random.nextInt(29);
+            Ipv6Range expected = conservative.findPrefixOrNull(prefixLength, subject.freeBlocks());
+            assertEquals(expected, subject.findPrefixOrNull(prefixLength));
+            assertEquals(expected, subject.findPrefixOrNull(prefixLength, subject.freeBlocks()));
+
+            if (!allocated.isEmpty() && random.nextInt(3) == 0) {
+                subject.release(allocated.remove(random.nextInt(allocated.size())));
+            } else if (expected != null) {
+                subject.allocate(expected);
+                allocated.add(expected);
+            }
+        }
+    }
+
+    private static List<Ipv6Range> randomRanges(Random random, int count) {
+        List<Ipv6Range> result = new ArrayList<Ipv6Range>();
+        for (int i = 0; i < count; i++) {
+            BigInteger start = new BigInteger(40, random);
+            BigInteger size = new BigInteger(1 + random.nextInt(28), random);
+            result.add(Ipv6Range.from(start).to(start.add(size)));
+        }
+        return result;
+    }
+
+    private static List<Ipv6Range> in(String commaSeparatedRanges) {
+        String[] split = commaSeparatedRanges.split(",");
+        List<Ipv6Range> result = new ArrayList<Ipv6Range>();
+        for (String s : split) {
+            result.add(parse(s.trim()));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,98 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class CoalescingIteratorTest {
+
+    private static List<Ipv4Range> coalesce(String... ranges) {
+        List<Ipv4Range> input = new ArrayList<Ipv4Range>();
+        for (String range : ranges) {
+            input.add(Ipv4Range.parse(range));
+        }
+        List<Ipv4Range> result = new ArrayList<Ipv4Range>();
+        for (Iterator<Ipv4Range> iterator = new CoalescingIterator<Ipv4, Ipv4Range>(input.iterator()); iterator.hasNext(); ) {
+            result.add(iterator.next());
+        }
+        return result;
+    }
+
+    @Test
+    public void shouldMergeOverlappingRanges() {
+        assertEquals(Arrays.asList(Ipv4Range.parse("10.0.0.0/8")),
+                coalesce("10.0.0.0/8", "10.1.0.0/16", "10.255.0.0/16"));
+        assertEquals(Arrays.asList(Ipv4Range.parse("10.0.0.0-10.0.0.30")),
+                coalesce("10.0.0.0-10.0.0.10", "10.0.0.5-10.0.0.20", "10.0.0.20-10.0.0.30"));
+    }
+
+    @Test
+    public void shouldMergeConsecutiveRanges() {
+        assertEquals(Arrays.asList(Ipv4Range.parse("10.0.0.0/7")),
+                coalesce("10.0.0.0/8", "11.0.0.0/8"));
+    }
+
+    @Test
+    public void shouldKeepSeparateRanges() {
+        assertEquals(Arrays.asList(Ipv4Range.parse("10.0.0.0/8"), Ipv4Range.parse("12.0.0.0/8"), Ipv4Range.parse("255.255.255.255/32")),
+                coalesce("10.0.0.0/8", "12.0.0.0/8", "12.0.0.0/16", "255.255.255.255/32"));
+    }
+
+    @Test
+    public void shouldAcceptRangesWithTheSameStartInAnyOrder() {
+        assertEquals(Arrays.asList(Ipv4Range.parse("10.0.0.0/8")),
+                coalesce("10.0.0.0/8", "10.0.0.0/16", "10.0.0.0/24"));
+    }
+
+    @Test
+    public void shouldCoalesceNothing() {
+        Iterator<Ipv4Range> iterator = new CoalescingIterator<Ipv4, Ipv4Range>(Collections.<Ipv4Range>emptyList().iterator());
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void shouldFailToGetNextRangeWhenThereAreNoMoreRanges() {
+        new CoalescingIterator<Ipv4, Ipv4Range>(Collections.<Ipv4Range>emptyList().iterator()).next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnsortedRanges() {
+        coalesce("10.0.0.0/8", "12.0.0.0/8", "11.0.0.0/8");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnsortedRangesWithinMergedRange() {
+        coalesce("10.0.0.0/8", "10.2.0.0/16", "10.1.0.0/16");
+    }
+}
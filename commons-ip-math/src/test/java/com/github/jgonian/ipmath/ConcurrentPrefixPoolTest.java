@@ -0,0 +1,226 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrentPrefixPoolTest {
+
+    @Test
+    public void shouldAllocatePrefixesUntilExhausted() {
+        ConcurrentPrefixPool<Ipv4, Ipv4Range> subject = new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/24"), 4);
+
+        List<Ipv4Range> allocated = new ArrayList<Ipv4Range>();
+        for (int i = 0; i < 4; i++) {
+            allocated.add(subject.allocate(26));
+        }
+        assertNull(subject.allocate(26));
+        assertTrue(subject.freeSpace().isEmpty());
+
+        Collections.sort(allocated, StartAndSizeComparator.<Ipv4, Ipv4Range>get());
+        assertEquals(Ipv4Range.parse("10.0.0.0/26"), allocated.get(0));
+        assertEquals(Ipv4Range.parse("10.0.0.64/26"), allocated.get(1));
+        assertEquals(Ipv4Range.parse("10.0.0.128/26"), allocated.get(2));
+        assertEquals(Ipv4Range.parse("10.0.0.192/26"), allocated.get(3));
+    }
+
+    @Test
+    public void shouldAllocateAddresses() {
+        ConcurrentPrefixPool<Ipv4, Ipv4Range> subject = new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/31"));
+
+        Ipv4 first = subject.allocateAddress();
+        Ipv4 second = subject.allocateAddress();
+
+        assertEquals(Ipv4Range.parse("10.0.0.0/31"), Ipv4Range.from(min(first, second)).to(max(first, second)));
+        assertNull(subject.allocateAddress());
+    }
+
+    @Test
+    public void shouldSplitFreeSpaceBetweenStripes() {
+        assertEquals(4, new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/24"), 4).stripes());
+        assertEquals(2, new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/31"), 4).stripes());
+        assertEquals(1, new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/24"), 1).stripes());
+    }
+
+    @Test
+    public void shouldAllocateWholeFreeSpaceWithOneStripe() {
+        ConcurrentPrefixPool<Ipv4, Ipv4Range> subject = new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/24"), 1);
+
+        assertEquals(Ipv4Range.parse("10.0.0.0/24"), subject.allocate(24));
+    }
+
+    @Test
+    public void shouldReleaseRangeAcrossStripes() {
+        ConcurrentPrefixPool<Ipv4, Ipv4Range> subject = new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/24"), 4);
+        for (int i = 0; i < 4; i++) {
+            subject.allocate(26);
+        }
+
+        subject.release(Ipv4Range.parse("10.0.0.0/24"));
+
+        assertEquals(free("10.0.0.0/24"), subject.freeSpace());
+    }
+
+    @Test
+    public void shouldNotReleaseFreeRange() {
+        ConcurrentPrefixPool<Ipv4, Ipv4Range> subject = new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/24"), 4);
+        subject.allocate(26);
+        subject.allocate(26);
+
+        try {
+            subject.release(Ipv4Range.parse("10.0.0.0/24"));
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertEquals(2, subject.freeSpace().size());
+        }
+    }
+
+    @Test
+    public void shouldNotReleaseRangeOutsideOfInitialFreeSpace() {
+        ConcurrentPrefixPool<Ipv4, Ipv4Range> subject = new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/24"), 1);
+        subject.allocate(24);
+
+        for (String range : new String[]{"10.0.1.0/24", "10.0.0.0/23", "9.255.255.255/32"}) {
+            try {
+                subject.release(Ipv4Range.parse(range));
+                fail("Expected IllegalArgumentException for " + range);
+            } catch (IllegalArgumentException expected) {
+                assertTrue(subject.freeSpace().isEmpty());
+            }
+        }
+    }
+
+    @Test
+    public void shouldCutStripesAtAlignedAddressesOfFreeBlocks() {
+        SortedRangeSet<Ipv4, Ipv4Range> freeSpace = free("10.0.0.0/24");
+        freeSpace.add(Ipv4Range.parse("10.0.2.0/23"));
+        ConcurrentPrefixPool<Ipv4, Ipv4Range> subject = new ConcurrentPrefixPool<Ipv4, Ipv4Range>(freeSpace, 3);
+
+        assertEquals(3, subject.stripes());
+        assertEquals(freeSpace, subject.freeSpace());
+        assertNull(subject.allocate(23));
+        for (int i = 0; i < 3; i++) {
+            assertEquals(24, PrefixUtils.getPrefixLength(subject.allocate(24)));
+        }
+        assertTrue(subject.freeSpace().isEmpty());
+    }
+
+    @Test
+    public void shouldAllocateIpv6Prefixes() {
+        SortedRangeSet<Ipv6, Ipv6Range> freeSpace = new SortedRangeSet<Ipv6, Ipv6Range>();
+        freeSpace.add(Ipv6Range.parse("2001:db8::/32"));
+        ConcurrentPrefixPool<Ipv6, Ipv6Range> subject = new ConcurrentPrefixPool<Ipv6, Ipv6Range>(freeSpace, 8);
+
+        Ipv6Range prefix = subject.allocate(48);
+
+        assertTrue(Ipv6Range.parse("2001:db8::/32").contains(prefix));
+        assertEquals(48, PrefixUtils.getPrefixLength(prefix));
+        subject.release(prefix);
+        assertEquals(freeSpace, subject.freeSpace());
+    }
+
+    @Test
+    public void shouldNeverAllocateOverlappingRangesConcurrently() throws InterruptedException {
+        final ConcurrentPrefixPool<Ipv4, Ipv4Range> subject = new ConcurrentPrefixPool<Ipv4, Ipv4Range>(free("10.0.0.0/20"), 8);
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<List<Ipv4Range>> allocations = new ArrayList<List<Ipv4Range>>();
+        List<Thread> workers = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final List<Ipv4Range> allocated = new ArrayList<Ipv4Range>();
+            allocations.add(allocated);
+            workers.add(new Thread() {
+                @Override
+                public void run() {
+                    awaitQuietly(start);
+                    for (int j = 0; ; j++) {
+                        Ipv4Range prefix = subject.allocate(28 + j % 5);
+                        if (prefix == null) {
+                            prefix = subject.allocate(32);
+                        }
+                        if (prefix == null) {
+                            return;
+                        }
+                        if (j % 3 == 0) {
+                            subject.release(prefix);
+                        } else {
+                            allocated.add(prefix);
+                        }
+                    }
+                }
+            });
+        }
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        SortedRangeSet<Ipv4, Ipv4Range> used = new SortedRangeSet<Ipv4, Ipv4Range>();
+        long size = 0;
+        for (List<Ipv4Range> allocated : allocations) {
+            for (Ipv4Range prefix : allocated) {
+                used.add(prefix);
+                size += prefix.size();
+            }
+        }
+        // the allocations cover the whole pool exactly once only if they never overlap
+        assertEquals(4096, size);
+        assertEquals(free("10.0.0.0/20"), used);
+        assertTrue(subject.freeSpace().isEmpty());
+    }
+
+    private static SortedRangeSet<Ipv4, Ipv4Range> free(String range) {
+        SortedRangeSet<Ipv4, Ipv4Range> result = new SortedRangeSet<Ipv4, Ipv4Range>();
+        result.add(Ipv4Range.parse(range));
+        return result;
+    }
+
+    private static Ipv4 min(Ipv4 a, Ipv4 b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    private static Ipv4 max(Ipv4 a, Ipv4 b) {
+        return a.compareTo(b) <= 0 ? b : a;
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
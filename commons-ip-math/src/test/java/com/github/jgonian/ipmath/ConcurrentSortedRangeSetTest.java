@@ -0,0 +1,211 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ConcurrentSortedRangeSetTest {
+
+    @Test
+    public void shouldStartEmpty() {
+        ConcurrentSortedRangeSet<Ipv4, Ipv4Range> subject = new ConcurrentSortedRangeSet<Ipv4, Ipv4Range>();
+
+        assertTrue(subject.isEmpty());
+        assertEquals(0, subject.size());
+        assertFalse(subject.contains(Ipv4.FIRST_IPV4_ADDRESS));
+        assertFalse(subject.iterator().hasNext());
+    }
+
+    @Test
+    public void shouldAddAndRemoveRanges() {
+        ConcurrentSortedRangeSet<Ipv4, Ipv4Range> subject = new ConcurrentSortedRangeSet<Ipv4, Ipv4Range>();
+
+        subject.add(Ipv4Range.parse("10.0.0.0/8"));
+        subject.addAll(Arrays.asList(Ipv4Range.parse("11.0.0.0/8"), Ipv4Range.parse("192.168.0.0/16")));
+        subject.remove(Ipv4Range.parse("10.0.0.0/16"));
+        subject.removeAll(Arrays.asList(Ipv4Range.parse("192.168.0.0/17")));
+
+        assertEquals("[10.1.0.0-11.255.255.255, 192.168.128.0/17]", subject.toString());
+        assertTrue(subject.contains(Ipv4.parse("11.1.2.3")));
+        assertTrue(subject.contains(Ipv4Range.parse("192.168.200.0/24")));
+        assertTrue(subject.overlaps(Ipv4Range.parse("10.0.0.0/15")));
+        assertFalse(subject.contains(Ipv4.parse("10.0.0.1")));
+
+        subject.clear();
+        assertTrue(subject.isEmpty());
+    }
+
+    @Test
+    public void shouldStartWithCopyOfGivenSet() {
+        SortedRangeSet<Asn, AsnRange> ranges = new SortedRangeSet<Asn, AsnRange>();
+        ranges.add(AsnRange.parse("AS1-AS10"));
+        ConcurrentSortedRangeSet<Asn, AsnRange> subject = new ConcurrentSortedRangeSet<Asn, AsnRange>(ranges);
+
+        ranges.clear();
+
+        assertEquals(1, subject.size());
+        assertTrue(subject.contains(Asn.of(5l)));
+    }
+
+    @Test
+    public void shouldNotChangeSnapshotOnWrite() {
+        ConcurrentSortedRangeSet<Ipv4, Ipv4Range> subject = new ConcurrentSortedRangeSet<Ipv4, Ipv4Range>();
+        subject.add(Ipv4Range.parse("10.0.0.0/8"));
+        ImmutableSortedRangeSet<Ipv4, Ipv4Range> snapshot = subject.snapshot();
+
+        subject.add(Ipv4Range.parse("20.0.0.0/8"));
+
+        assertEquals(1, snapshot.size());
+        assertEquals(2, subject.snapshot().size());
+    }
+
+    @Test
+    public void shouldPublishBatchOfChangesOnce() {
+        ConcurrentSortedRangeSet<Ipv4, Ipv4Range> subject = new ConcurrentSortedRangeSet<Ipv4, Ipv4Range>();
+        final ImmutableSortedRangeSet<Ipv4, Ipv4Range> before = subject.snapshot();
+        final ConcurrentSortedRangeSet<Ipv4, Ipv4Range> shared = subject;
+
+        subject.update(new ConcurrentSortedRangeSet.Update<Ipv4, Ipv4Range>() {
+            @Override
+            public void apply(SortedRangeSet<Ipv4, Ipv4Range> ranges) {
+                ranges.add(Ipv4Range.parse("10.0.0.0/8"));
+                ranges.add(Ipv4Range.parse("20.0.0.0/8"));
+                assertSame(before, shared.snapshot());
+            }
+        });
+
+        assertEquals(2, subject.size());
+    }
+
+    @Test
+    public void shouldNotPublishFailedUpdate() {
+        ConcurrentSortedRangeSet<Ipv4, Ipv4Range> subject = new ConcurrentSortedRangeSet<Ipv4, Ipv4Range>();
+        subject.add(Ipv4Range.parse("10.0.0.0/8"));
+        ImmutableSortedRangeSet<Ipv4, Ipv4Range> before = subject.snapshot();
+
+        try {
+            subject.update(new ConcurrentSortedRangeSet.Update<Ipv4, Ipv4Range>() {
+                @Override
+                public void apply(SortedRangeSet<Ipv4, Ipv4Range> ranges) {
+                    ranges.clear();
+                    throw new IllegalStateException();
+                }
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        assertSame(before, subject.snapshot());
+    }
+
+    @Test
+    public void shouldNotLoseConcurrentWrites() throws InterruptedException {
+        final ConcurrentSortedRangeSet<Asn, AsnRange> subject = new ConcurrentSortedRangeSet<Asn, AsnRange>();
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<Thread>();
+        for (int i = 0; i < 4; i++) {
+            final int writer = i;
+            writers.add(new Thread() {
+                @Override
+                public void run() {
+                    awaitQuietly(start);
+                    for (int j = 0; j < 50; j++) {
+                        // every other ASN, so that the ranges are never merged
+                        subject.add(Asn.of((long) (j * 4 + writer) * 2).asRange());
+                    }
+                }
+            });
+        }
+        for (Thread writer : writers) {
+            writer.start();
+        }
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+
+        assertEquals(200, subject.size());
+    }
+
+    @Test
+    public void shouldNeverExposePartialUpdateToReaders() throws InterruptedException {
+        final ConcurrentSortedRangeSet<Ipv4, Ipv4Range> subject = new ConcurrentSortedRangeSet<Ipv4, Ipv4Range>();
+        final AtomicBoolean done = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<String>();
+        Thread reader = new Thread() {
+            @Override
+            public void run() {
+                while (!done.get()) {
+                    ImmutableSortedRangeSet<Ipv4, Ipv4Range> snapshot = subject.snapshot();
+                    boolean first = snapshot.contains(Ipv4.parse("10.0.0.1"));
+                    boolean second = snapshot.contains(Ipv4.parse("20.0.0.1"));
+                    if (first != second) {
+                        failure.set("Saw a partial update: " + snapshot);
+                    }
+                }
+            }
+        };
+        reader.start();
+        for (int i = 0; i < 500; i++) {
+            final boolean add = i % 2 == 0;
+            subject.update(new ConcurrentSortedRangeSet.Update<Ipv4, Ipv4Range>() {
+                @Override
+                public void apply(SortedRangeSet<Ipv4, Ipv4Range> ranges) {
+                    if (add) {
+                        ranges.add(Ipv4Range.parse("10.0.0.0/8"));
+                        ranges.add(Ipv4Range.parse("20.0.0.0/8"));
+                    } else {
+                        ranges.clear();
+                    }
+                }
+            });
+        }
+        done.set(true);
+        reader.join();
+
+        assertNull(failure.get());
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
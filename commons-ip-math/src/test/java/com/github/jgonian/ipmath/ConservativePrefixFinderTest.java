@@ -26,14 +26,18 @@ package com.github.jgonian.ipmath;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import static com.github.jgonian.ipmath.Ipv6Range.parse;
 import static org.junit.Assert.*;
 
 public class ConservativePrefixFinderTest {
 
-    private final ConservativePrefixFinder subject = ConservativePrefixFinder.newInstance();
+    private final ConservativePrefixFinder<Ipv6, Ipv6Range> subject = ConservativePrefixFinder.newInstance();
+    private final ConservativePrefixFinder<Ipv4, Ipv4Range> ipv4Subject = ConservativePrefixFinder.newIpv4Instance();
+    private final ConservativePrefixFinder<Ipv4, Ipv4Range> genericIpv4Subject = ConservativePrefixFinder.newInstance();
 
     @Test
     public void shouldReturnNullIfRequestedPrefixIsTooBig() {
@@ -61,6 +65,56 @@ public class ConservativePrefixFinderTest {
         assertEquals(parse("3::/20"), subject.findPrefixOrNull(20, in("::/10, 3::/20, 2::/20")));
     }
 
+    @Test
+    public void shouldFindIpv4Prefix() {
+        List<Ipv4Range> freeBlocks = Arrays.asList(Ipv4Range.parse("10.0.0.0/8"), Ipv4Range.parse("11.0.0.0/20"),
+                Ipv4Range.parse("12.0.0.1-12.0.0.6"), Ipv4Range.parse("13.0.0.0/20"));
+        assertNull(ipv4Subject.findPrefixOrNull(7, freeBlocks));
+        assertEquals(Ipv4Range.parse("10.0.0.0/8"), ipv4Subject.findPrefixOrNull(8, freeBlocks));
+        assertEquals(Ipv4Range.parse("11.0.0.0/20"), ipv4Subject.findPrefixOrNull(20, freeBlocks));
+        assertEquals(Ipv4Range.parse("11.0.0.0/24"), ipv4Subject.findPrefixOrNull(24, freeBlocks));
+        assertEquals(Ipv4Range.parse("12.0.0.2/31"), ipv4Subject.findPrefixOrNull(31, freeBlocks));
+        assertEquals(Ipv4Range.parse("12.0.0.1/32"), ipv4Subject.findPrefixOrNull(32, freeBlocks));
+        assertEquals(Ipv4Range.parse("0.0.0.0/0"),
+                ipv4Subject.findPrefixOrNull(0, Arrays.asList(Ipv4Range.parse("0.0.0.0/0"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNegativePrefixLengthWithoutFreeBlocks() {
+        subject.findPrefixOrNull(-1, new ArrayList<Ipv6Range>());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTooLongPrefixLengthWithoutFreeBlocks() {
+        subject.findPrefixOrNull(129, new ArrayList<Ipv6Range>());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidGenericIpv4PrefixLength() {
+        genericIpv4Subject.findPrefixOrNull(33, Arrays.asList(Ipv4Range.parse("10.0.0.0/8")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectInvalidIpv4PrefixLength() {
+        ipv4Subject.findPrefixOrNull(33, Arrays.asList(Ipv4Range.parse("10.0.0.0/8")));
+    }
+
+    @Test
+    public void shouldFindSameIpv4PrefixAsGenericStrategy() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            List<Ipv4Range> freeBlocks = new ArrayList<Ipv4Range>();
+            for (int j = random.nextInt(20); j >= 0; j--) {
+                long start = random.nextInt() & 0xffffffffL;
+                long end = Math.min(Ipv4.MAXIMUM_VALUE, start + (random.nextInt(Integer.MAX_VALUE) >>> random.nextInt(31)));
+                freeBlocks.add(Ipv4Range.from(Ipv4.ofUnsigned(start)).to(Ipv4.ofUnsigned(end)));
+            }
+            int prefixLength = random.nextInt(Ipv4.NUMBER_OF_BITS + 1);
+            assertEquals(genericIpv4Subject.findPrefixOrNull(prefixLength, freeBlocks),
+                    ipv4Subject.findPrefixOrNull(prefixLength, freeBlocks));
+        }
+    }
+
     private List<Ipv6Range> in(String commaSeparatedRanges) {
         String[] split = commaSeparatedRanges.split(",");
         List<Ipv6Range> result = new ArrayList<Ipv6Range>();
@@ -0,0 +1,115 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import static com.github.jgonian.ipmath.SortedRangeMapTest.entry;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ImmutableSortedRangeMapTest {
+
+    @Test
+    public void shouldAnswerQueriesOnIpv4Ranges() {
+        SortedRangeMap<Ipv4, Ipv4Range, String> map = new SortedRangeMap<Ipv4, Ipv4Range, String>();
+        map.put(Ipv4Range.parse("10.0.0.0/8"), "NL");
+        map.put(Ipv4Range.parse("10.1.0.0/16"), "GR");
+        map.put(Ipv4Range.parse("192.168.0.0/16"), "DE");
+        ImmutableSortedRangeMap<Ipv4, Ipv4Range, String> subject = map.toImmutable();
+
+        assertEquals(4, subject.size());
+        assertEquals("NL", subject.get(Ipv4.of("10.0.0.1")));
+        assertEquals("GR", subject.get(Ipv4.of("10.1.255.255")));
+        assertEquals("NL", subject.get(Ipv4.of("10.2.0.0")));
+        assertEquals("DE", subject.get(Ipv4.of("192.168.0.0")));
+        assertNull(subject.get(Ipv4.of("172.16.0.0")));
+        assertEquals(Ipv4Range.parse("10.1.0.0/16"), subject.getRange(Ipv4.of("10.1.2.3")));
+        assertNull(subject.getRange(Ipv4.of("255.255.255.255")));
+        assertTrue(subject.containsKey(Ipv4.of("192.168.255.255")));
+        assertFalse(subject.containsKey(Ipv4.of("192.169.0.0")));
+    }
+
+    @Test
+    public void shouldAnswerQueriesOnIpv6Ranges() {
+        SortedRangeMap<Ipv6, Ipv6Range, String> map = new SortedRangeMap<Ipv6, Ipv6Range, String>();
+        map.put(Ipv6Range.parse("2001:db8::/32"), "NL");
+        map.put(Ipv6Range.parse("2001:db9::/32"), "GR");
+        ImmutableSortedRangeMap<Ipv6, Ipv6Range, String> subject = map.toImmutable();
+
+        assertEquals("NL", subject.get(Ipv6.parse("2001:db8:ffff::")));
+        assertEquals("GR", subject.get(Ipv6.parse("2001:db9::1")));
+        assertNull(subject.get(Ipv6.parse("2001:dba::")));
+    }
+
+    @Test
+    public void shouldHoldEntriesInOrder() {
+        SortedRangeMap<Asn, AsnRange, String> map = new SortedRangeMap<Asn, AsnRange, String>();
+        map.put(AsnRange.parse("AS64512-AS65534"), "private");
+        map.put(AsnRange.parse("AS0-AS0"), "reserved");
+        map.put(AsnRange.parse("AS4294967295-AS4294967295"), "reserved");
+        ImmutableSortedRangeMap<Asn, AsnRange, String> subject = map.toImmutable();
+
+        Iterator<Map.Entry<AsnRange, String>> iterator = subject.iterator();
+        assertEquals(entry(AsnRange.parse("AS0-AS0"), "reserved"), iterator.next());
+        assertEquals(entry(AsnRange.parse("AS64512-AS65534"), "private"), iterator.next());
+        assertEquals(entry(AsnRange.parse("AS4294967295-AS4294967295"), "reserved"), iterator.next());
+        assertFalse(iterator.hasNext());
+        assertEquals(map, subject.toSortedRangeMap());
+        assertEquals(subject, subject.toSortedRangeMap().toImmutable());
+    }
+
+    @Test
+    public void shouldBeEmpty() {
+        ImmutableSortedRangeMap<Ipv4, Ipv4Range, String> subject = new SortedRangeMap<Ipv4, Ipv4Range, String>().toImmutable();
+
+        assertTrue(subject.isEmpty());
+        assertNull(subject.get(Ipv4.of("10.0.0.0")));
+        assertEquals("[]", subject.toString());
+    }
+
+    @Test
+    public void shouldAgreeWithSortedRangeMapOnRandomRanges() {
+        Random random = new Random(42);
+        SortedRangeMap<Ipv4, Ipv4Range, Integer> map = new SortedRangeMap<Ipv4, Ipv4Range, Integer>();
+        for (int i = 0; i < 500; i++) {
+            // around the sign bit, where signed and unsigned order differ
+            int start = 0x7fff0000 + random.nextInt(1 << 17);
+            map.put(new Ipv4Range(Ipv4.of(start), Ipv4.of(start + random.nextInt(64))), random.nextInt(3));
+        }
+        ImmutableSortedRangeMap<Ipv4, Ipv4Range, Integer> subject = map.toImmutable();
+        assertEquals(map.size(), subject.size());
+        for (int i = 0; i < 5000; i++) {
+            Ipv4 address = Ipv4.of(0x7fff0000 + random.nextInt(1 << 17));
+            assertEquals(map.get(address), subject.get(address));
+        }
+        assertEquals(map.toString(), subject.toString());
+    }
+}
@@ -0,0 +1,159 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ImmutableSortedRangeSetTest {
+
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> ImmutableSortedRangeSet<C, R> immutable(R... ranges) {
+        SortedRangeSet<C, R> set = new SortedRangeSet<C, R>();
+        set.addAll(Arrays.asList(ranges));
+        return set.toImmutable();
+    }
+
+    @Test
+    public void shouldAnswerQueriesOnIpv4Ranges() {
+        ImmutableSortedRangeSet<Ipv4, Ipv4Range> subject = immutable(
+                Ipv4Range.parse("10.0.0.0/8"), Ipv4Range.parse("192.168.0.0-192.168.0.10"), Ipv4Range.parse("255.255.255.255/32"));
+
+        assertTrue(subject.contains(Ipv4.parse("10.20.30.40")));
+        assertTrue(subject.contains(Ipv4.parse("192.168.0.10")));
+        assertTrue(subject.contains(Ipv4.LAST_IPV4_ADDRESS));
+        assertFalse(subject.contains(Ipv4.parse("9.255.255.255")));
+        assertFalse(subject.contains(Ipv4.parse("192.168.0.11")));
+        assertFalse(subject.contains(Ipv4.FIRST_IPV4_ADDRESS));
+
+        assertTrue(subject.contains(Ipv4Range.parse("10.1.0.0/16")));
+        assertFalse(subject.contains(Ipv4Range.parse("192.168.0.0/24")));
+        assertFalse(subject.contains(Ipv4Range.parse("0.0.0.0/0")));
+
+        assertTrue(subject.overlaps(Ipv4Range.parse("192.168.0.0/24")));
+        assertTrue(subject.overlaps(Ipv4Range.parse("0.0.0.0/0")));
+        assertTrue(subject.overlaps(Ipv4Range.parse("9.0.0.0-10.0.0.0")));
+        assertFalse(subject.overlaps(Ipv4Range.parse("11.0.0.0-192.167.255.255")));
+        assertFalse(subject.overlaps(Ipv4Range.parse("0.0.0.0/5")));
+    }
+
+    @Test
+    public void shouldAnswerQueriesOnAsnRanges() {
+        ImmutableSortedRangeSet<Asn, AsnRange> subject = immutable(AsnRange.parse("AS1-AS10"), AsnRange.parse("AS4294967290-AS4294967295"));
+
+        assertTrue(subject.contains(Asn.of(5L)));
+        assertTrue(subject.contains(Asn.LAST_32_BIT_ASN));
+        assertFalse(subject.contains(Asn.FIRST_ASN));
+        assertFalse(subject.contains(Asn.LAST_16_BIT_ASN));
+        assertTrue(subject.contains(AsnRange.parse("AS4294967290-AS4294967291")));
+        assertFalse(subject.contains(AsnRange.parse("AS10-AS11")));
+        assertTrue(subject.overlaps(AsnRange.parse("AS10-AS11")));
+        assertFalse(subject.overlaps(AsnRange.parse("AS11-AS4294967289")));
+    }
+
+    @Test
+    public void shouldAnswerQueriesOnIpv6Ranges() {
+        ImmutableSortedRangeSet<Ipv6, Ipv6Range> subject = immutable(Ipv6Range.parse("2001:db8::/32"), Ipv6Range.parse("::1-::5"));
+
+        assertTrue(subject.contains(Ipv6.parse("2001:db8::1")));
+        assertTrue(subject.contains(Ipv6.parse("::5")));
+        assertFalse(subject.contains(Ipv6.parse("::6")));
+        assertTrue(subject.contains(Ipv6Range.parse("2001:db8:1::/48")));
+        assertFalse(subject.contains(Ipv6Range.parse("::/64")));
+        assertTrue(subject.overlaps(Ipv6Range.parse("::/64")));
+        assertFalse(subject.overlaps(Ipv6Range.parse("::6-2001:db7:ffff:ffff:ffff:ffff:ffff:ffff")));
+    }
+
+    @Test
+    public void shouldHoldRangesInOrder() {
+        SortedRangeSet<Ipv4, Ipv4Range> set = new SortedRangeSet<Ipv4, Ipv4Range>();
+        set.add(Ipv4Range.parse("192.168.0.0/16"));
+        set.add(Ipv4Range.parse("10.0.0.0/8"));
+        set.add(Ipv4Range.parse("11.0.0.0/8"));
+        ImmutableSortedRangeSet<Ipv4, Ipv4Range> subject = set.toImmutable();
+
+        assertEquals(2, subject.size());
+        assertEquals(Ipv4Range.parse("10.0.0.0-11.255.255.255"), subject.get(0));
+        assertEquals(Ipv4Range.parse("192.168.0.0/16"), subject.get(1));
+        Iterator<Ipv4Range> iterator = subject.iterator();
+        assertEquals(subject.get(0), iterator.next());
+        assertEquals(subject.get(1), iterator.next());
+        assertFalse(iterator.hasNext());
+        assertEquals("[10.0.0.0/7, 192.168.0.0/16]", subject.toString());
+        assertEquals(set, subject.toSortedRangeSet());
+    }
+
+    @Test
+    public void shouldBeEmpty() {
+        ImmutableSortedRangeSet<Ipv4, Ipv4Range> subject = new SortedRangeSet<Ipv4, Ipv4Range>().toImmutable();
+        assertTrue(subject.isEmpty());
+        assertFalse(subject.contains(Ipv4.FIRST_IPV4_ADDRESS));
+        assertFalse(subject.overlaps(Ipv4Range.parse("0.0.0.0/0")));
+        assertFalse(subject.iterator().hasNext());
+    }
+
+    @Test
+    public void shouldBeEqualWhenRangesAreEqual() {
+        ImmutableSortedRangeSet<Ipv4, Ipv4Range> subject = immutable(Ipv4Range.parse("10.0.0.0/8"));
+        assertEquals(subject, immutable(Ipv4Range.parse("10.0.0.0/8")));
+        assertEquals(subject.hashCode(), immutable(Ipv4Range.parse("10.0.0.0/8")).hashCode());
+        assertNotEquals(subject, immutable(Ipv4Range.parse("10.0.0.0/9")));
+        assertNotEquals(subject, new SortedRangeSet<Ipv4, Ipv4Range>().toImmutable());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotRemoveThroughIterator() {
+        Iterator<Ipv4Range> iterator = immutable(Ipv4Range.parse("10.0.0.0/8")).iterator();
+        iterator.next();
+        iterator.remove();
+    }
+
+    @Test
+    public void shouldAgreeWithSortedRangeSetOnRandomRanges() {
+        Random random = new Random(42);
+        SortedRangeSet<Ipv4, Ipv4Range> set = new SortedRangeSet<Ipv4, Ipv4Range>();
+        for (int i = 0; i < 500; i++) {
+            // around the sign bit, where signed and unsigned order differ
+            int start = 0x7fff0000 + random.nextInt(1 << 17);
+            set.add(new Ipv4Range(Ipv4.of(start), Ipv4.of(start + random.nextInt(64))));
+        }
+        ImmutableSortedRangeSet<Ipv4, Ipv4Range> subject = set.toImmutable();
+        for (int i = 0; i < 5000; i++) {
+            int start = 0x7fff0000 + random.nextInt(1 << 17);
+            Ipv4Range range = new Ipv4Range(Ipv4.of(start), Ipv4.of(start + random.nextInt(16)));
+            assertEquals(set.contains(range.start().asRange()), subject.contains(range.start()));
+            assertEquals(set.contains(range), subject.contains(range));
+            SortedRangeSet<Ipv4, Ipv4Range> intersection = new SortedRangeSet<Ipv4, Ipv4Range>();
+            intersection.add(range);
+            assertEquals(!set.intersection(intersection).isEmpty(), subject.overlaps(range));
+        }
+    }
+}
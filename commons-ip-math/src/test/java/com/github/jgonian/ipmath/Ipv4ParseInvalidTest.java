@@ -67,6 +67,14 @@ public class Ipv4ParseInvalidTest {
                 "0.0.000.0",
                 "0.0.0.000",
                 "000.000.000.000",
+
+                "1..2.3",                                       // empty octet
+                "1.2.3.",
+                ".1.2.3",
+                "1.2.3.4444444444",                             // overflowing octet
+                "1.2.3.+4",
+                "1.2 .3.4",
+                "\u0661.\u0662.\u0663.\u0664",                 // non-ASCII digits
         });
     }
 }
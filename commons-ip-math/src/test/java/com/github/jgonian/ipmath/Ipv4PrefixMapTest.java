@@ -0,0 +1,165 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class Ipv4PrefixMapTest {
+
+    @Test
+    public void shouldFindLongestMatch() {
+        Ipv4PrefixMap<String> map = new Ipv4PrefixMap<String>();
+        map.put(Ipv4Range.parse("10.0.0.0/8"), "a");
+        map.put(Ipv4Range.parse("10.1.0.0/16"), "b");
+        map.put(Ipv4Range.parse("10.1.2.0/24"), "c");
+        map.put(Ipv4Range.parse("10.1.2.3/32"), "d");
+
+        assertEquals("a", map.longestMatch(Ipv4.parse("10.0.0.1")));
+        assertEquals("b", map.longestMatch(Ipv4.parse("10.1.3.0")));
+        assertEquals("c", map.longestMatch(Ipv4.parse("10.1.2.4")));
+        assertEquals("d", map.longestMatch(Ipv4.parse("10.1.2.3")));
+        assertNull(map.longestMatch(Ipv4.parse("11.0.0.0")));
+        assertEquals(Ipv4Range.parse("10.1.0.0/16"), map.longestMatchingPrefix(Ipv4.parse("10.1.255.255")));
+        assertNull(map.longestMatchingPrefix(Ipv4.parse("9.255.255.255")));
+    }
+
+    @Test
+    public void shouldFindLongestMatchOfIntValue() {
+        Ipv4PrefixMap<String> map = new Ipv4PrefixMap<String>();
+        map.put(Ipv4Range.parse("192.168.0.0/16"), "a");
+        assertEquals("a", map.longestMatch(Ipv4.parse("192.168.100.1").asInt()));
+        assertNull(map.longestMatch(Ipv4.parse("192.169.0.0").asInt()));
+    }
+
+    @Test
+    public void shouldMatchEverythingWithDefaultRoute() {
+        Ipv4PrefixMap<String> map = new Ipv4PrefixMap<String>();
+        map.put(Ipv4Range.parse("0.0.0.0/0"), "default");
+        map.put(Ipv4Range.parse("255.255.255.255/32"), "last");
+        assertEquals("default", map.longestMatch(Ipv4.FIRST_IPV4_ADDRESS));
+        assertEquals("default", map.longestMatch(Ipv4.parse("255.255.255.254")));
+        assertEquals("last", map.longestMatch(Ipv4.LAST_IPV4_ADDRESS));
+    }
+
+    @Test
+    public void shouldReplaceValueOfSamePrefix() {
+        Ipv4PrefixMap<String> map = new Ipv4PrefixMap<String>();
+        assertNull(map.put(Ipv4Range.parse("10.0.0.0/8"), "a"));
+        assertEquals("a", map.put(Ipv4Range.parse("10.0.0.0/8"), "b"));
+        assertEquals("b", map.get(Ipv4Range.parse("10.0.0.0/8")));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void shouldGetOnlyExactPrefix() {
+        Ipv4PrefixMap<String> map = new Ipv4PrefixMap<String>();
+        map.put(Ipv4Range.parse("10.0.0.0/8"), "a");
+        map.put(Ipv4Range.parse("10.128.0.0/9"), "b");
+        assertEquals("a", map.get(Ipv4Range.parse("10.0.0.0/8")));
+        assertNull(map.get(Ipv4Range.parse("10.0.0.0/9")));
+        assertNull(map.get(Ipv4Range.parse("10.0.0.0/7")));
+    }
+
+    @Test
+    public void shouldRemovePrefixButNotCoveredPrefixes() {
+        Ipv4PrefixMap<String> map = new Ipv4PrefixMap<String>();
+        map.put(Ipv4Range.parse("10.0.0.0/8"), "a");
+        map.put(Ipv4Range.parse("10.1.0.0/16"), "b");
+        map.put(Ipv4Range.parse("10.2.0.0/16"), "c");
+
+        assertEquals("a", map.remove(Ipv4Range.parse("10.0.0.0/8")));
+        assertNull(map.remove(Ipv4Range.parse("10.0.0.0/8")));
+        assertEquals(2, map.size());
+        assertNull(map.longestMatch(Ipv4.parse("10.3.0.0")));
+        assertEquals("b", map.longestMatch(Ipv4.parse("10.1.0.0")));
+        assertEquals("c", map.longestMatch(Ipv4.parse("10.2.0.0")));
+
+        assertEquals("b", map.remove(Ipv4Range.parse("10.1.0.0/16")));
+        assertEquals("c", map.remove(Ipv4Range.parse("10.2.0.0/16")));
+        assertTrue(map.isEmpty());
+        assertNull(map.longestMatch(Ipv4.parse("10.2.0.0")));
+    }
+
+    @Test
+    public void shouldClear() {
+        Ipv4PrefixMap<String> map = new Ipv4PrefixMap<String>();
+        map.put(Ipv4Range.parse("10.0.0.0/8"), "a");
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.longestMatch(Ipv4.parse("10.0.0.0")));
+        map.put(Ipv4Range.parse("10.0.0.0/8"), "b");
+        assertEquals("b", map.longestMatch(Ipv4.parse("10.0.0.0")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToPutRangeWhichIsNotPrefix() {
+        new Ipv4PrefixMap<String>().put(Ipv4Range.parse("10.0.0.0-10.0.0.2"), "a");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToPutNullValue() {
+        new Ipv4PrefixMap<String>().put(Ipv4Range.parse("10.0.0.0/8"), null);
+    }
+
+    @Test
+    public void shouldAgreeWithLinearScanOnRandomPrefixes() {
+        Random random = new Random(42);
+        Ipv4PrefixMap<Integer> map = new Ipv4PrefixMap<Integer>();
+        Map<Ipv4Range, Integer> expected = new HashMap<Ipv4Range, Integer>();
+        List<Ipv4Range> prefixes = new ArrayList<Ipv4Range>();
+        for (int i = 0; i < 2000; i++) {
+            // a narrow address space, so that prefixes nest and share paths
+            int prefixLength = 8 + random.nextInt(25);
+            int start = (0x0a000000 | random.nextInt(1 << 16) << 8 | random.nextInt(4)) & Ipv4.prefixMask(prefixLength);
+            Ipv4Range prefix = Ipv4Range.from(Ipv4.of(start)).andPrefixLength(prefixLength);
+            prefixes.add(prefix);
+            assertEquals(expected.put(prefix, i), map.put(prefix, i));
+        }
+        for (int i = 0; i < prefixes.size(); i += 3) {
+            assertEquals(expected.remove(prefixes.get(i)), map.remove(prefixes.get(i)));
+        }
+        assertEquals(expected.size(), map.size());
+
+        for (int i = 0; i < 20000; i++) {
+            Ipv4 address = Ipv4.of(0x0a000000 | random.nextInt(1 << 24));
+            Ipv4Range longest = null;
+            for (Ipv4Range prefix : expected.keySet()) {
+                if (prefix.contains(address) && (longest == null || prefix.size() < longest.size())) {
+                    longest = prefix;
+                }
+            }
+            assertEquals(longest == null ? null : expected.get(longest), map.longestMatch(address));
+        }
+    }
+}
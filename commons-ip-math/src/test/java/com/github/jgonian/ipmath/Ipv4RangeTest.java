@@ -27,13 +27,17 @@ import org.junit.Test;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
 
 import static com.github.jgonian.ipmath.Ipv4.FIRST_IPV4_ADDRESS;
 import static com.github.jgonian.ipmath.Ipv4.LAST_IPV4_ADDRESS;
 import static com.github.jgonian.ipmath.Ipv4.MAXIMUM_VALUE;
 import static junit.framework.Assert.assertFalse;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class Ipv4RangeTest extends AbstractRangeTest<Ipv4, Ipv4Range> {
 
@@ -296,4 +300,68 @@ public class Ipv4RangeTest extends AbstractRangeTest<Ipv4, Ipv4Range> {
         Ipv4Range range = Ipv4Range.from("0.0.0.1").to(Ipv4.LAST_IPV4_ADDRESS);
         assertEquals(32, range.splitToPrefixes().size());
     }
+
+    @Test
+    public void shouldSplitWholeIpv4SpaceIntoSinglePrefix() {
+        Ipv4Range range = Ipv4Range.from(FIRST_IPV4_ADDRESS).to(LAST_IPV4_ADDRESS);
+        assertEquals(Arrays.asList(range), range.splitToPrefixes());
+    }
+
+    @Test
+    public void shouldIterateOverPrefixesOfRandomRanges() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long start = random.nextInt() & MAXIMUM_VALUE;
+            long end = Math.min(MAXIMUM_VALUE, start + (random.nextInt() & 0xffffff));
+            Ipv4Range range = Ipv4Range.from(start).to(end);
+            Iterator<Ipv4Range> prefixes = range.prefixIterator();
+            Ipv4 next = range.start();
+            Ipv4Range prefix = null;
+            while (prefixes.hasNext()) {
+                prefix = prefixes.next();
+                assertEquals(next, prefix.start());
+                assertTrue(PrefixUtils.isLegalPrefix(prefix));
+                next = prefix.end().hasNext() ? prefix.end().next() : null;
+            }
+            assertEquals(range.end(), prefix.end());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void shouldFailToIterateBeyondLastPrefix() {
+        Iterator<Ipv4Range> prefixes = Ipv4Range.parse("10.0.0.0/8").prefixIterator();
+        prefixes.next();
+        prefixes.next();
+    }
+
+    @Test
+    public void shouldFormatAsToString() throws Exception {
+        byte[] buffer = new byte[31];
+        for (String text : new String[]{"192.168.0.0-192.168.255.254", "192.168.0.0/16", "0.0.0.0/0", "10.0.0.1/32"}) {
+            Ipv4Range range = Ipv4Range.parse(text);
+            StringBuilder sb = new StringBuilder();
+            range.formatTo(sb);
+            assertEquals(text, sb.toString());
+            assertEquals(text, new String(buffer, 0, range.formatTo(buffer, 0), "US-ASCII"));
+        }
+    }
+
+    @Test
+    public void shouldFormatInRangeAndCidrNotation() throws Exception {
+        Ipv4Range range = Ipv4Range.parse("10.0.0.0/8");
+        StringBuilder sb = new StringBuilder();
+        range.formatInRangeNotationTo(sb);
+        sb.append(' ');
+        range.formatInCidrNotationTo(sb);
+        assertEquals("10.0.0.0-10.255.255.255 10.0.0.0/8", sb.toString());
+
+        byte[] buffer = new byte[31];
+        assertEquals(range.toStringInRangeNotation(), new String(buffer, 0, range.formatInRangeNotationTo(buffer, 0), "US-ASCII"));
+        assertEquals(range.toStringInCidrNotation(), new String(buffer, 0, range.formatInCidrNotationTo(buffer, 0), "US-ASCII"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToFormatInCidrNotationWhenNotLegalPrefix() throws Exception {
+        Ipv4Range.parse("10.0.0.0-10.0.0.2").formatInCidrNotationTo(new StringBuilder());
+    }
 }
@@ -52,6 +52,71 @@ public class Ipv4Test {
         assertEquals(sample, Ipv4.of("0.0.0.1"));
     }
 
+    @Test
+    public void shouldCreateFromThe32BitsOfTheAddress() {
+        assertEquals(Ipv4.of("192.168.0.1"), Ipv4.of(0xC0A80001));
+        assertEquals(Ipv4.LAST_IPV4_ADDRESS, Ipv4.of(-1));
+        assertEquals(0xC0A80001, Ipv4.of("192.168.0.1").asInt());
+        assertEquals(-1, Ipv4.LAST_IPV4_ADDRESS.asInt());
+    }
+
+    @Test
+    public void shouldCreateFromUnsignedValue() {
+        assertEquals(Ipv4.of("192.168.0.1"), Ipv4.ofUnsigned(3232235521L));
+        assertEquals(Ipv4.LAST_IPV4_ADDRESS, Ipv4.ofUnsigned(Ipv4.MAXIMUM_VALUE));
+    }
+
+    @Test
+    public void shouldFailToCreateFromUnsignedValueOutOfRange() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Value of IPv4 has to be less than or equal to 4294967295");
+        Ipv4.ofUnsigned(Ipv4.MAXIMUM_VALUE + 1);
+    }
+
+    @Test
+    public void shouldCompareAsUnsigned() {
+        assertTrue(Ipv4.of("128.0.0.0").compareTo(Ipv4.of("127.255.255.255")) > 0);
+        assertTrue(Ipv4.of("127.255.255.255").compareTo(Ipv4.of("128.0.0.0")) < 0);
+        assertEquals(0, Ipv4.of("255.0.0.1").compareTo(Ipv4.of("255.0.0.1")));
+        assertTrue(Ipv4.FIRST_IPV4_ADDRESS.compareTo(Ipv4.LAST_IPV4_ADDRESS) < 0);
+    }
+
+    @Test
+    public void shouldKeepHashCodeOfBoxedValue() {
+        assertEquals(Long.valueOf(3232235521L).hashCode(), Ipv4.of("192.168.0.1").hashCode());
+    }
+
+    @Test
+    public void shouldFailOnNextOfLastAddress() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Value of IPv4 has to be less than or equal to 4294967295");
+        Ipv4.LAST_IPV4_ADDRESS.next();
+    }
+
+    @Test
+    public void shouldFailOnPreviousOfFirstAddress() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Value of IPv4 has to be greater than or equal to 0");
+        Ipv4.FIRST_IPV4_ADDRESS.previous();
+    }
+
+    @Test
+    public void shouldSerializeAndDeserialize() throws Exception {
+        Ipv4 ipv4 = Ipv4.of("255.255.0.1");
+        assertEquals(ipv4, SerializationTestHelper.roundTrip(ipv4));
+    }
+
+    @Test
+    public void shouldDeserializeFormOfBoxedValue() throws Exception {
+        // Ipv4.of("192.168.0.1") serialized when the value was held in a java.lang.Long
+        String serialized = "aced00057372001e636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e49707634ffffffffffffffff0200"
+            + "014c000576616c75657400104c6a6176612f6c616e672f4c6f6e673b78720024636f6d2e6769746875622e6a676f6e69"
+            + "616e2e69706d6174682e41627374726163744970cb98c9eb2ae7c68502000078707372000e6a6176612e6c616e672e4c"
+            + "6f6e673b8be490cc8f23df0200014a000576616c7565787200106a6176612e6c616e672e4e756d62657286ac951d0b94"
+            + "e08b020000787000000000c0a80001";
+        assertEquals(Ipv4.of("192.168.0.1"), SerializationTestHelper.deserialize(serialized));
+    }
+
     @Test
     public void testBuilderWithNull() {
         thrown.expect(IllegalArgumentException.class);
@@ -154,6 +219,40 @@ public class Ipv4Test {
         Ipv4.parse("192.168.08.1");
     }
 
+    @Test
+    public void shouldParseValueOfCharSequenceSlice() {
+        String line = "client=192.168.0.1 server=10.0.0.255:80";
+        assertEquals(0xC0A80001L, Ipv4.parseValue(line, 7, 18));
+        assertEquals(0x0A0000FFL, Ipv4.parseValue(new StringBuilder(line), 26, 36));
+        assertEquals(Ipv4.MINIMUM_VALUE, Ipv4.parseValue("0.0.0.0", 0, 7));
+        assertEquals(Ipv4.MAXIMUM_VALUE, Ipv4.parseValue("255.255.255.255", 0, 15));
+    }
+
+    @Test
+    public void shouldParseValueOfAsciiBytes() throws Exception {
+        byte[] line = "client=192.168.0.1 server=10.0.0.255:80".getBytes("US-ASCII");
+        assertEquals(0xC0A80001L, Ipv4.parseValue(line, 7, 18));
+        assertEquals(0x0A0000FFL, Ipv4.parseValue(line, 26, 36));
+    }
+
+    @Test
+    public void shouldReturnInvalidValueInsteadOfThrowing() throws Exception {
+        String[] invalid = {"", "192.168.0", "192.168.0.1.", "192.168.00.1", "192.168.0.256", "192.168.0.1 ",
+                " 192.168.0.1", "192.168.0.1:80", "192.168..1", "a.b.c.d"};
+        for (String text : invalid) {
+            assertEquals(text, Ipv4.INVALID_VALUE, Ipv4.parseValue(text, 0, text.length()));
+            assertEquals(text, Ipv4.INVALID_VALUE, Ipv4.parseValue(text.getBytes("US-ASCII"), 0, text.length()));
+        }
+        assertEquals(Ipv4.INVALID_VALUE, Ipv4.parseValue(new byte[]{'1', '.', '2', '.', '3', '.', (byte) 0xb4}, 0, 7));
+    }
+
+    @Test
+    public void shouldFailToParseNull() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("Invalid IPv4 address: 'null'");
+        Ipv4.parse(null);
+    }
+
     @Test
     public void shouldHave32BitsSize() {
         assertEquals(Ipv4.NUMBER_OF_BITS, Ipv4.FIRST_IPV4_ADDRESS.bitSize());
@@ -193,4 +292,26 @@ public class Ipv4Test {
         assertEquals(16, ipv4.getCommonPrefixLength(Ipv4.of("192.168.255.255")));
         assertEquals(32, ipv4.getCommonPrefixLength(Ipv4.of("192.168.0.0")));
     }
+
+    @Test
+    public void shouldFormatToAppendable() throws Exception {
+        StringBuilder sb = new StringBuilder("ip=");
+        Ipv4.parse("192.168.0.1").formatTo(sb);
+        assertEquals("ip=192.168.0.1", sb.toString());
+    }
+
+    @Test
+    public void shouldFormatToBytesAsToString() throws Exception {
+        byte[] buffer = new byte[20];
+        for (String text : new String[]{"0.0.0.0", "255.255.255.255", "10.0.9.100", "1.20.255.0"}) {
+            int end = Ipv4.parse(text).formatTo(buffer, 2);
+            assertEquals(text, new String(buffer, 2, end - 2, "US-ASCII"));
+            assertEquals(Ipv4.parse(text).toString(), new String(buffer, 2, end - 2, "US-ASCII"));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldFailToFormatToBytesWhenBufferIsTooSmall() {
+        Ipv4.parse("192.168.0.1").formatTo(new byte[10], 0);
+    }
 }
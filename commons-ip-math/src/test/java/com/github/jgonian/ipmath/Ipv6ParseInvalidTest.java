@@ -428,6 +428,11 @@ public class Ipv6ParseInvalidTest {
                 "1111::3333:4444:5555:6666:7777:8888:",
                 "::3333:4444:5555:6666:7777:8888:",
                 "::2222:3333:4444:5555:6666:7777:8888:",
+
+                // signs and non-ASCII digits
+                "+1::",
+                "::-1",
+                "::\u0661",
         });
     }
 }
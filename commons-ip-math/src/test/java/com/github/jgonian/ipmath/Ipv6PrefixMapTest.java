@@ -0,0 +1,162 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class Ipv6PrefixMapTest {
+
+    @Test
+    public void shouldFindLongestMatch() {
+        Ipv6PrefixMap<String> map = new Ipv6PrefixMap<String>();
+        map.put(Ipv6Range.parse("2001:db8::/32"), "a");
+        map.put(Ipv6Range.parse("2001:db8:1::/48"), "b");
+        map.put(Ipv6Range.parse("2001:db8:1:2::/63"), "c");
+        map.put(Ipv6Range.parse("2001:db8:1:2::1/128"), "d");
+
+        assertEquals("a", map.longestMatch(Ipv6.parse("2001:db8::1")));
+        assertEquals("b", map.longestMatch(Ipv6.parse("2001:db8:1:4::")));
+        assertEquals("c", map.longestMatch(Ipv6.parse("2001:db8:1:3::")));
+        assertEquals("d", map.longestMatch(Ipv6.parse("2001:db8:1:2::1")));
+        assertNull(map.longestMatch(Ipv6.parse("2001:db9::")));
+        assertEquals(Ipv6Range.parse("2001:db8:1::/48"), map.longestMatchingPrefix(Ipv6.parse("2001:db8:1:ffff::")));
+        assertNull(map.longestMatchingPrefix(Ipv6.parse("::1")));
+    }
+
+    @Test
+    public void shouldFindLongestMatchOfLongs() {
+        Ipv6PrefixMap<String> map = new Ipv6PrefixMap<String>();
+        map.put(Ipv6Range.parse("2001:db8::/32"), "a");
+        assertEquals("a", map.longestMatch(0x20010db8ffffffffL, -1L));
+        assertNull(map.longestMatch(0x20010db900000000L, 0L));
+    }
+
+    @Test
+    public void shouldMatchEverythingWithDefaultRoute() {
+        Ipv6PrefixMap<String> map = new Ipv6PrefixMap<String>(3);
+        map.put(Ipv6Range.parse("::/0"), "default");
+        map.put(Ipv6Range.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff/128"), "last");
+        assertEquals("default", map.longestMatch(Ipv6.FIRST_IPV6_ADDRESS));
+        assertEquals("default", map.longestMatch(Ipv6.LAST_IPV6_ADDRESS.previous()));
+        assertEquals("last", map.longestMatch(Ipv6.LAST_IPV6_ADDRESS));
+    }
+
+    @Test
+    public void shouldReplaceValueOfSamePrefix() {
+        Ipv6PrefixMap<String> map = new Ipv6PrefixMap<String>();
+        assertNull(map.put(Ipv6Range.parse("2001:db8::/32"), "a"));
+        assertEquals("a", map.put(Ipv6Range.parse("2001:db8::/32"), "b"));
+        assertEquals("b", map.get(Ipv6Range.parse("2001:db8::/32")));
+        assertNull(map.get(Ipv6Range.parse("2001:db8::/33")));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void shouldRemovePrefixButNotCoveredPrefixes() {
+        Ipv6PrefixMap<String> map = new Ipv6PrefixMap<String>();
+        map.put(Ipv6Range.parse("2001:db8::/30"), "a");
+        map.put(Ipv6Range.parse("2001:db8::/31"), "b");
+        map.put(Ipv6Range.parse("2001:db8:1::/48"), "c");
+
+        assertEquals("b", map.remove(Ipv6Range.parse("2001:db8::/31")));
+        assertNull(map.remove(Ipv6Range.parse("2001:db8::/31")));
+        assertEquals("a", map.longestMatch(Ipv6.parse("2001:db8::")));
+        assertEquals("c", map.longestMatch(Ipv6.parse("2001:db8:1::")));
+
+        assertEquals("a", map.remove(Ipv6Range.parse("2001:db8::/30")));
+        assertNull(map.longestMatch(Ipv6.parse("2001:db8::")));
+        assertEquals("c", map.remove(Ipv6Range.parse("2001:db8:1::/48")));
+        assertTrue(map.isEmpty());
+        assertNull(map.longestMatch(Ipv6.parse("2001:db8:1::")));
+    }
+
+    @Test
+    public void shouldClear() {
+        Ipv6PrefixMap<String> map = new Ipv6PrefixMap<String>();
+        map.put(Ipv6Range.parse("2001:db8::/32"), "a");
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.longestMatch(Ipv6.parse("2001:db8::")));
+        map.put(Ipv6Range.parse("2001:db8::/32"), "b");
+        assertEquals("b", map.longestMatch(Ipv6.parse("2001:db8::")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailOnStrideAboveMaximum() {
+        new Ipv6PrefixMap<String>(Ipv6PrefixMap.MAX_STRIDE + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToPutRangeWhichIsNotPrefix() {
+        new Ipv6PrefixMap<String>().put(Ipv6Range.parse("::-::2"), "a");
+    }
+
+    @Test
+    public void shouldAgreeWithLinearScanOnRandomPrefixesForEachStride() {
+        for (int stride = 1; stride <= Ipv6PrefixMap.MAX_STRIDE; stride++) {
+            Random random = new Random(stride);
+            Ipv6PrefixMap<Integer> map = new Ipv6PrefixMap<Integer>(stride);
+            Map<Ipv6Range, Integer> expected = new HashMap<Ipv6Range, Integer>();
+            List<Ipv6Range> prefixes = new ArrayList<Ipv6Range>();
+            for (int i = 0; i < 1000; i++) {
+                // few distinct bits at a few positions, so that prefixes nest and share paths
+                int prefixLength = random.nextInt(129);
+                long high = 0x20010db800000000L | (long) random.nextInt(4) << 20 | random.nextInt(2);
+                long low = (long) random.nextInt(4) << 40 | random.nextInt(4);
+                Ipv6 start = Ipv6.of(high, low).lowerBoundForPrefix(prefixLength);
+                Ipv6Range prefix = Ipv6Range.from(start).andPrefixLength(prefixLength);
+                prefixes.add(prefix);
+                assertEquals(expected.put(prefix, i), map.put(prefix, i));
+            }
+            for (int i = 0; i < prefixes.size(); i += 2) {
+                assertEquals(expected.remove(prefixes.get(i)), map.remove(prefixes.get(i)));
+            }
+            assertEquals(expected.size(), map.size());
+
+            for (int i = 0; i < 5000; i++) {
+                long high = 0x20010db800000000L | (long) random.nextInt(8) << 20 | random.nextInt(4);
+                long low = (long) random.nextInt(8) << 40 | random.nextInt(8);
+                Ipv6 address = Ipv6.of(random.nextInt(10) == 0 ? ~high : high, low);
+                Ipv6Range longest = null;
+                for (Ipv6Range prefix : expected.keySet()) {
+                    if (prefix.contains(address) && (longest == null || prefix.size().compareTo(longest.size()) < 0)) {
+                        longest = prefix;
+                    }
+                }
+                assertEquals("stride " + stride, longest == null ? null : expected.get(longest), map.longestMatch(address));
+                assertEquals(longest, map.longestMatchingPrefix(address));
+            }
+        }
+    }
+}
@@ -28,12 +28,16 @@ import org.junit.Test;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
 
 import static com.github.jgonian.ipmath.Ipv6.FIRST_IPV6_ADDRESS;
 import static com.github.jgonian.ipmath.Ipv6.LAST_IPV6_ADDRESS;
 import static java.math.BigInteger.ONE;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class Ipv6RangeTest extends AbstractRangeTest<Ipv6, Ipv6Range> {
 
@@ -134,7 +138,7 @@ public class Ipv6RangeTest extends AbstractRangeTest<Ipv6, Ipv6Range> {
 
     @Test
     public void shouldParseDecimalNotation() {
-        assertEquals(Ipv6Range.from(FIRST_IPV6_ADDRESS).to(LAST_IPV6_ADDRESS), Ipv6Range.parseDecimalNotation(FIRST_IPV6_ADDRESS.value() + "-" + LAST_IPV6_ADDRESS.value()));
+        assertEquals(Ipv6Range.from(FIRST_IPV6_ADDRESS).to(LAST_IPV6_ADDRESS), Ipv6Range.parseDecimalNotation(FIRST_IPV6_ADDRESS.asBigInteger() + "-" + LAST_IPV6_ADDRESS.asBigInteger()));
     }
 
     @Test
@@ -287,4 +291,64 @@ public class Ipv6RangeTest extends AbstractRangeTest<Ipv6, Ipv6Range> {
         Ipv6Range range = Ipv6Range.from("::1").to(Ipv6.LAST_IPV6_ADDRESS);
         assertEquals(128, range.splitToPrefixes().size());
     }
+
+    @Test
+    public void shouldSplitWholeIpv6SpaceIntoSinglePrefix() {
+        Ipv6Range range = Ipv6Range.from(FIRST_IPV6_ADDRESS).to(LAST_IPV6_ADDRESS);
+        assertEquals(Arrays.asList(range), range.splitToPrefixes());
+    }
+
+    @Test
+    public void shouldSplitIntoPrefixesWorstCase() {
+        Ipv6Range range = Ipv6Range.from("::1").to(LAST_IPV6_ADDRESS.previous());
+        assertEquals(254, range.splitToPrefixes().size());
+    }
+
+    @Test
+    public void shouldIterateOverPrefixesOfRandomRanges() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            BigInteger start = new BigInteger(128, random);
+            BigInteger end = start.add(new BigInteger(random.nextInt(128), random)).min(LAST_IPV6_ADDRESS.asBigInteger());
+            Ipv6Range range = Ipv6Range.from(start).to(end);
+            Iterator<Ipv6Range> prefixes = range.prefixIterator();
+            Ipv6 next = range.start();
+            Ipv6Range prefix = null;
+            while (prefixes.hasNext()) {
+                prefix = prefixes.next();
+                assertEquals(next, prefix.start());
+                assertTrue(PrefixUtils.isLegalPrefix(prefix));
+                next = prefix.end().hasNext() ? prefix.end().next() : null;
+            }
+            assertEquals(range.end(), prefix.end());
+        }
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void shouldFailToIterateBeyondLastPrefix() {
+        Iterator<Ipv6Range> prefixes = Ipv6Range.parse("2001:db8::/32").prefixIterator();
+        prefixes.next();
+        prefixes.next();
+    }
+
+    @Test
+    public void shouldFormatAsToString() throws Exception {
+        byte[] buffer = new byte[79];
+        for (String text : new String[]{"::1-::3", "::/0", "2001:db8::/32", "::-ffff:ffff:ffff:ffff:ffff:ffff:ffff:fffe"}) {
+            Ipv6Range range = Ipv6Range.parse(text);
+            StringBuilder sb = new StringBuilder();
+            range.formatTo(sb);
+            assertEquals(text, sb.toString());
+            assertEquals(text, new String(buffer, 0, range.formatTo(buffer, 0), "US-ASCII"));
+        }
+    }
+
+    @Test
+    public void shouldFormatInRangeAndCidrNotation() throws Exception {
+        Ipv6Range range = Ipv6Range.parse("2001:db8::/32");
+        byte[] buffer = new byte[79];
+        assertEquals("2001:db8::-2001:db8:ffff:ffff:ffff:ffff:ffff:ffff",
+                new String(buffer, 0, range.formatInRangeNotationTo(buffer, 0), "US-ASCII"));
+        assertEquals("2001:db8::/32", new String(buffer, 0, range.formatInCidrNotationTo(buffer, 0), "US-ASCII"));
+    }
 }
@@ -501,4 +501,195 @@ public class Ipv6Test {
         assertEquals(64, ipv6.getCommonPrefixLength(Ipv6.of("::ffff:0:0:0")));
         assertEquals(128, ipv6.getCommonPrefixLength(Ipv6.of("::ffff")));
     }
+
+    @Test
+    public void shouldCalculateBoundsAroundTheMiddleOfTheAddress() {
+        Ipv6 address = Ipv6.parse("2001:db8:1:2:3:4:5:6");
+        assertEquals(Ipv6.parse("2001:db8:1:2::"), address.lowerBoundForPrefix(64));
+        assertEquals(Ipv6.parse("2001:db8:1:2:ffff:ffff:ffff:ffff"), address.upperBoundForPrefix(64));
+        assertEquals(Ipv6.parse("2001:db8:1:2::"), address.lowerBoundForPrefix(65));
+        assertEquals(Ipv6.parse("2001:db8:1:2:7fff:ffff:ffff:ffff"), address.upperBoundForPrefix(65));
+        assertEquals(Ipv6.parse("2001:db8:1:2::"), address.lowerBoundForPrefix(63));
+        assertEquals(Ipv6.parse("2001:db8:1:3:ffff:ffff:ffff:ffff"), address.upperBoundForPrefix(63));
+    }
+
+    @Test
+    public void shouldCalculateCommonPrefixLengthInLeastSignificantBits() {
+        assertEquals(127, Ipv6.of("::ffff").getCommonPrefixLength(Ipv6.of("::fffe")));
+        assertEquals(66, Ipv6.of("::").getCommonPrefixLength(Ipv6.of("::3fff:ffff:ffff:ffff")));
+    }
+
+    @Test
+    public void shouldCreateFromMostAndLeastSignificantBits() {
+        assertEquals(Ipv6.parse("2001:db8::1"), Ipv6.of(0x20010db800000000L, 1L));
+        assertEquals(Ipv6.LAST_IPV6_ADDRESS, Ipv6.of(-1L, -1L));
+        assertEquals(Ipv6.LAST_IPV6_ADDRESS, Ipv6.of(Ipv6.MAXIMUM_VALUE));
+        assertEquals(Ipv6.MAXIMUM_VALUE, Ipv6.LAST_IPV6_ADDRESS.asBigInteger());
+        assertEquals(new BigInteger("42540766411282592856903984951653826561"), Ipv6.parse("2001:db8::1").asBigInteger());
+    }
+
+    @Test
+    public void shouldCompareAsUnsigned() {
+        assertTrue(Ipv6.of("8000::").compareTo(Ipv6.of("7fff:ffff:ffff:ffff:ffff:ffff:ffff:ffff")) > 0);
+        assertTrue(Ipv6.of("::8000:0:0:0").compareTo(Ipv6.of("::7fff:ffff:ffff:ffff")) > 0);
+        assertTrue(Ipv6.of("::7fff:ffff:ffff:ffff").compareTo(Ipv6.of("::8000:0:0:0")) < 0);
+        assertEquals(0, Ipv6.of("ffff::1").compareTo(Ipv6.of("ffff::1")));
+    }
+
+    @Test
+    public void shouldCarryOnNextAndBorrowOnPrevious() {
+        assertEquals(Ipv6.of("::1:0:0:0:0"), Ipv6.of("::ffff:ffff:ffff:ffff").next());
+        assertEquals(Ipv6.of("::ffff:ffff:ffff:ffff"), Ipv6.of("::1:0:0:0:0").previous());
+        assertEquals(Ipv6.of("::1"), Ipv6.FIRST_IPV6_ADDRESS.next());
+        assertEquals(Ipv6.of("ffff:ffff:ffff:ffff:ffff:ffff:ffff:fffe"), Ipv6.LAST_IPV6_ADDRESS.previous());
+    }
+
+    @Test
+    public void testHasNextAndHasPrevious() {
+        assertTrue(Ipv6.FIRST_IPV6_ADDRESS.hasNext());
+        assertFalse(Ipv6.FIRST_IPV6_ADDRESS.hasPrevious());
+        assertFalse(Ipv6.LAST_IPV6_ADDRESS.hasNext());
+        assertTrue(Ipv6.LAST_IPV6_ADDRESS.hasPrevious());
+        assertTrue(Ipv6.of("::ffff:ffff:ffff:ffff").hasNext());
+        assertTrue(Ipv6.of("ffff:ffff:ffff:ffff::").hasPrevious());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailOnNextOfLastAddress() {
+        Ipv6.LAST_IPV6_ADDRESS.next();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailOnPreviousOfFirstAddress() {
+        Ipv6.FIRST_IPV6_ADDRESS.previous();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailOnValueAboveMaximum() {
+        Ipv6.of(Ipv6.MAXIMUM_VALUE.add(BigInteger.ONE));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailOnNegativeValue() {
+        Ipv6.of(BigInteger.ONE.negate());
+    }
+
+    @Test
+    public void shouldParseValueOfCharSequenceSlice() {
+        String line = "client=[2001:db8::1]:443 server=[::ffff:10.0.0.255]:80";
+        long[] result = new long[2];
+        assertTrue(Ipv6.parseValue(line, 8, 19, result));
+        assertEquals(Ipv6.of("2001:db8::1"), Ipv6.of(result[0], result[1]));
+        assertTrue(Ipv6.parseValue(new StringBuilder(line), 33, 50, result));
+        assertEquals(Ipv6.of("::ffff:10.0.0.255"), Ipv6.of(result[0], result[1]));
+    }
+
+    @Test
+    public void shouldParseValueOfAsciiBytes() throws Exception {
+        byte[] line = "1:2:3:4:5:6:7:8 abcd:ef01::2345:6789 1:2:3:4:5:6:1.2.3.4".getBytes("US-ASCII");
+        long[] result = new long[2];
+        assertTrue(Ipv6.parseValue(line, 0, 15, result));
+        assertEquals(0x0001000200030004L, result[0]);
+        assertEquals(0x0005000600070008L, result[1]);
+        assertTrue(Ipv6.parseValue(line, 16, 36, result));
+        assertEquals(0xabcdef0100000000L, result[0]);
+        assertEquals(0x0000000023456789L, result[1]);
+        assertTrue(Ipv6.parseValue(line, 37, line.length, result));
+        assertEquals(0x0001000200030004L, result[0]);
+        assertEquals(0x0005000601020304L, result[1]);
+    }
+
+    @Test
+    public void shouldParseValueOfCompressedAddresses() {
+        long[] result = new long[2];
+        assertTrue(Ipv6.parseValue("::", 0, 2, result));
+        assertEquals(0L, result[0]);
+        assertEquals(0L, result[1]);
+        assertTrue(Ipv6.parseValue("1::", 0, 3, result));
+        assertEquals(0x0001000000000000L, result[0]);
+        assertEquals(0L, result[1]);
+        assertTrue(Ipv6.parseValue("1:2:3:4:5:6:7::", 0, 15, result));
+        assertEquals(0x0001000200030004L, result[0]);
+        assertEquals(0x0005000600070000L, result[1]);
+        assertTrue(Ipv6.parseValue("::2:3:4:5:6:7:8", 0, 15, result));
+        assertEquals(0x0000000200030004L, result[0]);
+        assertEquals(0x0005000600070008L, result[1]);
+        assertTrue(Ipv6.parseValue("1:2:3:4:5::ffff", 0, 15, result));
+        assertEquals(0x0001000200030004L, result[0]);
+        assertEquals(0x000500000000ffffL, result[1]);
+    }
+
+    @Test
+    public void shouldReturnFalseInsteadOfThrowing() throws Exception {
+        String[] invalid = {"", ":", ":::", "1:2:3:4:5:6:7", "1:2:3:4:5:6:7:8:9", "1::2::3", "::1:2:3:4:5:6:7:8",
+                "1:2:3:4:5:6:7:8::", ":1::", "1::2:", "12345::", "+1::", "::-1", "::g", " ::1", "::1 ", "[::1]",
+                "::1.2.3.4:5", "::1.2.3", "1.2.3.4", "1:2:3:4:5:6:7:1.2.3.4"};
+        long[] result = {42L, 42L};
+        for (String text : invalid) {
+            assertFalse(text, Ipv6.parseValue(text, 0, text.length(), result));
+            assertFalse(text, Ipv6.parseValue(text.getBytes("US-ASCII"), 0, text.length(), result));
+        }
+        assertFalse(Ipv6.parseValue(new byte[]{':', ':', (byte) 0xb4}, 0, 3, result));
+        assertEquals(42L, result[0]);
+        assertEquals(42L, result[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRequireResultOfTwoLongsToParseValue() {
+        Ipv6.parseValue("::1", 0, 3, new long[1]);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToParseNull() {
+        Ipv6.parse(null);
+    }
+
+    @Test
+    public void shouldSerializeAndDeserialize() throws Exception {
+        Ipv6 ipv6 = Ipv6.of("ffff:ffff::1");
+        assertEquals(ipv6, SerializationTestHelper.roundTrip(ipv6));
+    }
+
+    @Test
+    public void shouldDeserializeFormOfBigIntegerValue() throws Exception {
+        // Ipv6.of("2001:db8::1") serialized when the value was held in a java.math.BigInteger
+        String serialized = "aced00057372001e636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e49707636ffffffffffffffff0200"
+                + "014c000576616c75657400164c6a6176612f6d6174682f426967496e74656765723b78720024636f6d2e676974687562"
+                + "2e6a676f6e69616e2e69706d6174682e41627374726163744970cb98c9eb2ae7c6850200007870737200146a6176612e"
+                + "6d6174682e426967496e74656765728cfc9f1fa93bfb1d030006490008626974436f756e744900096269744c656e6774"
+                + "6849001366697273744e6f6e7a65726f427974654e756d49000c6c6f776573745365744269744900067369676e756d5b"
+                + "00096d61676e69747564657400025b42787200106a6176612e6c616e672e4e756d62657286ac951d0b94e08b02000078"
+                + "70fffffffffffffffffffffffefffffffe00000001757200025b42acf317f8060854e002000078700000001020010db8"
+                + "00000000000000000000000178";
+        assertEquals(Ipv6.of("2001:db8::1"), SerializationTestHelper.deserialize(serialized));
+    }
+
+    @Test
+    public void shouldFormatCanonicalTextAsInRfc5952() throws Exception {
+        String[][] examples = {
+                {"2001:0db8:0000:0000:0000:0000:0002:0001", "2001:db8::2:1"},
+                {"2001:db8:0:1:1:1:1:1", "2001:db8:0:1:1:1:1:1"},
+                {"2001:0:0:1:0:0:0:1", "2001:0:0:1::1"},
+                {"2001:db8:0:0:1:0:0:1", "2001:db8::1:0:0:1"},
+                {"2001:DB8::ABCD", "2001:db8::abcd"},
+                {"0:0:0:0:0:0:0:1", "::1"},
+                {"1:0:0:0:0:0:0:0", "1::"},
+                {"::ffff:192.168.0.1", "::ffff:c0a8:1"},
+        };
+        byte[] buffer = new byte[40];
+        for (String[] example : examples) {
+            Ipv6 ipv6 = Ipv6.parse(example[0]);
+            StringBuilder sb = new StringBuilder();
+            ipv6.formatTo(sb);
+            int end = ipv6.formatTo(buffer, 1);
+            assertEquals(example[1], ipv6.toString());
+            assertEquals(example[1], sb.toString());
+            assertEquals(example[1], new String(buffer, 1, end - 1, "US-ASCII"));
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void shouldFailToFormatToBytesWhenBufferIsTooSmall() {
+        Ipv6.LAST_IPV6_ADDRESS.formatTo(new byte[38], 0);
+    }
 }
@@ -0,0 +1,222 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MappedPrefixTableTest {
+
+    private static final int NO_MATCH = -1;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void shouldFindMostSpecificIpv4Prefix() throws IOException {
+        Map<Ipv4Range, Integer> prefixes = new LinkedHashMap<Ipv4Range, Integer>();
+        prefixes.put(Ipv4Range.parse("10.1.2.0/24"), 3);
+        prefixes.put(Ipv4Range.parse("10.0.0.0/8"), 1);
+        prefixes.put(Ipv4Range.parse("10.1.0.0/16"), 2);
+        prefixes.put(Ipv4Range.parse("192.168.0.0/16"), 4);
+        MappedPrefixTable subject = ipv4Table(prefixes);
+
+        assertEquals(4, subject.size());
+        assertTrue(subject.isIpv4());
+        assertEquals(NO_MATCH, subject.longestMatch(Ipv4.parse("9.255.255.255"), NO_MATCH));
+        assertEquals(1, subject.longestMatch(Ipv4.parse("10.0.0.0"), NO_MATCH));
+        assertEquals(2, subject.longestMatch(Ipv4.parse("10.1.1.255"), NO_MATCH));
+        assertEquals(3, subject.longestMatch(Ipv4.parse("10.1.2.0"), NO_MATCH));
+        assertEquals(3, subject.longestMatch(Ipv4.parse("10.1.2.255"), NO_MATCH));
+        assertEquals(2, subject.longestMatch(Ipv4.parse("10.1.3.0"), NO_MATCH));
+        assertEquals(1, subject.longestMatch(Ipv4.parse("10.255.255.255"), NO_MATCH));
+        assertEquals(NO_MATCH, subject.longestMatch(Ipv4.parse("11.0.0.0"), NO_MATCH));
+        assertEquals(4, subject.longestMatch(Ipv4.parse("192.168.255.255"), NO_MATCH));
+        assertEquals(NO_MATCH, subject.longestMatch(Ipv4.parse("255.255.255.255"), NO_MATCH));
+    }
+
+    @Test
+    public void shouldCoverEdgesOfIpv4Space() throws IOException {
+        Map<Ipv4Range, Integer> prefixes = new HashMap<Ipv4Range, Integer>();
+        prefixes.put(Ipv4Range.parse("0.0.0.0/0"), 0);
+        prefixes.put(Ipv4Range.parse("0.0.0.0/32"), 1);
+        prefixes.put(Ipv4Range.parse("255.255.255.255/32"), 2);
+        MappedPrefixTable subject = ipv4Table(prefixes);
+
+        assertEquals(1, subject.longestMatch(Ipv4.parse("0.0.0.0"), NO_MATCH));
+        assertEquals(0, subject.longestMatch(Ipv4.parse("0.0.0.1"), NO_MATCH));
+        assertEquals(0, subject.longestMatch(Ipv4.parse("255.255.255.254"), NO_MATCH));
+        assertEquals(2, subject.longestMatch(Ipv4.parse("255.255.255.255"), NO_MATCH));
+    }
+
+    @Test
+    public void shouldAnswerNoMatchForEmptyTable() throws IOException {
+        MappedPrefixTable subject = ipv4Table(new HashMap<Ipv4Range, Integer>());
+
+        assertEquals(0, subject.size());
+        assertEquals(NO_MATCH, subject.longestMatch(Ipv4.parse("10.0.0.0"), NO_MATCH));
+    }
+
+    @Test
+    public void shouldMatchIpv4PrefixMap() throws IOException {
+        Map<Ipv4Range, Integer> prefixes = new HashMap<Ipv4Range, Integer>();
+        Ipv4PrefixMap<Integer> expected = new Ipv4PrefixMap<Integer>();
+        for (int i = 0; i < 5000; i++) {
+            int prefixLength = 8 + random.nextInt(25);
+            Ipv4Range prefix = Ipv4Range.from(Ipv4.of(random.nextInt() & Ipv4.prefixMask(prefixLength))).andPrefixLength(prefixLength);
+            int value = random.nextInt(10);
+            prefixes.put(prefix, value);
+            expected.put(prefix, value);
+        }
+        MappedPrefixTable subject = ipv4Table(prefixes);
+
+        for (int i = 0; i < 100000; i++) {
+            int address = random.nextInt();
+            Integer value = expected.longestMatch(address);
+            assertEquals(value == null ? NO_MATCH : value, subject.longestMatch(address, NO_MATCH));
+        }
+    }
+
+    @Test
+    public void shouldMatchIpv6PrefixMap() throws IOException {
+        Map<Ipv6Range, Integer> prefixes = new HashMap<Ipv6Range, Integer>();
+        Ipv6PrefixMap<Integer> expected = new Ipv6PrefixMap<Integer>();
+        for (int i = 0; i < 5000; i++) {
+            // few distinct high bits, so that the prefixes nest
+            Ipv6 address = Ipv6.of(0x20010db800000000L | random.nextInt(16), random.nextLong());
+            int prefixLength = 16 + random.nextInt(113);
+            Ipv6Range prefix = Ipv6Range.from(address.lowerBoundForPrefix(prefixLength)).andPrefixLength(prefixLength);
+            int value = random.nextInt();
+            prefixes.put(prefix, value);
+            expected.put(prefix, value);
+        }
+        MappedPrefixTable subject = ipv6Table(prefixes);
+
+        assertFalse(subject.isIpv4());
+        for (Ipv6Range prefix : prefixes.keySet()) {
+            assertLongestMatch(expected, subject, prefix.start());
+            assertLongestMatch(expected, subject, prefix.end());
+            if (prefix.end().hasNext()) {
+                assertLongestMatch(expected, subject, prefix.end().next());
+            }
+        }
+        for (int i = 0; i < 100000; i++) {
+            assertLongestMatch(expected, subject, Ipv6.of(0x20010db800000000L | random.nextInt(17), random.nextLong()));
+        }
+    }
+
+    @Test
+    public void shouldMapTableFile() throws IOException {
+        Map<Ipv6Range, Integer> prefixes = new HashMap<Ipv6Range, Integer>();
+        prefixes.put(Ipv6Range.parse("2001:db8::/32"), 1);
+        prefixes.put(Ipv6Range.parse("2001:db8:1::/48"), 2);
+        File file = folder.newFile("table.lpm");
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            MappedPrefixTable.writeIpv6(prefixes, out);
+        } finally {
+            out.close();
+        }
+
+        MappedPrefixTable subject = MappedPrefixTable.open(file);
+
+        assertEquals(2, subject.size());
+        assertEquals(1, subject.longestMatch(Ipv6.parse("2001:db8::1"), NO_MATCH));
+        assertEquals(2, subject.longestMatch(Ipv6.parse("2001:db8:1::1"), NO_MATCH));
+        assertEquals(NO_MATCH, subject.longestMatch(Ipv6.parse("2001:db9::"), NO_MATCH));
+    }
+
+    @Test
+    public void shouldWrapTableAtPositionOfBuffer() throws IOException {
+        Map<Ipv4Range, Integer> prefixes = new HashMap<Ipv4Range, Integer>();
+        prefixes.put(Ipv4Range.parse("10.0.0.0/8"), 7);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[5]);
+        MappedPrefixTable.writeIpv4(prefixes, bytes);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+        buffer.position(5);
+
+        assertEquals(7, MappedPrefixTable.wrap(buffer).longestMatch(Ipv4.parse("10.1.2.3"), NO_MATCH));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectOtherFamily() throws IOException {
+        ipv4Table(new HashMap<Ipv4Range, Integer>()).longestMatch(Ipv6.parse("::1"), NO_MATCH);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectIllegalPrefix() throws IOException {
+        Map<Ipv4Range, Integer> prefixes = new HashMap<Ipv4Range, Integer>();
+        prefixes.put(Ipv4Range.parse("10.0.0.1-10.0.0.2"), 1);
+        ipv4Table(prefixes);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectBytesWhichAreNotATable() {
+        MappedPrefixTable.wrap(ByteBuffer.allocate(64));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTruncatedTable() throws IOException {
+        Map<Ipv4Range, Integer> prefixes = new HashMap<Ipv4Range, Integer>();
+        prefixes.put(Ipv4Range.parse("10.0.0.0/8"), 7);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MappedPrefixTable.writeIpv4(prefixes, bytes);
+        MappedPrefixTable.wrap(ByteBuffer.wrap(bytes.toByteArray(), 0, bytes.size() - 1));
+    }
+
+    private static void assertLongestMatch(Ipv6PrefixMap<Integer> expected, MappedPrefixTable subject, Ipv6 address) {
+        Integer value = expected.longestMatch(address);
+        assertEquals(address.toString(), value == null ? NO_MATCH : value, subject.longestMatch(address, NO_MATCH));
+    }
+
+    private static MappedPrefixTable ipv4Table(Map<Ipv4Range, Integer> prefixes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MappedPrefixTable.writeIpv4(prefixes, bytes);
+        return MappedPrefixTable.wrap(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+
+    private static MappedPrefixTable ipv6Table(Map<Ipv6Range, Integer> prefixes) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        MappedPrefixTable.writeIpv6(prefixes, bytes);
+        return MappedPrefixTable.wrap(ByteBuffer.wrap(bytes.toByteArray()));
+    }
+}
@@ -0,0 +1,87 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ParallelSortedRangeSetBuilderTest {
+
+    @Test
+    public void shouldBuildSameSetAsSequentialAddAll() {
+        Random random = new Random(42);
+        List<Ipv4Range> ranges = new ArrayList<Ipv4Range>();
+        for (int i = 0; i < ParallelSortedRangeSetBuilder.CHUNK_SIZE * 5 + 17; i++) {
+            long start = random.nextInt() & Ipv4.MAXIMUM_VALUE;
+            ranges.add(Ipv4Range.from(start).to(Math.min(Ipv4.MAXIMUM_VALUE, start + random.nextInt(1 << 16))));
+        }
+        SortedRangeSet<Ipv4, Ipv4Range> expected = new SortedRangeSet<Ipv4, Ipv4Range>();
+        expected.addAll(ranges);
+
+        assertEquals(expected, ParallelSortedRangeSetBuilder.build(ranges));
+        assertEquals(expected, ParallelSortedRangeSetBuilder.build(ranges, new ForkJoinPool(3)));
+    }
+
+    @Test
+    public void shouldMergeRangesAcrossChunks() {
+        List<AsnRange> ranges = new ArrayList<AsnRange>();
+        for (int i = 0; i < ParallelSortedRangeSetBuilder.CHUNK_SIZE * 4; i++) {
+            ranges.add(Asn.of((long) i).asRange());
+        }
+        Collections.shuffle(ranges, new Random(42));
+
+        SortedRangeSet<Asn, AsnRange> result = ParallelSortedRangeSetBuilder.build(ranges);
+
+        assertEquals(new AsnRange(Asn.of(0l), Asn.of(ParallelSortedRangeSetBuilder.CHUNK_SIZE * 4 - 1l)), result.getSingleRange());
+    }
+
+    @Test
+    public void shouldNotModifyInput() {
+        List<Ipv6Range> ranges = Arrays.asList(Ipv6Range.parse("2001:db8::/48"), Ipv6Range.parse("2001::/16"));
+
+        SortedRangeSet<Ipv6, Ipv6Range> result = ParallelSortedRangeSetBuilder.build(ranges);
+
+        assertEquals(Ipv6Range.parse("2001::/16"), result.getSingleRange());
+        assertEquals(Ipv6Range.parse("2001:db8::/48"), ranges.get(0));
+    }
+
+    @Test
+    public void shouldBuildEmptySet() {
+        assertTrue(ParallelSortedRangeSetBuilder.build(Collections.<Ipv4Range>emptyList()).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectNullRanges() {
+        ParallelSortedRangeSetBuilder.build(Arrays.asList(Ipv4Range.parse("10.0.0.0/8"), null));
+    }
+}
@@ -32,6 +32,7 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.SortedSet;
 
 /**
@@ -62,11 +63,56 @@ public class PrefixUtilsIpv4Test extends AbstractPrefixUtilsTest {
         assertEquals(30, PrefixUtils.getPrefixLength(parse("0.0.0.0-0.0.0.3")));
     }
 
+    @Test
+    public void shouldCheckPrefixesAcrossBitBoundaries() {
+        assertEquals(16, PrefixUtils.getPrefixLength(parse("10.1.0.0/16")));
+        assertEquals(1, PrefixUtils.getPrefixLength(parse("128.0.0.0/1")));
+        assertEquals(0, PrefixUtils.getPrefixLength(parse("0.0.0.0/0")));
+        assertFalse(PrefixUtils.isLegalPrefix(parse("10.0.0.0-10.0.1.254")));
+        assertFalse(PrefixUtils.isLegalPrefix(parse("10.0.0.1-10.0.1.255")));
+    }
+
+    @Test
+    public void shouldAgreeWithPrefixBoundsOnRandomRanges() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            Ipv4 start = Ipv4.of(random.nextInt());
+            Ipv4 end = random.nextBoolean()
+                    ? start.upperBoundForPrefix(random.nextInt(33))
+                    : Ipv4.ofUnsigned(Math.min(Ipv4.MAXIMUM_VALUE, start.asBigInteger().longValue() + random.nextInt(1 << random.nextInt(31))));
+            if (random.nextBoolean()) {
+                start = start.lowerBoundForPrefix(start.getCommonPrefixLength(end));
+            }
+            Ipv4Range range = Ipv4Range.from(start).to(end);
+            int commonPrefixLength = range.start().getCommonPrefixLength(range.end());
+            boolean legal = range.start().equals(range.start().lowerBoundForPrefix(commonPrefixLength))
+                    && range.end().equals(range.end().upperBoundForPrefix(commonPrefixLength));
+            assertEquals(range.toStringInRangeNotation(), legal, PrefixUtils.isLegalPrefix(range));
+            if (legal) {
+                assertEquals(commonPrefixLength, PrefixUtils.getPrefixLength(range));
+            }
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void shouldFailToGetPrefixLengthWhenInvalidPrefix() {
         PrefixUtils.getPrefixLength(parse("0.0.0.0-0.0.0.2"));
     }
 
+    @Test
+    public void shouldFindSameMinimumAndMaximumPrefixAsSortedSplit() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            long start = random.nextInt() & Ipv4.MAXIMUM_VALUE;
+            Ipv4Range range = Ipv4Range.from(start).to(Math.min(Ipv4.MAXIMUM_VALUE, start + ((random.nextInt() & Integer.MAX_VALUE) >>> random.nextInt(31))));
+            int prefixLength = random.nextInt(33);
+            assertEquals(findPrefixBySorting(range, prefixLength, SizeComparator.<Ipv4Range>get()),
+                    findMinimumPrefixForPrefixLength(range, prefixLength).orElse(null));
+            assertEquals(findPrefixBySorting(range, prefixLength, SizeComparator.<Ipv4Range>reverse()),
+                    findMaximumPrefixForPrefixLength(range, prefixLength).orElse(null));
+        }
+    }
+
     @Test
     public void shouldFindBiggestAndSmallestPrefixWhenRangeIsSingleValidPrefix() {
         Ipv4Range range = parse("0.0.0.0/0");
@@ -30,6 +30,7 @@ import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.SortedSet;
 
 import org.junit.Test;
@@ -60,11 +61,59 @@ public class PrefixUtilsIpv6Test  extends AbstractPrefixUtilsTest {
         assertEquals(126, PrefixUtils.getPrefixLength(Ipv6Range.parse("::0-::3")));
     }
 
+    @Test
+    public void shouldCheckPrefixesAcrossBitBoundaries() {
+        assertEquals(64, PrefixUtils.getPrefixLength(Ipv6Range.parse("2001:db8::/64")));
+        assertEquals(63, PrefixUtils.getPrefixLength(Ipv6Range.parse("2001:db8::/63")));
+        assertEquals(65, PrefixUtils.getPrefixLength(Ipv6Range.parse("2001:db8::/65")));
+        assertEquals(1, PrefixUtils.getPrefixLength(Ipv6Range.parse("8000::/1")));
+        assertFalse(PrefixUtils.isLegalPrefix(Ipv6Range.parse("2001:db8::-2001:db8:0:1:ffff:ffff:ffff:fffe")));
+        assertFalse(PrefixUtils.isLegalPrefix(Ipv6Range.parse("2001:db8::1-2001:db8:0:1:ffff:ffff:ffff:ffff")));
+        assertFalse(PrefixUtils.isLegalPrefix(Ipv6Range.parse("2001:db8::-2001:db8:0:2::")));
+    }
+
+    @Test
+    public void shouldAgreeWithPrefixBoundsOnRandomRanges() {
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            Ipv6 start = Ipv6.of(new BigInteger(128, random));
+            Ipv6 end = random.nextBoolean()
+                    ? start.upperBoundForPrefix(random.nextInt(129))
+                    : Ipv6.of(start.asBigInteger().add(new BigInteger(random.nextInt(128), random)).min(Ipv6.LAST_IPV6_ADDRESS.asBigInteger()));
+            if (random.nextBoolean()) {
+                start = start.lowerBoundForPrefix(start.getCommonPrefixLength(end));
+            }
+            Ipv6Range range = Ipv6Range.from(start).to(end);
+            int commonPrefixLength = range.start().getCommonPrefixLength(range.end());
+            boolean legal = range.start().equals(range.start().lowerBoundForPrefix(commonPrefixLength))
+                    && range.end().equals(range.end().upperBoundForPrefix(commonPrefixLength));
+            assertEquals(range.toStringInRangeNotation(), legal, PrefixUtils.isLegalPrefix(range));
+            if (legal) {
+                assertEquals(commonPrefixLength, PrefixUtils.getPrefixLength(range));
+            }
+        }
+    }
+
     @Test(expected = IllegalArgumentException.class)
     public void shouldFailToGetPrefixLengthWhenInvalidPrefix() {
         PrefixUtils.getPrefixLength(Ipv6Range.parse("::0-::2"));
     }
 
+    @Test
+    public void shouldFindSameMinimumAndMaximumPrefixAsSortedSplit() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            BigInteger start = new BigInteger(128, random);
+            BigInteger end = start.add(new BigInteger(random.nextInt(128), random)).min(Ipv6.LAST_IPV6_ADDRESS.asBigInteger());
+            Ipv6Range range = Ipv6Range.from(start).to(end);
+            int prefixLength = random.nextInt(129);
+            assertEquals(findPrefixBySorting(range, prefixLength, SizeComparator.<Ipv6Range>get()),
+                    findMinimumPrefixForPrefixLength(range, prefixLength).orElse(null));
+            assertEquals(findPrefixBySorting(range, prefixLength, SizeComparator.<Ipv6Range>reverse()),
+                    findMaximumPrefixForPrefixLength(range, prefixLength).orElse(null));
+        }
+    }
+
     @Test
     public void shouldFindBiggestAndSmallestPrefixWhenRangeIsSingleValidPrefix() {
         Ipv6Range range = Ipv6Range.parse("::/0");
@@ -0,0 +1,161 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RangeSetPatchTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void shouldBeEmptyForEqualVersions() {
+        SortedRangeSet<Ipv4, Ipv4Range> ranges = set(Ipv4Range.parse("10.0.0.0/8"), Ipv4Range.parse("192.168.0.0/16"));
+
+        RangeSetPatch<Ipv4, Ipv4Range> patch = RangeSetPatch.diff(ranges, ranges);
+
+        assertTrue(patch.isEmpty());
+        assertEquals(0, patch.size());
+    }
+
+    @Test
+    public void shouldRemoveAndAddWholeRanges() {
+        RangeSetPatch<Ipv4, Ipv4Range> patch = RangeSetPatch.diff(
+                set(Ipv4Range.parse("10.0.0.0/8"), Ipv4Range.parse("172.16.0.0/12")),
+                set(Ipv4Range.parse("10.0.0.0/8"), Ipv4Range.parse("192.168.0.0/16")));
+
+        assertEquals(Arrays.asList(Ipv4Range.parse("172.16.0.0/12")), patch.removed());
+        assertEquals(Arrays.asList(Ipv4Range.parse("192.168.0.0/16")), patch.added());
+    }
+
+    @Test
+    public void shouldOnlyContainChangedPartsOfRanges() {
+        RangeSetPatch<Ipv4, Ipv4Range> patch = RangeSetPatch.diff(
+                set(Ipv4Range.parse("10.0.0.0-10.0.0.100"), Ipv4Range.parse("10.0.1.0-10.0.1.100")),
+                set(Ipv4Range.parse("10.0.0.50-10.0.1.50")));
+
+        assertEquals(Arrays.asList(Ipv4Range.parse("10.0.0.0-10.0.0.49"), Ipv4Range.parse("10.0.1.51-10.0.1.100")),
+                patch.removed());
+        assertEquals(Arrays.asList(Ipv4Range.parse("10.0.0.101-10.0.0.255")), patch.added());
+    }
+
+    @Test
+    public void shouldSplitRangeWithHoles() {
+        RangeSetPatch<Asn, AsnRange> patch = RangeSetPatch.diff(
+                set(AsnRange.parse("AS1-AS100")),
+                set(AsnRange.parse("AS1-AS9"), AsnRange.parse("AS20-AS29"), AsnRange.parse("AS90-AS110")));
+
+        assertEquals(Arrays.asList(AsnRange.parse("AS10-AS19"), AsnRange.parse("AS30-AS89")), patch.removed());
+        assertEquals(Arrays.asList(AsnRange.parse("AS101-AS110")), patch.added());
+    }
+
+    @Test
+    public void shouldDiffAgainstEmptyVersions() {
+        SortedRangeSet<Ipv6, Ipv6Range> ranges = set(Ipv6Range.parse("2001:db8::/32"), Ipv6Range.parse("2001:dbb::/48"));
+        SortedRangeSet<Ipv6, Ipv6Range> empty = new SortedRangeSet<Ipv6, Ipv6Range>();
+
+        assertEquals(Arrays.asList(Ipv6Range.parse("2001:db8::/32"), Ipv6Range.parse("2001:dbb::/48")),
+                RangeSetPatch.diff(empty, ranges).added());
+        assertEquals(Collections.<Ipv6Range>emptyList(), RangeSetPatch.diff(empty, ranges).removed());
+        assertEquals(Arrays.asList(Ipv6Range.parse("2001:db8::/32"), Ipv6Range.parse("2001:dbb::/48")),
+                RangeSetPatch.diff(ranges, empty).removed());
+    }
+
+    @Test
+    public void shouldTurnOldVersionIntoNewVersion() {
+        for (int i = 0; i < 100; i++) {
+            SortedRangeSet<Ipv4, Ipv4Range> oldVersion = randomSet(50);
+            SortedRangeSet<Ipv4, Ipv4Range> newVersion = randomSet(50);
+            RangeSetPatch<Ipv4, Ipv4Range> patch = RangeSetPatch.diff(oldVersion, newVersion);
+
+            assertEquals(oldVersion.difference(newVersion), set(patch.removed()));
+            assertEquals(newVersion.difference(oldVersion), set(patch.added()));
+            SortedRangeSet<Ipv4, Ipv4Range> patched = oldVersion.union(new SortedRangeSet<Ipv4, Ipv4Range>());
+            patch.apply(patched);
+            assertEquals(newVersion, patched);
+        }
+    }
+
+    @Test
+    public void shouldApplyToConcurrentSet() {
+        SortedRangeSet<Ipv4, Ipv4Range> oldVersion = set(Ipv4Range.parse("10.0.0.0/8"));
+        SortedRangeSet<Ipv4, Ipv4Range> newVersion = set(Ipv4Range.parse("10.0.0.0/9"), Ipv4Range.parse("11.0.0.0/8"));
+        ConcurrentSortedRangeSet<Ipv4, Ipv4Range> ranges = new ConcurrentSortedRangeSet<Ipv4, Ipv4Range>(oldVersion);
+
+        ranges.update(RangeSetPatch.diff(oldVersion, newVersion));
+
+        assertEquals(newVersion.toImmutable(), ranges.snapshot());
+    }
+
+    @Test
+    public void shouldNotApplyToOtherVersion() {
+        RangeSetPatch<Ipv4, Ipv4Range> patch = RangeSetPatch.diff(
+                set(Ipv4Range.parse("10.0.0.0/8")), set(Ipv4Range.parse("11.0.0.0/8")));
+        SortedRangeSet<Ipv4, Ipv4Range> withoutRemoved = set(Ipv4Range.parse("12.0.0.0/8"));
+        SortedRangeSet<Ipv4, Ipv4Range> withAdded = set(Ipv4Range.parse("10.0.0.0/8"), Ipv4Range.parse("11.0.0.0/16"));
+
+        assertNotApplicable(patch, withoutRemoved);
+        assertNotApplicable(patch, withAdded);
+        assertEquals(set(Ipv4Range.parse("12.0.0.0/8")), withoutRemoved);
+        assertEquals(set(Ipv4Range.parse("10.0.0.0/8"), Ipv4Range.parse("11.0.0.0/16")), withAdded);
+    }
+
+    private static void assertNotApplicable(RangeSetPatch<Ipv4, Ipv4Range> patch, SortedRangeSet<Ipv4, Ipv4Range> ranges) {
+        try {
+            patch.apply(ranges);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().startsWith("Patch does not apply"));
+        }
+    }
+
+    private SortedRangeSet<Ipv4, Ipv4Range> randomSet(int size) {
+        SortedRangeSet<Ipv4, Ipv4Range> result = new SortedRangeSet<Ipv4, Ipv4Range>();
+        for (int i = 0; i < size; i++) {
+            long start = random.nextInt(10000);
+            result.add(Ipv4Range.from(start).to(start + random.nextInt(200)));
+        }
+        return result;
+    }
+
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> SortedRangeSet<C, R> set(R... ranges) {
+        return set(Arrays.asList(ranges));
+    }
+
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> SortedRangeSet<C, R> set(Iterable<R> ranges) {
+        SortedRangeSet<C, R> result = new SortedRangeSet<C, R>();
+        for (R range : ranges) {
+            result.add(range);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.InvalidObjectException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class SerializationTest {
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void shouldRoundTripEachTypeThroughProxy() throws Exception {
+        List<Object> values = Arrays.<Object>asList(
+                Ipv4.FIRST_IPV4_ADDRESS, Ipv4.LAST_IPV4_ADDRESS, Ipv4.of("192.168.0.1"),
+                Ipv6.FIRST_IPV6_ADDRESS, Ipv6.LAST_IPV6_ADDRESS, Ipv6.of("2001:db8::1"),
+                Asn.of(0L), Asn.of(Asn.ASN_32_BIT_MAX_VALUE), Asn.of(65546L),
+                Ipv4Range.parse("0.0.0.0/0"), Ipv4Range.parse("10.0.0.0/8"),
+                Ipv6Range.parse("::/0"), Ipv6Range.parse("2001:db8::/32"),
+                AsnRange.parse("AS0-AS4294967295"), AsnRange.parse("AS1-AS10"));
+        for (Object value : values) {
+            Object copy = SerializationTestHelper.roundTrip(value);
+            assertEquals(value, copy);
+            assertEquals(value.getClass(), copy.getClass());
+        }
+    }
+
+    @Test
+    public void shouldWriteFixedWidthValues() throws Exception {
+        // each value after the first costs its fixed-width form plus the same few bytes of stream framing
+        int framing = marginalSize(Ipv4.of("10.0.0.1"), Ipv4.of("10.0.0.2")) - 4;
+        assertEquals(framing + 16, marginalSize(Ipv6.of("::1"), Ipv6.of("::2")));
+        assertEquals(framing + 4, marginalSize(Asn.of(1L), Asn.of(2L)));
+        assertEquals(framing + 8, marginalSize(Ipv4Range.parse("10.0.0.0/8"), Ipv4Range.parse("11.0.0.0/8")));
+        assertEquals(framing + 32, marginalSize(Ipv6Range.parse("::/64"), Ipv6Range.parse("1::/64")));
+        assertEquals(framing + 8, marginalSize(AsnRange.parse("AS1-AS10"), AsnRange.parse("AS2-AS20")));
+    }
+
+    @Test
+    public void shouldBeSmallerThanFormOfOlderVersions() throws Exception {
+        assertTrue(SerializationTestHelper.serialize(Ipv4.of("192.168.0.1")).length < 207);
+        assertTrue(SerializationTestHelper.serialize(Ipv6.of("2001:db8::1")).length < 349);
+        assertTrue(SerializationTestHelper.serialize(Ipv4Range.parse("10.0.0.0/8")).length < 448);
+        assertTrue(SerializationTestHelper.serialize(Ipv6Range.parse("2001:db8::/32")).length < 629);
+        assertTrue(SerializationTestHelper.serialize(AsnRange.parse("AS1-AS10")).length < 244);
+    }
+
+    @Test
+    public void shouldDeserializeFormOfAsnOfOlderVersions() throws Exception {
+        // Asn.of(65546L) serialized by default serialization of its fields
+        String serialized = "aced00057372001d636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e41736effffffffffffffff020001"
+            + "4a000576616c75657870000000000001000a";
+        assertEquals(Asn.of(65546L), SerializationTestHelper.deserialize(serialized));
+    }
+
+    @Test
+    public void shouldDeserializeFormOfIpv4RangeOfOlderVersions() throws Exception {
+        // Ipv4Range.parse("10.0.0.0/8") serialized by default serialization of its fields
+        String serialized = "aced000573720023636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e4970763452616e67650000000000"
+            + "00000102000078720029636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e416273747261637449705261"
+            + "6e67652ef25e6726f41b9302000078720027636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e41627374"
+            + "7261637452616e676501a3a0e5212179d60200024c0003656e647400254c636f6d2f6769746875622f6a676f6e69616e"
+            + "2f69706d6174682f52616e676561626c653b4c0005737461727471007e000378707372001e636f6d2e6769746875622e"
+            + "6a676f6e69616e2e69706d6174682e49707634ffffffffffffffff0200014c000576616c75657400104c6a6176612f6c"
+            + "616e672f4c6f6e673b78720024636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e416273747261637449"
+            + "70cb98c9eb2ae7c68502000078707372000e6a6176612e6c616e672e4c6f6e673b8be490cc8f23df0200014a00057661"
+            + "6c7565787200106a6176612e6c616e672e4e756d62657286ac951d0b94e08b0200007870000000000affffff7371007e"
+            + "00057371007e0009000000000a000000";
+        assertEquals(Ipv4Range.parse("10.0.0.0/8"), SerializationTestHelper.deserialize(serialized));
+    }
+
+    @Test
+    public void shouldDeserializeFormOfIpv6RangeOfOlderVersions() throws Exception {
+        // Ipv6Range.parse("2001:db8::/32") serialized by default serialization of its fields
+        String serialized = "aced000573720023636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e4970763652616e67650000000000"
+            + "00000102000078720029636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e416273747261637449705261"
+            + "6e67652ef25e6726f41b9302000078720027636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e41627374"
+            + "7261637452616e676501a3a0e5212179d60200024c0003656e647400254c636f6d2f6769746875622f6a676f6e69616e"
+            + "2f69706d6174682f52616e676561626c653b4c0005737461727471007e000378707372001e636f6d2e6769746875622e"
+            + "6a676f6e69616e2e69706d6174682e49707636ffffffffffffffff0200014c000576616c75657400164c6a6176612f6d"
+            + "6174682f426967496e74656765723b78720024636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e416273"
+            + "74726163744970cb98c9eb2ae7c6850200007870737200146a6176612e6d6174682e426967496e74656765728cfc9f1f"
+            + "a93bfb1d030006490008626974436f756e744900096269744c656e67746849001366697273744e6f6e7a65726f427974"
+            + "654e756d49000c6c6f776573745365744269744900067369676e756d5b00096d61676e69747564657400025b42787200"
+            + "106a6176612e6c616e672e4e756d62657286ac951d0b94e08b0200007870fffffffffffffffffffffffefffffffe0000"
+            + "0001757200025b42acf317f8060854e002000078700000001020010db8ffffffffffffffffffffffff787371007e0005"
+            + "7371007e0009fffffffffffffffffffffffefffffffe000000017571007e000d0000001020010db80000000000000000"
+            + "0000000078";
+        assertEquals(Ipv6Range.parse("2001:db8::/32"), SerializationTestHelper.deserialize(serialized));
+    }
+
+    @Test
+    public void shouldDeserializeFormOfAsnRangeOfOlderVersions() throws Exception {
+        // AsnRange.parse("AS1-AS10") serialized by default serialization of its fields
+        String serialized = "aced000573720022636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e41736e52616e67658f78ada83015"
+            + "e6d902000078720027636f6d2e6769746875622e6a676f6e69616e2e69706d6174682e416273747261637452616e6765"
+            + "01a3a0e5212179d60200024c0003656e647400254c636f6d2f6769746875622f6a676f6e69616e2f69706d6174682f52"
+            + "616e676561626c653b4c0005737461727471007e000278707372001d636f6d2e6769746875622e6a676f6e69616e2e69"
+            + "706d6174682e41736effffffffffffffff0200014a000576616c75657870000000000000000a7371007e000400000000"
+            + "00000001";
+        assertEquals(AsnRange.parse("AS1-AS10"), SerializationTestHelper.deserialize(serialized));
+    }
+
+    @Test
+    public void shouldRejectUnknownType() throws Exception {
+        byte[] bytes = SerializationTestHelper.serialize(Ipv4.of("10.0.0.1"));
+        // type byte, 4 value bytes and the end of block data marker
+        bytes[bytes.length - 6] = 42;
+
+        thrown.expect(InvalidObjectException.class);
+        thrown.expectMessage("Unknown type: 42");
+        SerializationTestHelper.deserialize(bytes);
+    }
+
+    @Test
+    public void shouldRejectRangeWithStartAfterEnd() throws Exception {
+        byte[] bytes = SerializationTestHelper.serialize(Ipv4Range.parse("10.0.0.0/31"));
+        // swap the last bytes of start and end, which come before the end of block data marker
+        bytes[bytes.length - 2] = 0;
+        bytes[bytes.length - 6] = 1;
+
+        thrown.expect(InvalidObjectException.class);
+        SerializationTestHelper.deserialize(bytes);
+    }
+
+    private static int marginalSize(Object first, Object second) throws Exception {
+        List<Object> one = new ArrayList<Object>(Arrays.asList(first));
+        List<Object> two = new ArrayList<Object>(Arrays.asList(first, second));
+        return SerializationTestHelper.serialize(two).length - SerializationTestHelper.serialize(one).length;
+    }
+}
@@ -0,0 +1,196 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class SortedRangeMapTest {
+
+    private final SortedRangeMap<Ipv4, Ipv4Range, String> subject = new SortedRangeMap<Ipv4, Ipv4Range, String>();
+
+    @Test
+    public void shouldGetValueOfContainingRange() {
+        subject.put(Ipv4Range.parse("10.0.0.0/8"), "NL");
+        subject.put(Ipv4Range.parse("192.168.0.0/16"), "GR");
+
+        assertEquals("NL", subject.get(Ipv4.of("10.0.0.0")));
+        assertEquals("NL", subject.get(Ipv4.of("10.255.255.255")));
+        assertEquals("GR", subject.get(Ipv4.of("192.168.1.1")));
+        assertNull(subject.get(Ipv4.of("9.255.255.255")));
+        assertNull(subject.get(Ipv4.of("11.0.0.0")));
+        assertFalse(subject.containsKey(Ipv4.of("0.0.0.0")));
+        assertEquals(entry(Ipv4Range.parse("10.0.0.0/8"), "NL"), subject.getEntry(Ipv4.of("10.1.2.3")));
+    }
+
+    @Test
+    public void shouldSplitOverlappingEntries() {
+        subject.put(Ipv4Range.parse("10.0.0.0/8"), "NL");
+        subject.put(Ipv4Range.parse("10.1.0.0/16"), "GR");
+
+        assertEquals(Arrays.asList(
+                entry(Ipv4Range.parse("10.0.0.0-10.0.255.255"), "NL"),
+                entry(Ipv4Range.parse("10.1.0.0/16"), "GR"),
+                entry(Ipv4Range.parse("10.2.0.0-10.255.255.255"), "NL")), entries(subject));
+    }
+
+    @Test
+    public void shouldReplaceEntriesWithinRange() {
+        subject.put(Ipv4Range.parse("10.0.0.0/16"), "NL");
+        subject.put(Ipv4Range.parse("10.1.0.0/16"), "GR");
+        subject.put(Ipv4Range.parse("10.2.0.0/16"), "NL");
+        subject.put(Ipv4Range.parse("10.0.128.0-10.2.127.255"), "DE");
+
+        assertEquals(Arrays.asList(
+                entry(Ipv4Range.parse("10.0.0.0/17"), "NL"),
+                entry(Ipv4Range.parse("10.0.128.0-10.2.127.255"), "DE"),
+                entry(Ipv4Range.parse("10.2.128.0/17"), "NL")), entries(subject));
+    }
+
+    @Test
+    public void shouldCoalesceConsecutiveEntriesWithEqualValues() {
+        subject.put(Ipv4Range.parse("10.0.0.0/16"), "NL");
+        subject.put(Ipv4Range.parse("10.2.0.0/16"), "NL");
+        subject.put(Ipv4Range.parse("10.1.0.0/16"), new String("NL"));
+
+        assertEquals(Arrays.asList(entry(Ipv4Range.parse("10.0.0.0-10.2.255.255"), "NL")), entries(subject));
+    }
+
+    @Test
+    public void shouldNotCoalesceConsecutiveEntriesWithOtherValues() {
+        subject.put(Ipv4Range.parse("10.0.0.0/16"), "NL");
+        subject.put(Ipv4Range.parse("10.1.0.0/16"), "GR");
+
+        assertEquals(2, subject.size());
+    }
+
+    @Test
+    public void shouldMergeBackWhenSplitIsUndone() {
+        subject.put(Ipv4Range.parse("10.0.0.0/8"), "NL");
+        subject.put(Ipv4Range.parse("10.1.0.0/16"), "GR");
+        subject.put(Ipv4Range.parse("10.1.0.0/16"), "NL");
+
+        assertEquals(Arrays.asList(entry(Ipv4Range.parse("10.0.0.0/8"), "NL")), entries(subject));
+    }
+
+    @Test
+    public void shouldRemoveRangeFromEntries() {
+        subject.put(Ipv4Range.parse("10.0.0.0/8"), "NL");
+        subject.put(Ipv4Range.parse("11.0.0.0/8"), "GR");
+
+        assertTrue(subject.remove(Ipv4Range.parse("10.128.0.0-11.127.255.255")));
+        assertFalse(subject.remove(Ipv4Range.parse("12.0.0.0/8")));
+
+        assertEquals(Arrays.asList(
+                entry(Ipv4Range.parse("10.0.0.0/9"), "NL"),
+                entry(Ipv4Range.parse("11.128.0.0/9"), "GR")), entries(subject));
+    }
+
+    @Test
+    public void shouldHoldEdgesOfAddressSpace() {
+        subject.put(Ipv4Range.parse("0.0.0.0/0"), "ANY");
+        subject.put(Ipv4Range.parse("0.0.0.0/32"), "FIRST");
+        subject.put(Ipv4Range.parse("255.255.255.255/32"), "LAST");
+
+        assertEquals("FIRST", subject.get(Ipv4.FIRST_IPV4_ADDRESS));
+        assertEquals("ANY", subject.get(Ipv4.of("128.0.0.0")));
+        assertEquals("LAST", subject.get(Ipv4.LAST_IPV4_ADDRESS));
+        assertEquals(3, subject.size());
+    }
+
+    @Test
+    public void shouldBeEmpty() {
+        assertTrue(subject.isEmpty());
+        subject.put(Ipv4Range.parse("10.0.0.0/8"), "NL");
+        assertFalse(subject.isEmpty());
+        subject.clear();
+        assertTrue(subject.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldNotAcceptNullValues() {
+        subject.put(Ipv4Range.parse("10.0.0.0/8"), null);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void shouldNotRemoveThroughIterator() {
+        subject.put(Ipv4Range.parse("10.0.0.0/8"), "NL");
+        Iterator<Map.Entry<Ipv4Range, String>> iterator = subject.iterator();
+        iterator.next();
+        iterator.remove();
+    }
+
+    @Test
+    public void shouldAgreeWithValuesOfEachResource() {
+        Random random = new Random(42);
+        SortedRangeMap<Asn, AsnRange, Integer> map = new SortedRangeMap<Asn, AsnRange, Integer>();
+        Integer[] expected = new Integer[200];
+        for (int i = 0; i < 2000; i++) {
+            int start = random.nextInt(expected.length);
+            int end = Math.min(expected.length - 1, start + random.nextInt(20));
+            Integer value = random.nextInt(4) == 0 ? null : Integer.valueOf(random.nextInt(3));
+            AsnRange range = AsnRange.from((long) start).to((long) end);
+            if (value == null) {
+                map.remove(range);
+            } else {
+                map.put(range, value);
+            }
+            Arrays.fill(expected, start, end + 1, value);
+
+            for (int j = 0; j < expected.length; j++) {
+                assertEquals(expected[j], map.get(Asn.of((long) j)));
+            }
+            Map.Entry<AsnRange, Integer> previous = null;
+            for (Map.Entry<AsnRange, Integer> entry : map) {
+                assertFalse(previous != null && previous.getKey().isConsecutive(entry.getKey())
+                        && previous.getValue().equals(entry.getValue()));
+                previous = entry;
+            }
+        }
+    }
+
+    static <R, V> Map.Entry<R, V> entry(R range, V value) {
+        return new AbstractMap.SimpleImmutableEntry<R, V>(range, value);
+    }
+
+    private static <R, V> List<Map.Entry<R, V>> entries(Iterable<Map.Entry<R, V>> map) {
+        List<Map.Entry<R, V>> result = new ArrayList<Map.Entry<R, V>>();
+        for (Map.Entry<R, V> entry : map) {
+            result.add(entry);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,274 @@
+/**
+ * The MIT License (MIT)
+ *
+ * Copyright (c) 2011-2017, Yannis Gonianakis
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+package com.github.jgonian.ipmath;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SortedRangeSetCodecTest {
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void shouldEncodeEmptySet() {
+        byte[] encoded = SortedRangeSetCodec.IPV4.encode(new SortedRangeSet<Ipv4, Ipv4Range>());
+
+        assertArrayEquals(new byte[]{1, 4, 0, 0}, encoded);
+        assertTrue(SortedRangeSetCodec.IPV4.decode(encoded).isEmpty());
+    }
+
+    @Test
+    public void shouldEncodeIpv4RangesAsDeltas() {
+        SortedRangeSet<Ipv4, Ipv4Range> ranges = new SortedRangeSet<Ipv4, Ipv4Range>();
+        ranges.add(Ipv4Range.parse("0.0.0.1-0.0.0.2"));
+        ranges.add(Ipv4Range.parse("0.0.0.5/32"));
+        ranges.add(Ipv4Range.parse("0.0.1.0/24"));
+
+        byte[] encoded = SortedRangeSetCodec.IPV4.encode(ranges);
+
+        // gaps 1, 5 - 2 - 2 and 256 - 5 - 2, lengths 1, 0 and 255
+        assertArrayEquals(new byte[]{1, 4, 3, 8, 1, 1, 1, 0, (byte) 0xF9, 1, (byte) 0xFF, 1}, encoded);
+        assertEquals(ranges, SortedRangeSetCodec.IPV4.decode(encoded));
+    }
+
+    @Test
+    public void shouldRoundTripEdgesOfEachFamily() {
+        assertRoundTrip(SortedRangeSetCodec.IPV4, set(Ipv4Range.parse("0.0.0.0/0")));
+        assertRoundTrip(SortedRangeSetCodec.IPV4, set(Ipv4Range.parse("0.0.0.0/32"), Ipv4Range.parse("255.255.255.255/32")));
+        assertRoundTrip(SortedRangeSetCodec.IPV6, set(Ipv6Range.parse("::/0")));
+        assertRoundTrip(SortedRangeSetCodec.IPV6, set(Ipv6Range.parse("::/128"), Ipv6Range.parse("::2/128"),
+                Ipv6Range.parse("ffff:ffff:ffff:ffff::-ffff:ffff:ffff:ffff:ffff:ffff:ffff:fffd"),
+                Ipv6Range.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff/128")));
+        assertRoundTrip(SortedRangeSetCodec.ASN, set(AsnRange.parse("AS0-AS4294967295")));
+        assertRoundTrip(SortedRangeSetCodec.ASN, set(Asn.of(0L).asRange(), Asn.of(4294967295L).asRange()));
+    }
+
+    @Test
+    public void shouldRoundTripRandomSets() {
+        for (int i = 0; i < 50; i++) {
+            SortedRangeSet<Ipv4, Ipv4Range> ipv4Ranges = new SortedRangeSet<Ipv4, Ipv4Range>();
+            SortedRangeSet<Ipv6, Ipv6Range> ipv6Ranges = new SortedRangeSet<Ipv6, Ipv6Range>();
+            SortedRangeSet<Asn, AsnRange> asnRanges = new SortedRangeSet<Asn, AsnRange>();
+            for (int j = random.nextInt(200); j >= 0; j--) {
+                long start = random.nextInt() & 0xFFFFFFFFL;
+                long end = Math.min(Ipv4.MAXIMUM_VALUE, start + (random.nextInt(Integer.MAX_VALUE) >>> random.nextInt(31)));
+                ipv4Ranges.add(Ipv4Range.from(Ipv4.ofUnsigned(start)).to(Ipv4.ofUnsigned(end)));
+                asnRanges.add(AsnRange.from(Asn.of(start)).to(Asn.of(end)));
+                BigInteger ipv6Start = new BigInteger(1 + random.nextInt(127), random);
+                BigInteger ipv6End = ipv6Start.add(new BigInteger(random.nextInt(127), random)).min(Ipv6.LAST_IPV6_ADDRESS.asBigInteger());
+                ipv6Ranges.add(Ipv6Range.from(ipv6Start).to(ipv6End));
+            }
+            assertRoundTrip(SortedRangeSetCodec.IPV4, ipv4Ranges);
+            assertRoundTrip(SortedRangeSetCodec.IPV6, ipv6Ranges);
+            assertRoundTrip(SortedRangeSetCodec.ASN, asnRanges);
+        }
+    }
+
+    @Test
+    public void shouldUseAFewBytesPerIpv4Prefix() {
+        SortedRangeSet<Ipv4, Ipv4Range> ranges = new SortedRangeSet<Ipv4, Ipv4Range>();
+        for (int i = 0; i < 10000; i++) {
+            ranges.add(Ipv4Range.from(Ipv4.ofUnsigned((random.nextInt() & 0xFFFFFFFFL) & ~0xFFL)).andPrefixLength(24));
+        }
+
+        int size = SortedRangeSetCodec.IPV4.encode(ranges).length;
+
+        assertEquals(size, SortedRangeSetCodec.IPV4.encodedSize(ranges));
+        assertTrue("bytes per range: " + (double) size / ranges.size(), size <= 5 * ranges.size());
+    }
+
+    @Test
+    public void shouldEncodeAtPositionOfByteBuffers() {
+        SortedRangeSet<Ipv6, Ipv6Range> ranges = set(Ipv6Range.parse("2001:db8::/32"), Ipv6Range.parse("2001:dbb::/48"));
+        int size = SortedRangeSetCodec.IPV6.encodedSize(ranges);
+
+        for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(size + 10), ByteBuffer.allocateDirect(size + 10))) {
+            buffer.position(3);
+            ByteBuffer slice = buffer.slice();
+            SortedRangeSetCodec.IPV6.encode(ranges, slice);
+            slice.put((byte) 42);
+            assertEquals(size + 1, slice.position());
+
+            slice.flip();
+            assertEquals(ranges, SortedRangeSetCodec.IPV6.decode(slice));
+            assertEquals(42, slice.get());
+        }
+    }
+
+    @Test(expected = BufferOverflowException.class)
+    public void shouldNotEncodeIntoTooSmallBuffer() {
+        SortedRangeSetCodec.IPV4.encode(set(Ipv4Range.parse("10.0.0.0/8")), ByteBuffer.allocate(5));
+    }
+
+    @Test
+    public void shouldNotReadPastTheEndOfStreams() throws IOException {
+        SortedRangeSet<Asn, AsnRange> ranges = set(AsnRange.parse("AS1-AS10"), AsnRange.parse("AS64512-AS65534"));
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        SortedRangeSetCodec.ASN.encode(ranges, (OutputStream) out);
+        SortedRangeSetCodec.ASN.encode(ranges, (DataOutput) out);
+        out.writeInt(42);
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        assertEquals(ranges, SortedRangeSetCodec.ASN.decode((InputStream) in));
+        assertEquals(ranges, SortedRangeSetCodec.ASN.decode((DataInput) in));
+        assertEquals(42, in.readInt());
+    }
+
+    @Test
+    public void shouldStreamLargeSetsInChunks() throws IOException {
+        SortedRangeSet<Ipv6, Ipv6Range> ranges = new SortedRangeSet<Ipv6, Ipv6Range>();
+        for (int i = 0; i < 5000; i++) {
+            ranges.add(Ipv6Range.from(new BigInteger(64, random).shiftLeft(64)).andPrefixLength(64));
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        SortedRangeSetCodec.IPV6.encode(ranges, out);
+
+        assertArrayEquals(SortedRangeSetCodec.IPV6.encode(ranges), out.toByteArray());
+        assertEquals(ranges, SortedRangeSetCodec.IPV6.decode(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    @Test(expected = EOFException.class)
+    public void shouldRejectTruncatedStream() throws IOException {
+        byte[] encoded = SortedRangeSetCodec.IPV4.encode(set(Ipv4Range.parse("10.0.0.0/8")));
+        SortedRangeSetCodec.IPV4.decode(new ByteArrayInputStream(Arrays.copyOf(encoded, encoded.length - 1)));
+    }
+
+    @Test(expected = EOFException.class)
+    public void shouldNotTrustBodyLengthOfTruncatedStream() throws IOException {
+        // a body of Integer.MAX_VALUE bytes, of which only two arrive
+        byte[] encoded = {1, 4, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0};
+        SortedRangeSetCodec.IPV4.decode(new ByteArrayInputStream(encoded));
+    }
+
+    @Test
+    public void shouldRejectTruncatedHeader() {
+        byte[] encoded = SortedRangeSetCodec.IPV6.encode(set(Ipv6Range.parse("2001:db8::/32")));
+        for (int length = 0; length < 4; length++) {
+            try {
+                SortedRangeSetCodec.IPV6.decode(ByteBuffer.wrap(Arrays.copyOf(encoded, length)));
+                fail("Expected an exception for a header of " + length + " bytes");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTruncatedHeaderVarint() {
+        SortedRangeSetCodec.IPV4.decode(new byte[]{1, 4, (byte) 0x80});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectUnknownVersion() {
+        SortedRangeSetCodec.IPV4.decode(new byte[]{2, 4, 0, 0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectOtherFamily() {
+        SortedRangeSetCodec.IPV6.decode(SortedRangeSetCodec.IPV4.encode(set(Ipv4Range.parse("10.0.0.0/8"))));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTruncatedBody() {
+        SortedRangeSetCodec.IPV4.decode(new byte[]{1, 4, 1, 1, 0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectTrailingBytesInBody() {
+        SortedRangeSetCodec.IPV4.decode(new byte[]{1, 4, 1, 3, 0, 0, 0});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectIpv4RangeOutOfBounds() {
+        // start 255.255.255.255 with a length of 1
+        SortedRangeSetCodec.IPV4.decode(new byte[]{1, 4, 1, 6, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F, 1});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldRejectIpv6RangeOutOfBounds() {
+        byte[] encoded = SortedRangeSetCodec.IPV6.encode(set(Ipv6Range.parse("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff/128")));
+        // a length of one more than the last address
+        encoded[encoded.length - 1] = 1;
+        SortedRangeSetCodec.IPV6.decode(encoded);
+    }
+
+    @Test
+    public void shouldEncodePatchAsRemovedAndAddedSets() {
+        RangeSetPatch<Ipv4, Ipv4Range> patch = RangeSetPatch.diff(set(Ipv4Range.parse("0.0.0.5/32")),
+                set(Ipv4Range.parse("0.0.1.0/24")));
+
+        byte[] encoded = SortedRangeSetCodec.IPV4.encode(patch);
+
+        assertArrayEquals(new byte[]{1, 4, 1, 2, 5, 0, 1, 4, 1, 4, (byte) 0x80, 2, (byte) 0xFF, 1}, encoded);
+        assertEquals(patch, SortedRangeSetCodec.IPV4.decodePatch(encoded));
+    }
+
+    @Test
+    public void shouldStreamPatches() throws IOException {
+        SortedRangeSet<Ipv6, Ipv6Range> oldVersion = set(Ipv6Range.parse("2001:db8::/32"), Ipv6Range.parse("2001:dbb::/48"));
+        SortedRangeSet<Ipv6, Ipv6Range> newVersion = set(Ipv6Range.parse("2001:db8::/33"), Ipv6Range.parse("2001:dba::/48"));
+        RangeSetPatch<Ipv6, Ipv6Range> patch = RangeSetPatch.diff(oldVersion, newVersion);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        SortedRangeSetCodec.IPV6.encode(patch, bytes);
+        bytes.write(42);
+
+        assertArrayEquals(SortedRangeSetCodec.IPV6.encode(patch), Arrays.copyOf(bytes.toByteArray(), bytes.size() - 1));
+        InputStream in = new ByteArrayInputStream(bytes.toByteArray());
+        assertEquals(patch, SortedRangeSetCodec.IPV6.decodePatch(in));
+        assertEquals(42, in.read());
+    }
+
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> SortedRangeSet<C, R> set(R... ranges) {
+        SortedRangeSet<C, R> result = new SortedRangeSet<C, R>();
+        result.addAll(Arrays.asList(ranges));
+        return result;
+    }
+
+    private static <C extends Rangeable<C, R>, R extends Range<C, R>> void assertRoundTrip(SortedRangeSetCodec<C, R> codec,
+                                                                                            SortedRangeSet<C, R> ranges) {
+        byte[] encoded = codec.encode(ranges);
+        assertEquals(encoded.length, codec.encodedSize(ranges));
+        assertEquals(ranges, codec.decode(encoded));
+    }
+}
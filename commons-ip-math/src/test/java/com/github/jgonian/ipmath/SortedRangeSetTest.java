@@ -24,10 +24,13 @@
 package com.github.jgonian.ipmath;
 
 import static junit.framework.Assert.*;
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
 import java.util.Set;
 import java.util.Vector;
 
@@ -675,6 +678,364 @@ public class SortedRangeSetTest {
         assertEquals(expected, subject.intersection(other));
     }
     
+    @Test
+    public void shouldUnionTwoSets() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(1l)));
+        subject.add(new AsnRange(Asn.of(5l), Asn.of(6l)));
+        subject.add(new AsnRange(Asn.of(10l), Asn.of(10l)));
+
+        SortedRangeSet<Asn, AsnRange> other = new SortedRangeSet<Asn, AsnRange>();
+        other.add(new AsnRange(Asn.of(2l), Asn.of(3l)));
+        other.add(new AsnRange(Asn.of(6l), Asn.of(7l)));
+        other.add(new AsnRange(Asn.of(12l), Asn.of(12l)));
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.add(new AsnRange(Asn.of(0l), Asn.of(3l)));
+        expected.add(new AsnRange(Asn.of(5l), Asn.of(7l)));
+        expected.add(new AsnRange(Asn.of(10l), Asn.of(10l)));
+        expected.add(new AsnRange(Asn.of(12l), Asn.of(12l)));
+
+        assertEquals(expected, subject.union(other));
+        assertEquals(expected, other.union(subject));
+    }
+
+    @Test
+    public void shouldUnionTwoSetsWhenOneRangeContainsOthers() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(10l)));
+
+        SortedRangeSet<Asn, AsnRange> other = new SortedRangeSet<Asn, AsnRange>();
+        other.add(new AsnRange(Asn.of(1l), Asn.of(2l)));
+        other.add(new AsnRange(Asn.of(4l), Asn.of(5l)));
+        other.add(new AsnRange(Asn.of(11l), Asn.of(12l)));
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.add(new AsnRange(Asn.of(0l), Asn.of(12l)));
+
+        assertEquals(expected, subject.union(other));
+    }
+
+    @Test
+    public void shouldUnionTwoSetsWhenEmptySets() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(1l)));
+        SortedRangeSet<Asn, AsnRange> empty = new SortedRangeSet<Asn, AsnRange>();
+
+        assertEquals(subject, subject.union(empty));
+        assertEquals(subject, empty.union(subject));
+        assertTrue(empty.union(empty).isEmpty());
+    }
+
+    @Test
+    public void shouldIntersectTwoSetsWhenOneRangeSpansSeveral() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(20l)));
+
+        SortedRangeSet<Asn, AsnRange> other = new SortedRangeSet<Asn, AsnRange>();
+        other.add(new AsnRange(Asn.of(1l), Asn.of(2l)));
+        other.add(new AsnRange(Asn.of(4l), Asn.of(5l)));
+        other.add(new AsnRange(Asn.of(19l), Asn.of(25l)));
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.add(new AsnRange(Asn.of(1l), Asn.of(2l)));
+        expected.add(new AsnRange(Asn.of(4l), Asn.of(5l)));
+        expected.add(new AsnRange(Asn.of(19l), Asn.of(20l)));
+
+        assertEquals(expected, subject.intersection(other));
+        assertEquals(expected, other.intersection(subject));
+    }
+
+    @Test
+    public void shouldSubtractTwoSets() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(10l)));
+        subject.add(new AsnRange(Asn.of(20l), Asn.of(30l)));
+
+        SortedRangeSet<Asn, AsnRange> other = new SortedRangeSet<Asn, AsnRange>();
+        other.add(new AsnRange(Asn.of(2l), Asn.of(3l)));
+        other.add(new AsnRange(Asn.of(5l), Asn.of(5l)));
+        other.add(new AsnRange(Asn.of(9l), Asn.of(21l)));
+        other.add(new AsnRange(Asn.of(30l), Asn.of(40l)));
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.add(new AsnRange(Asn.of(0l), Asn.of(1l)));
+        expected.add(new AsnRange(Asn.of(4l), Asn.of(4l)));
+        expected.add(new AsnRange(Asn.of(6l), Asn.of(8l)));
+        expected.add(new AsnRange(Asn.of(22l), Asn.of(29l)));
+
+        assertEquals(expected, subject.difference(other));
+    }
+
+    @Test
+    public void shouldSubtractTwoSetsWhenRangeIsFullyRemoved() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(1l)));
+        subject.add(new AsnRange(Asn.of(3l), Asn.of(4l)));
+
+        SortedRangeSet<Asn, AsnRange> other = new SortedRangeSet<Asn, AsnRange>();
+        other.add(new AsnRange(Asn.of(0l), Asn.of(10l)));
+
+        assertTrue(subject.difference(other).isEmpty());
+        assertEquals(subject, subject.difference(new SortedRangeSet<Asn, AsnRange>()));
+    }
+
+    @Test
+    public void shouldGetSymmetricDifferenceOfTwoSets() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(5l)));
+
+        SortedRangeSet<Asn, AsnRange> other = new SortedRangeSet<Asn, AsnRange>();
+        other.add(new AsnRange(Asn.of(3l), Asn.of(8l)));
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.add(new AsnRange(Asn.of(0l), Asn.of(2l)));
+        expected.add(new AsnRange(Asn.of(6l), Asn.of(8l)));
+
+        assertEquals(expected, subject.symmetricDifference(other));
+        assertEquals(expected, other.symmetricDifference(subject));
+    }
+
+    @Test
+    public void shouldCoalesceSymmetricDifferenceWhenPartsAreConsecutive() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(2l)));
+
+        SortedRangeSet<Asn, AsnRange> other = new SortedRangeSet<Asn, AsnRange>();
+        other.add(new AsnRange(Asn.of(3l), Asn.of(5l)));
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.add(new AsnRange(Asn.of(0l), Asn.of(5l)));
+
+        assertEquals(expected, subject.symmetricDifference(other));
+        assertEquals(1, subject.symmetricDifference(other).size());
+    }
+
+    @Test
+    public void shouldKeepSetModifiableAfterSweepingAddAll() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(1l)));
+        SortedRangeSet<Asn, AsnRange> other = new SortedRangeSet<Asn, AsnRange>();
+        other.add(new AsnRange(Asn.of(3l), Asn.of(4l)));
+
+        subject.addAll(other);
+        subject.add(new AsnRange(Asn.of(2l), Asn.of(2l)));
+        subject.addAll(subject);
+
+        assertEquals(1, subject.size());
+        assertEquals(new AsnRange(Asn.of(0l), Asn.of(4l)), subject.getSingleRange());
+    }
+
+    @Test
+    public void shouldAgreeWithPerRangeOperationsOnRandomSets() {
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            List<AsnRange> left = randomRanges(random);
+            List<AsnRange> right = randomRanges(random);
+            SortedRangeSet<Asn, AsnRange> a = new SortedRangeSet<Asn, AsnRange>();
+            a.addAll(left);
+            SortedRangeSet<Asn, AsnRange> b = new SortedRangeSet<Asn, AsnRange>();
+            b.addAll(right);
+
+            SortedRangeSet<Asn, AsnRange> union = new SortedRangeSet<Asn, AsnRange>();
+            union.addAll(left);
+            union.addAll(right);
+            assertEquals(union, a.union(b));
+
+            SortedRangeSet<Asn, AsnRange> difference = new SortedRangeSet<Asn, AsnRange>();
+            difference.addAll(left);
+            difference.removeAll(right);
+            assertEquals(difference, a.difference(b));
+
+            SortedRangeSet<Asn, AsnRange> reverseDifference = new SortedRangeSet<Asn, AsnRange>();
+            reverseDifference.addAll(right);
+            reverseDifference.removeAll(left);
+            SortedRangeSet<Asn, AsnRange> symmetricDifference = new SortedRangeSet<Asn, AsnRange>();
+            symmetricDifference.addAll(difference.unmodifiableSet());
+            symmetricDifference.addAll(reverseDifference.unmodifiableSet());
+            assertEquals(symmetricDifference, a.symmetricDifference(b));
+
+            SortedRangeSet<Asn, AsnRange> intersection = new SortedRangeSet<Asn, AsnRange>();
+            intersection.addAll(left);
+            intersection.removeAll(difference.unmodifiableSet());
+            assertEquals(intersection, a.intersection(b));
+
+            SortedRangeSet<Asn, AsnRange> swept = new SortedRangeSet<Asn, AsnRange>();
+            swept.addAll(a);
+            swept.addAll(b);
+            assertEquals(union, swept);
+            swept = new SortedRangeSet<Asn, AsnRange>();
+            swept.addAll(a);
+            swept.removeAll(b);
+            assertEquals(difference, swept);
+        }
+    }
+
+    private static List<AsnRange> randomRanges(Random random) {
+        List<AsnRange> ranges = new ArrayList<AsnRange>();
+        int count = random.nextInt(20);
+        for (int i = 0; i < count; i++) {
+            long start = random.nextInt(200);
+            ranges.add(new AsnRange(Asn.of(start), Asn.of(start + random.nextInt(10))));
+        }
+        return ranges;
+    }
+
+    @Test
+    public void shouldComplementWithinUniverse() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(2l)));
+        subject.add(new AsnRange(Asn.of(5l), Asn.of(6l)));
+        subject.add(new AsnRange(Asn.of(9l), Asn.of(20l)));
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.add(new AsnRange(Asn.of(3l), Asn.of(4l)));
+        expected.add(new AsnRange(Asn.of(7l), Asn.of(8l)));
+
+        assertEquals(expected, subject.complement(new AsnRange(Asn.of(1l), Asn.of(10l))));
+    }
+
+    @Test
+    public void shouldComplementEmptySetToUniverse() {
+        AsnRange universe = new AsnRange(Asn.of(1l), Asn.of(10l));
+        assertEquals(universe, subject.complement(universe).getSingleRange());
+    }
+
+    @Test
+    public void shouldComplementToEmptySetWhenUniverseIsCovered() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(20l)));
+        assertTrue(subject.complement(new AsnRange(Asn.of(1l), Asn.of(10l))).isEmpty());
+    }
+
+    @Test
+    public void shouldComplementUpToTheEndOfTheUniverse() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(2l)));
+        subject.add(new AsnRange(Asn.of(30l), Asn.of(40l)));
+        AsnRange universe = new AsnRange(Asn.of(0l), Asn.of(Asn.ASN_32_BIT_MAX_VALUE));
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.add(new AsnRange(Asn.of(3l), Asn.of(29l)));
+        expected.add(new AsnRange(Asn.of(41l), Asn.of(Asn.ASN_32_BIT_MAX_VALUE)));
+
+        assertEquals(expected, subject.complement(universe));
+        assertEquals(universe, subject.union(subject.complement(universe)).getSingleRange());
+    }
+
+    @Test
+    public void shouldIterateOverGaps() {
+        subject.add(new AsnRange(Asn.of(2l), Asn.of(2l)));
+        subject.add(new AsnRange(Asn.of(4l), Asn.of(4l)));
+
+        Iterator<AsnRange> gaps = subject.gaps(new AsnRange(Asn.of(0l), Asn.of(5l)));
+
+        assertEquals(new AsnRange(Asn.of(0l), Asn.of(1l)), gaps.next());
+        assertEquals(new AsnRange(Asn.of(3l), Asn.of(3l)), gaps.next());
+        assertEquals(new AsnRange(Asn.of(5l), Asn.of(5l)), gaps.next());
+        assertFalse(gaps.hasNext());
+    }
+
+    @Test
+    public void shouldSkipGapsSmallerThanMinimumSize() {
+        subject.add(new AsnRange(Asn.of(2l), Asn.of(2l)));
+        subject.add(new AsnRange(Asn.of(5l), Asn.of(5l)));
+        subject.add(new AsnRange(Asn.of(7l), Asn.of(7l)));
+
+        Iterator<AsnRange> gaps = subject.gaps(new AsnRange(Asn.of(0l), Asn.of(10l)), 2l);
+
+        assertEquals(new AsnRange(Asn.of(0l), Asn.of(1l)), gaps.next());
+        assertEquals(new AsnRange(Asn.of(3l), Asn.of(4l)), gaps.next());
+        assertEquals(new AsnRange(Asn.of(8l), Asn.of(10l)), gaps.next());
+        assertFalse(gaps.hasNext());
+        assertFalse(subject.gaps(new AsnRange(Asn.of(0l), Asn.of(10l)), 4l).hasNext());
+    }
+
+    @Test
+    public void shouldSkipIpv4GapsSmallerThanMinimumSize() {
+        SortedRangeSet<Ipv4, Ipv4Range> ranges = new SortedRangeSet<Ipv4, Ipv4Range>();
+        ranges.add(Ipv4Range.parse("10.0.0.128/25"));
+        ranges.add(Ipv4Range.parse("10.0.2.0/24"));
+
+        Iterator<Ipv4Range> gaps = ranges.gaps(Ipv4Range.parse("10.0.0.0/22"), 256);
+
+        assertEquals(Ipv4Range.parse("10.0.1.0/24"), gaps.next());
+        assertEquals(Ipv4Range.parse("10.0.3.0/24"), gaps.next());
+        assertFalse(gaps.hasNext());
+    }
+
+    @Test
+    public void shouldSkipIpv6GapsSmallerThanMinimumSize() {
+        SortedRangeSet<Ipv6, Ipv6Range> ranges = new SortedRangeSet<Ipv6, Ipv6Range>();
+        ranges.add(Ipv6Range.parse("2001:db8::/33"));
+        ranges.add(Ipv6Range.parse("2001:db8:c000::/34"));
+        Ipv6Range universe = Ipv6Range.parse("2001:db8::/32");
+
+        Iterator<Ipv6Range> gaps = ranges.gaps(universe, BigInteger.ONE.shiftLeft(94));
+        assertEquals(Ipv6Range.parse("2001:db8:8000::/34"), gaps.next());
+        assertFalse(gaps.hasNext());
+
+        assertFalse(ranges.gaps(universe, BigInteger.ONE.shiftLeft(94).add(BigInteger.ONE)).hasNext());
+        assertFalse(ranges.gaps(universe, BigInteger.ONE.shiftLeft(129)).hasNext());
+        SortedRangeSet<Ipv6, Ipv6Range> empty = new SortedRangeSet<Ipv6, Ipv6Range>();
+        assertEquals(Ipv6Range.parse("::/0"), empty.gaps(Ipv6Range.parse("::/0"), BigInteger.ONE.shiftLeft(128)).next());
+        assertTrue(ranges.gaps(universe, BigInteger.ZERO).hasNext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToIterateOverGapsWhenMinimumSizeHasWrongType() {
+        subject.gaps(new AsnRange(Asn.of(0l), Asn.of(10l)), BigInteger.valueOf(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldFailToIterateOverIpv6GapsWithLongMinimumSize() {
+        new SortedRangeSet<Ipv6, Ipv6Range>().gaps(Ipv6Range.parse("::/0"), 2);
+    }
+
+    @Test(expected = NoSuchElementException.class)
+    public void shouldFailToGetNextGapWhenThereAreNoMoreGaps() {
+        subject.add(new AsnRange(Asn.of(0l), Asn.of(10l)));
+        subject.gaps(new AsnRange(Asn.of(0l), Asn.of(10l))).next();
+    }
+
+    @Test
+    public void shouldAddAllSortedRangesToEmptySet() {
+        List<AsnRange> ranges = new ArrayList<AsnRange>();
+        ranges.add(new AsnRange(Asn.of(0l), Asn.of(2l)));
+        ranges.add(new AsnRange(Asn.of(1l), Asn.of(5l)));
+        ranges.add(new AsnRange(Asn.of(6l), Asn.of(7l)));
+        ranges.add(new AsnRange(Asn.of(10l), Asn.of(10l)));
+
+        subject.addAllSorted(ranges);
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.addAll(ranges);
+        assertEquals(expected, subject);
+        assertEquals(2, subject.size());
+    }
+
+    @Test
+    public void shouldAddAllSortedRangesToNonEmptySet() {
+        subject.add(new AsnRange(Asn.of(3l), Asn.of(4l)));
+        subject.add(new AsnRange(Asn.of(20l), Asn.of(30l)));
+        List<AsnRange> ranges = new ArrayList<AsnRange>();
+        ranges.add(new AsnRange(Asn.of(0l), Asn.of(2l)));
+        ranges.add(new AsnRange(Asn.of(10l), Asn.of(10l)));
+        ranges.add(new AsnRange(Asn.of(25l), Asn.of(35l)));
+
+        subject.addAllSorted(ranges);
+
+        SortedRangeSet<Asn, AsnRange> expected = new SortedRangeSet<Asn, AsnRange>();
+        expected.add(new AsnRange(Asn.of(0l), Asn.of(4l)));
+        expected.add(new AsnRange(Asn.of(10l), Asn.of(10l)));
+        expected.add(new AsnRange(Asn.of(20l), Asn.of(35l)));
+        assertEquals(expected, subject);
+    }
+
+    @Test
+    public void shouldNotChangeSetWhenSortedRangesAreNotSorted() {
+        subject.add(new AsnRange(Asn.of(3l), Asn.of(4l)));
+        List<AsnRange> ranges = new ArrayList<AsnRange>();
+        ranges.add(new AsnRange(Asn.of(10l), Asn.of(10l)));
+        ranges.add(new AsnRange(Asn.of(0l), Asn.of(2l)));
+
+        try {
+            subject.addAllSorted(ranges);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+
+        assertEquals(new AsnRange(Asn.of(3l), Asn.of(4l)), subject.getSingleRange());
+    }
+
     @Test
     public void shouldGetFloor() {
         subject.add(new AsnRange(Asn.of(2l), Asn.of(2l)));